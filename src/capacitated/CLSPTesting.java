@@ -6,10 +6,10 @@ import java.util.stream.IntStream;
 import sdp.inventory.GetPmf;
 import sdp.inventory.Recursion;
 import sdp.inventory.State;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
 import sdp.inventory.Recursion.OptDirection;
 import sdp.inventory.Simulation;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.write.WriteToCsv;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.NormalDist;
@@ -86,7 +86,7 @@ public class CLSPTesting {
 							};
 
 							// state transition function
-							StateTransitionFunction<State, Double, Double, State> stateTransition = (state, action, randomDemand) -> {
+							DoubleStateTransition<State> stateTransition = (state, action, randomDemand) -> {
 								double nextInventory = state.getIniInventory() + action - randomDemand;
 								nextInventory = nextInventory > maxInventory ? maxInventory : nextInventory;
 								nextInventory = nextInventory < minInventory ? minInventory : nextInventory;
@@ -94,7 +94,7 @@ public class CLSPTesting {
 							};
 
 							// immediate value
-							ImmediateValueFunction<State, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+							DoubleImmediateValue<State> immediateValue = (state, action, randomDemand) -> {
 								double fixedCost = 0, variableCost = 0, inventoryLevel = 0, holdingCosts = 0, penaltyCosts = 0;
 								fixedCost = action > 0 ? fixedOrderingCost : 0;
 								variableCost = variOrderingCost * action;
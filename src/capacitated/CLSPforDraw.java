@@ -9,9 +9,9 @@ import sdp.inventory.GetPmf;
 import sdp.inventory.Recursion;
 import sdp.inventory.Simulation;
 import sdp.inventory.State;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
 import sdp.inventory.Recursion.OptDirection;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import umontreal.ssj.probdist.DiscreteDistribution;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.NormalDist;
@@ -72,7 +72,7 @@ public class CLSPforDraw {
 		};
 
 		// state transition function
-		StateTransitionFunction<State, Double, Double, State> stateTransition = (state, action, randomDemand) -> {
+		DoubleStateTransition<State> stateTransition = (state, action, randomDemand) -> {
 			double nextInventory = state.getIniInventory() + action - randomDemand;
 			nextInventory = nextInventory > maxInventory ? maxInventory : nextInventory;
 			nextInventory = nextInventory < minInventory ? minInventory : nextInventory;
@@ -80,7 +80,7 @@ public class CLSPforDraw {
 		};
 
 		// immediate value
-		ImmediateValueFunction<State, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<State> immediateValue = (state, action, randomDemand) -> {
 			double fixedCost = 0, variableCost = 0, inventoryLevel = 0, holdingCosts = 0, penaltyCosts = 0;
 			fixedCost = action > 0 ? fixedOrderingCost : 0;
 			variableCost = variOrderingCost * action;
@@ -134,7 +134,7 @@ public class CLSPforDraw {
 		// since comupteIfAbsent, we need initializing a new class to draw Gy; if not,
 		// java would not compute sdp again
 		// must redefine stateTransition function and immediate Function;
-		StateTransitionFunction<State, Double, Double, State> stateTransition2 = (state, action, randomDemand) -> {
+		DoubleStateTransition<State> stateTransition2 = (state, action, randomDemand) -> {
 			double nextInventory = isForDrawGy && state.getPeriod() == 1 ? state.getIniInventory() - randomDemand
 					: state.getIniInventory() + action - randomDemand;
 			nextInventory = nextInventory > maxInventory ? maxInventory : nextInventory;
@@ -142,7 +142,7 @@ public class CLSPforDraw {
 			return new State(state.getPeriod() + 1, nextInventory);
 		};
 
-		ImmediateValueFunction<State, Double, Double, Double> immediateValue2 = (state, action, randomDemand) -> {
+		DoubleImmediateValue<State> immediateValue2 = (state, action, randomDemand) -> {
 			double fixedCost = 0, variableCost = 0, inventoryLevel = 0, holdingCosts = 0, penaltyCosts = 0;
 			if (isForDrawGy == true && state.getPeriod() == 1) {
 				fixedCost = 0;
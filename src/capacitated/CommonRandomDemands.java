@@ -0,0 +1,56 @@
+package capacitated;
+
+import java.util.Arrays;
+
+import sdp.sampling.Sampling;
+import umontreal.ssj.probdist.Distribution;
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 18, 2026---5:41:26 PM
+ * @description: common random numbers for simulation-optimisation: the demand samples of every horizon window
+ *               (a start period and a length) are drawn once and reused by all the ordering quantities evaluated
+ *               on that window, so gradients are computed on the same paths.
+ *
+ *               Each window is drawn from the start of the random stream, one sample per run, which gives the same
+ *               demands as simulating the window after Sampling.resetStartStream().
+ */
+
+public class CommonRandomDemands {
+	double[][][][] samples; // samples[period][t][run] are the demands of the window from period with length t + 1
+	int runNum;
+
+	/**
+	 * @param distributions demand distributions of the whole planning horizon
+	 * @param runNum simulation runs of each window
+	 */
+	public CommonRandomDemands(Distribution[] distributions, int runNum) {
+		int T = distributions.length;
+		this.runNum = runNum;
+		this.samples = new double[T][][][];
+		for (int period = 0; period < T; period++) {
+			samples[period] = new double[T - period][][];
+			for (int t = 0; t < T - period; t++) {
+				Distribution[] window = Arrays.copyOfRange(distributions, period, period + t + 1);
+				Sampling.resetStartStream();
+				samples[period][t] = new double[runNum][];
+				for (int run = 0; run < runNum; run++)
+					samples[period][t][run] = new Sampling().generateLHSamples(window, 1)[0];
+			}
+		}
+	}
+
+	/**
+	 * @param period start period of the window, from 0
+	 * @param length number of periods in the window
+	 * @return demand samples of the window, samples[run][t]; shared, must not be modified
+	 */
+	public double[][] getSamples(int period, int length) {
+		return samples[period][length - 1];
+	}
+
+	public int getRunNum() {
+		return runNum;
+	}
+}
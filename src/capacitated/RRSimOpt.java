@@ -1,6 +1,5 @@
 package capacitated;
 
-import java.util.Arrays;
 import java.util.stream.IntStream;
 
 import sdp.sampling.Sampling;
@@ -34,6 +33,9 @@ public class RRSimOpt {
 	Sampling sfQ = new Sampling();
 	Sampling sfP = new Sampling();
 
+	CommonRandomDemands crn;
+	boolean parallel = true;
+
 	double K;
 	double v;
 	double s;
@@ -56,6 +58,7 @@ public class RRSimOpt {
 
 		this.inventory = inventory;
 
+		this.crn = new CommonRandomDemands(distributions, minMonteCarloSimulationRunsQ);
 		Sampling.resetStartStream();
 	}
 
@@ -78,7 +81,7 @@ public class RRSimOpt {
 				i += Q;
 			}
 
-			i -= d[t][0];
+			i -= d[0][t];
 			c += inventoryCost(i);
 		}
 		return c;
@@ -102,39 +105,83 @@ public class RRSimOpt {
 		return centerAndRadius;
 	}
 
-	public double getQ(int period, double inventory) {
-		double noOrder = simulateCycle(0, inventory, new Distribution[] { this.distributions[period] })[0];
+	/**
+	 * evaluate some ordering quantities on the same demand paths (common random numbers)
+	 * 
+	 * @param Qs ordering quantities in the first period of the cycle
+	 * @param inventory
+	 * @param samples demand samples of the cycle, samples[run][t]
+	 * @return mean costs of each ordering quantity, the same as simulateCycle(Q)[0] on these paths
+	 */
+	public double[] simulateCycles(double[] Qs, double inventory, double[][] samples) {
+		double[] sums = new double[Qs.length];
+		for (double[] d : samples) {
+			for (int k = 0; k < Qs.length; k++) {
+				double costs = orderingCost(Qs[k]);
+				double x = inventory + Qs[k];
+				for (int t = 0; t < d.length; t++) {
+					x -= d[t];
+					costs += inventoryCost(x);
+				}
+				sums[k] += costs;
+			}
+		}
+		for (int k = 0; k < Qs.length; k++)
+			sums[k] /= samples.length;
+		return sums;
+	}
 
-		double bestCapital = Double.MAX_VALUE;
-		double bestQ = 0;
-		for (int t = 0; t < this.distributions.length - period; t++) {
-			Distribution[] reducedHorizon = Arrays.stream(distributions, period, period + t + 1)
-					.toArray(Distribution[]::new);
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * bisection of Q on each reduced horizon uses the cached common random demands,
+	 * reduced horizons are independent and solved in parallel
+	 */
+	public double getQ(int period, double inventory) {
+		double noOrder = simulateCycles(new double[] { 0 }, inventory, crn.getSamples(period, 1))[0];
+
+		int horizonNum = this.distributions.length - period;
+		double[] Qs = new double[horizonNum];
+		double[] cycleCosts = new double[horizonNum];
+		IntStream horizons = IntStream.range(0, horizonNum);
+		if (parallel)
+			horizons = horizons.parallel();
+		horizons.forEach(t -> {
+			double[][] samples = crn.getSamples(period, t + 1);
+			boolean discrete = this.distributions[period + t] instanceof DiscreteDistributionInt;
 
 			double Qlb = minQ;
 			double Qub = maxQ;
 
 			double Q = (Qub + Qlb) / 2;
 			do {
-				double gradient = this.simulateCycle(Q, inventory, reducedHorizon)[0]
-						- this.simulateCycle(Q + step, inventory, reducedHorizon)[0];
+				double[] costs = simulateCycles(new double[] { Q, Q + step }, inventory, samples);
+				double gradient = costs[0] - costs[1];
 				if (gradient > 0) {
 					Qlb = Q + step;
 				} else {
 					Qub = Q;
 				}
 				Q = (Qub + Qlb) / 2;
-			} while ((reducedHorizon[t] instanceof DiscreteDistributionInt && Qub - Qlb > step));
+			} while (discrete && Qub - Qlb > step);
 			Q = Math.round(Q);
 
-			double curCapital = (this.simulateCycle(Q, inventory, reducedHorizon)[0]) / reducedHorizon.length;
-			if (curCapital < bestCapital) {
-				bestCapital = curCapital;
-				bestQ = Q;
+			Qs[t] = Q;
+			cycleCosts[t] = simulateCycles(new double[] { Q }, inventory, samples)[0] / (t + 1);
+		});
+
+		double bestCosts = Double.MAX_VALUE;
+		double bestQ = 0;
+		for (int t = 0; t < horizonNum; t++) {
+			if (cycleCosts[t] < bestCosts) {
+				bestCosts = cycleCosts[t];
+				bestQ = Qs[t];
 			}
 		}
 
-		return noOrder < bestCapital ? 0 : bestQ;
+		return noOrder < bestCosts ? 0 : bestQ;
 	}
 
 	public double simulateSingleRun() {
@@ -149,7 +196,7 @@ public class RRSimOpt {
 				i += Q;
 			}
 
-			i -= d[t][0];
+			i -= d[0][t];
 			c += inventoryCost(i);
 		}
 		return c;
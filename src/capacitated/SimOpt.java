@@ -6,6 +6,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 import sdp.sampling.Sampling;
 import umontreal.ssj.probdist.DiscreteDistributionInt;
@@ -44,6 +45,9 @@ public class SimOpt {
 	Sampling sfP = new Sampling();
 	Sampling sfQ = new Sampling();
 
+	CommonRandomDemands crn;
+	boolean parallel = true;
+
 	public SimOpt(double fixOrderCost, double variOrderCost, double penaltyCost, double holdingCost,
 			Distribution[] distributions, int maxOrderQuantity) {
 		this.fixOrderCost = fixOrderCost;
@@ -53,6 +57,7 @@ public class SimOpt {
 		this.distributions = distributions;
 		this.maxQ = maxOrderQuantity;
 
+		this.crn = new CommonRandomDemands(distributions, minMonteCarloSimulationRunsQ);
 		Sampling.resetStartStream();
 	}
 
@@ -95,35 +100,79 @@ public class SimOpt {
 		return centerAndRadius;
 	}
 
-	public double getQ(int period, double inventory) {
-		double noOrderCosts = simulateMultiRunCycle(0, inventory, new Distribution[] { this.distributions[period] })[0];
+	/**
+	 * evaluate some ordering quantities on the same demand paths (common random numbers)
+	 * 
+	 * @param Qs ordering quantities in the first period of the cycle
+	 * @param inventory
+	 * @param samples demand samples of the cycle, samples[run][t]
+	 * @return mean costs of each ordering quantity, the same as simulateMultiRunCycle(Q)[0] on these paths
+	 */
+	public double[] simulateCycles(double[] Qs, double inventory, double[][] samples) {
+		double[] sums = new double[Qs.length];
+		for (double[] d : samples) {
+			for (int k = 0; k < Qs.length; k++) {
+				double costs = orderingCost(Qs[k]);
+				double x = inventory + Qs[k];
+				for (int t = 0; t < d.length; t++) {
+					x -= d[t];
+					costs += inventoryCost(x);
+				}
+				sums[k] += costs;
+			}
+		}
+		for (int k = 0; k < Qs.length; k++)
+			sums[k] /= samples.length;
+		return sums;
+	}
 
-		double bestCosts = Double.MAX_VALUE;
-		double bestQ = 0;
-		for (int t = 0; t < this.distributions.length - period; t++) {
-			Distribution[] reducedHorizon = Arrays.stream(distributions, period, period + t + 1)
-					.toArray(Distribution[]::new);
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * bisection of Q on each reduced horizon uses the cached common random demands,
+	 * reduced horizons are independent and solved in parallel
+	 */
+	public double getQ(int period, double inventory) {
+		double noOrderCosts = simulateCycles(new double[] { 0 }, inventory, crn.getSamples(period, 1))[0];
+
+		int horizonNum = this.distributions.length - period;
+		double[] Qs = new double[horizonNum];
+		double[] cycleCosts = new double[horizonNum];
+		IntStream horizons = IntStream.range(0, horizonNum);
+		if (parallel)
+			horizons = horizons.parallel();
+		horizons.forEach(t -> {
+			double[][] samples = crn.getSamples(period, t + 1);
+			boolean discrete = this.distributions[period + t] instanceof DiscreteDistributionInt;
 
 			double Qlb = minQ;
 			double Qub = maxQ;
 
 			double Q = (Qub + Qlb) / 2;
 			do {
-				double gradient = this.simulateMultiRunCycle(Q, inventory, reducedHorizon)[0]
-						- this.simulateMultiRunCycle(Q + step, inventory, reducedHorizon)[0];
+				double[] costs = simulateCycles(new double[] { Q, Q + step }, inventory, samples);
+				double gradient = costs[0] - costs[1];
 				if (gradient > 0) {
 					Qlb = Q + step;
 				} else {
 					Qub = Q;
 				}
 				Q = (Qub + Qlb) / 2;
-			} while ((reducedHorizon[t] instanceof DiscreteDistributionInt && Qub - Qlb > step));
+			} while (discrete && Qub - Qlb > step);
 			Q = Math.round(Q);
 
-			double curCosts = (this.simulateMultiRunCycle(Q, inventory, reducedHorizon)[0]) / reducedHorizon.length;
-			if (curCosts < bestCosts) {
-				bestCosts = curCosts;
-				bestQ = Q;
+			Qs[t] = Q;
+			cycleCosts[t] = simulateCycles(new double[] { Q }, inventory, samples)[0] / (t + 1);
+		});
+
+		double bestCosts = Double.MAX_VALUE;
+		double bestQ = 0;
+		for (int t = 0; t < horizonNum; t++) {
+			if (cycleCosts[t] < bestCosts) {
+				bestCosts = cycleCosts[t];
+				bestQ = Qs[t];
 			}
 		}
 
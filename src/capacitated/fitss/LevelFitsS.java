@@ -4,15 +4,15 @@ import java.util.Arrays;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 
-import milp.MIPFitsS;
 import sdp.inventory.CheckKConvexity;
+import sdp.inventory.FitsS;
 import sdp.inventory.GetPmf;
 import sdp.inventory.Drawing;
 import sdp.inventory.Recursion;
 import sdp.inventory.State;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
 import sdp.inventory.Recursion.OptDirection;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import umontreal.ssj.probdist.DiscreteDistribution;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.NormalDist;
@@ -73,7 +73,7 @@ public class LevelFitsS {
 		};
 
 		// state transition function
-		StateTransitionFunction<State, Double, Double, State> stateTransition = (state, action, randomDemand) -> {
+		DoubleStateTransition<State> stateTransition = (state, action, randomDemand) -> {
 			double nextInventory = state.getIniInventory() + action - randomDemand;
 			nextInventory = nextInventory > maxInventory ? maxInventory : nextInventory;
 			nextInventory = nextInventory < minInventory ? minInventory : nextInventory;
@@ -81,7 +81,7 @@ public class LevelFitsS {
 		};
 
 		// immediate value
-		ImmediateValueFunction<State, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<State> immediateValue = (state, action, randomDemand) -> {
 			double fixedCost = 0, variableCost = 0, inventoryLevel = 0, holdingCosts = 0, penaltyCosts = 0;
 			fixedCost = action > 0 ? fixedOrderingCost : 0;
 			variableCost = variOrderingCost * action;
@@ -121,7 +121,7 @@ public class LevelFitsS {
 		 */
 		System.out.println("");
 		double[][] optTable = recursion.getOptTable();		
-		MIPFitsS findsS = new MIPFitsS(maxOrderQuantity, T);
+		FitsS findsS = new FitsS(maxOrderQuantity, T);
 		double[][] optsS = findsS.getSinglesS(optTable);
 		System.out.println("single s, S level: " + Arrays.deepToString(optsS));
 		optsS = findsS.getTwosS(optTable);
@@ -32,7 +32,7 @@ public class SimulateFitsS extends Simulation{
 	public double simulateSinglesS(State iniState, double[][] optsS, int maxOrderQuantity){
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		double[] simuValues = new double[samples.length];		
 		for (int i = 0; i < samples.length; i++) {
 			double sum = 0; State state = iniState;
@@ -43,8 +43,8 @@ public class SimulateFitsS extends Simulation{
 					optQ = optsS[t][1];
 				else 
 					optQ =  state.getIniInventory() >= optsS[t][0] ? 0 : Math.min(maxOrderQuantity, optsS[t][1] - state.getIniInventory());;
-				sum += immediateValue.apply(state, optQ, samples[i][t]);
-				state = stateTransition.apply(state, optQ, samples[i][t]);
+				sum += immediateValue().apply(state, optQ, samples[i][t]);
+				state = stateTransition().apply(state, optQ, samples[i][t]);
 			}
 			simuValues[i] = sum;
 		}
@@ -63,7 +63,7 @@ public class SimulateFitsS extends Simulation{
 	public double simulateTwosS(State iniState, double[][] optsS, int maxOrderQuantity){
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		double[] costs = new double[samples.length];
 		for (int i = 0; i < samples.length; i++) {
 			double sum = 0; State state = iniState;
@@ -80,8 +80,8 @@ public class SimulateFitsS extends Simulation{
 					else
 						optQ = 0.0;
 				}
-				sum += immediateValue.apply(state, optQ, samples[i][t]);
-				state = stateTransition.apply(state, optQ, samples[i][t]);
+				sum += immediateValue().apply(state, optQ, samples[i][t]);
+				state = stateTransition().apply(state, optQ, samples[i][t]);
 				costs[i] = sum;
 			}
 		}
@@ -100,7 +100,7 @@ public class SimulateFitsS extends Simulation{
 	public double simulateThreesS(State iniState, double[][] optsS, int maxOrderQuantity){
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		double[] costs = new double[samples.length];
 		for (int i = 0; i < samples.length; i++) {
 			double sum = 0; State state = iniState;
@@ -119,8 +119,8 @@ public class SimulateFitsS extends Simulation{
 					else
 						optQ = 0.0;
 				}
-				sum += immediateValue.apply(state, optQ, samples[i][t]);
-				state = stateTransition.apply(state, optQ, samples[i][t]);
+				sum += immediateValue().apply(state, optQ, samples[i][t]);
+				state = stateTransition().apply(state, optQ, samples[i][t]);
 				costs[i] = sum;
 			}
 		}
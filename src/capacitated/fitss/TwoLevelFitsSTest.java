@@ -4,13 +4,13 @@ import java.util.Arrays;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 
-import milp.MIPFitsS;
+import sdp.inventory.FitsS;
 import sdp.inventory.GetPmf;
 import sdp.inventory.Recursion;
 import sdp.inventory.State;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
 import sdp.inventory.Recursion.OptDirection;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.write.WriteToCsv;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
@@ -84,7 +84,7 @@ public class TwoLevelFitsSTest {
 							};
 
 							// state transition function
-							StateTransitionFunction<State, Double, Double, State> stateTransition = (state, action, randomDemand) -> {
+							DoubleStateTransition<State> stateTransition = (state, action, randomDemand) -> {
 								double nextInventory = state.getIniInventory() + action - randomDemand;
 								nextInventory = nextInventory > maxInventory ? maxInventory : nextInventory;
 								nextInventory = nextInventory < minInventory ? minInventory : nextInventory;
@@ -92,7 +92,7 @@ public class TwoLevelFitsSTest {
 							};
 
 							// immediate value
-							ImmediateValueFunction<State, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+							DoubleImmediateValue<State> immediateValue = (state, action, randomDemand) -> {
 								double fixedCost = 0, variableCost = 0, inventoryLevel = 0, holdingCosts = 0, penaltyCosts = 0;
 								fixedCost = action > 0 ? fixedOrderingCost : 0;
 								variableCost = proportionalOrderingCost * action;
@@ -124,7 +124,7 @@ public class TwoLevelFitsSTest {
 							int sampleNum = 10000;
 							SimulateFitsS simuation = new SimulateFitsS(distributions, sampleNum, recursion);
 							double[][] optTable = recursion.getOptTable();
-							MIPFitsS findsS = new MIPFitsS(maxOrderQuantity, T);
+							FitsS findsS = new FitsS(maxOrderQuantity, T);
 							double[][] optsS = findsS.getTwosS(optTable);
 							System.out.println(Arrays.deepToString(optsS));
 							simuation.simulateSDPGivenSamplNum(initialState);
@@ -21,9 +21,13 @@ import sdp.cash.multiItem.CashSimulationMulti;
 import sdp.cash.multiItem.CashStateMulti;
 import sdp.cash.multiItem.Demands;
 import sdp.cash.multiItem.GetPmfMulti;
+import sdp.cash.multiItem.NewsvendorKernelMulti;
 import sdp.inventory.GetPmf;
 import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.ImmediateValue.ImmediateValueFunctionMulti;
 import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.StateTransition.StateTransitionFunctionMulti;
+import sdp.sampling.ProductIterator;
 import sdp.write.WriteToExcel;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
@@ -94,41 +98,51 @@ public class MultiItemCashLookPolicy {
 			return actions;
 		};
 		
-		// Immediate Value Function	      
-		ImmediateValueFunction<CashStateMulti, Actions, Demands, Double> immediateValue
-		= (IniState, Actions, RandomDemands) -> {
-			double action1 = Actions.getFirstAction();
-			double action2 = Actions.getSecondAction();
-			double demand1 = RandomDemands.getFirstDemand();
-			double demand2 = RandomDemands.getSecondDemand();
-			double endInventory1 = Math.max(0, IniState.getIniInventory1() + action1 - demand1);
-			double endInventory2 = Math.max(0, IniState.getIniInventory2() + action2 - demand2);
-			double revenue = price[0] * (IniState.getIniInventory1() + action1 - endInventory1)
-					+ price[1] * (IniState.getIniInventory2() + action2 - endInventory2);
+		// scan the same joint actions without building the list
+		double[] qAxis = ProductIterator.range(0, Qbound, 1);
+		Function<CashStateMulti, ProductIterator> actionSpace = s -> 
+			new ProductIterator(qAxis, qAxis).filter(ProductIterator.withinBudget(variCost, s.getIniCash()));
+		
+		// Immediate Value Function, primitive version for the recursion
+		ImmediateValueFunctionMulti immediateValueMulti = (period, x1, x2, cash, action1, action2, demand1, demand2) -> {
+			double endInventory1 = Math.max(0, x1 + action1 - demand1);
+			double endInventory2 = Math.max(0, x2 + action2 - demand2);
+			double revenue = price[0] * (x1 + action1 - endInventory1)
+					+ price[1] * (x2 + action2 - endInventory2);
 			double orderingCosts = variCost[0] * action1 + variCost[1] * action2;
 			double salValue = 0;
-			if (IniState.getPeriod() == T - 1) {
+			if (period == T - 1) {
 				salValue = salPrice[0] * endInventory1 + salPrice[1] * endInventory2;
 			}
 			return revenue - orderingCosts + salValue;
 		};
-	    	
-		// State Transition Function
-
-		StateTransitionFunction<CashStateMulti, Actions, Demands, CashStateMulti> stateTransition = (IniState, Actions, RandomDemands) -> {
-			double endInventory1 = IniState.getIniInventory1() + Actions.getFirstAction() - RandomDemands.getFirstDemand();
-			endInventory1 = Math.max(0, endInventory1);
-			double endInventory2 = IniState.getIniInventory2() + Actions.getSecondAction() - RandomDemands.getSecondDemand();
-			endInventory2 = Math.max(0, endInventory2);
-			double nextCash = IniState.getIniCash() + immediateValue.apply(IniState, Actions, RandomDemands);
+		
+		// State Transition Function, primitive version for the recursion
+		StateTransitionFunctionMulti stateTransitionMulti = (period, x1, x2, cash, action1, action2, demand1, demand2, nextState) -> {
+			double endInventory1 = Math.max(0, x1 + action1 - demand1);
+			double endInventory2 = Math.max(0, x2 + action2 - demand2);
+			double nextCash = cash + immediateValueMulti.apply(period, x1, x2, cash, action1, action2, demand1, demand2);
 			nextCash = nextCash > maxCashState ? maxCashState : nextCash;
 			nextCash = nextCash < minCashState ? minCashState : nextCash;
-			endInventory1 = endInventory1 > maxInventoryState ? maxInventoryState : endInventory1;
-			endInventory2 = endInventory2 < minInventoryState ? minInventoryState : endInventory2;
-			nextCash = (int) nextCash;  // rounding states to save computing time
-			endInventory1 = (int) endInventory1;
-			endInventory2 = (int) endInventory2;
-			return new CashStateMulti(IniState.getPeriod() + 1, endInventory1, endInventory2, nextCash);
+			endInventory1 = Math.min(Math.max(endInventory1, minInventoryState), maxInventoryState); // same bounds as the kernel
+			endInventory2 = Math.min(Math.max(endInventory2, minInventoryState), maxInventoryState);
+			nextState[0] = (int) endInventory1;  // rounding states to save computing time
+			nextState[1] = (int) endInventory2;
+			nextState[2] = (int) nextCash;
+		};
+		
+		// generic versions for the simulation
+		ImmediateValueFunction<CashStateMulti, Actions, Demands, Double> immediateValue
+		= (IniState, Actions, RandomDemands) -> immediateValueMulti.apply(IniState.getPeriod(), IniState.getIniInventory1(), 
+				IniState.getIniInventory2(), IniState.getIniCash(), Actions.getFirstAction(), Actions.getSecondAction(), 
+				RandomDemands.getFirstDemand(), RandomDemands.getSecondDemand());
+		
+		StateTransitionFunction<CashStateMulti, Actions, Demands, CashStateMulti> stateTransition = (IniState, Actions, RandomDemands) -> {
+			double[] nextState = new double[3];
+			stateTransitionMulti.apply(IniState.getPeriod(), IniState.getIniInventory1(), IniState.getIniInventory2(), 
+					IniState.getIniCash(), Actions.getFirstAction(), Actions.getSecondAction(), 
+					RandomDemands.getFirstDemand(), RandomDemands.getSecondDemand(), nextState);
+			return new CashStateMulti(IniState.getPeriod() + 1, nextState[0], nextState[1], nextState[2]);
 		};
 		
 		
@@ -138,8 +152,16 @@ public class MultiItemCashLookPolicy {
 		 */
 		CashRecursionMulti recursion = new CashRecursionMulti(discountFactor, pmf, buildActionList,
 				                             stateTransition, immediateValue, T);
+		recursion.setActionSpace(actionSpace);
+		recursion.setPrimitiveFunctions(stateTransitionMulti, immediateValueMulti);
+		NewsvendorKernelMulti kernel = new NewsvendorKernelMulti(pmf, price, variCost, salPrice, T - 1); // same salvage period as immediateValueMulti
+		kernel.setStateBounds(minInventoryState, maxInventoryState, minCashState, maxCashState);
+		recursion.setKernel(kernel);
 		int period = 1;
 		CashStateMulti iniState = new CashStateMulti(period, iniInventory1, iniInventory2, iniCash);
+		// the kernel replaces the functions in the recursion, the simulation below still uses them
+		if (kernel.maxDifference(iniState, Qbound / 10, Qbound / 10, immediateValueMulti, stateTransitionMulti) > 1e-6)
+			throw new IllegalStateException("the kernel and the transition functions describe different models");
 		long currTime = System.currentTimeMillis();
 		double finalValue = iniCash + recursion.getExpectedValueMulti(iniState);
 		System.out.println("final optimal cash  is " + finalValue);
@@ -8,10 +8,11 @@ import java.util.stream.IntStream;
 import sdp.cash.CashRecursion;
 import sdp.cash.CashSimulation;
 import sdp.cash.CashState;
+import sdp.cash.NewsvendorKernel;
 import sdp.cash.CashRecursion.OptDirection;
 import sdp.inventory.GetPmf;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
@@ -71,7 +72,7 @@ public class CashOverdraft {
 		// immediate value
 		// when to pay interest is important
 		// hold cost is zero
-		ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<CashState> immediateValue = (state, action, randomDemand) -> {
 			double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
 			double fixedCost = action > 0 ? fixOrderCost : 0;
 			double variableCost = variCost * action;
@@ -87,7 +88,7 @@ public class CashOverdraft {
 		};
 
 		// state transition function
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action,
+		DoubleStateTransition<CashState> stateTransition = (state, action,
 				randomDemand) -> {
 			double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 			double nextCash = state.getIniCash() + immediateValue.apply(state, action, randomDemand);
@@ -109,6 +110,12 @@ public class CashOverdraft {
 		CashState initialState = new CashState(period, iniInventory, iniCash);
 		long currTime = System.currentTimeMillis();
 		recursion.setTreeMapCacheAction();
+		
+		// same reward as immediateValue, evaluated on contiguous demand arrays
+		NewsvendorKernel kernel = new NewsvendorKernel(pmf, price, fixOrderCost, variCost, holdingCost, salvageValue);
+		kernel.setInterestRate(interestRate);
+		kernel.setStateBounds(minInventoryState, maxInventoryState, minCashState, maxCashState);
+		recursion.setKernel(kernel);
 		double finalCash = iniCash + recursion.getExpectedValue(initialState);
 		System.out.println("final optimal cash is: " + finalCash);
 		System.out.println("optimal order quantity in the first priod is : " + recursion.getAction(initialState));
@@ -12,8 +12,8 @@ import sdp.cash.CashState;
 import sdp.cash.CashRecursion.OptDirection;
 import sdp.inventory.GetPmf;
 import sdp.inventory.State;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
@@ -63,7 +63,7 @@ public class CashOverdraftLimit {
 		};
 
 		// immediate value
-		ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<CashState> immediateValue = (state, action, randomDemand) -> {
 			double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
 			double fixedCost = action > 0 ? fixOrderCost : 0;
 			double variableCost = variCost * action;
@@ -78,7 +78,7 @@ public class CashOverdraftLimit {
 		};
 		
 		// state transition function
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action,
+		DoubleStateTransition<CashState> stateTransition = (state, action,
 				randomDemand) -> {
 			double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 			double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
@@ -9,8 +9,8 @@ import sdp.cash.CashSimulation;
 import sdp.cash.CashState;
 import sdp.cash.CashRecursion.OptDirection;
 import sdp.inventory.GetPmf;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 
 import sdp.write.WriteToCsv;
 import umontreal.ssj.probdist.Distribution;
@@ -92,7 +92,7 @@ public class CashOverdraftLimitTesting{
 									};
 
 									// immediate value
-									ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state,
+									DoubleImmediateValue<CashState> immediateValue = (state,
 											action, randomDemand) -> {
 										double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
 										double fixedCost = action > 0 ? fixOrderCost : 0;
@@ -108,7 +108,7 @@ public class CashOverdraftLimitTesting{
 									};
 
 									// state transition function
-									StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state,
+									DoubleStateTransition<CashState> stateTransition = (state,
 											action, randomDemand) -> {
 										double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 										double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
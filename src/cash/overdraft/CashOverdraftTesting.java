@@ -9,8 +9,8 @@ import sdp.cash.CashSimulation;
 import sdp.cash.CashState;
 import sdp.cash.CashRecursion.OptDirection;
 import sdp.inventory.GetPmf;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 
 import sdp.write.WriteToCsv;
 import umontreal.ssj.probdist.Distribution;
@@ -82,7 +82,7 @@ public class CashOverdraftTesting {
 								};
 
 								// immediate value
-								ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state,
+								DoubleImmediateValue<CashState> immediateValue = (state,
 										action, randomDemand) -> {
 									double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
 									double fixedCost = action > 0 ? fixOrderCost : 0;
@@ -98,7 +98,7 @@ public class CashOverdraftTesting {
 								};
 
 								// state transition function
-								StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state,
+								DoubleStateTransition<CashState> stateTransition = (state,
 										action, randomDemand) -> {
 									double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 									double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
@@ -7,8 +7,8 @@ import java.util.stream.IntStream;
 import sdp.cash.CashState;
 import sdp.cash.CashStateXR;
 import sdp.inventory.GetPmf;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
 
@@ -59,7 +59,7 @@ public class CashOverdraftXR {
 		};
 		
 		// immediate value
-		ImmediateValueFunction<CashStateXR, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<CashStateXR> immediateValue = (state, action, randomDemand) -> {
 			double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
 			double fixedCost = action > 0 ? fixOrderCost : 0;
 			double variableCost = variCost * action;
@@ -74,7 +74,7 @@ public class CashOverdraftXR {
 		};
 
 		// state transition function
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action,
+		DoubleStateTransition<CashState> stateTransition = (state, action,
 				randomDemand) -> {
 			double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 			double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
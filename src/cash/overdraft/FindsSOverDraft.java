@@ -11,6 +11,9 @@ import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import sdp.inventory.PolicyTable;
+import sdp.inventory.SolverEvents;
+
 /**
  *@author: Zhen Chen
  *@email: 15011074486@163.com
@@ -34,23 +37,25 @@ public class FindsSOverDraft {
 	 * @return
 	 */
 	public double[][] getsS(double[][] optimalTable) {
+		SolverEvents.PolicyExtraction event = new SolverEvents.PolicyExtraction();
+		event.begin();
 		double[][] optimalsS = new double[T][2];
 		optimalsS[0][0] = optimalTable[0][1];
 		optimalsS[0][1] = optimalTable[0][1] + optimalTable[0][3];
+		PolicyTable policyTable = new PolicyTable(optimalTable); // rows grouped by period
 		for (int t = 1; t < T; t++) {
 			final int i = t + 1;
-			double[][] tOptTable = Arrays.stream(optimalTable).filter(p -> p[0] ==
-					i).map(p -> Arrays.stream(p).toArray())
-					.toArray(double[][] :: new);
+			PolicyTable.Slice tOptTable = policyTable.getPeriod(i);
 
-			for (int j = tOptTable.length - 1; j >= 0; j--) {
-				if (tOptTable[j][3] != 0) {
-					optimalsS[t][0] = tOptTable[j+1][1];
-					optimalsS[t][1] = tOptTable[j][1] + tOptTable[j][3];
+			for (int j = tOptTable.length() - 1; j >= 0; j--) {
+				if (tOptTable.get(j, 3) != 0) {
+					optimalsS[t][0] = tOptTable.get(j+1, 1);
+					optimalsS[t][1] = tOptTable.get(j, 1) + tOptTable.get(j, 3);
 					break;
 				}
 			}
 		}
+		event.commit("(s, S)", T, optimalTable.length);
 		System.out.println("(s, S) are: " + Arrays.deepToString(optimalsS));
 		return optimalsS;
 	}
@@ -61,43 +66,45 @@ public class FindsSOverDraft {
 	 * @return
 	 */
 	public double[][] getsCS(double[][] optimalTable) {
+		SolverEvents.PolicyExtraction event = new SolverEvents.PolicyExtraction();
+		event.begin();
 		double[][] optimalsCS = new double[T][3];
 		double minCashUsed = -500;
 		ArrayList<Double> recordC = new ArrayList<>(); 
 		optimalsCS[0][0] = optimalTable[0][1];
 		optimalsCS[0][1] = optimalTable[0][2];
 		optimalsCS[0][2] = optimalTable[0][1] + optimalTable[0][3];
+		PolicyTable policyTable = new PolicyTable(optimalTable); // rows grouped by period
 		for (int t = 1; t < T; t++) {
 			final int i = t + 1;
 			int recordsTime = 0;
-			double[][] tOptTable = Arrays.stream(optimalTable).filter(p -> p[0] ==
-					i).map(p -> Arrays.stream(p).toArray())
-					.toArray(double[][] :: new);
+			PolicyTable.Slice tOptTable = policyTable.getPeriod(i);
 
 			optimalsCS[t][2] = 0;
 			optimalsCS[t][1] = minCashUsed; 
 			double mark_s = 0;
-			for (int j = tOptTable.length - 1; j >= 0; j--) {
-				if (tOptTable[j][3] != 0) {
+			for (int j = tOptTable.length() - 1; j >= 0; j--) {
+				if (tOptTable.get(j, 3) != 0) {
 					if (mark_s == 0) {
-						optimalsCS[t][0] = tOptTable[j + 1][1]; // maximum not ordering inventory level as s
+						optimalsCS[t][0] = tOptTable.get(j + 1, 1); // maximum not ordering inventory level as s
 						mark_s = 1;
 					}
-					if (tOptTable[j][2] + tOptTable[j][3] > optimalsCS[t][2])  
-						optimalsCS[t][2] = tOptTable[j][1] + tOptTable[j][3]; // a maximum order-up-to level as S
+					if (tOptTable.get(j, 2) + tOptTable.get(j, 3) > optimalsCS[t][2])  
+						optimalsCS[t][2] = tOptTable.get(j, 1) + tOptTable.get(j, 3); // a maximum order-up-to level as S
 					recordsTime = 1;
 				}
 				
 				// choose a maximum not ordering cash level as C when ordering quantity is 0
 				// sometimes choose an average value
-				if (tOptTable[j][3] == 0 && recordsTime == 1) { 
-					recordC.add(tOptTable[j][2]);					
-					if (tOptTable[j][2] > optimalsCS[t][1]) // choose maximum value
-						optimalsCS[t][1] = tOptTable[j][2];
+				if (tOptTable.get(j, 3) == 0 && recordsTime == 1) { 
+					recordC.add(tOptTable.get(j, 2));					
+					if (tOptTable.get(j, 2) > optimalsCS[t][1]) // choose maximum value
+						optimalsCS[t][1] = tOptTable.get(j, 2);
 				}
 			}
 			//optimalsCS[t][1] = recordC.stream().mapToDouble(s -> s.doubleValue()).sum()/recordC.size();
 		}
+		event.commit("(s, C, S)", T, optimalTable.length);
 		System.out.println("(s, C, S) are: " + Arrays.deepToString(optimalsCS));
 		return optimalsCS;
 	}
@@ -112,6 +119,8 @@ public class FindsSOverDraft {
 	 * @return s, C, S1, S2
 	 */
 	public double[][] getsCS1S2(double[][] optimalTable) {
+		SolverEvents.PolicyExtraction event = new SolverEvents.PolicyExtraction();
+		event.begin();
 		double[][] optimalsCS1S2 = new double[T][4];
 		double minCashUsed = -500;
 		optimalsCS1S2[0][0] = optimalTable[0][1]; // s
@@ -120,10 +129,10 @@ public class FindsSOverDraft {
 		optimalsCS1S2[0][3] = optimalTable[0][1] + optimalTable[0][3]; // S2
 		
 
+		PolicyTable policyTable = new PolicyTable(optimalTable); // rows grouped by period
 		for (int t = 1; t < T; t++) {
 			final int i = t + 1;
-			double[][] tOptTable = Arrays.stream(optimalTable).filter(p -> p[0] ==
-					i).map(p -> Arrays.stream(p).toArray()).toArray(double[][] :: new);
+			PolicyTable.Slice tOptTable = policyTable.getPeriod(i);
 
 			optimalsCS1S2[t][2] = 0; // S1
 			optimalsCS1S2[t][3] = 0; // S2
@@ -132,13 +141,13 @@ public class FindsSOverDraft {
 			
 			// compute S frequency for C and S1, S2
 			Map<Integer, Integer> recordS = new HashMap<>(); // TreeMap always sorted by keys
-			for (int j = tOptTable.length - 1; j >= 0; j--) {
-				if (tOptTable[j][3] != 0) {
-					optimalsCS1S2[t][0] = tOptTable[j + 1][1]; // maximum not ordering inventory level as s
+			for (int j = tOptTable.length() - 1; j >= 0; j--) {
+				if (tOptTable.get(j, 3) != 0) {
+					optimalsCS1S2[t][0] = tOptTable.get(j + 1, 1); // maximum not ordering inventory level as s
 					sIndex = j;
 					for (int m = sIndex; m >= 0; m--) {
-						if (tOptTable[m][3] != 0) { // whether taking zero Q into account
-							int S = (int) (tOptTable[m][1] + tOptTable[m][3]);	
+						if (tOptTable.get(m, 3) != 0) { // whether taking zero Q into account
+							int S = (int) (tOptTable.get(m, 1) + tOptTable.get(m, 3));	
 							if (recordS.containsKey(S))
 								recordS.replace(S, recordS.get(S) + 1);
 							else 
@@ -166,13 +175,14 @@ public class FindsSOverDraft {
 			
 			// find C
 			for (int m = sIndex; m >= 0; m--) {
-				if (tOptTable[m][1] + tOptTable[m][3] <= S1 + 0.1 && tOptTable[m][1] + tOptTable[m][3] >= S1 - 0.1) {
-					optimalsCS1S2[t][1] = tOptTable[m][2];
+				if (tOptTable.get(m, 1) + tOptTable.get(m, 3) <= S1 + 0.1 && tOptTable.get(m, 1) + tOptTable.get(m, 3) >= S1 - 0.1) {
+					optimalsCS1S2[t][1] = tOptTable.get(m, 2);
 					break;
 				} 
 					
 			}
 		}
+		event.commit("(s, C, S1, S2)", T, optimalTable.length);
 		System.out.println("(s, C, S) are: " + Arrays.deepToString(optimalsCS1S2));
 		return optimalsCS1S2;
 	}
@@ -20,8 +20,8 @@ import sdp.cash.CashRecursion;
 import sdp.cash.CashState;
 import sdp.cash.CashRecursion.OptDirection;
 import sdp.inventory.GetPmf;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
 import umontreal.ssj.probdist.UniformIntDist;
@@ -80,7 +80,7 @@ public class TestPaper {
 		};
 		
 		// immediate value
-		ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<CashState> immediateValue = (state, action, randomDemand) -> {
 			double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
 			double variableCost = orderCost* action;
 			double inventoryLevel = state.getIniInventory() + action - randomDemand;
@@ -94,7 +94,7 @@ public class TestPaper {
 		};
 		
 		// state transition function
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action,
+		DoubleStateTransition<CashState> stateTransition = (state, action,
 				randomDemand) -> {
 					double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 					double nextCash = state.getIniCash() + immediateValue.apply(state, action, randomDemand);
@@ -12,8 +12,8 @@ import sdp.cash.CashRecursion;
 import sdp.cash.CashState;
 import sdp.cash.CashRecursion.OptDirection;
 import sdp.inventory.GetPmf;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
 
@@ -73,7 +73,7 @@ public class cashSurvival {
 		};
 		
 		// immediate value
-		ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<CashState> immediateValue = (state, action, randomDemand) -> {
 			double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
 			double fixedCost = action > 0 ? fixOrderCost : 0;
 			double variableCost = variCost * action;
@@ -92,7 +92,7 @@ public class cashSurvival {
 		};
 
 		// state transition function
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action,
+		DoubleStateTransition<CashState> stateTransition = (state, action,
 				randomDemand) -> {
 			double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 			double nextCash = state.getIniCash() + immediateValue.apply(state, action, randomDemand);
@@ -115,8 +115,11 @@ public class cashSurvival {
 		CashState initialState = new CashState(period, iniInventory, iniCash);
 		long currTime = System.currentTimeMillis();
 		recursion.setTreeMapCacheAction();
-		double finalValue = recursion.getSurvProb(initialState);
-		System.out.println("survival probability for this initial state is: " + finalValue);
+		// survival probability first, then expected cash, both from one backward pass
+		recursion.setVectorSelection(CashRecursion.VectorSelection.lexicographic(1e-8, 1, 0));
+		double[] finalValues = recursion.getExpectedVector(initialState);
+		System.out.println("survival probability for this initial state is: " + finalValues[1]);
+		System.out.println("expected final cash increment for this initial state is: " + finalValues[0]);
 		System.out.println("optimal order quantity in the first priod is : " + recursion.getAction(initialState));
 		double time = (System.currentTimeMillis() - currTime) / 1000;
 		System.out.println("running time is " + time + "s");
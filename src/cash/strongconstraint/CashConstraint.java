@@ -13,12 +13,13 @@ import milp.MipCashConstraint;
 import sdp.cash.CashRecursion;
 import sdp.cash.CashRecursion.OptDirection;
 import sdp.cash.CashSimulation;
+import sdp.cash.NewsvendorKernel;
 import sdp.inventory.CheckKConvexity;
 import sdp.inventory.Drawing;
 import sdp.inventory.GetPmf;
 import sdp.inventory.State;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.write.WriteToCsv;
 import sdp.cash.CashState;
 import umontreal.ssj.probdist.DiscreteDistribution;
@@ -110,7 +111,7 @@ public class CashConstraint {
 		};
 
 		// immediate value
-		ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<CashState> immediateValue = (state, action, randomDemand) -> {
 			double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
 			double fixedCost = action > 0 ? fixOrderCost : 0;
 			double variableCost = variCost * action;
@@ -128,7 +129,7 @@ public class CashConstraint {
 		};
 
 		// state transition function
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action,
+		DoubleStateTransition<CashState> stateTransition = (state, action,
 				randomDemand) -> {
 			double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 			double nextCash = state.getIniCash() + immediateValue.apply(state, action, randomDemand);
@@ -150,6 +151,15 @@ public class CashConstraint {
 		CashState initialState = new CashState(period, iniInventory, iniCash);
 		long currTime = System.currentTimeMillis();
 		recursion.setTreeMapCacheAction();
+		
+		// same reward as immediateValue, evaluated on contiguous demand arrays
+		NewsvendorKernel kernel = new NewsvendorKernel(pmf, price, fixOrderCost, variCost, holdingCost, salvageValue);
+		kernel.setDepositRate(depositeRate);
+		kernel.setOverhead(overheadCost, overheadRate);
+		kernel.setPenaltyCost(penaltyCost);
+		kernel.setStateBounds(minInventoryState, maxInventoryState, minCashState, maxCashState);
+		kernel.setCashRoundScale(10);
+		recursion.setKernel(kernel);
 		double finalValue = iniCash + recursion.getExpectedValue(initialState);
 		System.out.println("final optimal cash  is " + finalValue);
 		System.out.println("optimal order quantity in the first priod is : " + recursion.getAction(initialState));
@@ -15,8 +15,8 @@ import sdp.inventory.CheckKConvexity;
 import sdp.inventory.Drawing;
 import sdp.inventory.GetPmf;
 import sdp.inventory.State;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.write.WriteToCsv;
 import sdp.write.WriteToExcel;
 import umontreal.ssj.probdist.DiscreteDistribution;
@@ -92,7 +92,7 @@ public class CashConstraintDraw {
 		};
 
 		// immediate value
-		ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<CashState> immediateValue = (state, action, randomDemand) -> {
 			double revenue = 0;
 			double fixedCost = 0;
 			double variableCost = 0;
@@ -109,7 +109,7 @@ public class CashConstraintDraw {
 		};
 
 		// state transition function
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action,
+		DoubleStateTransition<CashState> stateTransition = (state, action,
 				randomDemand) -> {
 			double nextInventory = state.getIniInventory() + action - randomDemand;
 			double nextCash = state.getIniCash() + immediateValue.apply(state, action, randomDemand);
@@ -193,7 +193,7 @@ public class CashConstraintDraw {
 		 * stateTransition function and immediate Function;
 		 */
 		// immediate value for GB
-		ImmediateValueFunction<CashState, Double, Double, Double> immediateValue2 = (state, action, randomDemand) -> {
+		DoubleImmediateValue<CashState> immediateValue2 = (state, action, randomDemand) -> {
 			double revenue = 0;
 			double fixedCost = 0;
 			double variableCost = 0;
@@ -217,7 +217,7 @@ public class CashConstraintDraw {
 		};
 
 		// state transition function 2, for GB
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition2 = (state, action,
+		DoubleStateTransition<CashState> stateTransition2 = (state, action,
 				randomDemand) -> {
 			double nextInventory = isForDrawGy && state.getPeriod() == 1 ? state.getIniInventory() - randomDemand
 					: state.getIniInventory() + action - randomDemand;
@@ -234,23 +234,10 @@ public class CashConstraintDraw {
 		
 		CashRecursion recursion2 = new CashRecursion(OptDirection.MAX, pmf, getFeasibleAction, stateTransition2,
 				immediateValue2, discountFactor);
-		double[][] yG2 = new double[xLength * RLength][3];
-		int index = 0;
-		double[][] resultTableGB = new double[RLength][xLength];
-		int rowIndex = 0;
-		int columnIndex = 0;
-		for (double initialCash = minCash; initialCash <= maxCash; initialCash++) {
-			columnIndex = 0;
-			for (initialInventory = minInventorys; initialInventory <= maxInventorys; initialInventory++) {			
-			yG2[index][0] = initialCash; // initialInventory
-			yG2[index][1] = initialInventory;
-			yG2[index][2] = recursion2.getExpectedValue(new CashState(period, initialInventory, initialCash)); // iniCash
-			resultTableGB[rowIndex][columnIndex] = yG2[index][2];
-			index++;
-			columnIndex++;
-			}
-			rowIndex++;
-		}
+		// all the initial states share one value table and are solved in parallel
+		double[] iniCashes = DoubleStream.iterate(minCash, i -> i + 1).limit(RLength).toArray();
+		double[] iniInventories = DoubleStream.iterate(minInventorys, i -> i + 1).limit(xLength).toArray();
+		double[][] resultTableGB = recursion2.solveGrid(period, iniCashes, iniInventories, true)[0];
 		WriteToCsv wr = new WriteToCsv();
 		wr.writeArrayCSV(resultTableGB, "GB.csv");
 		
@@ -264,7 +251,7 @@ public class CashConstraintDraw {
 		 */
 		
 		// state transition function 3
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition3 = (state, action,
+		DoubleStateTransition<CashState> stateTransition3 = (state, action,
 				randomDemand) -> {
 			double nextInventory = isForDrawGy && state.getPeriod() == 1 ? state.getIniInventory() - randomDemand
 						: state.getIniInventory() + action - randomDemand;
@@ -279,12 +266,12 @@ public class CashConstraintDraw {
 		CashRecursion recursion3 = new CashRecursion(OptDirection.MAX, pmf, getFeasibleAction, stateTransition3,
 				immediateValue2, discountFactor);
 		double[][] yG3 = new double[xLength * RLength][3];
-		index = 0;
+		int index = 0;
 		double[][] resultTableGA = new double[RLength][xLength];
-		rowIndex = 0;
+		int rowIndex = 0;
 		//for (int initialInventory = minInventorys; initialInventory <= maxInventorys; initialInventory++) {
 		for (double initialCash = minCash; initialCash <= maxCash; initialCash++) {
-			columnIndex = 0;
+			int columnIndex = 0;
 			for (initialInventory = minInventoryState; initialInventory <= maxInventorys; initialInventory++) {
 			yG3[index][0] = initialCash; // initialInventory
 			yG3[index][1] = initialInventory; // initialInventory
@@ -11,8 +11,8 @@ import sdp.cash.CashRecursion;
 import sdp.cash.CashState;
 import sdp.cash.CashRecursion.OptDirection;
 import sdp.inventory.GetPmf;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
 
@@ -65,7 +65,7 @@ public class CashConstraintGx {
 		};
 		
 		// immediate value
-		ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<CashState> immediateValue = (state, action, randomDemand) -> {
 			double revenue = 0;
 			double fixedCost = 0;
 			double variableCost = 0;
@@ -94,7 +94,7 @@ public class CashConstraintGx {
 		};
 
 		// state transition function
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action,
+		DoubleStateTransition<CashState> stateTransition = (state, action,
 				randomDemand) -> {
 			double nextInventory = state.getPeriod() == 1 ? Math.max(0, state.getIniInventory() - randomDemand)
 						: Math.max(0, state.getIniInventory() + action - randomDemand);
@@ -12,13 +12,12 @@ import cash.strongconstraint.FindsCS.FindCCrieria;
 import milp.MipCashConstraint;
 import sdp.cash.CashRecursion;
 import sdp.cash.CashRecursion.OptDirection;
-import sdp.cash.CashSimulation;
 import sdp.inventory.CheckKConvexity;
 import sdp.inventory.Drawing;
 import sdp.inventory.GetPmf;
 import sdp.inventory.State;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.write.WriteToCsv;
 import sdp.write.WriteToExcel;
 import sdp.cash.CashState;
@@ -42,8 +41,6 @@ public class CashConstraintLookPolicy {
 	public static void main(String[] args) {
 		double[] meanDemand = {2, 3, 8};
 		//double[] meanDemand = {20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20};
-		double iniInventory = 8;
-		double iniCash = 100;
 		double fixOrderCost = 10;
 		double variCost = 1;
 		double price = 8;
@@ -72,10 +69,6 @@ public class CashConstraintLookPolicy {
 		int rowNum= (int) ((xmax - xmin + 1)/1) + 1; // ((Rmax - Rmin + 1)/2) + 2;
 		double[][] resultTable = new double[rowNum][columnNum];
 		
-		for (iniInventory = xmax; iniInventory >= xmin; iniInventory--) {
-			column = 0;
-			for (iniCash = Rmin; iniCash <= Rmax; iniCash = iniCash + 1) {
-	
 		// get demand possibilities for each period
 		int T = meanDemand.length;
 		Distribution[] distributions = IntStream.iterate(0, i -> i + 1).limit(T)
@@ -95,7 +88,7 @@ public class CashConstraintLookPolicy {
 		};
 
 		// immediate value
-		ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<CashState> immediateValue = (state, action, randomDemand) -> {
 			double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
 			double fixedCost = action > 0 ? fixOrderCost : 0;
 			double variableCost = variCost * action;
@@ -109,7 +102,7 @@ public class CashConstraintLookPolicy {
 		};
 
 		// state transition function
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action,
+		DoubleStateTransition<CashState> stateTransition = (state, action,
 				randomDemand) -> {
 			double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 			double nextCash = state.getIniCash() + immediateValue.apply(state, action, randomDemand);
@@ -123,47 +116,25 @@ public class CashConstraintLookPolicy {
 		};
 
 		/*******************************************************************
-		 * Solve
+		 * Solve all the initial states of the grid against one value table
 		 */
 		CashRecursion recursion = new CashRecursion(OptDirection.MAX, pmf, getFeasibleAction, stateTransition,
 				immediateValue, discountFactor);
-		int period = 1;		
-		CashState initialState = new CashState(period, iniInventory, iniCash);
+		int period = 1;
 		long currTime = System.currentTimeMillis();
 		recursion.setTreeMapCacheAction();
-		double finalValue = iniCash + recursion.getExpectedValue(initialState);
-		System.out.println("final optimal cash  is " + finalValue);
-		double optQ = recursion.getAction(initialState);
-		System.out.println("optimal order quantity in the first priod is : " + optQ);
+		double[] iniCashes = DoubleStream.iterate(Rmin, i -> i + 1).limit(columnNum - 1).toArray();
+		double[] iniInventories = DoubleStream.iterate(xmax, i -> i - 1).limit(rowNum - 1).toArray();
+		double[][] optQs = recursion.solveGrid(period, iniCashes, iniInventories, true)[1];
 		double time = (System.currentTimeMillis() - currTime) / 1000;
 		System.out.println("running time is " + time + "s");
 
-		System.out.println("initial inventory is " + iniInventory);
-		System.out.println("initial cash is " + iniCash);
-		resultTable[0][column + 1] = iniCash;
-		resultTable[row + 1][0] = iniInventory;
-		resultTable[row + 1][column + 1] = optQ; // finalValue - iniCash;
-		System.out.println("**********************************************************");
-
-
-		
-//		/*******************************************************************
-//		 * Simulating sdp results
-//		 * parameter vales like price, variCost, holdingCost etc.
-//		 * are only for compute L(y), not very necessary
-//		 */
-//		int sampleNum = 10000;
-//		
-//		CashSimulation simuation = new CashSimulation(distributions, sampleNum, recursion, discountFactor, 
-//				fixOrderCost, price, variCost, holdingCost, salvageValue); // no need to add overheadCost in this class
-//		double simFinalValue = simuation.simulateSDPGivenSamplNum(initialState);
-//		double error = 0.0001; 
-//		double confidence = 0.95;
-//		simuation.simulateSDPwithErrorConfidence(initialState, error, confidence);
-//				
-			column++;
+		for (row = 0; row < iniInventories.length; row++) {
+			resultTable[row + 1][0] = iniInventories[row];
+			for (column = 0; column < iniCashes.length; column++) {
+				resultTable[0][column + 1] = iniCashes[column];
+				resultTable[row + 1][column + 1] = optQs[column][row];
 			}
-		row++;
 		}
 		WriteToExcel wr = new WriteToExcel();
 		wr.writeArrayToExcel(resultTable, "resultTable.xls");
@@ -1,14 +1,13 @@
 package cash.strongconstraint;
 
 import java.util.Arrays;
-import java.util.Map;
-import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
 
 import cash.strongconstraint.FindsCS.FindCCrieria;
 import milp.MipCashConstraint;
+import sdp.cash.CashPolicy;
 import sdp.cash.CashRecursion;
 import sdp.cash.CashSimulation;
 import sdp.cash.CashState;
@@ -16,9 +15,8 @@ import sdp.cash.CashRecursion.OptDirection;
 import sdp.inventory.CheckKConvexity;
 import sdp.inventory.Drawing;
 import sdp.inventory.GetPmf;
-import sdp.inventory.State;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.write.WriteToCsv;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.NormalDist;
@@ -118,7 +116,7 @@ public class CashConstraintTesting {
 								};
 
 								// immediate value
-								ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state,
+								DoubleImmediateValue<CashState> immediateValue = (state,
 										action, randomDemand) -> {
 									double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
 									double fixedCost = action > 0 ? fixOrderCost : 0;
@@ -136,7 +134,7 @@ public class CashConstraintTesting {
 								};
 
 								// state transition function
-								StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state,
+								DoubleStateTransition<CashState> stateTransition = (state,
 										action, randomDemand) -> {
 									double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 									double nextCash = state.getIniCash()  + immediateValue.apply(state, action, randomDemand);;
@@ -169,58 +167,29 @@ public class CashConstraintTesting {
 								System.out.println("running time is " + time + "s");
 
 								/*******************************************************************
-								 * Simulating sdp results
+								 * Find (s, C1, C2, S)
 								 */
-								int sampleNum = 100000;
-								CashSimulation simuation = new CashSimulation(distributions, sampleNum, recursion,
-										discountFactor);
-								double simFinalValue = simuation.simulateSDPGivenSamplNum(initialState);
-								
-								/*******************************************************************
-								 * Find (s, C1, C2, S) and simulate
-								 */
-								System.out.println("");
-								System.out.println("************************************************");
 								double[][] optTable = recursion.getOptTable();
 								FindsCS findsCS = new FindsCS(iniCash, distributions, fixOrderCost, price, variCost, holdingCost, salvageValue);
 								double[][] optsCS = findsCS.getsC12S(optTable, overheadCost, criteria);
-								Map<State, Double> cacheC1Values = new TreeMap<>();
-								Map<State, Double> cacheC2Values = new TreeMap<>();
-								cacheC1Values = findsCS.cacheC1Values;
-								cacheC2Values = findsCS.cacheC2Values;
-								double simsC1C2SFinalValue = simuation.simulatesCS(initialState, optsCS, cacheC1Values, cacheC2Values,
+								CashPolicy sC1C2SPolicy = CashPolicy.sC1C2S(optsCS, findsCS.cacheC1Values, findsCS.cacheC2Values,
 										overheadCost, maxOrderQuantity, fixOrderCost, variCost);
-								double gapsC1C2S1 = (finalValue - simsC1C2SFinalValue) / finalValue;
-								double gapsC1C2S2 = (simFinalValue - simsC1C2SFinalValue) / simFinalValue;
-								System.out.printf("Optimality gap for (s, C1, C2, S) is: %.2f%% or %.2f%%\n", gapsC1C2S1 * 100, gapsC1C2S2 * 100);
-																
 								
 								/*******************************************************************
-								 * Find (s, C1, S) and simulate
+								 * Find (s, C1, S)
 								 */
-								System.out.println("");
-								System.out.println("************************************************");
 								optsCS = findsCS.getsCS(optTable, overheadCost, criteria);
-								cacheC1Values = findsCS.cacheC1Values;
-								double simsC1SFinalValue = simuation.simulatesCS(initialState, optsCS, cacheC1Values,
+								CashPolicy sC1SPolicy = CashPolicy.sCS(optsCS, findsCS.cacheC1Values,
 										overheadCost, maxOrderQuantity, fixOrderCost, variCost);
-								double gapsC1S1 = (finalValue - simsC1SFinalValue) / finalValue;
-								double gapsC1S2 = (simFinalValue - simsC1SFinalValue) / simFinalValue;
-								System.out.printf("Optimality gap for (s, C1, S) is: %.2f%% or %.2f%%\n", gapsC1S1 * 100, gapsC1S2 * 100);
 								double[][] numFrequency = findsCS.getMaxSFrequency(optTable, overheadCost, criteria);
 //								System.out.println("most frequent S in each period");
 //								System.out.println(Arrays.deepToString(numFrequency));
 								
 								/*******************************************************************
-								 * Find (s, meanC, S) by SDP and simulate
+								 * Find (s, meanC, S) by SDP
 								 */
-								System.out.println("");
-								System.out.println("************************************************");							
 								optsCS = findsCS.getsCS(optTable, overheadCost, FindCCrieria.AVG);
-								double simsMeanCSFinalValue = simuation.simulatesMeanCS(initialState, optsCS, overheadCost, maxOrderQuantity, fixOrderCost, variCost);
-								double gapsMeanCS1 = (finalValue - simsMeanCSFinalValue)/finalValue;
-								double gapsMeanCS2 = (simFinalValue - simsMeanCSFinalValue)/simFinalValue;
-								System.out.printf("Optimality gap for (s, meanC, S) is: %.2f%% or %.2f%%\n", gapsMeanCS1 * 100, gapsMeanCS2 * 100);
+								CashPolicy sMeanCSPolicy = CashPolicy.sMeanCS(optsCS, overheadCost, maxOrderQuantity, fixOrderCost, variCost);
 								
 
 //								/*******************************************************************
@@ -230,22 +199,49 @@ public class CashConstraintTesting {
 //										fixOrderCost, variCost);
 								
 						 		/*******************************************************************
-								 * Find (s, C, S) by MIP and simulate
+								 * Find (s, C, S) by MIP
 								 */
-								double simsCSMIPValue = 0;
-								double gap11 = 0;
-								double gap22 = 0;
 								double time2 = 0;
 								currTime = System.currentTimeMillis();
 						 		MipCashConstraint mipHeuristic = new MipCashConstraint(iniInventory, iniCash, fixOrderCost, variCost, holdingCost, price, salvageValue, distributions, overheadCost);
 						 		double[][] sCS = mipHeuristic.findsCSPieceWise(); 					 		
 						 		time2 = (System.currentTimeMillis() - currTime) / 1000.0;
 								System.out.println("running time is " + time2 + "s");
-						 		cacheC1Values = mipHeuristic.cacheC1Values;
-						 		simsCSMIPValue = simuation.simulatesCS(initialState, sCS, cacheC1Values, overheadCost, maxOrderQuantity, fixOrderCost, variCost);
-								gap11 = (finalValue - simsCSMIPValue)/finalValue;
-								gap22 = (simFinalValue - simsCSMIPValue)/simFinalValue;	
-								System.out.printf("Optimality gap by Mip is: %.2f%% or %.2f%%\n", gap11 * 100, gap22 * 100);
+								CashPolicy sCSMIPPolicy = CashPolicy.sCS(sCS, mipHeuristic.cacheC1Values, overheadCost, maxOrderQuantity, fixOrderCost, variCost);
+								
+								/*******************************************************************
+								 * Simulate sdp and the above policies on the same samples
+								 */
+								int sampleNum = 100000;
+								CashSimulation simuation = new CashSimulation(distributions, sampleNum, recursion,
+										discountFactor);
+								CashPolicy[] policies = {CashPolicy.sdp(recursion), sC1C2SPolicy, sC1SPolicy, sMeanCSPolicy, sCSMIPPolicy};
+								String[] policyNames = {"(s, C1, C2, S)", "(s, C1, S)", "(s, meanC, S)", "Mip"};
+								double[][] simValues = simuation.simulatePolicies(initialState, policies, true);
+								double[] simMeans = CashSimulation.getMeans(simValues);
+								double simFinalValue = simMeans[0];
+								System.out.println("\nfinal simulated expected value in " + sampleNum + " samples is: " + simFinalValue);
+								double[] gaps1 = new double[policies.length];
+								double[] gaps2 = new double[policies.length];
+								for (int k = 1; k < policies.length; k++) {
+									gaps1[k] = (finalValue - simMeans[k]) / finalValue;
+									gaps2[k] = (simFinalValue - simMeans[k]) / simFinalValue;
+									double[] diff = CashSimulation.pairedDifference(simValues[0], simValues[k], 0.95);
+									System.out.printf("Optimality gap for %s is: %.2f%% or %.2f%%, paired difference with sdp is %.4f +- %.4f\n", 
+											policyNames[k - 1], gaps1[k] * 100, gaps2[k] * 100, diff[0], diff[1]);
+								}
+								double simsC1C2SFinalValue = simMeans[1];
+								double gapsC1C2S1 = gaps1[1];
+								double gapsC1C2S2 = gaps2[1];
+								double simsC1SFinalValue = simMeans[2];
+								double gapsC1S1 = gaps1[2];
+								double gapsC1S2 = gaps2[2];
+								double simsMeanCSFinalValue = simMeans[3];
+								double gapsMeanCS1 = gaps1[3];
+								double gapsMeanCS2 = gaps2[3];
+								double simsCSMIPValue = simMeans[4];
+								double gap11 = gaps1[4];
+								double gap22 = gaps2[4];
 								
 								System.out.printf(
 										"\n*******************************************************************\n");
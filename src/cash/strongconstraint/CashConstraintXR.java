@@ -14,8 +14,8 @@ import sdp.cash.CashRecursionXR.OptDirection;
 import sdp.cash.CashRecursionXR;
 import sdp.cash.CashSimulationXR;
 import sdp.inventory.GetPmf;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.write.WriteToCsv;
 import sdp.write.WriteToExcel;
 import sdp.cash.CashStateXR;
@@ -84,7 +84,7 @@ public class CashConstraintXR {
 		};
 
 		// immediate value
-		ImmediateValueFunction<CashStateXR, Double, Double, Double> immediateValue = (state, actionY, randomDemand) -> {
+		DoubleImmediateValue<CashStateXR> immediateValue = (state, actionY, randomDemand) -> {
 			double revenue = price * Math.min(actionY, randomDemand);
 			double action = actionY - state.getIniInventory();
 			double fixedCost = actionY > state.getIniInventory() ? fixOrderCost : 0;
@@ -100,7 +100,7 @@ public class CashConstraintXR {
 		};
 
 		// state transition function
-		StateTransitionFunction<CashStateXR, Double, Double, CashStateXR> stateTransition = (state, actionY,
+		DoubleStateTransition<CashStateXR> stateTransition = (state, actionY,
 				randomDemand) -> {
 			if (randomDemand < 0)
 				System.out.println(randomDemand);
@@ -12,8 +12,8 @@ import sdp.cash.CashRecursion;
 import sdp.cash.CashState;
 import sdp.cash.CashRecursion.OptDirection;
 import sdp.inventory.GetPmf;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
 
@@ -95,7 +95,7 @@ public class CheakMonotony {
 								};
 								
 								// immediate value
-								ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+								DoubleImmediateValue<CashState> immediateValue = (state, action, randomDemand) -> {
 									double revenue = 0;
 									double fixedCost = 0;
 									double variableCost = 0;
@@ -112,7 +112,7 @@ public class CheakMonotony {
 								};
 
 								// state transition function
-								StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action,
+								DoubleStateTransition<CashState> stateTransition = (state, action,
 										randomDemand) -> {
 									double nextInventory = state.getIniInventory() + action - randomDemand;
 									double nextCash = state.getIniCash() + immediateValue.apply(state, action, randomDemand);
@@ -144,26 +144,15 @@ public class CheakMonotony {
 								CashRecursion recursion = new CashRecursion(OptDirection.MAX, pmf, getFeasibleAction, stateTransition,
 										immediateValue, discountFactor);
 								
-								double[][] yG = new double[xLength * RLength][3];
-								double[][] resultTableF = new double[RLength][xLength];
-								
-								for (double initialCash = minCash; initialCash <= maxCash; initialCash++) {
-									columnIndex = 0;
-									for (double initialInventory = minInventorys; initialInventory <= maxInventorys; initialInventory++) {			
-										yG[index][0] = initialCash; // initialInventory
-										yG[index][1] = initialInventory;
-										yG[index][2] = recursion.getExpectedValue(new CashState(period, initialInventory, initialCash)); // iniCash
-										resultTableF[rowIndex][columnIndex] = yG[index][2];
-										index++;
-										columnIndex++;
-									}
-									rowIndex++;
-								}				
+								// all the initial states share one value table and are solved in parallel
+								double[] iniCashes = DoubleStream.iterate(minCash, i -> i + 1).limit(RLength).toArray();
+								double[] iniInventories = DoubleStream.iterate(minInventorys, i -> i + 1).limit(xLength).toArray();
+								double[][] resultTableF = recursion.solveGrid(period, iniCashes, iniInventories, true)[0];
 
 
 								
 								// immediate value for GB and GA
-								ImmediateValueFunction<CashState, Double, Double, Double> immediateValue2 = (state, action, randomDemand) -> {
+								DoubleImmediateValue<CashState> immediateValue2 = (state, action, randomDemand) -> {
 									double revenue = 0;
 									double fixedCost = 0;
 									double variableCost = 0;
@@ -223,7 +212,7 @@ public class CheakMonotony {
 //								}
 								
 								// state transition function for GA
-								StateTransitionFunction<CashState, Double, Double, CashState> stateTransition3 = (state, action,
+								DoubleStateTransition<CashState> stateTransition3 = (state, action,
 										randomDemand) -> {
 									double nextInventory = isForDrawGy && state.getPeriod() == 1 ? state.getIniInventory() - randomDemand
 												: state.getIniInventory() + action - randomDemand;
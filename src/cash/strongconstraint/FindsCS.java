@@ -10,6 +10,8 @@ import java.util.TreeMap;
 import java.util.stream.IntStream;
 
 import sdp.cash.CashState;
+import sdp.inventory.PolicyTable;
+import sdp.inventory.SolverEvents;
 import sdp.inventory.State;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
@@ -35,6 +37,9 @@ public class FindsCS {
 	Map<State, Double> cacheC1Values = new TreeMap<>(); // record C1 values for different initial inventory x
 	Map<State, Double> cacheC2Values = new TreeMap<>(); // record C2 values for different initial inventory x
 	
+	double[][] cumPs; // cumPs[t][n] is the possibility of demand less than n in period t + 1, for computing Ly
+	double[][] cumIPs; // cumIPs[t][n] is the partial expectation of demand less than n in period t + 1
+	
 	public FindsCS(double iniCash, Distribution[] distributions, double fixOrderCost, double price,
 			double variOrderCost, double holdCost, double salvageValue) {
 		this.T = distributions.length;
@@ -65,6 +70,8 @@ public class FindsCS {
 	 * get s, C1(x), C2(x), S
 	 */
 	double[][] getsC12S(double[][] optimalTable, double overheadCost, FindCCrieria criteria) {
+		SolverEvents.PolicyExtraction event = new SolverEvents.PolicyExtraction();
+		event.begin();
 		int M = 10000;
 		cacheC1Values.clear();
 		cacheC2Values.clear();
@@ -76,16 +83,17 @@ public class FindsCS {
 		cacheC1Values.put(new State(1, optimalTable[0][0]), optimalTable[0][1]);
 		cacheC2Values.put(new State(1, optimalTable[0][0]), optimalTable[0][2]);
 		
+		PolicyTable policyTable = new PolicyTable(optimalTable); // rows grouped by period
 		for (int t = 1; t < T; t++) {
 			final int i = t + 1;
-			double[][] tOptTable = Arrays.stream(optimalTable).filter(p -> p[0] == i)
-					.map(p -> Arrays.stream(p).toArray()).toArray(double[][]::new);
+			PolicyTable.Slice tOptTable = policyTable.getPeriod(i);
 			
 			if (t == T - 1) {
 				Distribution distribution = distributions[T - 1];
 				optimalsCS[T - 1][3] = distribution.inverseF((price - variOrderCost) / (holdCost  + price - salvageValue));
 				optimalsCS[T - 1][2] = M;			
 				double S = optimalsCS[T - 1][3];
+				checkLyTables(S);
 				for (int j = (int) S; j >= 0; j--) {
 					if (Ly(j, t) < Ly(S, t) - fixOrderCost) {
 						optimalsCS[T - 1][0] = j + 1;
@@ -120,19 +128,19 @@ public class FindsCS {
 			
 			// backward, the first inventory level that starts ordering is s
 			boolean sHasRecorded = false; //backward, the first inventory level that starts ordering is s
-			for (int j = tOptTable.length - 1; j >= 0; j--) {
-				if (tOptTable[j][3] != 0) {
+			for (int j = tOptTable.length() - 1; j >= 0; j--) {
+				if (tOptTable.get(j, 3) != 0) {
 					if (sHasRecorded == false) {
-						optimalsCS[t][0] = j + 1 < tOptTable.length ? tOptTable[j][1] + 1 
-																	    : tOptTable[j][1] + 1; // maximum not ordering inventory level as s
-						//optimalsCS[t][0] = tOptTable[j][1] < 1 ? 0 : tOptTable[j][1] + 1; // avoid large s, make s be 0
+						optimalsCS[t][0] = j + 1 < tOptTable.length() ? tOptTable.get(j, 1) + 1 
+																	    : tOptTable.get(j, 1) + 1; // maximum not ordering inventory level as s
+						//optimalsCS[t][0] = tOptTable.get(j, 1) < 1 ? 0 : tOptTable.get(j, 1) + 1; // avoid large s, make s be 0
 						
 						// choose a most frequent s in this inventory level
 //						int zeros = 0;
 //						int nonZeros = 1;
 //						for (int m = j; m >=0; m--) {
 //							if (m < j) {
-//								if (tOptTable[m][3] != 0)
+//								if (tOptTable.get(m, 3) != 0)
 //									nonZeros++;
 //								else {
 //									zeros++;
@@ -143,15 +151,15 @@ public class FindsCS {
 //							optimalsCS[t][0] = 0;
 						sHasRecorded = true;
 					}
-					if (tOptTable[j][1] + tOptTable[j][3] > optimalsCS[t][3]) //  maximum order-up-to level as S
-						optimalsCS[t][3] = tOptTable[j][1] + tOptTable[j][3]; // a template value for S
-						//if (tOptTable[j][2] > fixOrderCost + variOrderCost * tOptTable[j][3])
-							//recordS.add(tOptTable[j][1] + tOptTable[j][3]); // average order-up-to level as S, is worse than choosing maximum S
+					if (tOptTable.get(j, 1) + tOptTable.get(j, 3) > optimalsCS[t][3]) //  maximum order-up-to level as S
+						optimalsCS[t][3] = tOptTable.get(j, 1) + tOptTable.get(j, 3); // a template value for S
+						//if (tOptTable.get(j, 2) > fixOrderCost + variOrderCost * tOptTable.get(j, 3))
+							//recordS.add(tOptTable.get(j, 1) + tOptTable.get(j, 3)); // average order-up-to level as S, is worse than choosing maximum S
 					sHasRecorded = true; // 
 				}
 								
-				if (tOptTable[j][3] == 0 && sHasRecorded == true) // for computing C(x)
-					recordCash.add(tOptTable[j][2]);					
+				if (tOptTable.get(j, 3) == 0 && sHasRecorded == true) // for computing C(x)
+					recordCash.add(tOptTable.get(j, 2));					
 			}
 			
 			// choose a maximum not ordering cash level as C when ordering quantity is 0
@@ -172,19 +180,19 @@ public class FindsCS {
 					// C1
 					double markInventory = -0.5;
 					boolean CHasRecoded = false;
-					for (int j = 0; j < tOptTable.length - 1; j++) {
-						if (tOptTable[j][1] < optimalsCS[t][0]) {							
-							if (tOptTable[j][3] > 0) {
-								if (tOptTable[j][1] > markInventory) {
-									optimalsCS[t][1] = tOptTable[j][2] - 1;
-									markInventory = tOptTable[j][1];
+					for (int j = 0; j < tOptTable.length() - 1; j++) {
+						if (tOptTable.get(j, 1) < optimalsCS[t][0]) {							
+							if (tOptTable.get(j, 3) > 0) {
+								if (tOptTable.get(j, 1) > markInventory) {
+									optimalsCS[t][1] = tOptTable.get(j, 2) - 1;
+									markInventory = tOptTable.get(j, 1);
 									CHasRecoded = true;
 								}
 							}
 							else { // if for an initial inventory x, order quantity always zero, then C is a large number
 								optimalsCS[t][1] = CHasRecoded == false ? fixOrderCost * 20 : optimalsCS[t][1];
 							}
-							cacheC1Values.put(new State(t + 1, tOptTable[j][1]), optimalsCS[t][1]);
+							cacheC1Values.put(new State(t + 1, tOptTable.get(j, 1)), optimalsCS[t][1]);
 						}
 						else 
 							break;
@@ -193,17 +201,17 @@ public class FindsCS {
 					// C2
 					markInventory = M;
 					CHasRecoded = false;
-					for (int j = tOptTable.length - 2; j >= 0; j--) {
-						if (tOptTable[j][1] < optimalsCS[t][0]) {							
-							if (tOptTable[j][3] > 0 && tOptTable[j + 1][3] == 0 && tOptTable[j][1] == tOptTable[j + 1][1]) 
+					for (int j = tOptTable.length() - 2; j >= 0; j--) {
+						if (tOptTable.get(j, 1) < optimalsCS[t][0]) {							
+							if (tOptTable.get(j, 3) > 0 && tOptTable.get(j + 1, 3) == 0 && tOptTable.get(j, 1) == tOptTable.get(j + 1, 1)) 
 							{
-								if (tOptTable[j][1] < markInventory ) {
-									optimalsCS[t][2] = tOptTable[j][2] + 1;
-									markInventory = tOptTable[j][1];
+								if (tOptTable.get(j, 1) < markInventory ) {
+									optimalsCS[t][2] = tOptTable.get(j, 2) + 1;
+									markInventory = tOptTable.get(j, 1);
 									CHasRecoded = true;
-									cacheC2Values.put(new State(t + 1, tOptTable[j][1]), optimalsCS[t][2]);
+									cacheC2Values.put(new State(t + 1, tOptTable.get(j, 1)), optimalsCS[t][2]);
 								}
-								//cacheC2Values.put(new State(t + 1, tOptTable[j][1]), optimalsCS[t][2]);
+								//cacheC2Values.put(new State(t + 1, tOptTable.get(j, 1)), optimalsCS[t][2]);
 							}
 							
 						}
@@ -218,34 +226,34 @@ public class FindsCS {
 			Map<Double, Integer> recordS = new HashMap<>();
 			double S = 0;
 			boolean lastOrderFullCapacity = false;
-			for (int j = tOptTable.length - 1; j >= 0; j--) {
-				if (tOptTable[j][1] < optimalsCS[t][0] && tOptTable[j][3] > 0) {
-					int maxQ = (int) Math.max(0, (tOptTable[j][2] - overheadCost - fixOrderCost) / variOrderCost);
-					if (tOptTable[j][2] >= fixOrderCost + variOrderCost * tOptTable[j][3] + overheadCost) {														
+			for (int j = tOptTable.length() - 1; j >= 0; j--) {
+				if (tOptTable.get(j, 1) < optimalsCS[t][0] && tOptTable.get(j, 3) > 0) {
+					int maxQ = (int) Math.max(0, (tOptTable.get(j, 2) - overheadCost - fixOrderCost) / variOrderCost);
+					if (tOptTable.get(j, 2) >= fixOrderCost + variOrderCost * tOptTable.get(j, 3) + overheadCost) {														
 							if (recordS.size() != 0) {
 								S = (double) recordS.keySet().toArray()[recordS.size() - 1];
-								if (tOptTable[j][1] + tOptTable[j][3] > S + 0.1) { // order at full capacity, real S may not be increasing
+								if (tOptTable.get(j, 1) + tOptTable.get(j, 3) > S + 0.1) { // order at full capacity, real S may not be increasing
 									if (lastOrderFullCapacity == true) {
 										int num = recordS.get(S) + 1;          
 										recordS.remove(S);
-										S = tOptTable[j][1] + tOptTable[j][3];									
+										S = tOptTable.get(j, 1) + tOptTable.get(j, 3);									
 										recordS.putIfAbsent(S, num);
 									}
 									else {
-//										S = tOptTable[j][1] + tOptTable[j][3];									
+//										S = tOptTable.get(j, 1) + tOptTable.get(j, 3);									
 //										recordS.putIfAbsent(S, 1);
-//										lastOrderFullCapacity = tOptTable[j][3] > maxQ - 0.1 ? true : false;
+//										lastOrderFullCapacity = tOptTable.get(j, 3) > maxQ - 0.1 ? true : false;
 										int num = recordS.get(S) + 1; 
 										recordS.remove(S);
-										S = tOptTable[j][1] + tOptTable[j][3];	// change 1  to num
+										S = tOptTable.get(j, 1) + tOptTable.get(j, 3);	// change 1  to num
 										recordS.putIfAbsent(S, num);
-										lastOrderFullCapacity = tOptTable[j][3] > maxQ - 0.1 ? true : false;		
+										lastOrderFullCapacity = tOptTable.get(j, 3) > maxQ - 0.1 ? true : false;		
 									}									
 								}
 								else {
-									if (tOptTable[j][3] < maxQ - 0.1 && tOptTable[j][1] + tOptTable[j][3] < S - 0.1) { //new S
+									if (tOptTable.get(j, 3) < maxQ - 0.1 && tOptTable.get(j, 1) + tOptTable.get(j, 3) < S - 0.1) { //new S
 										
-										recordS.putIfAbsent(tOptTable[j][1] + tOptTable[j][3], 1);
+										recordS.putIfAbsent(tOptTable.get(j, 1) + tOptTable.get(j, 3), 1);
 										lastOrderFullCapacity = false;
 									} 										
 									else // order at full capacity or same S
@@ -253,9 +261,9 @@ public class FindsCS {
 								}
 							}
 							else {
-								S = tOptTable[j][1] + tOptTable[j][3];
+								S = tOptTable.get(j, 1) + tOptTable.get(j, 3);
 								recordS.putIfAbsent(S, 1);
-								if (tOptTable[j][3] > maxQ - 0.1)
+								if (tOptTable.get(j, 3) > maxQ - 0.1)
 									lastOrderFullCapacity = true;
 							}
 					}	
@@ -290,6 +298,7 @@ public class FindsCS {
 //					}									
 		}
 		
+		event.commit("(s, C1, C2, S)", T, optimalTable.length);
   		System.out.println("(s, C1, C2, S) are: " + Arrays.deepToString(optimalsCS));
 		return optimalsCS;
 	}
@@ -301,6 +310,8 @@ public class FindsCS {
 	 */
 	
 	double[][] getsCS(double[][] optimalTable, double overheadCost, FindCCrieria criteria) {
+		SolverEvents.PolicyExtraction event = new SolverEvents.PolicyExtraction();
+		event.begin();
 		int M = 10000;
 		cacheC1Values.clear();
 		cacheC2Values.clear();
@@ -312,10 +323,10 @@ public class FindsCS {
 		cacheC1Values.put(new State(1, optimalTable[0][0]), optimalTable[0][1]);
 		cacheC2Values.put(new State(1, optimalTable[0][0]), optimalTable[0][2]);
 		
+		PolicyTable policyTable = new PolicyTable(optimalTable); // rows grouped by period
 		for (int t = 1; t < T; t++) {
 			final int i = t + 1;
-			double[][] tOptTable = Arrays.stream(optimalTable).filter(p -> p[0] == i)
-					.map(p -> Arrays.stream(p).toArray()).toArray(double[][]::new);
+			PolicyTable.Slice tOptTable = policyTable.getPeriod(i);
 			
 			if (t == T - 1) {
 				Distribution distribution = distributions[T - 1];
@@ -323,6 +334,7 @@ public class FindsCS {
 																	 : distribution.inverseF(0.999);
 				optimalsCS[T - 1][2] = M;			
 				double S = optimalsCS[T - 1][3];
+				checkLyTables(S);
 				optimalsCS[T - 1][0] = 0; // s default value is 0
 				for (int j = (int) S; j >= 0; j--) {
 					if (Ly(j, t) < Ly(S, t) - fixOrderCost) {
@@ -357,18 +369,18 @@ public class FindsCS {
 			// backward, the first inventory level that starts ordering is s - 1
 			boolean sHasRecorded = false; //backward, the first inventory level that starts ordering is s + 1
 			                              // or s is the minimum initial inventory level that results in not ordering
-			for (int j = tOptTable.length - 1; j >= 0; j--) {
-				if (tOptTable[j][3] != 0) {
+			for (int j = tOptTable.length() - 1; j >= 0; j--) {
+				if (tOptTable.get(j, 3) != 0) {
 					if (sHasRecorded == false) {
-						optimalsCS[t][0] = j + 1 < tOptTable.length ? tOptTable[j][1] + 1 
-																	    : tOptTable[j][1] + 1; // maximum not ordering inventory level as s
+						optimalsCS[t][0] = j + 1 < tOptTable.length() ? tOptTable.get(j, 1) + 1 
+																	    : tOptTable.get(j, 1) + 1; // maximum not ordering inventory level as s
 						
 						// choose a most frequent s in this inventory level
 //						int zeros = 0;
 //						int nonZeros = 1;
 //						for (int m = j; m >=0; m--) {
 //							if (m < j) {
-//								if (tOptTable[m][3] != 0)
+//								if (tOptTable.get(m, 3) != 0)
 //									nonZeros++;
 //								else {
 //									zeros++;
@@ -381,20 +393,20 @@ public class FindsCS {
 						sHasRecorded = true;
 					}
 //					optimalsCS[2][0] =0;
-//					if (tOptTable[j][1] + tOptTable[j][3] > optimalsCS[t][3]) //  maximum order-up-to level as S
-//						optimalsCS[t][3] = tOptTable[j][1] + tOptTable[j][3];
+//					if (tOptTable.get(j, 1) + tOptTable.get(j, 3) > optimalsCS[t][3]) //  maximum order-up-to level as S
+//						optimalsCS[t][3] = tOptTable.get(j, 1) + tOptTable.get(j, 3);
 					// the following codes to compute S when h is 0. It can also be a temperate value of S
 					double demandSum = IntStream.range(t, T).mapToObj(k -> distributions[k].getMean())
 							.reduce(0.0, (x, y) -> x.doubleValue() + y.doubleValue());
 					Distribution distribution = new PoissonDist(demandSum);
 					optimalsCS[t][3]  = distribution.inverseF((price - variOrderCost) / (price - salvageValue));
-						//if (tOptTable[j][2] > fixOrderCost + variOrderCost * tOptTable[j][3])
-							//recordS.add(tOptTable[j][1] + tOptTable[j][3]); // average order-up-to level as S, is worse than choosing maximum S
+						//if (tOptTable.get(j, 2) > fixOrderCost + variOrderCost * tOptTable.get(j, 3))
+							//recordS.add(tOptTable.get(j, 1) + tOptTable.get(j, 3)); // average order-up-to level as S, is worse than choosing maximum S
 					sHasRecorded = true; 
 				}
 								
-				if (tOptTable[j][3] == 0 && sHasRecorded == true) 
-					recordCash.add(tOptTable[j][2]);					
+				if (tOptTable.get(j, 3) == 0 && sHasRecorded == true) 
+					recordCash.add(tOptTable.get(j, 2));					
 			}
 			
 			// choose a maximum not ordering cash level as C when ordering quantity is 0
@@ -415,19 +427,19 @@ public class FindsCS {
 					// C1
 					double markInventory = -0.5;
 					boolean CHasRecoded = false;
-					for (int j = 0; j < tOptTable.length; j++) { // the length of j
-						if (tOptTable[j][1] < optimalsCS[t][0]) {							
-							if (tOptTable[j][3] > 0) {
-								if (tOptTable[j][1] > markInventory) {
-									optimalsCS[t][1] = tOptTable[j][2] - 1;
-									markInventory = tOptTable[j][1];
+					for (int j = 0; j < tOptTable.length(); j++) { // the length of j
+						if (tOptTable.get(j, 1) < optimalsCS[t][0]) {							
+							if (tOptTable.get(j, 3) > 0) {
+								if (tOptTable.get(j, 1) > markInventory) {
+									optimalsCS[t][1] = tOptTable.get(j, 2) - 1;
+									markInventory = tOptTable.get(j, 1);
 									CHasRecoded = true;
 								}
 							}
 							else { // if for an initial inventory x, order quantity always zero, then C is a large number
 								optimalsCS[t][1] = CHasRecoded == false ? fixOrderCost * 20 : optimalsCS[t][1];
 							}
-							cacheC1Values.put(new State(t + 1, tOptTable[j][1]), optimalsCS[t][1]);
+							cacheC1Values.put(new State(t + 1, tOptTable.get(j, 1)), optimalsCS[t][1]);
 						}
 						else 
 							break;
@@ -443,31 +455,31 @@ public class FindsCS {
 			Map<Double, Integer> recordS = new HashMap<>();
 			double S = 0;
 			boolean lastOrderFullCapacity = false;
-			for (int j = tOptTable.length - 1; j >= 0; j--) {
-				if (tOptTable[j][1] < optimalsCS[t][0] && tOptTable[j][3] > 0) {
-					int maxQ = (int) Math.max(0, (tOptTable[j][2] - overheadCost - fixOrderCost) / variOrderCost);
-					if (tOptTable[j][2] >= fixOrderCost + variOrderCost * tOptTable[j][3] + overheadCost) {														
+			for (int j = tOptTable.length() - 1; j >= 0; j--) {
+				if (tOptTable.get(j, 1) < optimalsCS[t][0] && tOptTable.get(j, 3) > 0) {
+					int maxQ = (int) Math.max(0, (tOptTable.get(j, 2) - overheadCost - fixOrderCost) / variOrderCost);
+					if (tOptTable.get(j, 2) >= fixOrderCost + variOrderCost * tOptTable.get(j, 3) + overheadCost) {														
 						if (recordS.size() != 0) {
 							S = (double) recordS.keySet().toArray()[recordS.size() - 1];
-							if (tOptTable[j][1] + tOptTable[j][3] >= S) { // order at full capacity, real S may not be increasing
+							if (tOptTable.get(j, 1) + tOptTable.get(j, 3) >= S) { // order at full capacity, real S may not be increasing
 								if (lastOrderFullCapacity == true) {
 									int num = recordS.get(S) + 1;          
 									recordS.remove(S);
-									S = tOptTable[j][1] + tOptTable[j][3];									
+									S = tOptTable.get(j, 1) + tOptTable.get(j, 3);									
 									recordS.putIfAbsent(S, num);
 								}
 								else {
 									int num = recordS.get(S) + 1; 
 									recordS.remove(S);
-									S = tOptTable[j][1] + tOptTable[j][3];	// change 1  to num
+									S = tOptTable.get(j, 1) + tOptTable.get(j, 3);	// change 1  to num
 									recordS.putIfAbsent(S, num);
-									lastOrderFullCapacity = tOptTable[j][3] > maxQ - 0.1 ? true : false;										
+									lastOrderFullCapacity = tOptTable.get(j, 3) > maxQ - 0.1 ? true : false;										
 								}									
 							}
 							else {
-								if (tOptTable[j][3] < maxQ - 0.1 && tOptTable[j][1] + tOptTable[j][3] < S - 0.1) { //new S
+								if (tOptTable.get(j, 3) < maxQ - 0.1 && tOptTable.get(j, 1) + tOptTable.get(j, 3) < S - 0.1) { //new S
 
-									recordS.putIfAbsent(tOptTable[j][1] + tOptTable[j][3], 1);
+									recordS.putIfAbsent(tOptTable.get(j, 1) + tOptTable.get(j, 3), 1);
 									lastOrderFullCapacity = false;
 								} 										
 								else // order at full capacity or same S
@@ -475,9 +487,9 @@ public class FindsCS {
 							}
 						}
 						else {
-							S = tOptTable[j][1] + tOptTable[j][3];
+							S = tOptTable.get(j, 1) + tOptTable.get(j, 3);
 							recordS.putIfAbsent(S, 1);
-							if (tOptTable[j][3] > maxQ - 0.1)
+							if (tOptTable.get(j, 3) > maxQ - 0.1)
 								lastOrderFullCapacity = true;
 						}
 					}	
@@ -499,6 +511,7 @@ public class FindsCS {
 			sCS[t][1] = optimalsCS[t][1];
 			sCS[t][2] = optimalsCS[t][3];
 		}	
+		event.commit("(s, C, S)", T, optimalTable.length);
   		System.out.println("(s, C, S) are: " + Arrays.deepToString(sCS));
 		return sCS;
 	}
@@ -525,10 +538,10 @@ public class FindsCS {
 		cacheC1Values.put(new State(1, optimalTable[0][0]), optimalTable[0][1]);
 		cacheC2Values.put(new State(1, optimalTable[0][0]), optimalTable[0][2]);
 		
+		PolicyTable policyTable = new PolicyTable(optimalTable); // rows grouped by period
 		for (int t = 1; t < T - 1; t++) {
 			final int i = t + 1;
-			double[][] tOptTable = Arrays.stream(optimalTable).filter(p -> p[0] == i)
-					.map(p -> Arrays.stream(p).toArray()).toArray(double[][]::new);
+			PolicyTable.Slice tOptTable = policyTable.getPeriod(i);
 			
 			
 			optimalsCS[t][3] = 0;  // default value for S is 0
@@ -539,22 +552,22 @@ public class FindsCS {
 			
 			// backward, the first inventory level that starts ordering is s - 1
 			boolean sHasRecorded = false; //backward, the first inventory level that starts ordering is s
-			for (int j = tOptTable.length - 1; j >= 0; j--) {
-				if (tOptTable[j][3] != 0) {
+			for (int j = tOptTable.length() - 1; j >= 0; j--) {
+				if (tOptTable.get(j, 3) != 0) {
 					if (sHasRecorded == false) {
-						optimalsCS[t][0] = j + 1 < tOptTable.length ? tOptTable[j][1] + 1 
-																	    : tOptTable[j][1] + 1; // maximum not ordering inventory level as s
+						optimalsCS[t][0] = j + 1 < tOptTable.length() ? tOptTable.get(j, 1) + 1 
+																	    : tOptTable.get(j, 1) + 1; // maximum not ordering inventory level as s
 						sHasRecorded = true;
 					}
-					if (tOptTable[j][1] + tOptTable[j][3] > optimalsCS[t][3]) //  maximum order-up-to level as S
-						optimalsCS[t][3] = tOptTable[j][1] + tOptTable[j][3]; // this S is template value
-						//if (tOptTable[j][2] > fixOrderCost + variOrderCost * tOptTable[j][3])
-							//recordS.add(tOptTable[j][1] + tOptTable[j][3]); // average order-up-to level as S, is worse than choosing maximum S
+					if (tOptTable.get(j, 1) + tOptTable.get(j, 3) > optimalsCS[t][3]) //  maximum order-up-to level as S
+						optimalsCS[t][3] = tOptTable.get(j, 1) + tOptTable.get(j, 3); // this S is template value
+						//if (tOptTable.get(j, 2) > fixOrderCost + variOrderCost * tOptTable.get(j, 3))
+							//recordS.add(tOptTable.get(j, 1) + tOptTable.get(j, 3)); // average order-up-to level as S, is worse than choosing maximum S
 					sHasRecorded = true; // 
 				}
 								
-				if (tOptTable[j][3] == 0 && sHasRecorded == true) 
-					recordCash.add(tOptTable[j][2]);					
+				if (tOptTable.get(j, 3) == 0 && sHasRecorded == true) 
+					recordCash.add(tOptTable.get(j, 2));					
 			}
 			
 			// choose a maximum not ordering cash level as C when ordering quantity is 0
@@ -575,19 +588,19 @@ public class FindsCS {
 					// C1
 					double markInventory = -0.5;
 					boolean CHasRecoded = false;
-					for (int j = 0; j < tOptTable.length; j++) { // the length of j
-						if (tOptTable[j][1] < optimalsCS[t][0]) {							
-							if (tOptTable[j][3] > 0) {
-								if (tOptTable[j][1] > markInventory) {
-									optimalsCS[t][1] = tOptTable[j][2] - 1;
-									markInventory = tOptTable[j][1];
+					for (int j = 0; j < tOptTable.length(); j++) { // the length of j
+						if (tOptTable.get(j, 1) < optimalsCS[t][0]) {							
+							if (tOptTable.get(j, 3) > 0) {
+								if (tOptTable.get(j, 1) > markInventory) {
+									optimalsCS[t][1] = tOptTable.get(j, 2) - 1;
+									markInventory = tOptTable.get(j, 1);
 									CHasRecoded = true;
 								}
 							}
 							else { // if for an initial inventory x, order quantity always zero, then C is a large number
 								optimalsCS[t][1] = CHasRecoded == false ? fixOrderCost * 20 : optimalsCS[t][1];
 							}
-							cacheC1Values.put(new State(t + 1, tOptTable[j][1]), optimalsCS[t][1]);
+							cacheC1Values.put(new State(t + 1, tOptTable.get(j, 1)), optimalsCS[t][1]);
 						}
 						else 
 							break;
@@ -598,32 +611,32 @@ public class FindsCS {
 			Map<Double, Integer> recordS = new HashMap<>();
 			double S = 0;
 			boolean lastOrderFullCapacity = false;
-			for (int j = tOptTable.length - 1; j >= 0; j--) {
-				if (tOptTable[j][1] < optimalsCS[t][0] && tOptTable[j][3] > 0) {
-					int maxQ = (int) Math.max(0, (tOptTable[j][2] - overheadCost - fixOrderCost) / variOrderCost);
-					if (tOptTable[j][2] >= fixOrderCost + variOrderCost * tOptTable[j][3] + overheadCost) {														
+			for (int j = tOptTable.length() - 1; j >= 0; j--) {
+				if (tOptTable.get(j, 1) < optimalsCS[t][0] && tOptTable.get(j, 3) > 0) {
+					int maxQ = (int) Math.max(0, (tOptTable.get(j, 2) - overheadCost - fixOrderCost) / variOrderCost);
+					if (tOptTable.get(j, 2) >= fixOrderCost + variOrderCost * tOptTable.get(j, 3) + overheadCost) {														
 						if (recordS.size() != 0) {
 							S = (double) recordS.keySet().toArray()[recordS.size() - 1];
-							if (tOptTable[j][1] + tOptTable[j][3] >= S) { // order at full capacity, real S may not be increasing
+							if (tOptTable.get(j, 1) + tOptTable.get(j, 3) >= S) { // order at full capacity, real S may not be increasing
 								if (lastOrderFullCapacity == true) {
 									int num = recordS.get(S) + 1;          
 									recordS.remove(S);
-									S = tOptTable[j][1] + tOptTable[j][3];									
+									S = tOptTable.get(j, 1) + tOptTable.get(j, 3);									
 									recordS.putIfAbsent(S, num);
 								}
 								else {
 									int num = recordS.get(S) + 1; 
 									recordS.remove(S);
-									S = tOptTable[j][1] + tOptTable[j][3];	// change 1  to num
+									S = tOptTable.get(j, 1) + tOptTable.get(j, 3);	// change 1  to num
 									recordS.putIfAbsent(S, num);
-									lastOrderFullCapacity = tOptTable[j][3] > maxQ - 0.1 ? true : false;										
+									lastOrderFullCapacity = tOptTable.get(j, 3) > maxQ - 0.1 ? true : false;										
 								}									
 							}
 							else {
 								// new S
-								if (tOptTable[j][3] > 0.1 && tOptTable[j][3] < maxQ - 0.1 && tOptTable[j][1] + tOptTable[j][3] < S - 0.1) { //new S
+								if (tOptTable.get(j, 3) > 0.1 && tOptTable.get(j, 3) < maxQ - 0.1 && tOptTable.get(j, 1) + tOptTable.get(j, 3) < S - 0.1) { //new S
 
-									recordS.putIfAbsent(tOptTable[j][1] + tOptTable[j][3], 1);
+									recordS.putIfAbsent(tOptTable.get(j, 1) + tOptTable.get(j, 3), 1);
 									lastOrderFullCapacity = false;
 								} 										
 								else // order at full capacity or same S, deem as same S
@@ -631,9 +644,9 @@ public class FindsCS {
 							}
 						}
 						else {
-							S = tOptTable[j][1] + tOptTable[j][3];
+							S = tOptTable.get(j, 1) + tOptTable.get(j, 3);
 							recordS.putIfAbsent(S, 1);
-							if (tOptTable[j][3] > maxQ - 0.1)
+							if (tOptTable.get(j, 3) > maxQ - 0.1)
 								lastOrderFullCapacity = true;
 						}
 					}	
@@ -664,17 +677,54 @@ public class FindsCS {
 	}
 	
 		
+	/**
+	 * build the prefix sums of demand possibilities and partial expectations for each period,
+	 * then L(y) for y less than maxY is computed in O(1) instead of a loop of y cdf differences
+	 * @param maxY
+	 * @param parallel whether building the periods in parallel
+	 */
+	public void buildLyTables(int maxY, boolean parallel) {
+		double[][] cumPs = new double[T][maxY + 1];
+		double[][] cumIPs = new double[T][maxY + 1];
+		IntStream periods = parallel ? IntStream.range(0, T).parallel() : IntStream.range(0, T);
+		periods.forEach(t -> {
+			Distribution distribution = distributions[t];
+			double lastCdf = distribution.cdf(-0.5);
+			for (int i = 0; i < maxY; i++) {
+				double cdf = distribution.cdf(i + 0.5);
+				cumPs[t][i + 1] = cumPs[t][i] + (cdf - lastCdf);
+				cumIPs[t][i + 1] = cumIPs[t][i] + i * (cdf - lastCdf);
+				lastCdf = cdf;
+			}
+		});
+		this.cumPs = cumPs;
+		this.cumIPs = cumIPs;
+	}
+	
+	/**
+	 * make sure the Ly tables cover the order-up-to level y
+	 */
+	void checkLyTables(double y) {
+		int n = (int) Math.ceil(y);
+		if (cumPs == null || n >= cumPs[0].length)
+			buildLyTables(Math.max(n, 2 * (cumPs == null ? 0 : cumPs[0].length)), true);
+	}
+	
 	/**
 	 * compute L(y) in a single period
 	 * @param y : order-up-to level y,
 	 * @param t : period t - 1
 	 */
 	double Ly(double y, int t) {
-		Distribution distribution = distributions[t];
-		
-		double meanI = 0;
-		for (int i = 0; i < y; i++)
-			meanI += (y - i) * (distribution.cdf(i + 0.5) - distribution.cdf(i - 0.5));
+		double meanI = 0; // expected end-of-period inventory
+		int n = Math.max(0, (int) Math.ceil(y)); // number of demand points less than y
+		if (cumPs != null && n < cumPs[t].length)
+			meanI = y * cumPs[t][n] - cumIPs[t][n];
+		else {
+			Distribution distribution = distributions[t];
+			for (int i = 0; i < y; i++)
+				meanI += (y - i) * (distribution.cdf(i + 0.5) - distribution.cdf(i - 0.5));
+		}
 		
 		double Ly = 0;
 		if (t == T - 1)
@@ -712,24 +762,24 @@ public class FindsCS {
 	 */
 	public int checksCS(double[][] sCS, double[][] optTable, Double overheadCost, double maxOrderQ, double fixOrderCost, double variCost) {
 		int nonOptCount = 0;
+		PolicyTable policyTable = new PolicyTable(optTable); // rows grouped by period
 		for (int t = 1; t < T; t++) {
 			final int i = t + 1;			
-			double[][] tOptTable = Arrays.stream(optTable).filter(p -> p[0] == i).map(p -> Arrays.stream(p).toArray())
-					.toArray(double[][]::new);
-			for (int j = 0; j < tOptTable.length; j++) {
-				if (tOptTable[j][1] < sCS[t][0]) {
-					if (cacheC1Values.get(new State(i, tOptTable[j][1])) == null)
+			PolicyTable.Slice tOptTable = policyTable.getPeriod(i);
+			for (int j = 0; j < tOptTable.length(); j++) {
+				if (tOptTable.get(j, 1) < sCS[t][0]) {
+					if (cacheC1Values.get(new State(i, tOptTable.get(j, 1))) == null)
 						sCS[t][1] = 0;
 					else
-						sCS[t][1] = cacheC1Values.get(new State(i, tOptTable[j][1]));
+						sCS[t][1] = cacheC1Values.get(new State(i, tOptTable.get(j, 1)));
 				}			
-				if (tOptTable[j][1] >= sCS[t][0] && tOptTable[j][3] != 0) // check s
+				if (tOptTable.get(j, 1) >= sCS[t][0] && tOptTable.get(j, 3) != 0) // check s
 					nonOptCount++;
-				if (tOptTable[j][2] <= sCS[t][1] && tOptTable[j][3] != 0) // check C
+				if (tOptTable.get(j, 2) <= sCS[t][1] && tOptTable.get(j, 3) != 0) // check C
 					nonOptCount++;
-				double maxQ = (int) Math.min(sCS[t][2] - tOptTable[j][1], (tOptTable[j][2] - overheadCost - fixOrderCost) / variCost);
+				double maxQ = (int) Math.min(sCS[t][2] - tOptTable.get(j, 1), (tOptTable.get(j, 2) - overheadCost - fixOrderCost) / variCost);
 				maxQ = Math.min(maxQ, maxOrderQ);	
-				if (tOptTable[j][1] < sCS[t][0] && tOptTable[j][2] > sCS[t][1] && tOptTable[j][3] != maxQ)
+				if (tOptTable.get(j, 1) < sCS[t][0] && tOptTable.get(j, 2) > sCS[t][1] && tOptTable.get(j, 3) != maxQ)
 					nonOptCount++;
 			}
 		}
@@ -748,31 +798,31 @@ public class FindsCS {
 	 */
 	public int checksC12S(double[][] sCS, double[][] optTable, Double overheadCost, double maxOrderQ, double fixOrderCost, double variCost) {
 		int nonOptCount = 0;
+		PolicyTable policyTable = new PolicyTable(optTable); // rows grouped by period
 		for (int t = 1; t < T; t++) {
 			final int i = t + 1;			
-			double[][] tOptTable = Arrays.stream(optTable).filter(p -> p[0] == i).map(p -> Arrays.stream(p).toArray())
-					.toArray(double[][]::new);
-			for (int j = 0; j < tOptTable.length; j++) {
-				if (tOptTable[j][1] < sCS[t][0]) {
-					if (cacheC1Values.get(new State(i, tOptTable[j][1])) == null)
+			PolicyTable.Slice tOptTable = policyTable.getPeriod(i);
+			for (int j = 0; j < tOptTable.length(); j++) {
+				if (tOptTable.get(j, 1) < sCS[t][0]) {
+					if (cacheC1Values.get(new State(i, tOptTable.get(j, 1))) == null)
 						sCS[t][1] = 0;
 					else
-						sCS[t][1] = cacheC1Values.get(new State(i, tOptTable[j][1]));
-					if (cacheC2Values.get(new State(i, tOptTable[j][1])) == null)
+						sCS[t][1] = cacheC1Values.get(new State(i, tOptTable.get(j, 1)));
+					if (cacheC2Values.get(new State(i, tOptTable.get(j, 1))) == null)
 						sCS[t][2] = 0;
 					else
-						sCS[t][2] = cacheC2Values.get(new State(i, tOptTable[j][1]));
+						sCS[t][2] = cacheC2Values.get(new State(i, tOptTable.get(j, 1)));
 				}			
-				if (tOptTable[j][1] >= sCS[t][0] && tOptTable[j][3] != 0)
+				if (tOptTable.get(j, 1) >= sCS[t][0] && tOptTable.get(j, 3) != 0)
 					nonOptCount++;
-				if (tOptTable[j][2] <= sCS[t][1] && tOptTable[j][3] != 0)
+				if (tOptTable.get(j, 2) <= sCS[t][1] && tOptTable.get(j, 3) != 0)
 					nonOptCount++;
-				if (tOptTable[j][2] >= sCS[t][2] && tOptTable[j][3] != 0)
+				if (tOptTable.get(j, 2) >= sCS[t][2] && tOptTable.get(j, 3) != 0)
 					nonOptCount++;
-				double maxQ = (int) Math.min(sCS[t][3] - tOptTable[j][1], (tOptTable[j][2] - overheadCost - fixOrderCost) / variCost);
+				double maxQ = (int) Math.min(sCS[t][3] - tOptTable.get(j, 1), (tOptTable.get(j, 2) - overheadCost - fixOrderCost) / variCost);
 				maxQ = Math.min(maxQ, maxOrderQ);	
 				
-				if (tOptTable[j][1] < sCS[t][0] && tOptTable[j][2] > sCS[t][1] && tOptTable[j][2] < sCS[t][2] && tOptTable[j][3] != maxQ)
+				if (tOptTable.get(j, 1) < sCS[t][0] && tOptTable.get(j, 2) > sCS[t][1] && tOptTable.get(j, 2) < sCS[t][2] && tOptTable.get(j, 3) != maxQ)
 					nonOptCount++;
 			}
 		}
@@ -8,8 +8,8 @@ import milp.MipCashConstraint;
 import sdp.cash.CashSimulation;
 import sdp.cash.CashState;
 import sdp.inventory.State;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.write.WriteToCsv;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
@@ -83,7 +83,7 @@ public class MIPTesting {
 										.toArray(PoissonDist[]::new);
 								
 								// immediate value
-								ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state,
+								DoubleImmediateValue<CashState> immediateValue = (state,
 										action, randomDemand) -> {
 									double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
 									double fixedCost = action > 0 ? fixOrderCost : 0;
@@ -97,7 +97,7 @@ public class MIPTesting {
 								};		
 								
 								// state transition function
-								StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state,
+								DoubleStateTransition<CashState> stateTransition = (state,
 										action, randomDemand) -> {
 									double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 									double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
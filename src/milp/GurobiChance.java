@@ -3,9 +3,6 @@ package milp;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import gurobi.GRB;
@@ -14,7 +11,7 @@ import gurobi.GRBException;
 import gurobi.GRBLinExpr;
 import gurobi.GRBModel;
 import gurobi.GRBVar;
-import sdp.sampling.CartesianProduct;
+import sdp.sampling.ScenarioTree;
 import sdp.sampling.Sampling;
 import umontreal.ssj.probdist.Distribution;
 
@@ -65,11 +62,8 @@ public class GurobiChance {
 //			}
 			int negativeScenarioNumRequire = (int) (sampleNumTotal * (1 - serviceRate));
 			
-			List<List<Integer>> Indexes = new ArrayList<>();
-			for (int t = 0; t < T; t++)
-				Indexes.add(IntStream.iterate(0, i -> i + 1).limit(sampleNums[t]).boxed().collect(Collectors.toList()));
-			CartesianProduct<Integer> CP = new CartesianProduct<>();
-			List<List<Integer>> scenarioIndexes = CP.product(Indexes);	
+			// sample index of each scenario in each period is decoded from the scenario tree when needed
+			ScenarioTree scenarioTree = ScenarioTree.uniform(sampleNums);
 			
 			
 			// use Gurobi to solve the mip model
@@ -140,7 +134,7 @@ public class GurobiChance {
 			// inventory flow
 			for (int t = 0; t < T; t++) 
 		    	for (int s = 0; s < sampleNumTotal; s++) {
-		    		int sIndex = scenarioIndexes.get(s).get(t);
+		    		int sIndex = scenarioTree.branchIndex(s, t);
 		    		double demand = scenarios[t][sIndex]; 
 		    		if (t == 0) {
 		    			GRBLinExpr rightExpr1 = new GRBLinExpr();
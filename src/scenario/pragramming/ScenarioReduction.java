@@ -8,6 +8,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+import sdp.sampling.ScenarioTree;
+
 
 /**
  * @author: Zhen Chen
@@ -38,12 +40,12 @@ import java.util.Map;
 public class ScenarioReduction {
 
 	
-	static double euclDistance(double[][] arr, double[] s1, double[] s2) {
+	static double euclDistance(double[][] arr, int[] s1, int[] s2) {
 		double squreSum = 0;
-		for (int k = 0; k < s1.length - 1; k++)
+		for (int k = 0; k < s1.length; k++)
 			for (int i = 0; i < 3; i++) {
-				int index1 = (int) s1[k];
-				int index2 = (int) s2[k];
+				int index1 = s1[k];
+				int index2 = s2[k];
 				squreSum += Math.pow(arr[index1][i] - arr[index2][i], 2);
 			}
 		return Math.sqrt(squreSum);
@@ -58,21 +60,10 @@ public class ScenarioReduction {
 		int realizationNum = 5;
 		double[] possiblities = {0.105, 0.341, 0.330, 0.106, 0.119};
 		double[][] demandRealizations = {{25, 290, 109}, {58, 365, 90}, {62, 134, 132}, {289, 789, 273}, {74, 965, 564}};
-		int scenarioNum = (int) Math.pow(realizationNum, T);
-		double[][] scenarioIndexP = new double[scenarioNum][T + 1];
-		
-		// all the possible scenarios
+		// all the possible scenarios, enumerated lazily by the tree instead of a scenarioNum * (T + 1) matrix
+		ScenarioTree tree = new ScenarioTree(possiblities, T);
+		int scenarioNum = (int) tree.size();
 		int index = 0;
-		for (int i1 = 0; i1 < realizationNum; i1++)
-			for (int i2 = 0; i2 < realizationNum; i2++)
-				for (int i3 = 0; i3 < realizationNum; i3++)
-					for (int i4 = 0; i4 < realizationNum; i4++)
-						for (int i5 = 0; i5 < realizationNum; i5++)
-							for (int i6 = 0; i6 < realizationNum; i6++) {
-								double ratio = possiblities[i1]*possiblities[i2]*possiblities[i3]*possiblities[i4]*possiblities[i5]*possiblities[i6];
-								scenarioIndexP[index] = new double[]{i1, i2, i3, i4, i5, i6, ratio};
-								index++;
-							}
 
 		// select K scenarios
 		int selected = 0;
@@ -83,38 +74,39 @@ public class ScenarioReduction {
 			double minDistance = 100000;
 			int minDIndex = 0;	
 			index = 0;
+			// the selected scenarios and scenario i are decoded once, outside the distance loops
+			int[][] scenarioIndexPL = new int[indexRecord.size()][T];
+			for (int k = 0; k < indexRecord.size(); k++)
+				tree.decode(indexRecord.get(k), scenarioIndexPL[k]);
+			int[] scenarioIndexP1 = new int[T];
+			int[] scenarioIndexP2 = new int[T];
 			for (int i = 0; i < scenarioNum; i++) {
 				if (!indexRecord.contains(i)) {
 					double upperWeightD = 0;
 					double lowerWeightD = 0;
-					double[] scenarioIndexP1 = new double[T + 1];
-					double[] scenarioIndexP2 = new double[T + 1];
+					tree.decode(i, scenarioIndexP2); 
 					for (int j1 = 0; j1 < i; j1 ++) {
-						if (!indexRecord.contains(i)) {
-							scenarioIndexP1 = scenarioIndexP[j1]; 
-							scenarioIndexP2 = scenarioIndexP[i]; 
+						if (!indexRecord.contains(j1)) {
+							tree.decode(j1, scenarioIndexP1); 
 							double thisDistance = euclDistance(demandRealizations, scenarioIndexP1, scenarioIndexP2);
-							for (int k = 0; k < indexRecord.size(); k++) {
-								double[] scenarioIndexPL = scenarioIndexP[indexRecord.get(k)];
-								double tempDistance = euclDistance(demandRealizations, scenarioIndexP1, scenarioIndexPL);
+							for (int k = 0; k < scenarioIndexPL.length; k++) {
+								double tempDistance = euclDistance(demandRealizations, scenarioIndexP1, scenarioIndexPL[k]);
 								if (tempDistance < thisDistance) 
 									thisDistance = tempDistance;
 							}
-							upperWeightD += scenarioIndexP[j1][6] * thisDistance;
+							upperWeightD += tree.probability(j1) * thisDistance;
 						}
 					}
 					for (int j2 = i + 1; j2 < scenarioNum; j2++) {
 						if (!indexRecord.contains(j2)) {
-							scenarioIndexP1 = scenarioIndexP[i]; 
-							scenarioIndexP2 = scenarioIndexP[j2]; 
-							double thisDistance = euclDistance(demandRealizations, scenarioIndexP1, scenarioIndexP2);
-							for (int k = 0; k < indexRecord.size(); k++) {
-								double[] scenarioIndexPL = scenarioIndexP[indexRecord.get(k)];
-								double tempDistance = euclDistance(demandRealizations, scenarioIndexP2, scenarioIndexPL);
+							tree.decode(j2, scenarioIndexP1); 
+							double thisDistance = euclDistance(demandRealizations, scenarioIndexP2, scenarioIndexP1);
+							for (int k = 0; k < scenarioIndexPL.length; k++) {
+								double tempDistance = euclDistance(demandRealizations, scenarioIndexP1, scenarioIndexPL[k]);
 								if (tempDistance < thisDistance) 
 									thisDistance = tempDistance;
 							}
-							lowerWeightD += scenarioIndexP[j2][6] * thisDistance;	
+							lowerWeightD += tree.probability(j2) * thisDistance;	
 						}
 					}
 					weightedDistance[i] = upperWeightD + lowerWeightD;
@@ -129,28 +121,28 @@ public class ScenarioReduction {
 				}
 			}
 			indexRecord.add(minDIndex);
-			possibRecord.add(scenarioIndexP[minDIndex][T]);
+			possibRecord.add(tree.probability(minDIndex));
 			System.out.println(minDistance);
 			selected++;		
 		}		
 		
 		// add possibilities
+		int[] scenarioIndexP1 = new int[T];
+		int[] scenarioIndexP2 = new int[T];
 		for (int i = 0; i < scenarioNum; i++) {
 			if (!indexRecord.contains(i)) {
-				double[] scenarioIndexP1 = new double[T + 1];
-				double[] scenarioIndexP2 = new double[T + 1];
 				double minDistance = 100000;
 				int minDIndex = 0;
+				tree.decode(i, scenarioIndexP1); 
 				for (int j = 0; j < indexRecord.size(); j++) {
-					scenarioIndexP1 = scenarioIndexP[i]; 
-					scenarioIndexP2 = scenarioIndexP[indexRecord.get(j)];
+					tree.decode(indexRecord.get(j), scenarioIndexP2);
 					double thisDistance = euclDistance(demandRealizations, scenarioIndexP1, scenarioIndexP2);
 					if (thisDistance < minDistance) {
 						minDistance = thisDistance;
 						minDIndex = j;
 					}
 				}
-				double newP = possibRecord.get(minDIndex) + scenarioIndexP[i][T];
+				double newP = possibRecord.get(minDIndex) + tree.probability(i);
 				possibRecord.set(minDIndex, newP);		
 
 			}
@@ -163,8 +155,8 @@ public class ScenarioReduction {
 		// output scenario index
 		System.out.println("the scenarios are: ");
 		for (int j = 0; j < indexRecord.size(); j++) {
-			double[] scenario = scenarioIndexP[indexRecord.get(j)]; 
-			System.out.println(Arrays.toString(scenario));
+			tree.decode(indexRecord.get(j), scenarioIndexP1); 
+			System.out.println(Arrays.toString(scenarioIndexP1) + ", " + tree.probability(indexRecord.get(j)));
 		}
 		
 	}
@@ -0,0 +1,240 @@
+package sdp.cash;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+*@author: Zhen Chen
+*@email: 15011074486@163.com
+*@date: Oct 18, 2026---10:46:52 PM
+*@description: multi-resolution solving of approximate dp for the policy thresholds, e.g., (s, C1, C2, S) by FindsCS
+*              or (s, S) by FindsSOverDraft. The optimal policy only changes along thin switching curves in (x, cash),
+*              so the recursion is first solved on a coarse grid, then the grid is refined only between neighbouring
+*              grid states whose actions differ or whose values are not smooth, until the thresholds found
+*              in the decision table are stable.
+*
+*              Each period has its own tensor grid, so refining a cell of a period inserts a midpoint into the
+*              inventory or cash axis of this period only; the values of the new grid states are only solved when
+*              an interpolation needs them. Values only depend on the later periods, so after a round the values
+*              from the latest refined period on are kept as warm starts, and only the earlier periods are solved again.
+*/
+
+public class AdaptiveGridSolver {
+	CashRecursion recursion;
+	Function<double[][], double[][]> findThresholds; // thresholds from the decision table, e.g., FindsSOverDraft.getsS
+	double[][] inventoryGrids; // inventoryGrids[t - 1] of period t
+	double[][] cashGrids;
+
+	double minInventoryStep = 1; // cells are not split below these steps, midpoints are whole steps from the cell start
+	double minCashStep = 1;
+	double smoothTolerance = Double.MAX_VALUE; // by default only the cells with different actions are refined
+	double thresholdTolerance = 1e-6;
+	int maxRounds = 10;
+	int rounds;
+	int keptStates; // solved states kept as warm starts in the last solve
+
+	/**
+	 * @param recursion
+	 * @param inventoryGrid coarse increasing inventories of every period
+	 * @param cashGrid coarse increasing cashes of every period
+	 * @param findThresholds policy thresholds from the optimal table of the recursion
+	 */
+	public AdaptiveGridSolver(CashRecursion recursion, double[] inventoryGrid, double[] cashGrid,
+			Function<double[][], double[][]> findThresholds) {
+		this.recursion = recursion;
+		int T = recursion.pmf.length;
+		this.inventoryGrids = new double[T][];
+		this.cashGrids = new double[T][];
+		for (int t = 0; t < T; t++) {
+			inventoryGrids[t] = inventoryGrid.clone();
+			cashGrids[t] = cashGrid.clone();
+		}
+		this.findThresholds = findThresholds;
+	}
+
+	public void setMinSteps(double minInventoryStep, double minCashStep) {
+		this.minInventoryStep = minInventoryStep;
+		this.minCashStep = minCashStep;
+	}
+
+	/**
+	 * @param smoothTolerance cells are also refined if a grid value differs from the linear interpolation
+	 *        of its two neighbours by more than this tolerance
+	 */
+	public void setSmoothTolerance(double smoothTolerance) {
+		this.smoothTolerance = smoothTolerance;
+	}
+
+	public void setThresholdTolerance(double thresholdTolerance) {
+		this.thresholdTolerance = thresholdTolerance;
+	}
+
+	public void setMaxRounds(int maxRounds) {
+		this.maxRounds = maxRounds;
+	}
+
+	/**
+	 * solve, find the thresholds and refine the grids until the thresholds are stable or no cell can be refined
+	 * @param initialState
+	 * @return thresholds of the last grids, the recursion keeps the solution of these grids
+	 */
+	public double[][] solve(CashState initialState) {
+		recursion.clearCache(); // values of another grid are not warm starts
+		recursion.setApproximateGrid(inventoryGrids[0], cashGrids[0]);
+		for (int t = 2; t <= inventoryGrids.length; t++)
+			recursion.setApproximateGrid(t, inventoryGrids[t - 1], cashGrids[t - 1]);
+		double[][] thresholds = null;
+		keptStates = 0;
+		for (rounds = 1; rounds <= maxRounds; rounds++) {
+			recursion.getExpectedValue(initialState);
+			double[][] newThresholds = findThresholds.apply(recursion.getOptTable());
+			boolean stable = thresholds != null && isStable(thresholds, newThresholds);
+			thresholds = newThresholds;
+			if (stable || rounds == maxRounds)
+				break;
+			int latestPeriod = refine();
+			if (latestPeriod == 0)
+				break;
+			// the values of the earlier periods are interpolated on the old grids
+			recursion.removePeriodsBefore(latestPeriod);
+			keptStates += recursion.cacheValues.size();
+		}
+		return thresholds;
+	}
+
+	boolean isStable(double[][] thresholds, double[][] newThresholds) {
+		for (int t = 0; t < thresholds.length; t++)
+			for (int k = 0; k < thresholds[t].length; k++)
+				if (Math.abs(thresholds[t][k] - newThresholds[t][k]) > thresholdTolerance)
+					return false;
+		return true;
+	}
+
+	/**
+	 * compare the solved neighbouring grid states along both axes and refine the grid of each period on its own,
+	 * period 1 is not interpolated
+	 * @return the latest period whose grid is refined, 0 if no midpoint is inserted
+	 */
+	int refine() {
+		int T = inventoryGrids.length;
+		double[][][][] periodTables = new double[T][][][]; // {actions, values}[i][k] of inventory i and cash k in each period
+		for (Map.Entry<CashState, Double> entry : recursion.getCacheActions().entrySet()) {
+			CashState s = entry.getKey();
+			int t = s.getPeriod();
+			if (t < 2 || t > T)
+				continue;
+			int i = Arrays.binarySearch(inventoryGrids[t - 1], s.getIniInventory());
+			int k = Arrays.binarySearch(cashGrids[t - 1], s.iniCash);
+			Double value = recursion.cacheValues.get(s);
+			if (i < 0 || k < 0 || value == null)
+				continue;
+			if (periodTables[t - 1] == null) {
+				periodTables[t - 1] = new double[2][inventoryGrids[t - 1].length][cashGrids[t - 1].length];
+				for (double[] row : periodTables[t - 1][0])
+					Arrays.fill(row, Double.NaN);
+			}
+			periodTables[t - 1][0][i][k] = entry.getValue();
+			periodTables[t - 1][1][i][k] = value;
+		}
+
+		int latestPeriod = 0;
+		for (int t = 2; t <= T; t++) {
+			if (periodTables[t - 1] != null && refine(t, periodTables[t - 1][0], periodTables[t - 1][1]))
+				latestPeriod = t;
+		}
+		return latestPeriod;
+	}
+	
+	/**
+	 * @param period
+	 * @param actions actions[i][k] of the grid state of inventory i and cash k, NaN if it is not solved
+	 * @param values
+	 * @return whether any midpoint is inserted into the grid of the period
+	 */
+	boolean refine(int period, double[][] actions, double[][] values) {
+		double[] inventoryGrid = inventoryGrids[period - 1];
+		double[] cashGrid = cashGrids[period - 1];
+		int xLength = inventoryGrid.length;
+		int RLength = cashGrid.length;
+		boolean[] splitX = new boolean[Math.max(xLength - 1, 0)];
+		boolean[] splitR = new boolean[Math.max(RLength - 1, 0)];
+		for (int k = 0; k < RLength; k++) {
+			for (int i = 0; i + 1 < xLength; i++) {
+				if (!Double.isNaN(actions[i][k]) && !Double.isNaN(actions[i + 1][k]) && actions[i][k] != actions[i + 1][k])
+					splitX[i] = true;
+				if (i > 0 && !isSmooth(inventoryGrid, i, actions[i - 1][k], actions[i][k], actions[i + 1][k],
+										values[i - 1][k], values[i][k], values[i + 1][k]))
+					splitX[i - 1] = splitX[i] = true;
+			}
+		}
+		for (int i = 0; i < xLength; i++) {
+			for (int k = 0; k + 1 < RLength; k++) {
+				if (!Double.isNaN(actions[i][k]) && !Double.isNaN(actions[i][k + 1]) && actions[i][k] != actions[i][k + 1])
+					splitR[k] = true;
+				if (k > 0 && !isSmooth(cashGrid, k, actions[i][k - 1], actions[i][k], actions[i][k + 1],
+										values[i][k - 1], values[i][k], values[i][k + 1]))
+					splitR[k - 1] = splitR[k] = true;
+			}
+		}
+
+		double[] newInventoryGrid = split(inventoryGrid, splitX, minInventoryStep);
+		double[] newCashGrid = split(cashGrid, splitR, minCashStep);
+		if (newInventoryGrid.length == xLength && newCashGrid.length == RLength)
+			return false;
+		inventoryGrids[period - 1] = newInventoryGrid;
+		cashGrids[period - 1] = newCashGrid;
+		recursion.setApproximateGrid(period, newInventoryGrid, newCashGrid);
+		return true;
+	}
+
+	/**
+	 * @return whether the middle value is close to the linear interpolation of its neighbours, true if any is not solved
+	 */
+	boolean isSmooth(double[] grid, int middle, double action1, double action2, double action3,
+			double value1, double value2, double value3) {
+		if (Double.isNaN(action1) || Double.isNaN(action2) || Double.isNaN(action3))
+			return true;
+		double weight = (grid[middle] - grid[middle - 1]) / (grid[middle + 1] - grid[middle - 1]);
+		return Math.abs(value2 - ((1 - weight) * value1 + weight * value3)) <= smoothTolerance;
+	}
+
+	/**
+	 * @return the grid with the midpoints of the split cells, rounded to whole minimum steps from the cell start
+	 */
+	static double[] split(double[] grid, boolean[] splits, double minStep) {
+		TreeSet<Double> values = new TreeSet<>();
+		for (int i = 0; i < grid.length; i++) {
+			values.add(grid[i]);
+			if (i < splits.length && splits[i]) {
+				double middle = grid[i] + Math.round((grid[i + 1] - grid[i]) / 2 / minStep) * minStep;
+				if (middle > grid[i] && middle < grid[i + 1])
+					values.add(middle);
+			}
+		}
+		return values.stream().mapToDouble(Double::doubleValue).toArray();
+	}
+
+	public double[] getInventoryGrid(int period) {
+		return inventoryGrids[period - 1];
+	}
+
+	public double[] getCashGrid(int period) {
+		return cashGrids[period - 1];
+	}
+
+	/**
+	 * @return number of solving rounds in the last solve
+	 */
+	public int getRounds() {
+		return rounds;
+	}
+
+	/**
+	 * @return number of solved states kept as warm starts by the refinements of the last solve
+	 */
+	public int getKeptStates() {
+		return keptStates;
+	}
+}
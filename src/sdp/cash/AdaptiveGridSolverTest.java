@@ -0,0 +1,93 @@
+package sdp.cash;
+
+import java.util.function.Function;
+import java.util.stream.DoubleStream;
+
+import sdp.cash.CashRecursion.OptDirection;
+import sdp.inventory.InterpolationGrid;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026---1:42:18 PM
+ * @description: check that the warm starts of AdaptiveGridSolver give the same value as solving the final grids
+ *               from scratch, and that the grids are refined in each period on its own.
+ *               Throws IllegalStateException at the first failure.
+ */
+
+public class AdaptiveGridSolverTest {
+
+	/**
+	 * thresholds[t - 1] = {s, S} of period t from 2 at the largest solved cash: s is the smallest inventory
+	 * not ordering, S the largest order-up-to level
+	 */
+	static double[][] sS(double[][] optTable, int T) {
+		double[][] thresholds = new double[T][2];
+		for (int t = 2; t <= T; t++) {
+			double maxCash = -Double.MAX_VALUE;
+			for (double[] row : optTable)
+				if (row[0] == t)
+					maxCash = Math.max(maxCash, row[2]);
+			double s = Double.MAX_VALUE;
+			double S = 0;
+			for (double[] row : optTable)
+				if (row[0] == t && row[2] == maxCash) {
+					if (row[3] == 0)
+						s = Math.min(s, row[1]);
+					else
+						S = Math.max(S, row[1] + row[3]);
+				}
+			thresholds[t - 1][0] = s;
+			thresholds[t - 1][1] = S;
+		}
+		return thresholds;
+	}
+
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	}
+
+	static CashRecursion recursion(double[][][] pmf) {
+		Function<CashState, double[]> getFeasibleAction = s -> {
+			double maxQ = Math.min(20, Math.max(0, (s.getIniCash() - DoubleFunctionsTest.fixOrderCost) / DoubleFunctionsTest.variCost));
+			return DoubleStream.iterate(0, i -> i + 1).limit((int) maxQ + 1).toArray();
+		};
+		DoubleStateTransition<CashState> stateTransition = DoubleFunctionsTest::nextState;
+		DoubleImmediateValue<CashState> immediateValue = DoubleFunctionsTest::cashIncrement;
+		CashRecursion recursion = new CashRecursion(OptDirection.MAX, pmf, getFeasibleAction, stateTransition, immediateValue, 1);
+		recursion.setTreeMapCacheAction();
+		return recursion;
+	}
+
+	public static void main(String[] args) {
+		double[][][] pmf = DoubleFunctionsTest.pmf(new double[] {8, 8, 3, 3});
+		int T = pmf.length;
+		CashState iniState = new CashState(1, 0, 12);
+
+		CashRecursion recursion = recursion(pmf);
+		AdaptiveGridSolver solver = new AdaptiveGridSolver(recursion, InterpolationGrid.uniformAxis(0, 60, 7),
+				InterpolationGrid.uniformAxis(0, 200, 11), table -> sS(table, T));
+		solver.solve(iniState);
+		double warmValue = recursion.getExpectedValue(iniState);
+		check(solver.getRounds() > 1, "the grids are never refined");
+		check(solver.getKeptStates() > 0, "no solved state is kept as a warm start");
+
+		// the final grids solved from scratch
+		CashRecursion coldRecursion = recursion(pmf);
+		coldRecursion.setApproximateGrid(solver.getInventoryGrid(2), solver.getCashGrid(2));
+		boolean differentGrids = false;
+		for (int t = 2; t <= T; t++) {
+			coldRecursion.setApproximateGrid(t, solver.getInventoryGrid(t), solver.getCashGrid(t));
+			differentGrids |= solver.getInventoryGrid(t).length != solver.getInventoryGrid(2).length
+					|| solver.getCashGrid(t).length != solver.getCashGrid(2).length;
+		}
+		double coldValue = coldRecursion.getExpectedValue(iniState);
+		check(warmValue == coldValue, "warm started value " + warmValue + " differs from " + coldValue);
+		check(differentGrids, "the periods are refined together");
+		System.out.println("warm started and final grid values are " + warmValue + " after " + solver.getRounds()
+				+ " rounds, " + solver.getKeptStates() + " states kept");
+	}
+}
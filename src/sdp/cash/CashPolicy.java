@@ -0,0 +1,151 @@
+package sdp.cash;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import sdp.inventory.FrozenPolicy;
+import sdp.inventory.State;
+
+/**
+*@author: Zhen Chen
+*@email: 15011074486@163.com
+*@date: Oct 18, 2026---6:02:15 PM
+*@description: an ordering policy for the cash flow problems, evaluated by CashSimulation.simulatePolicies
+*              on a shared demand sample matrix.
+*
+*              The factories give the same decisions as simulateSDPGivenSamplNum, simulatesCS, simulatesMeanCS
+*              and simulatesSOD. They do not modify the policy tables, and the C values are copied
+*              since FindsCS clears its maps when finding another policy.
+*/
+
+@FunctionalInterface
+public interface CashPolicy {
+
+	/**
+	 * @param state
+	 * @param t period index, from 0
+	 * @return order quantity
+	 */
+	double getOrderQuantity(CashState state, int t);
+
+	/**
+	 * @return whether demand samples are rounded to integers for this policy, e.g., for sdp
+	 */
+	default boolean roundDemand() {
+		return false;
+	}
+
+	/**
+	 * optimal sdp policy, demand samples are rounded as in simulateSDPGivenSamplNum;
+	 * the recursion is not thread safe, so it should not be shared by another policy in a parallel evaluation
+	 */
+	static CashPolicy sdp(CashRecursion recursion) {
+		return new CashPolicy() {
+			@Override
+			public double getOrderQuantity(CashState state, int t) {
+				recursion.getExpectedValue(state);
+				return recursion.getAction(state);
+			}
+
+			@Override
+			public boolean roundDemand() {
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * optimal sdp policy frozen after solving, safe to share by policies simulated in parallel
+	 */
+	static CashPolicy sdp(FrozenPolicy policy) {
+		return new CashPolicy() {
+			@Override
+			public double getOrderQuantity(CashState state, int t) {
+				return policy.getAction(state.getPeriod(), state.getIniInventory(), state.getIniCash());
+			}
+
+			@Override
+			public boolean roundDemand() {
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * (s, C1, C2, S) policy in strong cash constraint, optsCS rows are [s, C1, C2, S]
+	 */
+	static CashPolicy sC1C2S(double[][] optsCS, Map<State, Double> cacheC1Values, Map<State, Double> cacheC2Values,
+			double minCashRequired, Double maxQ, double fixOrderCost, double variCost) {
+		Map<State, Double> c1Values = new TreeMap<>(cacheC1Values);
+		Map<State, Double> c2Values = new TreeMap<>(cacheC2Values);
+		int M = 10000;
+		return (state, t) -> {
+			if (t == 0)
+				return state.getIniInventory() < optsCS[t][0] ? optsCS[t][3] - state.getIniInventory() : 0;
+			double maxOrderQuantity = (int) Math.max(0, (state.iniCash - minCashRequired - fixOrderCost) / variCost);
+			maxOrderQuantity = Math.min(maxOrderQuantity, maxQ);
+			if (state.getIniInventory() >= optsCS[t][0])
+				return 0;
+			Double C1 = c1Values.get(new State(state.getPeriod(), state.getIniInventory()));
+			Double C2 = c2Values.get(new State(state.getPeriod(), state.getIniInventory()));
+			// not include equal
+			if (state.getIniCash() > (C1 == null ? 0 : C1) && state.getIniCash() < (C2 == null ? M : C2))
+				return Math.min(maxOrderQuantity, optsCS[t][3] - state.getIniInventory());
+			return 0;
+		};
+	}
+
+	/**
+	 * (s, C1, S) policy in strong cash constraint, optsCS rows are [s, C, S]
+	 */
+	static CashPolicy sCS(double[][] optsCS, Map<State, Double> cacheC1Values,
+			double overheadCost, Double maxQ, double fixOrderCost, double variCost) {
+		Map<State, Double> c1Values = new TreeMap<>(cacheC1Values);
+		return (state, t) -> {
+			double maxOrderQuantity = Math.max(0, (state.iniCash - overheadCost - fixOrderCost) / variCost);
+			if (t == 0) {
+				double optQ = state.getIniInventory() < optsCS[t][0] ? optsCS[t][2] - state.getIniInventory() : 0;
+				return Math.min(optQ, maxOrderQuantity);
+			}
+			maxOrderQuantity = Math.min(maxOrderQuantity, maxQ);
+			if (state.getIniInventory() >= optsCS[t][0])
+				return 0;
+			Double C1 = c1Values.get(new State(state.getPeriod(), state.getIniInventory()));
+			// not include equal
+			if (state.getIniCash() > (C1 == null ? 0 : C1))
+				return Math.min(maxOrderQuantity, optsCS[t][2] - state.getIniInventory());
+			return 0;
+		};
+	}
+
+	/**
+	 * (s, C, S) policy with one C value in each period, optsCS rows are [s, C, S]
+	 */
+	static CashPolicy sMeanCS(double[][] optsCS, double minCashRequired, Double maxQ, double fixOrderCost, double variCost) {
+		return (state, t) -> {
+			if (t == 0)
+				return state.getIniInventory() < optsCS[t][0] ? optsCS[t][2] - state.getIniInventory() : 0;
+			double maxOrderQuantity = Math.max(0, (state.iniCash - minCashRequired - fixOrderCost) / variCost);
+			maxOrderQuantity = Math.min(maxOrderQuantity, maxQ);
+			// not include equal
+			if (state.getIniInventory() < optsCS[t][0] && state.getIniCash() > optsCS[t][1])
+				return Math.min(maxOrderQuantity, optsCS[t][2] - state.getIniInventory());
+			return 0;
+		};
+	}
+
+	/**
+	 * (s, S) policy in overdraft, optsS rows are [s, S]
+	 */
+	static CashPolicy sSOverdraft(double[][] optsS, double minCashRequired, Double maxQ, double fixOrderCost, double variCost) {
+		return (state, t) -> {
+			if (t == 0)
+				return optsS[t][1];
+			double maxOrderQuantity = Math.max(0, (state.iniCash - minCashRequired - fixOrderCost) / variCost);
+			maxOrderQuantity = Math.min(maxOrderQuantity, maxQ);
+			if (state.getIniInventory() < optsS[t][0])
+				return Math.min(maxOrderQuantity, optsS[t][1] - state.getIniInventory());
+			return 0;
+		};
+	}
+}
@@ -5,12 +5,23 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
+import sdp.inventory.FrozenPolicy;
+import sdp.inventory.InterpolationGrid;
+import sdp.inventory.PolicyTable;
+import sdp.inventory.SolveControl;
+import sdp.inventory.SolverMetrics;
+import sdp.inventory.StationaryRecursion;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
 import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.inventory.StateTransition.StateTransitionFunction;
 
 /**
@@ -21,14 +32,18 @@ import sdp.inventory.StateTransition.StateTransitionFunction;
 */
 
 public class CashRecursion {
-	Map<CashState, Double> cacheActions = new  ConcurrentSkipListMap<>();	
-	Map<CashState, Double> cacheValues = new  ConcurrentSkipListMap<>();
+	SortedMap<CashState, Double> cacheActions = new  ConcurrentSkipListMap<>(); // sorted by period first, see updatePmf	
+	SortedMap<CashState, Double> cacheValues = new  ConcurrentSkipListMap<>();
+	SortedMap<CashState, double[]> cacheVectors = new  ConcurrentSkipListMap<>(); // vector values, see getExpectedVector
 	
 	double[][][] pmf;	
 	OptDirection optDirection;	
 	Function<CashState, double[]> getFeasibleActions;
 	StateTransitionFunction<CashState, Double, Double, CashState> stateTransition;
 	ImmediateValueFunction<CashState, Double, Double, Double> immediateValue;
+	DoubleStateTransition<CashState> doubleStateTransition; // used in the recursion to avoid boxing
+	DoubleImmediateValue<CashState> doubleImmediateValue;
+	NewsvendorKernel kernel; // optional, replaces the two functions in the recursion
 	double discountFactor;
 	
 	public enum OptDirection{
@@ -36,6 +51,50 @@ public class CashRecursion {
 		MAX
 	}
 	
+	int momentNum = 1; // highest moment of the cash increments in the vector values
+	VectorSelection vectorSelection = VectorSelection.weighted(1); // default is the expected value only
+	InterpolationGrid[] valueGrids; // valueGrids[t - 1] is the coarse grid of (inventory, cash) of period t for approximate dp, null for the exact recursion
+	SolverMetrics metrics; // attached by the constructors if a flight recording is running, null for no instrumentation
+	SolveControl control; // null for no time budget or cancellation
+	
+	/**
+	 * rule for choosing the optimal action by the vector values of the actions, 
+	 * larger is better for OptDirection.MAX and smaller is better for OptDirection.MIN
+	 */
+	@FunctionalInterface
+	public interface VectorSelection {
+		/**
+		 * @return whether vector a is strictly larger than vector b
+		 */
+		boolean larger(double[] a, double[] b);
+		
+		/**
+		 * @param weights weights of the components, missing weights are 0
+		 */
+		static VectorSelection weighted(double... weights) {
+			return (a, b) -> {
+				double diff = 0;
+				for (int k = 0; k < weights.length; k++)
+					diff += weights[k] * (a[k] - b[k]);
+				return diff > 0;
+			};
+		}
+		
+		/**
+		 * @param tolerance differences within the tolerance are ties
+		 * @param order components compared one by one, e.g., 1, 0 for survival probability then expected value
+		 */
+		static VectorSelection lexicographic(double tolerance, int... order) {
+			return (a, b) -> {
+				for (int k : order) {
+					if (Math.abs(a[k] - b[k]) > tolerance)
+						return a[k] > b[k];
+				}
+				return false;
+			};
+		}
+	}
+	
 	public CashRecursion(OptDirection optDirection, double[][][] pmf, 
 			         Function<CashState, double[]> getFeasibleAction,
 			         StateTransitionFunction<CashState, Double, Double, CashState> stateTransition,
@@ -46,13 +105,29 @@ public class CashRecursion {
 		this.getFeasibleActions = getFeasibleAction;
 		this.stateTransition = stateTransition ;
 		this.immediateValue = immediateValue;
+		this.doubleStateTransition = DoubleStateTransition.of(stateTransition);
+		this.doubleImmediateValue = DoubleImmediateValue.of(immediateValue);
 		Comparator<CashState> keyComparator = (o1, o2) -> o1.getPeriod() > o2.getPeriod() ? 1 : 
 			o1.getPeriod() == o2.getPeriod() ? o1.getIniInventory() > o2.getIniInventory() ? 1 : 
 				o1.getIniInventory() == o2.getIniInventory() ? o1.iniCash > o2.iniCash  ? 1 :
 					o1.iniCash == o2.iniCash ? 0 : -1 : -1 : -1;
 		this.cacheActions = new  ConcurrentSkipListMap<>(keyComparator);
 		this.cacheValues = new  ConcurrentSkipListMap<>(keyComparator);
+		this.cacheVectors = new  ConcurrentSkipListMap<>(keyComparator);
 		this.discountFactor = discountFactor;
+		this.metrics = SolverMetrics.forRecording("CashRecursion", pmf.length);
+	}
+		
+	/**
+	 * recursion on primitive functions, the action and demand are not boxed
+	 */
+	public CashRecursion(OptDirection optDirection, double[][][] pmf, 
+			         Function<CashState, double[]> getFeasibleAction,
+			         DoubleStateTransition<CashState> stateTransition,
+			         DoubleImmediateValue<CashState> immediateValue, 
+			         double discountFactor) {
+		this(optDirection, pmf, getFeasibleAction, stateTransition.boxed(), immediateValue.boxed(), discountFactor);
+		setDoubleFunctions(stateTransition, immediateValue);
 	}
 		
 	public StateTransitionFunction<CashState, Double, Double, CashState> getStateTransitionFunction(){
@@ -63,6 +138,77 @@ public class CashRecursion {
 		return immediateValue;
 	} 
 	
+	public DoubleStateTransition<CashState> getDoubleStateTransition(){
+		return doubleStateTransition;
+	}
+	
+	public DoubleImmediateValue<CashState> getDoubleImmediateValue(){
+		return doubleImmediateValue;
+	}
+	
+	/**
+	 * run the recursion on primitive functions, the generic functions of the constructor are replaced by their views
+	 */
+	public void setDoubleFunctions(DoubleStateTransition<CashState> stateTransition, DoubleImmediateValue<CashState> immediateValue) {
+		this.doubleStateTransition = stateTransition;
+		this.doubleImmediateValue = immediateValue;
+		this.stateTransition = stateTransition.boxed();
+		this.immediateValue = immediateValue.boxed();
+	}
+	
+	/**
+	 * compute the expected values by a newsvendor kernel on contiguous demand arrays. The kernel takes precedence
+	 * over the functions of the constructor and of setDoubleFunctions in the recursion, while the simulation 
+	 * still uses the functions, so it should describe the same reward and transition, see NewsvendorKernel.maxDifference
+	 */
+	public void setKernel(NewsvendorKernel kernel) {
+		this.kernel = kernel;
+	}
+	
+	/**
+	 * incremental re-solve after the demand forecasts of some periods change, e.g., in a rolling horizon.
+	 * Values of a period only depend on the later periods, so the cached values and actions of the periods
+	 * after the latest changed period are kept, those of the other periods are removed and solved again 
+	 * by the next getExpectedValue or getExpectedVector
+	 * @param newPmf pmf of the whole planning horizon, e.g., from GetPmf.updatePmf
+	 * @param changedPeriods periods whose pmf change, from 1
+	 * @return number of removed states in the value table
+	 */
+	public int updatePmf(double[][][] newPmf, int... changedPeriods) {
+		if (newPmf.length != pmf.length)
+			throw new IllegalArgumentException("the planning horizon can not change");
+		int latestPeriod = 0;
+		for (int period : changedPeriods) {
+			if (period < 1 || period > pmf.length)
+				throw new IllegalArgumentException("no period " + period + " in the planning horizon");
+			latestPeriod = Math.max(latestPeriod, period);
+			if (kernel != null)
+				kernel.setPeriodPmf(period, newPmf[period - 1]);
+		}
+		this.pmf = newPmf;
+		return removePeriodsBefore(latestPeriod + 1);
+	}
+	
+	/**
+	 * remove the cached values, actions and vectors of the periods before a period, 
+	 * e.g., when they depend on a changed pmf or grid of a later period
+	 * @param firstKeptPeriod
+	 * @return number of removed states in the value table
+	 */
+	int removePeriodsBefore(int firstKeptPeriod) {
+		// states are sorted by period first
+		CashState firstKept = new CashState(firstKeptPeriod, -Double.MAX_VALUE, -Double.MAX_VALUE);
+		SortedMap<CashState, Double> removedValues = cacheValues.headMap(firstKept);
+		int removedNum = removedValues.size();
+		removedValues.clear();
+		cacheActions.headMap(firstKept).clear();
+		SortedMap<CashState, double[]> removedVectors = cacheVectors.headMap(firstKept);
+		if (metrics != null)
+			metrics.removed(removedNum + removedVectors.size());
+		removedVectors.clear();
+		return removedNum;
+	}
+	
 	/**
 	 * set a tree map for finding s B S 
 	 */
@@ -77,7 +223,14 @@ public class CashRecursion {
 	
 	
 	public double getExpectedValue(CashState initialState) {
-		return this.cacheValues.computeIfAbsent(initialState, s -> {			
+		if (metrics != null)
+			metrics.lookup(initialState.getPeriod());
+		if (control != null && control.isStopped() && !cacheValues.containsKey(initialState)) {
+			control.truncated(1);
+			return 0; // the planning horizon is truncated at an unsolved state
+		}
+		double[] partialValue = control != null ? new double[1] : null;
+		Double value = this.cacheValues.computeIfAbsent(initialState, s -> {			
 //			double val = Arrays.stream(getFeasibleActions.apply(s))
 //					//.parallel() // whether using parallel computation, there is error now
 //					.map(orderQty -> Arrays.stream(pmf[s.getPeriod() - 1])
@@ -95,59 +248,117 @@ public class CashRecursion {
 //							+ (s.getPeriod() < pmf.length ? p[1] * getExpectedValue(stateTransition.apply(s, orderQty, p[0])) : 0))
 //					.sum() == val).findAny().getAsDouble();			
 			
-			double[] feasibleActions = getFeasibleActions.apply(initialState);
+			long start = metrics != null ? metrics.enter() : 0;
+			try {
+				double[] feasibleActions = getFeasibleActions.apply(initialState);
 //			if (initialState.getPeriod() > 1) // only for testing reducing demand fluctuation
 //				feasibleActions = new double[] {0};
-			double[][] dAndP = pmf[s.getPeriod() - 1]; // demandAndPossibility
-			double[] QValues = new double[feasibleActions.length];
-			double val = optDirection == OptDirection.MIN ? Double.MAX_VALUE
-														  : -Double.MAX_VALUE;
+				double[][] dAndP = pmf[s.getPeriod() - 1]; // demandAndPossibility
+				double[] QValues = new double[feasibleActions.length];
+				double val = optDirection == OptDirection.MIN ? Double.MAX_VALUE
+															  : -Double.MAX_VALUE;
+				double[] nextInventory = kernel != null ? kernel.newBuffer() : null;
+				double[] nextCash = kernel != null ? kernel.newBuffer() : null;
+				CashState probe = kernel != null ? new CashState(0, 0, 0) : null;
 		
-			double bestOrderQty = 0;
-			for (int i = 0; i < feasibleActions.length; i++) {
-				double orderQty = feasibleActions[i];
+				double bestOrderQty = 0;
+				for (int i = 0; i < feasibleActions.length; i++) {
+					double orderQty = feasibleActions[i];
 				
 //				if (s.getPeriod() == 1) { // only for debugging
 //					System.out.println(orderQty);
 //				}
 				
-				double thisQValue = 0;								
-				for (int j = 0; j < dAndP.length; j++) {
-					double randomDemand = dAndP[j][0];
-					double thisDValue = immediateValue.apply(s, orderQty, randomDemand);
-					
-//					if (thisDValue < -10000 && dAndP[j][1] > 0.001)
-//						System.out.println(thisDValue);
-					
-					double dProb = dAndP[j][1];
-					thisQValue += dProb * thisDValue;
-					if (s.getPeriod() < pmf.length) {
-						CashState newState = stateTransition.apply(s, orderQty, dAndP[j][0]);
-						thisQValue += dAndP[j][1] * discountFactor * getExpectedValue(newState);
+					double thisQValue = 0;
+					if (kernel != null)
+						thisQValue = getKernelQValue(s, orderQty, nextInventory, nextCash, probe);
+					else {
+						for (int j = 0; j < dAndP.length; j++) {
+							double randomDemand = dAndP[j][0];
+							double thisDValue = doubleImmediateValue.apply(s, orderQty, randomDemand);
+						
+//						if (thisDValue < -10000 && dAndP[j][1] > 0.001)
+//							System.out.println(thisDValue);
+						
+							double dProb = dAndP[j][1];
+							thisQValue += dProb * thisDValue;
+							if (s.getPeriod() < pmf.length) {
+								CashState newState = doubleStateTransition.apply(s, orderQty, dAndP[j][0]);
+								thisQValue += dAndP[j][1] * discountFactor * getNextValue(newState);
+							}
+						}
 					}
-				}
-				QValues[i] = thisQValue;
-				if (optDirection == OptDirection.MIN) {
-					if (QValues[i] < val) {
-						val = QValues[i];
-						bestOrderQty = orderQty;
+					QValues[i] = thisQValue;
+					if (optDirection == OptDirection.MIN) {
+						if (QValues[i] < val) {
+							val = QValues[i];
+							bestOrderQty = orderQty;
+						}
 					}
-				}
-				else {
-					if (QValues[i] > val) {
-						val = QValues[i];
-						bestOrderQty = orderQty;
+					else {
+						if (QValues[i] > val) {
+							val = QValues[i];
+							bestOrderQty = orderQty;
+						}
 					}
 				}
+				try {
+				this.cacheActions.put(s, bestOrderQty); // kept after a stop as the truncated-horizon policy
+				}
+				catch (Exception e) {
+					System.out.println("error");
+				}
+				if (finishState(s.getPeriod(), start, feasibleActions.length, (long) feasibleActions.length * dAndP.length))
+					return val;
+				partialValue[0] = val;
+				return null;
+			} catch (RuntimeException | Error e) {
+				if (metrics != null)
+					metrics.abort(start); // the expansion is not cached, keep the gauges balanced
+				throw e;
 			}
-			try {
-			this.cacheActions.putIfAbsent(s, bestOrderQty);
-			}
-			catch (Exception e) {
-				System.out.println("error");
-			}
-			return val;
 		});
+		return value != null ? value : partialValue[0];
+	}
+	
+	/**
+	 * end of the expansion of a state. The value is only cached if the solve did not stop before it,
+	 * otherwise it depends on truncated states and the state is expanded again by a later solve
+	 * @return whether the value can be cached
+	 */
+	boolean finishState(int period, long start, long actionNum, long demandPointNum) {
+		boolean partial = control != null && control.isStopped();
+		if (control != null)
+			control.expanded(period);
+		if (metrics != null) {
+			metrics.exit(period, start, actionNum, demandPointNum);
+			if (partial)
+				metrics.removed(1);
+		}
+		return !partial;
+	}
+	
+	
+	/**
+	 * Q value of an order quantity by the kernel, the immediate values and next states of all the demand points
+	 * are computed in one pass, then the next values are looked up
+	 */
+	double getKernelQValue(CashState s, double orderQty, double[] nextInventory, double[] nextCash, CashState probe) {
+		int period = s.getPeriod();
+		double thisQValue = kernel.evaluate(period, s.getIniInventory(), s.iniCash, orderQty, nextInventory, nextCash);
+		if (period < pmf.length) {
+			double[] possibilities = kernel.getPossibilities(period);
+			for (int j = 0; j < possibilities.length; j++) {
+				// solved next states are looked up by the probe, a state is only built for an unsolved one
+				Double nextValueCached = valueGrids == null ? cacheValues.get(probe.set(period + 1, nextInventory[j], nextCash[j])) : null;
+				if (metrics != null && nextValueCached != null)
+					metrics.lookup(period + 1);
+				double thisNextValue = nextValueCached != null ? nextValueCached
+						: getNextValue(new CashState(period + 1, nextInventory[j], nextCash[j]));
+				thisQValue += possibilities[j] * discountFactor * thisNextValue;
+			}
+		}
+		return thisQValue;
 	}
 	
 	
@@ -168,12 +379,12 @@ public class CashRecursion {
 					double randomDemand = dAndP[j][0];
 					double dProb = dAndP[j][1];
 					if (s.getPeriod() == pmf.length) {
-						double thisDFinalCash = s.iniCash + immediateValue.apply(s, orderQty, randomDemand);
+						double thisDFinalCash = s.iniCash + doubleImmediateValue.apply(s, orderQty, randomDemand);
 						double thisDProb = thisDFinalCash >= 0 ? 1 : 0;	
 						thisQProb += dProb * thisDProb;
 					}
 					if (s.getPeriod() < pmf.length) { // 
-						CashState newState = stateTransition.apply(s, orderQty, dAndP[j][0]);
+						CashState newState = doubleStateTransition.apply(s, orderQty, dAndP[j][0]);
 						thisQProb += dAndP[j][1] * discountFactor * getSurvProb(newState);
 					}
 				}
@@ -195,6 +406,287 @@ public class CashRecursion {
 	}
 	
 	
+	/**
+	 * @param momentNum highest moment of the total cash increment in the vector values, 1 for only the mean
+	 */
+	public void setMomentNum(int momentNum) {
+		this.momentNum = momentNum;
+	}
+	
+	public void setVectorSelection(VectorSelection vectorSelection) {
+		this.vectorSelection = vectorSelection;
+	}
+	
+	/**
+	 * counters of the solve; the constructors attach metrics if a flight recording of the recursion events is running
+	 * when the recursion is built, setMetrics(null) turns them off
+	 * @param metrics counters of the solve, null for no instrumentation
+	 */
+	public void setMetrics(SolverMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * @param control time budget, cancellation and progress of the solve, null for solving to the end
+	 */
+	public void setControl(SolveControl control) {
+		this.control = control;
+	}
+	
+	/**
+	 * remove all the solved states and actions, e.g., before solving again on another grid
+	 */
+	public void clearCache() {
+		if (metrics != null)
+			metrics.removed(cacheValues.size() + cacheVectors.size());
+		cacheActions.clear();
+		cacheValues.clear();
+		cacheVectors.clear();
+	}
+	
+	/**
+	 * approximate dp: values of the next periods are only solved on a coarse grid of (inventory, cash),
+	 * the other next states are bilinear interpolations, e.g., for large cash ranges or unrounded cash;
+	 * only getExpectedValue is approximated
+	 * @param inventoryGrid increasing inventories
+	 * @param cashGrid increasing cashes
+	 */
+	public void setApproximateGrid(double[] inventoryGrid, double[] cashGrid) {
+		this.valueGrids = new InterpolationGrid[pmf.length];
+		Arrays.fill(valueGrids, new InterpolationGrid(inventoryGrid, cashGrid));
+	}
+	
+	/**
+	 * grid of approximate dp in one period, e.g., refined near the switching curves of this period; 
+	 * the cached values of the earlier periods are interpolated on the old grid, see removePeriodsBefore
+	 * @param period from 2, the states of period 1 are not interpolated
+	 * @param inventoryGrid increasing inventories
+	 * @param cashGrid increasing cashes
+	 */
+	public void setApproximateGrid(int period, double[] inventoryGrid, double[] cashGrid) {
+		if (valueGrids == null)
+			throw new IllegalStateException("no grid is set for approximate dp");
+		if (period < 1 || period > pmf.length)
+			throw new IllegalArgumentException("no period " + period + " in the planning horizon");
+		valueGrids[period - 1] = new InterpolationGrid(inventoryGrid, cashGrid);
+	}
+	
+	/**
+	 * @param period
+	 * @return grid of approximate dp in the period, null for the exact recursion
+	 */
+	public InterpolationGrid getApproximateGrid(int period) {
+		return valueGrids == null ? null : valueGrids[period - 1];
+	}
+	
+	/**
+	 * @return value of a next state, interpolated on the grid of approximate dp
+	 */
+	double getNextValue(CashState newState) {
+		if (valueGrids == null)
+			return getExpectedValue(newState);
+		int period = newState.getPeriod();
+		return valueGrids[period - 1].interpolate(new double[] {newState.getIniInventory(), newState.iniCash}, 
+				p -> getExpectedValue(new CashState(period, p[0], p[1])));
+	}
+	
+	/**
+	 * a posteriori error of approximate dp, the values solved at some cell centres of each period 
+	 * are compared with the interpolated values; the check states are solved and cached as other states
+	 * @param checkNum number of check states in each period
+	 * @return errors[t - 1] is the maximum interpolation error found in period t, period 1 is not interpolated
+	 */
+	public double[] getInterpolationErrors(int checkNum) {
+		if (valueGrids == null)
+			throw new IllegalStateException("no grid is set for approximate dp");
+		double[] errors = new double[pmf.length];
+		for (int t = pmf.length; t >= 2; t--) {
+			int period = t;
+			errors[t - 1] = valueGrids[t - 1].getMaxError(checkNum, p -> getExpectedValue(new CashState(period, p[0], p[1])));
+		}
+		return errors;
+	}
+	
+	/**
+	 * @param checkNum number of check states in each period
+	 * @return estimated bound of the value error in period 1 caused by interpolation, 
+	 *         the errors of the later periods are discounted as they propagate backward
+	 */
+	public double estimateErrorBound(int checkNum) {
+		double[] errors = getInterpolationErrors(checkNum);
+		double bound = 0;
+		for (int t = 2; t <= pmf.length; t++)
+			bound += Math.pow(discountFactor, t - 1) * errors[t - 1];
+		return bound;
+	}
+	
+	/**
+	 * vector-valued recursion, several values of the same policy are computed in one backward pass, 
+	 * the optimal action is chosen by the vector selection and kept in cacheActions as in getExpectedValue,
+	 * so one recursion object should use either this method or getExpectedValue.
+	 * 
+	 * @param initialState
+	 * @return {expected value, survival probability, E[V^2], ..., E[V^m]} under the optimal policy, 
+	 *         where V is the discounted total cash increment from the state, m is the moment number, 
+	 *         survival is a non-negative cash at the end of the horizon as in getSurvProb (not discounted)
+	 */
+	public double[] getExpectedVector(CashState initialState) {
+		if (metrics != null)
+			metrics.lookup(initialState.getPeriod());
+		if (control != null && control.isStopped() && !cacheVectors.containsKey(initialState)) {
+			control.truncated(1);
+			double[] vector = new double[1 + Math.max(momentNum, 1)]; // the planning horizon is truncated at an unsolved state
+			vector[1] = initialState.iniCash >= 0 ? 1 : 0;
+			return vector;
+		}
+		double[][] partialVector = control != null ? new double[1][] : null;
+		double[] vector = this.cacheVectors.computeIfAbsent(initialState, s -> {
+			long start = metrics != null ? metrics.enter() : 0;
+			try {
+				double[] feasibleActions = getFeasibleActions.apply(s);
+				double[][] dAndP = pmf[s.getPeriod() - 1]; // demandAndPossibility
+				int n = 1 + Math.max(momentNum, 1);
+			
+				double[] best = null;
+				double bestOrderQty = 0;
+				for (int i = 0; i < feasibleActions.length; i++) {
+					double orderQty = feasibleActions[i];
+					double[] QVector = new double[n];
+					for (int j = 0; j < dAndP.length; j++) {
+						double dProb = dAndP[j][1];
+						double thisDValue = doubleImmediateValue.apply(s, orderQty, dAndP[j][0]);
+						if (s.getPeriod() < pmf.length) {
+							CashState newState = doubleStateTransition.apply(s, orderQty, dAndP[j][0]);
+							double[] nextVector = getExpectedVector(newState);
+							QVector[0] += dProb * (thisDValue + discountFactor * nextVector[0]);
+							QVector[1] += dProb * nextVector[1];
+							for (int m = 2; m < n; m++)
+								QVector[m] += dProb * getMoment(thisDValue, nextVector, m);
+						}
+						else {
+							QVector[0] += dProb * thisDValue;
+							QVector[1] += dProb * (s.iniCash + thisDValue >= 0 ? 1 : 0);
+							for (int m = 2; m < n; m++)
+								QVector[m] += dProb * Math.pow(thisDValue, m);
+						}
+					}
+					boolean better = best == null || (optDirection == OptDirection.MAX ? vectorSelection.larger(QVector, best)
+																						: vectorSelection.larger(best, QVector));
+					if (better) {
+						best = QVector;
+						bestOrderQty = orderQty;
+					}
+				}
+				this.cacheActions.put(s, bestOrderQty); // kept after a stop as the truncated-horizon policy
+				if (finishState(s.getPeriod(), start, feasibleActions.length, (long) feasibleActions.length * dAndP.length))
+					return best;
+				partialVector[0] = best;
+				return null;
+			} catch (RuntimeException | Error e) {
+				if (metrics != null)
+					metrics.abort(start); // the expansion is not cached, keep the gauges balanced
+				throw e;
+			}
+		});
+		return vector != null ? vector : partialVector[0];
+	}
+	
+	/**
+	 * @return E[(r + discountFactor * V)^m] by the binomial expansion, given the moments of V in the next vector
+	 */
+	double getMoment(double r, double[] nextVector, int m) {
+		double moment = 0;
+		double binomial = 1;
+		for (int k = 0; k <= m; k++) {
+			double nextMoment = k == 0 ? 1 : k == 1 ? nextVector[0] : nextVector[k];
+			moment += binomial * Math.pow(r, m - k) * Math.pow(discountFactor, k) * nextMoment;
+			binomial = binomial * (m - k) / (k + 1);
+		}
+		return moment;
+	}
+	
+	
+	/**
+	 * solve a batch of initial states against the shared value table, so the subproblems common to 
+	 * the initial states are only solved once
+	 * @param initialStates
+	 * @param parallel whether solving the initial states in parallel
+	 * @return {values, actions}, values[i] and actions[i] are for initialStates[i]; after a stop of the control,
+	 *         an initial state that was not expanded has the truncated value 0 and the action NaN
+	 */
+	public double[][] solveAll(CashState[] initialStates, boolean parallel) {
+		int n = initialStates.length;
+		double[] values = new double[n];
+		double[] actions = new double[n];
+		SortedMap<CashState, Double> sortedActions = cacheActions;
+		if (parallel && !(cacheActions instanceof ConcurrentMap)) // the tree map from setTreeMapCacheAction is not thread safe
+			cacheActions = new ConcurrentSkipListMap<>(sortedActions.comparator());
+		IntStream indexes = parallel ? IntStream.range(0, n).parallel() : IntStream.range(0, n);
+		indexes.forEach(i -> values[i] = getExpectedValue(initialStates[i]));
+		if (sortedActions != cacheActions) {
+			sortedActions.putAll(cacheActions);
+			cacheActions = sortedActions;
+		}
+		for (int i = 0; i < n; i++) {
+			Double action = cacheActions.get(initialStates[i]);
+			actions[i] = action == null ? Double.NaN : action; // not solved before a stop of the control
+		}
+		return new double[][] {values, actions};
+	}
+	
+	/**
+	 * solve all the initial states of a grid, e.g., for drawing the policy or the value function
+	 * @param period
+	 * @param iniCashes
+	 * @param iniInventories
+	 * @param parallel
+	 * @return {values, actions}, values[i][j] and actions[i][j] are for iniCashes[i] and iniInventories[j],
+	 *         the actions of the states not solved before a stop are NaN as in solveAll
+	 */
+	public double[][][] solveGrid(int period, double[] iniCashes, double[] iniInventories, boolean parallel) {
+		int RLength = iniCashes.length;
+		int xLength = iniInventories.length;
+		CashState[] initialStates = new CashState[RLength * xLength];
+		for (int i = 0; i < RLength; i++)
+			for (int j = 0; j < xLength; j++)
+				initialStates[i * xLength + j] = new CashState(period, iniInventories[j], iniCashes[i]);
+		double[][] results = solveAll(initialStates, parallel);
+		double[][][] grid = new double[2][RLength][xLength];
+		for (int i = 0; i < RLength; i++) {
+			System.arraycopy(results[0], i * xLength, grid[0][i], 0, xLength);
+			System.arraycopy(results[1], i * xLength, grid[1][i], 0, xLength);
+		}
+		return grid;
+	}
+	
+	
+	/**
+	 * stationary infinite-horizon solution by discounted value iteration, the demand of every period follows pmf[0];
+	 * the values and actions of the states are written into the tables, e.g., for getPolicyTable or freeze
+	 * @param states state grid of one period, next states of the transition must be on the grid
+	 * @param method
+	 * @param evaluationSweeps sweeps of the greedy policy after each improvement, 0 for plain value iteration
+	 * @param epsilon optimality gap of the policy
+	 * @return the solver, e.g., for the number of iterations
+	 */
+	public StationaryRecursion<CashState> solveStationary(CashState[] states, 
+			StationaryRecursion.Method method, int evaluationSweeps, double epsilon) {
+		Comparator<CashState> gridComparator = Comparator.comparingDouble(CashState::getIniInventory)
+																.thenComparingDouble(CashState::getIniCash);
+		StationaryRecursion<CashState> stationary = new StationaryRecursion<>(states, gridComparator, pmf[0], 
+				optDirection == OptDirection.MAX, getFeasibleActions, doubleStateTransition, doubleImmediateValue, discountFactor);
+		stationary.setMethod(method);
+		stationary.setEvaluationSweeps(evaluationSweeps);
+		stationary.setControl(control);
+		double[] values = stationary.solve(epsilon);
+		double[] actions = stationary.getActions();
+		for (int i = 0; i < states.length; i++) {
+			cacheValues.put(states[i], values[i]);
+			cacheActions.put(states[i], actions[i]);
+		}
+		return stationary;
+	}
+	
 	public double getAction(CashState state) {
 		return cacheActions.get(state);
 	}
@@ -218,6 +710,21 @@ public class CashRecursion {
 		return arr;
 	}
 	
+	/**
+	 * @return optimal decision table of SDP with the rows grouped by period
+	 */
+	public PolicyTable getPolicyTable() {
+		return new PolicyTable(getOptTable());
+	}
+	
+	/**
+	 * @param rule rule for the states not solved by the recursion
+	 * @return an immutable copy of the optimal policy solved so far, safe for concurrent simulation
+	 */
+	public FrozenPolicy freeze(FrozenPolicy.OffGridRule rule) {
+		return new FrozenPolicy(getPolicyTable(), rule);
+	}
+	
 	
 	/**
 	 * @param GA
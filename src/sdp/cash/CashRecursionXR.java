@@ -10,7 +10,9 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.function.Function;
 
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
 import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.inventory.StateTransition.StateTransitionFunction;
 
 /**
@@ -29,6 +31,8 @@ public class CashRecursionXR {
 	Function<CashStateXR, double[]> getFeasibleActions;
 	StateTransitionFunction<CashStateXR, Double, Double, CashStateXR> stateTransition;
 	ImmediateValueFunction<CashStateXR, Double, Double, Double> immediateValue;
+	DoubleStateTransition<CashStateXR> doubleStateTransition; // used in the recursion to avoid boxing
+	DoubleImmediateValue<CashStateXR> doubleImmediateValue;
 	double discountFactor;
 	
 	public enum OptDirection{
@@ -46,6 +50,8 @@ public class CashRecursionXR {
 		this.getFeasibleActions = getFeasibleAction;
 		this.stateTransition = stateTransition ;
 		this.immediateValue = immediateValue;
+		this.doubleStateTransition = DoubleStateTransition.of(stateTransition);
+		this.doubleImmediateValue = DoubleImmediateValue.of(immediateValue);
 		Comparator<CashStateXR> keyComparator = (o1, o2) -> o1.getPeriod() > o2.getPeriod() ? 1 : 
 			o1.getPeriod() == o2.getPeriod() ? o1.getIniInventory() > o2.getIniInventory() ? 1 : 
 				o1.getIniInventory() == o2.getIniInventory() ? o1.iniR> o2.iniR  ? 1 :
@@ -55,6 +61,18 @@ public class CashRecursionXR {
 		this.discountFactor = discountFactor;
 	}
 		
+	/**
+	 * recursion on primitive functions, the action and demand are not boxed
+	 */
+	public CashRecursionXR(OptDirection optDirection, double[][][] pmf, 
+			         Function<CashStateXR, double[]> getFeasibleAction,
+			         DoubleStateTransition<CashStateXR> stateTransition,
+			         DoubleImmediateValue<CashStateXR> immediateValue, 
+			         double discountFactor) {
+		this(optDirection, pmf, getFeasibleAction, stateTransition.boxed(), immediateValue.boxed(), discountFactor);
+		setDoubleFunctions(stateTransition, immediateValue);
+	}
+		
 	public StateTransitionFunction<CashStateXR, Double, Double, CashStateXR> getStateTransitionFunction(){
 		return stateTransition;
 	}
@@ -63,6 +81,24 @@ public class CashRecursionXR {
 		return immediateValue;
 	} 
 	
+	public DoubleStateTransition<CashStateXR> getDoubleStateTransition(){
+		return doubleStateTransition;
+	}
+	
+	public DoubleImmediateValue<CashStateXR> getDoubleImmediateValue(){
+		return doubleImmediateValue;
+	}
+	
+	/**
+	 * run the recursion on primitive functions, the generic functions of the constructor are replaced by their views
+	 */
+	public void setDoubleFunctions(DoubleStateTransition<CashStateXR> stateTransition, DoubleImmediateValue<CashStateXR> immediateValue) {
+		this.doubleStateTransition = stateTransition;
+		this.doubleImmediateValue = immediateValue;
+		this.stateTransition = stateTransition.boxed();
+		this.immediateValue = immediateValue.boxed();
+	}
+	
 	/**
 	 * set a tree map 
 	 */
@@ -91,11 +127,11 @@ public class CashRecursionXR {
 				double thisYValue = 0;								
 				for (int j = 0; j < dAndP.length; j++) {
 					//System.out.println(dAndP[j][0]);
-					double thisValue = immediateValue.apply(s, orderY, dAndP[j][0]);
+					double thisValue = doubleImmediateValue.apply(s, orderY, dAndP[j][0]);
 					thisYValue += dAndP[j][1] * thisValue;
 					if (s.getPeriod() < pmf.length) {
 						double a = dAndP[j][0];
-						CashStateXR newState = stateTransition.apply(s, orderY, dAndP[j][0]);
+						CashStateXR newState = doubleStateTransition.apply(s, orderY, dAndP[j][0]);
 						if (dAndP[j][0] < 0)
 							System.out.println(a);
 						thisYValue += dAndP[j][1] * discountFactor * getExpectedValue(newState);
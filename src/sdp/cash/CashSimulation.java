@@ -7,11 +7,20 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
 
+import sdp.inventory.FrozenPolicy;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
 import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.SolverEvents;
 import sdp.inventory.State;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.sampling.ControlVariateTally;
 import sdp.sampling.Sampling;
+import sdp.sampling.Sampling.SampleMethod;
+import umontreal.ssj.probdist.DiscreteDistributionInt;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.stat.Tally;
 
@@ -24,12 +33,18 @@ import umontreal.ssj.stat.Tally;
 public class CashSimulation {
 
 	protected int sampleNum;
+	protected SampleMethod sampleMethod = SampleMethod.LHS;
 	protected Distribution[] distributions;
 	CashRecursion recursion;
-	protected StateTransitionFunction<CashState, Double, Double, CashState> stateTransition; 
-	protected ImmediateValueFunction<CashState, Double, Double, Double> immediateValue; 
+	FrozenPolicy frozenPolicy; // read instead of the recursion if it is set
+	protected DoubleStateTransition<CashState> stateTransition; // functions simulated without a recursion
+	protected DoubleImmediateValue<CashState> immediateValue; 
 	double discountFactor;
 	
+	boolean antithetic = false;
+	ToDoubleFunction<double[]> control; // control variate of a demand sample, null for no control variate
+	double controlMean;
+	
 	Map<State, Double> cacheC1Values = new ConcurrentSkipListMap<>();
 	Map<State, Double> cacheC2Values = new ConcurrentSkipListMap<>();
 
@@ -44,8 +59,6 @@ public class CashSimulation {
 		this.distributions = distributions;
 		this.sampleNum = sampleNum;
 		this.recursion = recursion;
-		this.stateTransition = recursion.getStateTransitionFunction();
-		this.immediateValue = recursion.getImmediateValueFunction();		
 		this.discountFactor = discountFactor;
 	}
 	
@@ -53,17 +66,124 @@ public class CashSimulation {
 	public CashSimulation(Distribution[] distributions, int sampleNum, ImmediateValueFunction<CashState, Double, Double, Double> immediateValue,
 			StateTransitionFunction<CashState, Double, Double, CashState> stateTransition,
 			double discountFactor) {
+		this(distributions, sampleNum, DoubleImmediateValue.of(immediateValue), DoubleStateTransition.of(stateTransition), discountFactor);
+	}
+	
+	public CashSimulation(Distribution[] distributions, int sampleNum, DoubleImmediateValue<CashState> immediateValue,
+			DoubleStateTransition<CashState> stateTransition,
+			double discountFactor) {
 		this.distributions = distributions;
 		this.sampleNum = sampleNum;	
 		this.discountFactor = discountFactor;
 		this.immediateValue = immediateValue;
 		this.stateTransition = stateTransition;
 	}
+	
+	/**
+	 * @return the current transition of the recursion if one is simulated, so functions set on it after this simulation is built are used
+	 */
+	protected DoubleStateTransition<CashState> stateTransition() {
+		return recursion != null ? recursion.getDoubleStateTransition() : stateTransition;
+	}
+	
+	protected DoubleImmediateValue<CashState> immediateValue() {
+		return recursion != null ? recursion.getDoubleImmediateValue() : immediateValue;
+	}
 
 	public void setSampleNum(int n) {
 		this.sampleNum = n;
 	}
 	
+	/**
+	 * @param sampleMethod LHS by default, or randomized quasi-Monte Carlo
+	 */
+	public void setSampleMethod(SampleMethod sampleMethod) {
+		this.sampleMethod = sampleMethod;
+	}
+	
+	/**
+	 * simulate sdp by a frozen policy instead of the recursion, 
+	 * sample paths of simulateSDPGivenSamplNum are then simulated in parallel;
+	 * the values equal those by the recursion only if every simulated state was solved before freezing
+	 * @param frozenPolicy
+	 */
+	public void setFrozenPolicy(FrozenPolicy frozenPolicy) {
+		this.frozenPolicy = frozenPolicy;
+	}
+	
+	/**
+	 * simulate antithetic pairs of demand samples in simulateSDPwithErrorConfidence
+	 */
+	public void setAntithetic(boolean antithetic) {
+		this.antithetic = antithetic;
+	}
+	
+	/**
+	 * use a regression control variate in simulateSDPwithErrorConfidence
+	 * @param control control variate of a demand sample
+	 * @param controlMean known expectation of the control variate
+	 */
+	public void setControlVariate(ToDoubleFunction<double[]> control, double controlMean) {
+		this.control = control;
+		this.controlMean = controlMean;
+	}
+	
+	/**
+	 * use the total demand as control variate, its mean is known from the distributions
+	 */
+	public void setDemandControlVariate() {
+		setControlVariate(sample -> Arrays.stream(sample).sum(), 
+				Arrays.stream(distributions).mapToDouble(Distribution::getMean).sum());
+	}
+	
+	/**
+	 * use the discounted profit of the myopic newsvendor as control variate: in each period, order up to 
+	 * the critical fractile of the demand with unlimited cash, 
+	 * profit is price * min(y, d) - variCost * y + salvageValue * (y - d)^+
+	 * 
+	 * @param price
+	 * @param variCost
+	 * @param salvageValue
+	 */
+	public void setNewsvendorControlVariate(double price, double variCost, double salvageValue) {
+		int T = distributions.length;
+		double[] y = new double[T];
+		double mean = 0;
+		for (int t = 0; t < T; t++) {
+			y[t] = price > variCost && variCost > salvageValue ? distributions[t].inverseF((price - variCost) / (price - salvageValue)) : 0;
+			double leftover = expectedLeftover(y[t], distributions[t]);
+			double profit = price * (y[t] - leftover) - variCost * y[t] + salvageValue * leftover;
+			mean += Math.pow(discountFactor, t) * profit;
+		}
+		setControlVariate(sample -> {
+			double sum = 0;
+			for (int t = 0; t < sample.length; t++) {
+				double leftover = Math.max(y[t] - sample[t], 0);
+				sum += Math.pow(discountFactor, t) * (price * (y[t] - leftover) - variCost * y[t] + salvageValue * leftover);
+			}
+			return sum;
+		}, mean);
+	}
+	
+	/**
+	 * @param y
+	 * @param distribution non-negative demand
+	 * @return E(y - d)^+, which is the integral of cdf from 0 to y
+	 */
+	static double expectedLeftover(double y, Distribution distribution) {
+		double leftover = 0;
+		if (distribution instanceof DiscreteDistributionInt) {
+			for (int k = 0; k < y; k++)
+				leftover += distribution.cdf(k) * (Math.min(k + 1, y) - k);
+			return leftover;
+		}
+		int n = 1000;
+		double step = y / n;
+		for (int i = 0; i < n; i++)
+			leftover += (distribution.cdf(i * step) + distribution.cdf((i + 1) * step)) / 2 * step;
+		return leftover;
+	}
+	
 	
 	/**
 	 * 
@@ -71,9 +191,11 @@ public class CashSimulation {
 	 * @return simulate sdp in a given number of samples
 	 */
 	public double simulateSDPGivenSamplNum(CashState iniState) {
+		SolverEvents.SimulationBatch event = new SolverEvents.SimulationBatch();
+		event.begin();
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		
 		double mean[] = new double[distributions.length];
 		for (int i = 0; i < distributions.length; i++) {
@@ -84,29 +206,47 @@ public class CashSimulation {
 			mean[i] = sum / sampleNum;
 		}
 		
-		double[] simuValues = new double[samples.length];		
-		for (int i = 0; i < samples.length; i++) {
-			double sum = 0; CashState state = iniState;
-			for (int t = 0; t < samples[0].length; t++)
-			{
-				recursion.getExpectedValue(state);
-				double optQ = recursion.getAction(state);
-				double randomDemand = Math.round(samples[i][t]); // integer samples to test sdp
-				double thisValue = immediateValue.apply(state, optQ, randomDemand);
-//				if (thisValue < -500) // for debuging
-//					System.out.println(thisValue);
-				sum += Math.pow(discountFactor, t) * thisValue;
-				state = stateTransition.apply(state, optQ, randomDemand);
-			}
-			simuValues[i] = sum;
-		}
+		double[] simuValues = new double[samples.length];	
+		IntStream paths = IntStream.range(0, samples.length);
+		if (frozenPolicy != null)
+			paths = paths.parallel();
+		paths.forEach(i -> simuValues[i] = simulateSDPSample(iniState, samples[i]));
+		event.commit("CashSimulation", samples.length, distributions.length, 1, frozenPolicy != null);
 		DecimalFormat df2 = new DecimalFormat("###,###");
 		double simFinalValue = Arrays.stream(simuValues).sum()/samples.length + iniState.iniCash;
 		System.out.println("\nfinal simulated expected value in " + df2.format(sampleNum) + " samples is: " + simFinalValue);
 		return simFinalValue;
 	}
 
+	double getSDPAction(CashState state) {
+		if (frozenPolicy != null)
+			return frozenPolicy.getAction(state.getPeriod(), state.getIniInventory(), state.getIniCash());
+		recursion.getExpectedValue(state);
+		return recursion.getAction(state);
+	}
+	
+	/**
+	 * 
+	 * @param iniState
+	 * @param realizedDemand
+	 * @return discounted cash increment of the sdp policy in one demand sample
+	 */
+	double simulateSDPSample(CashState iniState, double[] realizedDemand) {
+		double sum = 0; CashState state = iniState;
+		for (int t = 0; t < realizedDemand.length; t++)
+		{
+			double optQ = getSDPAction(state);
+			double randomDemand = Math.round(realizedDemand[t]); // integer samples to test sdp
+			sum += Math.pow(discountFactor, t) * immediateValue().apply(state, optQ, randomDemand);
+			state = stateTransition().apply(state, optQ, randomDemand);
+		}
+		return sum;
+	}
+
 	/**
+	 * antithetic samples and control variate are used if they are set,
+	 * the samples are independent, so randomized quasi-Monte Carlo is not accepted, see simulateSDPwithReplicates
+	 * 
 	 * @param iniState
 	 * @param error
 	 * @param confidence
@@ -114,29 +254,42 @@ public class CashSimulation {
 	 * @date: Apr 23, 2020, 11:43:23 AM 
 	 */
 	public double[] simulateSDPwithErrorConfidence(CashState iniState, double error, double confidence) {
+		if (sampleMethod != SampleMethod.LHS)
+			throw new IllegalStateException("the confidence interval of independent samples is not valid for " + sampleMethod 
+					+ ", use simulateSDPwithReplicates");
+		SolverEvents.SimulationBatch event = new SolverEvents.SimulationBatch();
+		event.begin();
 		int minRuns = 1000;   int maxRuns = 1000000;
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();		
 		Tally costTally = new Tally();
+		ControlVariateTally cvTally = new ControlVariateTally(controlMean);
 		double[] centerAndRadius = new double[2];
-		int sampleNumUse = 0;		
-		for(int i = 0; i < minRuns || (centerAndRadius[1]>=centerAndRadius[0]*error && i < maxRuns); i++) {
-			double[] realizedDemand = sampling.getNextSample(distributions);
-			double sum = 0; CashState state = iniState;
-			for (int t = 0; t < realizedDemand.length; t++)
-			{
-				recursion.getExpectedValue(state);
-				double optQ = recursion.getAction(state);
-				double randomDemand = Math.round(realizedDemand[t]); // integer samples to test sdp
-				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, optQ, randomDemand);
-				state = stateTransition.apply(state, optQ, randomDemand);
+		int sampleNumUse = 0;	
+		int pathNum = antithetic ? 2 : 1; // an antithetic pair is one observation and counts as two samples
+		for(int i = 0; i < minRuns || (centerAndRadius[1]>=centerAndRadius[0]*error && i < maxRuns); i += pathNum) {
+			double[][] realizedDemands = antithetic ? sampling.getNextAntitheticSamples(distributions)
+					: new double[][] {sampling.getNextSample(distributions)};
+			double sum = 0; double controlSum = 0;
+			for (double[] realizedDemand : realizedDemands) {
+				sum += simulateSDPSample(iniState, realizedDemand) / pathNum;
+				if (control != null)
+					controlSum += control.applyAsDouble(realizedDemand) / pathNum;
+			}
+			if (control != null) {
+				cvTally.add(sum, controlSum);
+				if(i >= minRuns) 
+					cvTally.confidenceIntervalNormal(confidence, centerAndRadius);
 			}
-			costTally.add(sum);
-			if(i >= minRuns) 
-				costTally.confidenceIntervalNormal(confidence, centerAndRadius);	
-			sampleNumUse = i + 1;
+			else {
+				costTally.add(sum);
+				if(i >= minRuns) 
+					costTally.confidenceIntervalNormal(confidence, centerAndRadius);	
+			}
+			sampleNumUse = i + pathNum;
 		}
 
+		event.commit("CashSimulation", sampleNumUse, distributions.length, 1, false);
 		DecimalFormat df1 = new DecimalFormat("0.0000");
 		DecimalFormat df2 = new DecimalFormat("###,###");
 		centerAndRadius[0] += iniState.iniCash;
@@ -146,6 +299,46 @@ public class CashSimulation {
 		return centerAndRadius;
 	}
 	
+	/**
+	 * simulate sdp in replicateNum independent randomizations of sampleNum samples, see Sampling.generateReplicates,
+	 * the confidence interval is computed from the means of the randomizations, which is valid for randomized 
+	 * quasi-Monte Carlo
+	 * 
+	 * @param iniState
+	 * @param replicateNum at least 2
+	 * @param confidence
+	 * @return center and radius of the confidence interval, the center includes the initial cash
+	 */
+	public double[] simulateSDPwithReplicates(CashState iniState, int replicateNum, double confidence) {
+		if (replicateNum < 2)
+			throw new IllegalArgumentException("a confidence interval needs at least 2 replicates");
+		SolverEvents.SimulationBatch event = new SolverEvents.SimulationBatch();
+		event.begin();
+		Sampling.resetStartStream();
+		Sampling sampling = new Sampling();
+		double[][][] replicates = sampling.generateReplicates(distributions, sampleNum, sampleMethod, replicateNum);
+		double[] replicateMeans = new double[replicateNum];
+		for (int r = 0; r < replicateNum; r++) {
+			double[][] samples = replicates[r];
+			double[] simuValues = new double[samples.length];
+			IntStream paths = IntStream.range(0, samples.length);
+			if (frozenPolicy != null)
+				paths = paths.parallel();
+			paths.forEach(i -> simuValues[i] = simulateSDPSample(iniState, samples[i]));
+			replicateMeans[r] = Arrays.stream(simuValues).sum() / samples.length;
+		}
+		event.commit("CashSimulation", sampleNum * replicateNum, distributions.length, 1, frozenPolicy != null);
+		double[] centerAndRadius = Sampling.replicateConfidenceInterval(replicateMeans, confidence);
+		centerAndRadius[0] += iniState.iniCash;
+		DecimalFormat df1 = new DecimalFormat("0.0000");
+		DecimalFormat df2 = new DecimalFormat("###,###");
+		System.out.println(
+				"final simulated expected value in " + confidence*100 + "% confidence level is: " + df1.format(centerAndRadius[0]));
+		System.out.println("using " + replicateNum + " replicates of " + df2.format(sampleNum) + " samples, " 
+				+ "confidence interval is [" + "-" + df1.format(centerAndRadius[1]) + ", " + df1.format(centerAndRadius[1]) + "]");
+		return centerAndRadius;
+	}
+	
 	/**
 	 * 
 	 * @param iniState
@@ -157,7 +350,7 @@ public class CashSimulation {
 		this.cacheC1Values = cacheC1Values;
 		this.cacheC2Values = cacheC2Values;
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		double[] simuValues = new double[samples.length];		
 		int M = 10000;
 		for (int i = 0; i < samples.length; i++) {
@@ -188,8 +381,8 @@ public class CashSimulation {
 						optQ = 0;
 				}
 				double randomDemand = samples[i][t];
-				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, optQ, randomDemand);
-				state = stateTransition.apply(state, optQ, randomDemand);
+				sum += Math.pow(discountFactor, t) * immediateValue().apply(state, optQ, randomDemand);
+				state = stateTransition().apply(state, optQ, randomDemand);
 			}
 			simuValues[i] = sum;
 		}
@@ -210,7 +403,7 @@ public class CashSimulation {
 		Sampling.resetStartStream();
 		this.cacheC1Values = cacheC1Values;
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		double[] simuValues = new double[samples.length];		
 		int M = 10000;
 		for (int i = 0; i < samples.length; i++) {
@@ -239,8 +432,8 @@ public class CashSimulation {
 						optQ = 0;
 				}
 				double randomDemand = samples[i][t];
-				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, optQ, randomDemand);
-				state = stateTransition.apply(state, optQ, randomDemand);
+				sum += Math.pow(discountFactor, t) * immediateValue().apply(state, optQ, randomDemand);
+				state = stateTransition().apply(state, optQ, randomDemand);
 			}
 			simuValues[i] = sum;
 		}
@@ -260,7 +453,7 @@ public class CashSimulation {
 			double minCashRequired, Double maxQ, double fixOrderCost, double variCost) {
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		double[] simuValues = new double[samples.length];		
 		for (int i = 0; i < samples.length; i++) {
 			double sum = 0; CashState state = iniState;
@@ -280,8 +473,8 @@ public class CashSimulation {
 						optQ = 0;
 				}
 				double randomDemand = samples[i][t];
-				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, optQ, randomDemand);
-				state = stateTransition.apply(state, optQ, randomDemand);
+				sum += Math.pow(discountFactor, t) * immediateValue().apply(state, optQ, randomDemand);
+				state = stateTransition().apply(state, optQ, randomDemand);
 			}
 			simuValues[i] = sum;
 		}
@@ -300,7 +493,7 @@ public class CashSimulation {
 	public double simulatesCSDraft(CashState iniState, double[][] optsCS, double minCashRequired, Double maxQ, double fixOrderCost, double variCost) {
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		double[] simuValues = new double[samples.length];		
 		for (int i = 0; i < samples.length; i++) {
 			double sum = 0; CashState state = iniState;
@@ -319,8 +512,8 @@ public class CashSimulation {
 						optQ = 0;
 				}
 				double randomDemand = samples[i][t];
-				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, optQ, randomDemand);
-				state = stateTransition.apply(state, optQ, randomDemand);
+				sum += Math.pow(discountFactor, t) * immediateValue().apply(state, optQ, randomDemand);
+				state = stateTransition().apply(state, optQ, randomDemand);
 			}
 			simuValues[i] = sum;
 		}
@@ -339,7 +532,7 @@ public class CashSimulation {
 		Sampling.resetStartStream();
 		
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		double[] simuValues = new double[samples.length];		
 		for (int i = 0; i < samples.length; i++) {
 			double sum = 0; CashState state = iniState;
@@ -357,8 +550,8 @@ public class CashSimulation {
 						optQ = 0;
 				}
 				double randomDemand = samples[i][t];
-				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, optQ, randomDemand);
-				state = stateTransition.apply(state, optQ, randomDemand);
+				sum += Math.pow(discountFactor, t) * immediateValue().apply(state, optQ, randomDemand);
+				state = stateTransition().apply(state, optQ, randomDemand);
 			}
 			simuValues[i] = sum;
 		}
@@ -377,7 +570,7 @@ public class CashSimulation {
 		Sampling.resetStartStream();
 		
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		double[] simuValues = new double[samples.length];		
 		for (int i = 0; i < samples.length; i++) {
 			double sum = 0; CashState state = iniState;
@@ -396,8 +589,8 @@ public class CashSimulation {
 						optQ = 0;
 				}
 				double randomDemand = samples[i][t];
-				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, optQ, randomDemand);
-				state = stateTransition.apply(state, optQ, randomDemand);
+				sum += Math.pow(discountFactor, t) * immediateValue().apply(state, optQ, randomDemand);
+				state = stateTransition().apply(state, optQ, randomDemand);
 			}
 			simuValues[i] = sum;
 		}
@@ -407,6 +600,109 @@ public class CashSimulation {
 		return simFinalValue;
 	}
 
+	/**
+	 * simulate some policies on one shared sample matrix (common random numbers),
+	 * so that the differences of the policies are estimated on the same demand paths
+	 * 
+	 * @param iniState
+	 * @param policies
+	 * @param parallel whether simulating the policies in parallel
+	 * @return simulated values[k][i] of policy k in sample path i, including the initial cash; the paths are taken
+	 *         as independent by pairedDifference, so randomized quasi-Monte Carlo needs replicates
+	 */
+	public double[][] simulatePolicies(CashState iniState, CashPolicy[] policies, boolean parallel) {
+		if (sampleMethod != SampleMethod.LHS)
+			throw new IllegalStateException("the sample paths of " + sampleMethod + " are not independent, "
+					+ "simulate the policies with replicates");
+		return simulatePolicies(iniState, policies, parallel, 1);
+	}
+	
+	/**
+	 * simulate some policies on replicateNum independent randomizations of sampleNum shared samples, 
+	 * see Sampling.generateReplicates 
+	 * 
+	 * @param iniState
+	 * @param policies
+	 * @param parallel whether simulating the policies in parallel
+	 * @param replicateNum number of randomizations
+	 * @return simulated values[k][r * sampleNum + i] of policy k in sample path i of randomization r, including the initial cash
+	 */
+	public double[][] simulatePolicies(CashState iniState, CashPolicy[] policies, boolean parallel, int replicateNum) {
+		SolverEvents.SimulationBatch event = new SolverEvents.SimulationBatch();
+		event.begin();
+		Sampling.resetStartStream();
+		Sampling sampling = new Sampling();
+		double[][] samples = Arrays.stream(sampling.generateReplicates(distributions, sampleNum, sampleMethod, replicateNum))
+				.flatMap(Arrays::stream).toArray(double[][]::new);
+		double[][] values = new double[policies.length][samples.length];
+		
+		IntStream policyIndexes = IntStream.range(0, policies.length);
+		if (parallel)
+			policyIndexes = policyIndexes.parallel();
+		policyIndexes.forEach(k -> {
+			CashPolicy policy = policies[k];
+			boolean round = policy.roundDemand();
+			for (int i = 0; i < samples.length; i++) {
+				double sum = 0; CashState state = iniState;
+				for (int t = 0; t < samples[0].length; t++)
+				{
+					double optQ = policy.getOrderQuantity(state, t);
+					double randomDemand = round ? Math.round(samples[i][t]) : samples[i][t];
+					sum += Math.pow(discountFactor, t) * immediateValue().apply(state, optQ, randomDemand);
+					state = stateTransition().apply(state, optQ, randomDemand);
+				}
+				values[k][i] = sum + iniState.iniCash;
+			}
+		});
+		event.commit("CashSimulation", samples.length, distributions.length, policies.length, parallel);
+		return values;
+	}
+	
+	/**
+	 * @param values simulated values of some policies in the same sample paths
+	 * @return mean value of each policy
+	 */
+	public static double[] getMeans(double[][] values) {
+		return Arrays.stream(values).mapToDouble(v -> Arrays.stream(v).average().orElse(0)).toArray();
+	}
+	
+	/**
+	 * @param values1 simulated values in independent sample paths
+	 * @param values2 simulated values of another policy in the same sample paths
+	 * @param confidence
+	 * @return center and radius of the confidence interval of values1 - values2 by paired differences
+	 */
+	public static double[] pairedDifference(double[] values1, double[] values2, double confidence) {
+		Tally diffTally = new Tally();
+		for (int i = 0; i < values1.length; i++)
+			diffTally.add(values1[i] - values2[i]);
+		double[] centerAndRadius = new double[2];
+		diffTally.confidenceIntervalNormal(confidence, centerAndRadius);
+		return centerAndRadius;
+	}
+	
+	/**
+	 * @param values1 simulated values in replicateNum independent randomizations of the same number of sample paths,
+	 *        as from simulatePolicies with replicates
+	 * @param values2 simulated values of another policy in the same sample paths
+	 * @param confidence
+	 * @param replicateNum at least 2
+	 * @return center and radius of the confidence interval of values1 - values2 by the paired differences of the replicate means
+	 */
+	public static double[] pairedDifference(double[] values1, double[] values2, double confidence, int replicateNum) {
+		if (values1.length % replicateNum != 0)
+			throw new IllegalArgumentException(values1.length + " values are not " + replicateNum + " replicates of the same size");
+		int pathNum = values1.length / replicateNum;
+		double[] diffMeans = new double[replicateNum];
+		for (int r = 0; r < replicateNum; r++) {
+			double sum = 0;
+			for (int i = r * pathNum; i < (r + 1) * pathNum; i++)
+				sum += values1[i] - values2[i];
+			diffMeans[r] = sum / pathNum;
+		}
+		return Sampling.replicateConfidenceInterval(diffMeans, confidence);
+	}
+
 	/**
 	 * compute L(y)
 	 * @param  y: order-up-to level y,
@@ -13,10 +13,13 @@ import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
 import sdp.inventory.ImmediateValue.ImmediateValueFunction;
 import sdp.cash.CashStateXR;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.inventory.StateTransition.StateTransitionFunction;
 import sdp.sampling.Sampling;
+import sdp.sampling.Sampling.SampleMethod;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.stat.Tally;
 
@@ -24,10 +27,11 @@ import umontreal.ssj.stat.Tally;
 public class CashSimulationXR {
 
 	protected int sampleNum;
+	protected SampleMethod sampleMethod = SampleMethod.LHS;
 	protected Distribution[] distributions;
 	CashRecursionXR recursion;
-	protected StateTransitionFunction<CashStateXR, Double, Double, CashStateXR> stateTransition; 
-	protected ImmediateValueFunction<CashStateXR, Double, Double, Double> immediateValue; 
+	protected DoubleStateTransition<CashStateXR> stateTransition; // functions simulated without a recursion
+	protected DoubleImmediateValue<CashStateXR> immediateValue; 
 	double discountFactor;
 	double fixOrderCost;
 	double price;
@@ -51,8 +55,6 @@ public class CashSimulationXR {
 		this.distributions = distributions;
 		this.sampleNum = sampleNum;
 		this.recursion = recursionXR;
-		this.stateTransition = recursion.getStateTransitionFunction();
-		this.immediateValue = recursion.getImmediateValueFunction();		
 		this.discountFactor = discountFactor;
 		this.fixOrderCost = fixOrderCost;
 		this.price = price;
@@ -66,6 +68,14 @@ public class CashSimulationXR {
 			StateTransitionFunction<CashStateXR, Double, Double, CashStateXR> stateTransition,
 			double discountFactor, double fixOrderCost, double price, 
 			double variOrderCost, double holdCost, double salvageValue) {
+		this(distributions, sampleNum, DoubleImmediateValue.of(immediateValue), DoubleStateTransition.of(stateTransition),
+				discountFactor, fixOrderCost, price, variOrderCost, holdCost, salvageValue);
+	}
+	
+	public CashSimulationXR(Distribution[] distributions, int sampleNum, DoubleImmediateValue<CashStateXR> immediateValue,
+			DoubleStateTransition<CashStateXR> stateTransition,
+			double discountFactor, double fixOrderCost, double price, 
+			double variOrderCost, double holdCost, double salvageValue) {
 		this.distributions = distributions;
 		this.sampleNum = sampleNum;	
 		this.discountFactor = discountFactor;
@@ -77,11 +87,29 @@ public class CashSimulationXR {
 		this.holdCost = holdCost;
 		this.salvageValue = salvageValue;
 	}
+	
+	/**
+	 * @return the current transition of the recursion if one is simulated, so functions set on it after this simulation is built are used
+	 */
+	protected DoubleStateTransition<CashStateXR> stateTransition() {
+		return recursion != null ? recursion.getDoubleStateTransition() : stateTransition;
+	}
+	
+	protected DoubleImmediateValue<CashStateXR> immediateValue() {
+		return recursion != null ? recursion.getDoubleImmediateValue() : immediateValue;
+	}
 
 	public void setSampleNum(int n) {
 		this.sampleNum = n;
 	}
 	
+	/**
+	 * @param sampleMethod LHS by default, or randomized quasi-Monte Carlo
+	 */
+	public void setSampleMethod(SampleMethod sampleMethod) {
+		this.sampleMethod = sampleMethod;
+	}
+	
 	
 	/**
 	 * 
@@ -91,7 +119,7 @@ public class CashSimulationXR {
 	public double simulateSDPGivenSamplNum(CashStateXR iniState) {
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		
 		double[] simuValues = new double[samples.length];		
 		for (int i = 0; i < samples.length; i++) {
@@ -101,8 +129,8 @@ public class CashSimulationXR {
 				recursion.getExpectedValue(state);
 				double optQ = recursion.getAction(state);
 				double randomDemand = Math.round(Math.max(0, samples[i][t])); // integer samples to test sdp
-				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, optQ, randomDemand);
-				state = stateTransition.apply(state, optQ, randomDemand);
+				sum += Math.pow(discountFactor, t) * immediateValue().apply(state, optQ, randomDemand);
+				state = stateTransition().apply(state, optQ, randomDemand);
 			}
 			simuValues[i] = sum;
 		}
@@ -112,7 +140,12 @@ public class CashSimulationXR {
 		return simFinalValue;
 	}
 
+	/**
+	 * the samples are independent, so randomized quasi-Monte Carlo is not accepted
+	 */
 	public double[] simulateSDPwithErrorConfidence(CashStateXR iniState, double error, double confidence) {
+		if (sampleMethod != SampleMethod.LHS)
+			throw new IllegalStateException("the confidence interval of independent samples is not valid for " + sampleMethod);
 		int minRuns = 1000;   int maxRuns = 1000000;
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
@@ -128,8 +161,8 @@ public class CashSimulationXR {
 				recursion.getExpectedValue(state);
 				double optQ = recursion.getAction(state);
 				double randomDemand = Math.round(Math.max(0, realizedDemand[t])); // integer samples to test sdp
-				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, optQ, randomDemand);
-				state = stateTransition.apply(state, optQ, randomDemand);
+				sum += Math.pow(discountFactor, t) * immediateValue().apply(state, optQ, randomDemand);
+				state = stateTransition().apply(state, optQ, randomDemand);
 			}
 			costTally.add(sum);
 			if(i >= minRuns) 
@@ -153,7 +186,7 @@ public class CashSimulationXR {
 	public double simulateAStar(double[] optY, CashStateXR iniState) {
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
 		double[] simValues = new double[samples.length];
 		for (int i = 0; i < samples.length; i++) {
 			double sum = 0; CashStateXR state = iniState;
@@ -161,8 +194,8 @@ public class CashSimulationXR {
 				recursion.getExpectedValue(state);
 				double thisY = state.iniR > variOrderCost * optY[t] ? optY[t] : state.iniR / variOrderCost;
 				double randomDemand = Math.round(Math.max(0, samples[i][t])); // integer samples to test sdp
-				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, thisY, randomDemand);
-				state = stateTransition.apply(state, thisY, randomDemand);
+				sum += Math.pow(discountFactor, t) * immediateValue().apply(state, thisY, randomDemand);
+				state = stateTransition().apply(state, thisY, randomDemand);
 			}
 			simValues[i] = sum;
 		}
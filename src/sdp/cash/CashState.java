@@ -26,6 +26,16 @@ public class CashState extends State{
 		return this.iniCash;
 	}
 	
+	/**
+	 * reuse this state as a probe of a cache, e.g., in the kernel evaluation of CashRecursion
+	 */
+	CashState set(int period, double initialInventory, double iniCash) {
+		this.period = period;
+		this.initialInventory = initialInventory;
+		this.iniCash = iniCash;
+		return this;
+	}
+	
 	
 	@Override
 	public int hashCode(){
@@ -0,0 +1,137 @@
+package sdp.cash;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.DoubleStream;
+
+import sdp.cash.CashRecursion.OptDirection;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.StateTransition.DoubleStateTransition;
+import sdp.inventory.StateTransition.StateTransitionFunction;
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026---9:12:05 AM
+ * @description: check that the primitive functions of a cash model give the same immediate values, next states,
+ *               optimal values and actions as the boxed functions, and that a simulation reads the functions
+ *               set on its recursion after it is built. Throws IllegalStateException at the first difference.
+ */
+
+public class DoubleFunctionsTest {
+	static double price = 6;
+	static double fixOrderCost = 5;
+	static double variCost = 2;
+	static double holdingCost = 0.5;
+	static double salvageValue = 1;
+	static double maxCashState = 200;
+	static int T = 4;
+
+	/**
+	 * poisson demands truncated at 3 * mean + 10
+	 */
+	static double[][][] pmf(double[] meanDemands) {
+		double[][][] pmf = new double[meanDemands.length][][];
+		for (int t = 0; t < meanDemands.length; t++) {
+			int n = (int) (3 * meanDemands[t] + 10);
+			pmf[t] = new double[n][2];
+			double p = Math.exp(-meanDemands[t]);
+			for (int k = 0; k < n; k++) {
+				pmf[t][k][0] = k;
+				pmf[t][k][1] = p;
+				p *= meanDemands[t] / (k + 1);
+			}
+		}
+		return pmf;
+	}
+
+	static double cashIncrement(CashState state, double action, double randomDemand) {
+		double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
+		double fixedCost = action > 0 ? fixOrderCost : 0;
+		double inventoryLevel = state.getIniInventory() + action - randomDemand;
+		double holdCosts = holdingCost * Math.max(inventoryLevel, 0);
+		double salValue = state.getPeriod() == T ? salvageValue * Math.max(inventoryLevel, 0) : 0;
+		return revenue - fixedCost - variCost * action - holdCosts + salValue;
+	}
+
+	static CashState nextState(CashState state, double action, double randomDemand) {
+		double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
+		double nextCash = state.getIniCash() + cashIncrement(state, action, randomDemand);
+		nextCash = Math.min(maxCashState, Math.round(nextCash * 10) / 10.0);
+		return new CashState(state.getPeriod() + 1, nextInventory, nextCash);
+	}
+
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	}
+
+	public static void main(String[] args) {
+		double[][][] pmf = pmf(new double[] {8, 8, 3, 3});
+		Function<CashState, double[]> getFeasibleAction = s -> {
+			double maxQ = Math.min(20, Math.max(0, (s.getIniCash() - fixOrderCost) / variCost));
+			return DoubleStream.iterate(0, i -> i + 1).limit((int) maxQ + 1).toArray();
+		};
+
+		// the same model written on boxed and on primitive action and demand
+		ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state, action, randomDemand) ->
+			cashIncrement(state, action, randomDemand);
+		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action, randomDemand) ->
+			nextState(state, action, randomDemand);
+		DoubleImmediateValue<CashState> doubleImmediateValue = (state, action, randomDemand) ->
+			cashIncrement(state, action, randomDemand);
+		DoubleStateTransition<CashState> doubleStateTransition = (state, action, randomDemand) ->
+			nextState(state, action, randomDemand);
+
+		// function values, including the adapters of, boxed
+		DoubleImmediateValue<CashState> adapted = DoubleImmediateValue.of(immediateValue);
+		ImmediateValueFunction<CashState, Double, Double, Double> boxed = doubleImmediateValue.boxed();
+		DoubleStateTransition<CashState> adaptedTransition = DoubleStateTransition.of(stateTransition);
+		int pointNum = 0;
+		for (int t = 1; t <= T; t++)
+			for (double x = 0; x <= 10; x++)
+				for (double w = 0; w <= 40; w += 7.5)
+					for (double q = 0; q <= 10; q++)
+						for (double d = 0; d <= 20; d++) {
+							CashState state = new CashState(t, x, w);
+							double value = immediateValue.apply(state, q, d);
+							check(doubleImmediateValue.apply(state, q, d) == value && adapted.apply(state, q, d) == value
+									&& boxed.apply(state, q, d) == value, "immediate values differ at " + state + ", " + q + ", " + d);
+							CashState next = stateTransition.apply(state, q, d);
+							CashState doubleNext = doubleStateTransition.apply(state, q, d);
+							CashState adaptedNext = adaptedTransition.apply(state, q, d);
+							check(next.getPeriod() == doubleNext.getPeriod() && next.getIniInventory() == doubleNext.getIniInventory()
+									&& next.getIniCash() == doubleNext.getIniCash() && next.getIniCash() == adaptedNext.getIniCash(),
+									"next states differ at " + state + ", " + q + ", " + d);
+							pointNum++;
+						}
+		System.out.println("immediate values and next states are equal at " + pointNum + " points");
+
+		// recursions on the boxed and the primitive functions
+		CashRecursion boxedRecursion = new CashRecursion(OptDirection.MAX, pmf, getFeasibleAction, stateTransition,
+				immediateValue, 1);
+		CashRecursion doubleRecursion = new CashRecursion(OptDirection.MAX, pmf, getFeasibleAction, doubleStateTransition,
+				doubleImmediateValue, 1);
+		CashState iniState = new CashState(1, 0, 12);
+		double boxedValue = boxedRecursion.getExpectedValue(iniState);
+		double doubleValue = doubleRecursion.getExpectedValue(iniState);
+		check(boxedValue == doubleValue, "optimal values differ: " + boxedValue + " and " + doubleValue);
+		Map<CashState, Double> boxedActions = boxedRecursion.getCacheActions();
+		Map<CashState, Double> doubleActions = doubleRecursion.getCacheActions();
+		check(boxedActions.size() == doubleActions.size(), "solved state numbers differ");
+		for (Map.Entry<CashState, Double> entry : boxedActions.entrySet()) {
+			CashState state = entry.getKey();
+			check(entry.getValue().equals(doubleActions.get(state)), "optimal actions differ at " + state);
+			check(boxedRecursion.getExpectedValue(state) == doubleRecursion.getExpectedValue(state), "optimal values differ at " + state);
+		}
+		System.out.println("optimal values and actions are equal at " + boxedActions.size() + " states, value " + boxedValue);
+
+		// a simulation built before setDoubleFunctions is called uses the new functions
+		CashSimulation simulation = new CashSimulation(null, 0, boxedRecursion, 1);
+		boxedRecursion.setDoubleFunctions(doubleStateTransition, doubleImmediateValue);
+		check(simulation.stateTransition() == doubleStateTransition && simulation.immediateValue() == doubleImmediateValue,
+				"the simulation does not read the current functions of the recursion");
+		System.out.println("the simulation reads the current functions of the recursion");
+	}
+}
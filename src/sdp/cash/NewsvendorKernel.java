@@ -0,0 +1,191 @@
+package sdp.cash;
+
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
+
+/**
+*@author: Zhen Chen
+*@email: 15011074486@163.com
+*@date: Oct 18, 2026---3:20:41 PM
+*@description: evaluation kernel for the linear-cost newsvendor reward of the cash flow problems,
+*              e.g., CashConstraint and CashOverdraft: revenue price * min(y, d), ordering cost K + vQ,
+*              holding cost h * (y - d)^+ and salvage value in the last period.
+*
+*              Demands and possibilities of each period are kept in two contiguous arrays, the cash increments
+*              and next states of all the demand points are computed in one loop over primitive arrays,
+*              only the look-ups of next period values are left to the recursion.
+*
+*              The kernel must describe the same reward and transition as the functions given to the recursion,
+*              since the simulation still uses those functions; maxDifference compares them. The kernel adds the
+*              cash terms in its own order, so with inexact sums, e.g., a deposit rate of 0.01, a rounded next cash
+*              can differ from the function by one rounding step at a tie.
+*/
+
+public class NewsvendorKernel {
+	double[][] demands; // demands[t][j]
+	double[][] possibilities; // possibilities[t][j]
+	int T;
+	int maxLength;
+
+	double price;
+	double fixOrderCost;
+	double variCost;
+	double holdingCost;
+	double salvageValue;
+	double depositRate = 0; // on the cash left after ordering
+	double interestRate = 0; // on the overdraft after ordering and holding costs
+	double overheadCost = 0;
+	double overheadRate = 0;
+	double penaltyCost = 0; // on the negative end-of-period cash
+
+	double minInventoryState = 0;
+	double maxInventoryState = Double.MAX_VALUE;
+	double minCashState = -Double.MAX_VALUE;
+	double maxCashState = Double.MAX_VALUE;
+	double cashRoundScale = 0; // next cash is rounded as Math.round(cash * scale) / scale, 0 for no rounding
+
+	public NewsvendorKernel(double[][][] pmf, double price, double fixOrderCost, double variCost,
+			double holdingCost, double salvageValue) {
+		this.T = pmf.length;
+		this.demands = new double[T][];
+		this.possibilities = new double[T][];
+		for (int t = 0; t < T; t++) {
+			int n = pmf[t].length;
+			demands[t] = new double[n];
+			possibilities[t] = new double[n];
+			for (int j = 0; j < n; j++) {
+				demands[t][j] = pmf[t][j][0];
+				possibilities[t][j] = pmf[t][j][1];
+			}
+			maxLength = Math.max(maxLength, n);
+		}
+		this.price = price;
+		this.fixOrderCost = fixOrderCost;
+		this.variCost = variCost;
+		this.holdingCost = holdingCost;
+		this.salvageValue = salvageValue;
+	}
+
+	public void setDepositRate(double depositRate) {
+		this.depositRate = depositRate;
+	}
+
+	public void setInterestRate(double interestRate) {
+		this.interestRate = interestRate;
+	}
+
+	public void setOverhead(double overheadCost, double overheadRate) {
+		this.overheadCost = overheadCost;
+		this.overheadRate = overheadRate;
+	}
+
+	public void setPenaltyCost(double penaltyCost) {
+		this.penaltyCost = penaltyCost;
+	}
+
+	/**
+	 * bounds of the next states, same as the ones in the state transition function
+	 */
+	public void setStateBounds(double minInventoryState, double maxInventoryState, double minCashState, double maxCashState) {
+		this.minInventoryState = minInventoryState;
+		this.maxInventoryState = maxInventoryState;
+		this.minCashState = minCashState;
+		this.maxCashState = maxCashState;
+	}
+
+	/**
+	 * @param cashRoundScale e.g., 10 for the rounding Math.round(nextCash * 10) / 10.0
+	 */
+	public void setCashRoundScale(double cashRoundScale) {
+		this.cashRoundScale = cashRoundScale;
+	}
+
+	/**
+	 * @return a buffer long enough for the demand points of any period
+	 */
+	public double[] newBuffer() {
+		return new double[maxLength];
+	}
+
+	/**
+	 * replace the demands and possibilities of a period, e.g., after its forecast changes
+	 * @param period from 1
+	 * @param periodPmf rows [demand, possibility]
+	 */
+	public void setPeriodPmf(int period, double[][] periodPmf) {
+		int n = periodPmf.length;
+		demands[period - 1] = new double[n];
+		possibilities[period - 1] = new double[n];
+		for (int j = 0; j < n; j++) {
+			demands[period - 1][j] = periodPmf[j][0];
+			possibilities[period - 1][j] = periodPmf[j][1];
+		}
+		maxLength = Math.max(maxLength, n);
+	}
+
+	public double[] getPossibilities(int period) {
+		return possibilities[period - 1];
+	}
+
+	/**
+	 * @param period
+	 * @param iniInventory
+	 * @param iniCash
+	 * @param orderQty
+	 * @param nextInventory output next inventory for each demand point of the period
+	 * @param nextCash output next cash for each demand point of the period
+	 * @return expected cash increment (immediate value) of the order quantity
+	 */
+	public double evaluate(int period, double iniInventory, double iniCash, double orderQty,
+			double[] nextInventory, double[] nextCash) {
+		double[] d = demands[period - 1];
+		double[] p = possibilities[period - 1];
+		int n = d.length;
+
+		double y = iniInventory + orderQty;
+		double fixedCost = orderQty > 0 ? fixOrderCost : 0;
+		double balance = (iniCash - fixedCost - variCost * orderQty) * (1 + depositRate);
+		double salvage = period == T ? salvageValue : 0;
+
+		double expectedIncrement = 0;
+		for (int j = 0; j < n; j++) {
+			double endInventory = Math.max(y - d[j], 0);
+			double revenue = price * Math.min(y, d[j]);
+			double cashBefore = balance - holdingCost * endInventory;
+			cashBefore -= interestRate * Math.max(-cashBefore, 0);
+			double increment = cashBefore + (1 - overheadRate) * revenue - overheadCost - iniCash + salvage * endInventory;
+			increment += penaltyCost * Math.min(iniCash + increment, 0);
+			expectedIncrement += p[j] * increment;
+			nextCash[j] = Math.min(Math.max(iniCash + increment, minCashState), maxCashState);
+			nextInventory[j] = Math.min(Math.max(endInventory, minInventoryState), maxInventoryState);
+		}
+		if (cashRoundScale > 0) {
+			for (int j = 0; j < n; j++)
+				nextCash[j] = Math.round(nextCash[j] * cashRoundScale) / cashRoundScale;
+		}
+		return expectedIncrement;
+	}
+
+	/**
+	 * @return largest difference between this kernel and the functions of the model at a state and an order quantity,
+	 *         over the expected immediate value and the next states of all the demand points, 0 if they describe the same model
+	 */
+	public double maxDifference(CashState state, double orderQty, DoubleImmediateValue<CashState> immediateValue,
+			DoubleStateTransition<CashState> stateTransition) {
+		int period = state.getPeriod();
+		double[] nextInventory = newBuffer();
+		double[] nextCash = newBuffer();
+		double kernelValue = evaluate(period, state.getIniInventory(), state.getIniCash(), orderQty, nextInventory, nextCash);
+		double[] d = demands[period - 1];
+		double[] p = possibilities[period - 1];
+		double modelValue = 0;
+		double difference = 0;
+		for (int j = 0; j < d.length; j++) {
+			modelValue += p[j] * immediateValue.apply(state, orderQty, d[j]);
+			CashState newState = stateTransition.apply(state, orderQty, d[j]);
+			difference = Math.max(difference, Math.abs(newState.getIniInventory() - nextInventory[j]));
+			difference = Math.max(difference, Math.abs(newState.getIniCash() - nextCash[j]));
+		}
+		return Math.max(difference, Math.abs(modelValue - kernelValue));
+	}
+}
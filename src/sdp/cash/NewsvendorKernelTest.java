@@ -0,0 +1,108 @@
+package sdp.cash;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.DoubleStream;
+
+import sdp.cash.CashRecursion.OptDirection;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026---9:48:30 AM
+ * @description: check that NewsvendorKernel describes the same model as the immediate value and state transition
+ *               lambdas of a cash constrained problem with penalty, state bounds and rounded cash, and that
+ *               the recursion with the kernel finds the same values and actions as the recursion with the lambdas.
+ *               The parameters keep the sums exact, see NewsvendorKernel for rounding ties.
+ *               Throws IllegalStateException at the first difference.
+ */
+
+public class NewsvendorKernelTest {
+
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	}
+
+	public static void main(String[] args) {
+		double[][][] pmf = DoubleFunctionsTest.pmf(new double[] {8, 8, 3, 3});
+		int T = pmf.length;
+		double price = 6;
+		double fixOrderCost = 5;
+		double variCost = 2;
+		double holdingCost = 0.5;
+		double salvageValue = 1;
+		double depositeRate = 0;
+		double penaltyCost = 0.3;
+		double minCashState = -20;
+		double maxCashState = 100;
+		double minInventoryState = 0;
+		double maxInventoryState = 15;
+
+		Function<CashState, double[]> getFeasibleAction = s -> {
+			double maxQ = Math.min(20, Math.max(0, (s.getIniCash() - fixOrderCost) / variCost));
+			return DoubleStream.iterate(0, i -> i + 1).limit((int) maxQ + 1).toArray();
+		};
+		DoubleImmediateValue<CashState> immediateValue = (state, action, randomDemand) -> {
+			double revenue = price * Math.min(state.getIniInventory() + action, randomDemand);
+			double fixedCost = action > 0 ? fixOrderCost : 0;
+			double variableCost = variCost * action;
+			double deposite = (state.getIniCash() - fixedCost - variableCost) * (1 + depositeRate);
+			double inventoryLevel = state.getIniInventory() + action - randomDemand;
+			double holdCosts = holdingCost * Math.max(inventoryLevel, 0);
+			double cashIncrement = revenue + deposite - holdCosts - state.getIniCash();
+			double salValue = state.getPeriod() == T ? salvageValue * Math.max(inventoryLevel, 0) : 0;
+			cashIncrement += salValue;
+			double endCash = state.getIniCash() + cashIncrement;
+			if (endCash < 0)
+				cashIncrement += penaltyCost * endCash;
+			return cashIncrement;
+		};
+		DoubleStateTransition<CashState> stateTransition = (state, action, randomDemand) -> {
+			double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
+			double nextCash = state.getIniCash() + immediateValue.apply(state, action, randomDemand);
+			nextCash = nextCash > maxCashState ? maxCashState : nextCash;
+			nextCash = nextCash < minCashState ? minCashState : nextCash;
+			nextInventory = nextInventory > maxInventoryState ? maxInventoryState : nextInventory;
+			nextInventory = nextInventory < minInventoryState ? minInventoryState : nextInventory;
+			nextCash = Math.round(nextCash * 10) / 10.0;
+			return new CashState(state.getPeriod() + 1, nextInventory, nextCash);
+		};
+		NewsvendorKernel kernel = new NewsvendorKernel(pmf, price, fixOrderCost, variCost, holdingCost, salvageValue);
+		kernel.setDepositRate(depositeRate);
+		kernel.setPenaltyCost(penaltyCost);
+		kernel.setStateBounds(minInventoryState, maxInventoryState, minCashState, maxCashState);
+		kernel.setCashRoundScale(10);
+
+		// kernel and lambdas at states and order quantities inside and at the bounds
+		double maxDifference = 0;
+		for (int t = 1; t <= T; t++)
+			for (double x = 0; x <= maxInventoryState; x += 3)
+				for (double w = minCashState; w <= maxCashState; w += 12.5)
+					for (double q = 0; q <= 20; q += 2)
+						maxDifference = Math.max(maxDifference, kernel.maxDifference(new CashState(t, x, w), q, immediateValue, stateTransition));
+		check(maxDifference < 1e-9, "the kernel differs from the lambdas by " + maxDifference);
+		System.out.println("kernel and lambdas differ by " + maxDifference);
+
+		// recursions with and without the kernel
+		CashRecursion recursion = new CashRecursion(OptDirection.MAX, pmf, getFeasibleAction, stateTransition, immediateValue, 1);
+		CashRecursion kernelRecursion = new CashRecursion(OptDirection.MAX, pmf, getFeasibleAction, stateTransition, immediateValue, 1);
+		kernelRecursion.setKernel(kernel);
+		CashState iniState = new CashState(1, 0, 15);
+		double value = recursion.getExpectedValue(iniState);
+		double kernelValue = kernelRecursion.getExpectedValue(iniState);
+		check(Math.abs(value - kernelValue) < 1e-9, "optimal values differ: " + value + " and " + kernelValue);
+		Map<CashState, Double> actions = recursion.getCacheActions();
+		Map<CashState, Double> kernelActions = kernelRecursion.getCacheActions();
+		check(actions.size() == kernelActions.size(), "solved state numbers differ");
+		for (Map.Entry<CashState, Double> entry : actions.entrySet()) {
+			CashState state = entry.getKey();
+			check(entry.getValue().equals(kernelActions.get(state)), "optimal actions differ at " + state);
+			check(Math.abs(recursion.getExpectedValue(state) - kernelRecursion.getExpectedValue(state)) < 1e-9,
+					"optimal values differ at " + state);
+		}
+		System.out.println("optimal values and actions are equal at " + actions.size() + " states, value " + value);
+	}
+}
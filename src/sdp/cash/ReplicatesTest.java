@@ -0,0 +1,172 @@
+package sdp.cash;
+
+import java.util.function.Function;
+import java.util.stream.DoubleStream;
+
+import sdp.cash.CashRecursion.OptDirection;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
+import sdp.sampling.Sampling;
+import sdp.sampling.Sampling.SampleMethod;
+import umontreal.ssj.probdist.Distribution;
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026---11:20:40 AM
+ * @description: check the confidence intervals of randomized quasi-Monte Carlo by independent replicates:
+ *               the intervals of a known mean cover it at about the confidence level, the simulators reject
+ *               randomized quasi-Monte Carlo in the confidence intervals of independent samples, and the replicate
+ *               intervals of a simulated sdp contain the optimal value of the recursion.
+ *               Throws IllegalStateException at the first failure.
+ */
+
+public class ReplicatesTest {
+
+	/**
+	 * demand of equal possibilities in 0, 1, ..., maxDemand
+	 */
+	static class UniformDemand implements Distribution {
+		int maxDemand;
+
+		UniformDemand(int maxDemand) {
+			this.maxDemand = maxDemand;
+		}
+
+		@Override
+		public double cdf(double x) {
+			return x < 0 ? 0 : Math.min(1, (Math.floor(x) + 1) / (maxDemand + 1));
+		}
+
+		@Override
+		public double barF(double x) {
+			return 1 - cdf(x);
+		}
+
+		@Override
+		public double inverseF(double u) {
+			return Math.min(Math.floor(u * (maxDemand + 1)), maxDemand);
+		}
+
+		@Override
+		public double getMean() {
+			return maxDemand / 2.0;
+		}
+
+		@Override
+		public double getVariance() {
+			return ((maxDemand + 1) * (maxDemand + 1) - 1) / 12.0;
+		}
+
+		@Override
+		public double getStandardDeviation() {
+			return Math.sqrt(getVariance());
+		}
+
+		@Override
+		public double[] getParams() {
+			return new double[] {maxDemand};
+		}
+	}
+
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	}
+
+	static double[][][] pmf(int T, int maxDemand) {
+		double[][][] pmf = new double[T][maxDemand + 1][];
+		for (int t = 0; t < T; t++)
+			for (int d = 0; d <= maxDemand; d++)
+				pmf[t][d] = new double[] {d, 1.0 / (maxDemand + 1)};
+		return pmf;
+	}
+
+	public static void main(String[] args) {
+		int maxDemand = 10;
+		double cap = 12;
+		Distribution[] distributions = {new UniformDemand(maxDemand), new UniformDemand(maxDemand)};
+
+		// exact mean of min(d1 + d2, cap)
+		double mean = 0;
+		for (int d1 = 0; d1 <= maxDemand; d1++)
+			for (int d2 = 0; d2 <= maxDemand; d2++)
+				mean += Math.min(d1 + d2, cap) / ((maxDemand + 1) * (maxDemand + 1));
+
+		// coverage of the replicate intervals in experiments of new randomizations, the stream is not reset between them
+		int experimentNum = 500;
+		int replicateNum = 10;
+		int sampleNum = 64;
+		double confidence = 0.95;
+		Sampling sampling = new Sampling();
+		for (SampleMethod method : new SampleMethod[] {SampleMethod.SOBOL, SampleMethod.LATTICE}) {
+			Sampling.resetStartStream();
+			int coverNum = 0;
+			double radiusSum = 0;
+			for (int k = 0; k < experimentNum; k++) {
+				double[][][] replicates = sampling.generateReplicates(distributions, sampleNum, method, replicateNum);
+				double[] replicateMeans = new double[replicateNum];
+				for (int r = 0; r < replicateNum; r++) {
+					for (double[] sample : replicates[r])
+						replicateMeans[r] += Math.min(sample[0] + sample[1], cap) / sampleNum;
+				}
+				double[] centerAndRadius = Sampling.replicateConfidenceInterval(replicateMeans, confidence);
+				check(centerAndRadius[1] > 0, method + " replicates of experiment " + k + " are not randomized independently");
+				if (Math.abs(centerAndRadius[0] - mean) <= centerAndRadius[1])
+					coverNum++;
+				radiusSum += centerAndRadius[1];
+			}
+			double coverage = (double) coverNum / experimentNum;
+			check(coverage > 0.91 && coverage < 0.99, method + " intervals cover the mean in " + coverage + " of the experiments");
+			System.out.println(method + " intervals cover the mean " + mean + " in " + coverage
+					+ " of the experiments, mean radius " + radiusSum / experimentNum);
+		}
+
+		// simulated sdp of a cash constrained model, see DoubleFunctionsTest
+		int T = DoubleFunctionsTest.T;
+		double[][][] pmf = pmf(T, maxDemand);
+		Distribution[] demands = new Distribution[T];
+		for (int t = 0; t < T; t++)
+			demands[t] = new UniformDemand(maxDemand);
+		Function<CashState, double[]> getFeasibleAction = s -> {
+			double maxQ = Math.min(20, Math.max(0, (s.getIniCash() - DoubleFunctionsTest.fixOrderCost) / DoubleFunctionsTest.variCost));
+			return DoubleStream.iterate(0, i -> i + 1).limit((int) maxQ + 1).toArray();
+		};
+		DoubleStateTransition<CashState> stateTransition = DoubleFunctionsTest::nextState;
+		DoubleImmediateValue<CashState> immediateValue = DoubleFunctionsTest::cashIncrement;
+		CashRecursion recursion = new CashRecursion(OptDirection.MAX, pmf, getFeasibleAction, stateTransition, immediateValue, 1);
+		CashRecursion zeroRecursion = new CashRecursion(OptDirection.MAX, pmf, s -> new double[] {0}, stateTransition, immediateValue, 1);
+		CashState iniState = new CashState(1, 0, 30);
+		double value = recursion.getExpectedValue(iniState) + iniState.getIniCash();
+		double zeroValue = zeroRecursion.getExpectedValue(iniState) + iniState.getIniCash();
+
+		CashSimulation simulation = new CashSimulation(demands, sampleNum, recursion, 1);
+		simulation.setSampleMethod(SampleMethod.LATTICE);
+		boolean rejected = false;
+		try {
+			simulation.simulateSDPwithErrorConfidence(iniState, 0.0001, confidence);
+		} catch (IllegalStateException e) {
+			rejected = true;
+		}
+		check(rejected, "the confidence interval of independent samples accepts randomized quasi-Monte Carlo");
+		rejected = false;
+		CashPolicy[] policies = {CashPolicy.sdp(recursion), (state, t) -> 0};
+		try {
+			simulation.simulatePolicies(iniState, policies, false);
+		} catch (IllegalStateException e) {
+			rejected = true;
+		}
+		check(rejected, "policies are simulated by randomized quasi-Monte Carlo without replicates");
+
+		double[] centerAndRadius = simulation.simulateSDPwithReplicates(iniState, replicateNum, confidence);
+		check(centerAndRadius[1] > 0 && Math.abs(centerAndRadius[0] - value) < 4 * centerAndRadius[1],
+				"the sdp value " + value + " is far from the interval " + centerAndRadius[0] + " +- " + centerAndRadius[1]);
+		double[][] values = simulation.simulatePolicies(iniState, policies, false, replicateNum);
+		check(values[0].length == replicateNum * sampleNum, "policies are not simulated in every replicate");
+		double[] diff = CashSimulation.pairedDifference(values[0], values[1], confidence, replicateNum);
+		check(diff[1] > 0 && Math.abs(diff[0] - (value - zeroValue)) < 4 * diff[1],
+				"the value difference " + (value - zeroValue) + " is far from the interval " + diff[0] + " +- " + diff[1]);
+		System.out.println("sdp value " + value + " in " + centerAndRadius[0] + " +- " + centerAndRadius[1]
+				+ ", difference to ordering nothing " + (value - zeroValue) + " in " + diff[0] + " +- " + diff[1]);
+	}
+}
@@ -0,0 +1,171 @@
+package sdp.cash;
+
+import java.util.function.Function;
+import java.util.stream.DoubleStream;
+
+import sdp.cash.CashRecursion.OptDirection;
+import sdp.inventory.Recursion;
+import sdp.inventory.SolveControl;
+import sdp.inventory.State;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026---6:08:32 PM
+ * @description: check batch solves of Recursion and CashRecursion stopped by a SolveControl: a batch cancelled after
+ *               some states and a batch whose time budget is already spent return partial results instead of throwing,
+ *               the initial states not expanded have the value 0 and the action NaN, the cached values and actions are
+ *               those of the full solve, and a solve with a new control gives the full solve.
+ *               Throws IllegalStateException at the first failure.
+ */
+
+public class SolveControlTest {
+
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	}
+
+	/**
+	 * a control that cancels the solve after some expanded states
+	 */
+	static SolveControl cancelAfter(long stateNum) {
+		SolveControl control = new SolveControl();
+		control.setProgress((period, periodStatesDone, statesDone, millis) -> {
+			if (statesDone == stateNum)
+				control.cancel();
+		}, 1);
+		return control;
+	}
+
+	/**
+	 * check a stopped batch against the full solve
+	 * @param results {values, actions} of the stopped batch
+	 * @param optima {values, actions} of the full solve
+	 * @param cached whether the value of the initial state is cached after the stop
+	 * @return number of initial states not solved
+	 */
+	static int checkStopped(String name, double[][] results, double[][] optima, boolean[] cached) {
+		int unsolvedNum = 0;
+		for (int i = 0; i < results[0].length; i++) {
+			if (Double.isNaN(results[1][i])) {
+				check(results[0][i] == 0 && !cached[i], name + " state " + i + " has no action but the value " + results[0][i]);
+				unsolvedNum++;
+			}
+			if (cached[i])
+				check(results[0][i] == optima[0][i] && results[1][i] == optima[1][i], name + " state " + i + " is cached with "
+						+ results[0][i] + ", " + results[1][i] + ", not " + optima[0][i] + ", " + optima[1][i]);
+		}
+		return unsolvedNum;
+	}
+
+	/**
+	 * @return index of the first initial state without an action, initial states are solved in order by a sequential batch
+	 */
+	static int firstUnsolved(double[][] results) {
+		for (int i = 0; i < results[1].length; i++)
+			if (Double.isNaN(results[1][i]))
+				return i;
+		return results[1].length;
+	}
+
+	static void checkResolved(String name, double[][] results, double[][] optima, SolveControl control) {
+		for (int i = 0; i < results[0].length; i++)
+			check(results[0][i] == optima[0][i] && results[1][i] == optima[1][i], name + " state " + i + " is solved again to "
+					+ results[0][i] + ", " + results[1][i] + ", not " + optima[0][i] + ", " + optima[1][i]);
+		check(control.isComplete(), name + " is not complete when solved again");
+	}
+
+	static Recursion recursion() {
+		double[][][] pmf = DoubleFunctionsTest.pmf(new double[] {4, 6, 4, 6, 4});
+		DoubleImmediateValue<State> immediateValue = (s, action, demand) -> {
+			double endInventory = s.getIniInventory() + action - demand;
+			return (action > 0 ? 10 + action : 0) + Math.max(endInventory, 0) + 5 * Math.max(-endInventory, 0);
+		};
+		DoubleStateTransition<State> stateTransition = (s, action, demand) ->
+			new State(s.getPeriod() + 1, Math.max(-5, s.getIniInventory() + action - demand));
+		return new Recursion(Recursion.OptDirection.MIN, pmf,
+				s -> DoubleStream.iterate(0, q -> q + 1).limit((long) (15 - s.getIniInventory()) + 1).toArray(),
+				stateTransition, immediateValue);
+	}
+
+	static CashRecursion cashRecursion() {
+		Function<CashState, double[]> getFeasibleAction = s -> {
+			double maxQ = Math.min(20, Math.max(0, (s.getIniCash() - DoubleFunctionsTest.fixOrderCost) / DoubleFunctionsTest.variCost));
+			return DoubleStream.iterate(0, i -> i + 1).limit((int) maxQ + 1).toArray();
+		};
+		DoubleImmediateValue<CashState> immediateValue = DoubleFunctionsTest::cashIncrement;
+		DoubleStateTransition<CashState> stateTransition = DoubleFunctionsTest::nextState;
+		return new CashRecursion(OptDirection.MAX, DoubleFunctionsTest.pmf(new double[] {8, 8, 3, 3}), getFeasibleAction,
+				stateTransition, immediateValue, 1);
+	}
+
+	public static void main(String[] args) {
+		// inventory batch, the states of the later periods are solved with the first initial state, so the cancel is near the end
+		State[] states = DoubleStream.iterate(-5, x -> x + 1).limit(21).mapToObj(x -> new State(1, x)).toArray(State[]::new);
+		Recursion full = recursion();
+		SolveControl fullControl = new SolveControl();
+		full.setControl(fullControl);
+		double[][] optima = full.solveAll(states, false);
+
+		Recursion stopped = recursion();
+		SolveControl stoppedControl = cancelAfter(fullControl.getStatesDone() - states.length / 2);
+		stopped.setControl(stoppedControl);
+		double[][] results = stopped.solveAll(states, false);
+		boolean[] cached = new boolean[states.length];
+		for (int i = 0; i < states.length; i++)
+			cached[i] = i < firstUnsolved(results) - 1; // the state expanded at the cancel is not cached
+		int unsolvedNum = checkStopped("Recursion", results, optima, cached);
+		check(!stoppedControl.isComplete() && unsolvedNum > 0 && unsolvedNum < states.length,
+				unsolvedNum + " of " + states.length + " initial states are not solved after the cancel");
+		SolveControl resolvedControl = new SolveControl();
+		stopped.setControl(resolvedControl);
+		checkResolved("Recursion", stopped.solveAll(states, false), optima, resolvedControl);
+		System.out.println("Recursion: " + unsolvedNum + " of " + states.length + " initial states are not solved after the cancel, "
+				+ resolvedControl.getStatesDone() + " states are expanded again");
+
+		Recursion budgeted = recursion();
+		SolveControl spentControl = new SolveControl();
+		spentControl.setTimeBudget(0);
+		budgeted.setControl(spentControl);
+		results = budgeted.solveAll(states, true);
+		unsolvedNum = checkStopped("Recursion", results, optima, new boolean[states.length]);
+		check(unsolvedNum == states.length, (states.length - unsolvedNum) + " initial states are solved without time");
+		System.out.println("Recursion: no initial state is solved in a parallel batch without time");
+
+		// cash batch
+		CashState[] cashStates = DoubleStream.iterate(0, w -> w + 2.5).limit(17).mapToObj(w -> new CashState(1, 0, w))
+				.toArray(CashState[]::new);
+		CashRecursion cashFull = cashRecursion();
+		SolveControl cashFullControl = new SolveControl();
+		cashFull.setControl(cashFullControl);
+		double[][] cashOptima = cashFull.solveAll(cashStates, false);
+
+		CashRecursion cashStopped = cashRecursion();
+		SolveControl cashStoppedControl = cancelAfter(cashFullControl.getStatesDone() / 2);
+		cashStopped.setControl(cashStoppedControl);
+		results = cashStopped.solveAll(cashStates, false);
+		cached = new boolean[cashStates.length];
+		for (int i = 0; i < cashStates.length; i++)
+			cached[i] = i < firstUnsolved(results) - 1; // the state expanded at the cancel is not cached
+		unsolvedNum = checkStopped("CashRecursion", results, cashOptima, cached);
+		check(!cashStoppedControl.isComplete() && unsolvedNum > 0 && unsolvedNum < cashStates.length,
+				unsolvedNum + " of " + cashStates.length + " initial states are not solved after the cancel");
+		SolveControl cashResolvedControl = new SolveControl();
+		cashStopped.setControl(cashResolvedControl);
+		checkResolved("CashRecursion", cashStopped.solveAll(cashStates, false), cashOptima, cashResolvedControl);
+		System.out.println("CashRecursion: " + unsolvedNum + " of " + cashStates.length + " initial states are not solved after the cancel, "
+				+ cashResolvedControl.getStatesDone() + " states are expanded again");
+
+		CashRecursion cashBudgeted = cashRecursion();
+		SolveControl cashSpentControl = new SolveControl();
+		cashSpentControl.setTimeBudget(0);
+		cashBudgeted.setControl(cashSpentControl);
+		results = cashBudgeted.solveAll(cashStates, true);
+		unsolvedNum = checkStopped("CashRecursion", results, cashOptima, new boolean[cashStates.length]);
+		check(unsolvedNum == cashStates.length, (cashStates.length - unsolvedNum) + " initial states are solved without time");
+		System.out.println("CashRecursion: no initial state is solved in a parallel batch without time");
+	}
+}
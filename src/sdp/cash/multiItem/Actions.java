@@ -30,5 +30,13 @@ public class Actions {
 	public int getSecondAction() {
 		return secondAction;
 	}
+	
+	/**
+	 * reuse this object as a carrier of another pair of actions
+	 */
+	void set(int action1, int action2) {
+		this.firstAction = action1;
+		this.secondAction = action2;
+	}
 
 }
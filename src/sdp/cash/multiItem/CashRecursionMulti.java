@@ -9,16 +9,24 @@
  */
 package sdp.cash.multiItem;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
+import sdp.inventory.SolveControl;
+import sdp.inventory.SolverMetrics;
 import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.ImmediateValue.ImmediateValueFunctionMulti;
 import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.StateTransition.StateTransitionFunctionMulti;
+import sdp.sampling.ProductIterator;
 
 
 
@@ -33,8 +41,15 @@ public class CashRecursionMulti {
 	Map<CashStateMulti, Double> cacheValues = new ConcurrentSkipListMap<>();
 	
 	Function<CashStateMulti, ArrayList<Actions>> buildActionList;
+	Function<CashStateMulti, ProductIterator> actionSpace;
 	StateTransitionFunction<CashStateMulti, Actions, Demands, CashStateMulti> stateTransition;
 	ImmediateValueFunction<CashStateMulti, Actions, Demands, Double> immediateValue;
+	StateTransitionFunctionMulti stateTransitionMulti;
+	ImmediateValueFunctionMulti immediateValueMulti;
+	NewsvendorKernelMulti kernel;
+	SolverMetrics metrics; // attached by the constructors if a flight recording is running, null for no instrumentation
+	SolveControl control; // null for no time budget or cancellation
+	TableCheckpoint checkpoint; // null for no periodic checkpoint
 	
 	public CashRecursionMulti(double discountFactor, GetPmfMulti Pmf, Function<CashStateMulti, ArrayList<Actions>> buildActionList,
 			StateTransitionFunction<CashStateMulti, Actions, Demands, CashStateMulti> stateTransition, 
@@ -45,6 +60,7 @@ public class CashRecursionMulti {
 		this.stateTransition = stateTransition;
 		this.immediateValue = immediateValue;
 		this.TLength = TLength;
+		this.metrics = SolverMetrics.forRecording("CashRecursionMulti", TLength);
 		
 		// sorted map for recorded actions and values 
 		Comparator<CashStateMulti> keyComparator = (o1, o2) -> o1.getPeriod() > o2.getPeriod() ? 1 : 
@@ -66,6 +82,7 @@ public class CashRecursionMulti {
 		this.stateTransition = stateTransition;
 		this.immediateValue = immediateValue;
 		this.TLength = TLength;
+		this.metrics = SolverMetrics.forRecording("CashRecursionMulti", TLength);
 		
 		// sorted map for recorded actions and values 
 		Comparator<CashStateMulti> keyComparator = (o1, o2) -> o1.getPeriod() > o2.getPeriod() ? 1 : 
@@ -73,16 +90,267 @@ public class CashRecursionMulti {
 				o1.getIniInventory1() == o2.getIniInventory1() ? o1.getIniInventory2() > o2.getIniInventory2() ? 1 :
 					o1.getIniInventory2() == o2.getIniInventory2() ? o1.iniCash > o2.iniCash  ? 1 :
 					o1.iniCash == o2.iniCash ? 0 : -1: -1 : -1 : -1;
-		this.cacheActions = new TreeMap<>(keyComparator);
-		this.cacheValues = new TreeMap<>(keyComparator);		
+		// a TreeMap rejects the nested computeIfAbsent of the recursion with a ConcurrentModificationException
+		this.cacheActions = new ConcurrentSkipListMap<>(keyComparator);
+		this.cacheValues = new ConcurrentSkipListMap<>(keyComparator);		
+	}
+	
+	
+	/**
+	* @Description: scan the joint actions of a state by an iterator instead of the action list,
+	* 				then buildActionList is not used and can be null
+	* @param @param actionSpace iterator over (Q1, Q2) for a state, usually filtered by the cash budget
+	*/
+	public void setActionSpace(Function<CashStateMulti, ProductIterator> actionSpace) {
+		this.actionSpace = actionSpace;
+	}
+	
+	
+	/**
+	* @Description: run the recursion on primitive functions, then the generic stateTransition and 
+	* 				immediateValue are not used and can be null; a kernel set by setKernel is used instead of both
+	*/
+	public void setPrimitiveFunctions(StateTransitionFunctionMulti stateTransitionMulti, 
+			ImmediateValueFunctionMulti immediateValueMulti) {
+		this.stateTransitionMulti = stateTransitionMulti;
+		this.immediateValueMulti = immediateValueMulti;
+	}
+	
+	
+	/**
+	* @Description: evaluate the actions by a newsvendor kernel on contiguous demand arrays. The kernel takes precedence
+	* 				over the primitive and generic functions in the recursion, while the simulation still uses the functions,
+	* 				so it should describe the same reward and transition, see NewsvendorKernelMulti.maxDifference
+	*/
+	public void setKernel(NewsvendorKernelMulti kernel) {
+		this.kernel = kernel;
+	}
+	
+	
+	/**
+	* @Description: counters of the solve, null for no instrumentation; the constructors attach metrics if a flight
+	* 				recording of the recursion events is running when the recursion is built, setMetrics(null) turns them off
+	*/
+	public void setMetrics(SolverMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	* @Description: time budget, cancellation and progress of the solve, null for solving to the end
+	*/
+	public void setControl(SolveControl control) {
+		this.control = control;
+	}
+	
+	/**
+	* @Description: keep the values and actions in an off-heap table on a grid instead of the heap maps, set before solving;
+	* 				a table reused by the next solve is reset first
+	*/
+	public void setOffHeapTable(OffHeapTable table) {
+		this.cacheValues = table.values();
+		this.cacheActions = table.actions();
+	}
+	
+	/**
+	* @Description: write the solved states to a checkpoint file during the solve, e.g., on a cluster with pre-emption
+	* @param fileName binary file, replaced by each checkpoint
+	* @param intervalMillis minimum time between two checkpoints
+	*/
+	public void setCheckpoint(String fileName, long intervalMillis) {
+		this.checkpoint = new TableCheckpoint(fileName, intervalMillis, "CashRecursionMulti", TLength, this::writeTables);
+	}
+	
+	/**
+	* @Description: write the solved states to a checkpoint file now, e.g., after the solve; not after a stop of
+	* 				the control, solve again with a new control first
+	*/
+	public void writeCheckpoint(String fileName) throws IOException {
+		if (control != null && control.isStopped())
+			throw new IllegalStateException("the solve is stopped, the tables are not written");
+		TableCheckpoint.write(fileName, "CashRecursionMulti", TLength, this::writeTables);
+	}
+	
+	/**
+	* @Description: load the solved states of a checkpoint file before solving, the next solve only expands the other states
+	* @return number of the loaded states, 0 if the file does not exist yet
+	*/
+	public int resume(String fileName) throws IOException {
+		return TableCheckpoint.read(fileName, "CashRecursionMulti", TLength, this::readTables);
+	}
+	
+	/**
+	* @Description: records of (period, x1, x2, w, value, Q1, Q2), the table ends with period 0
+	*/
+	void writeTables(DataOutputStream out) throws IOException {
+		for (Map.Entry<CashStateMulti, Double> entry : cacheValues.entrySet()) {
+			CashStateMulti s = entry.getKey();
+			Actions actions = cacheActions.get(s);
+			if (actions == null)
+				continue;
+			out.writeInt(s.period);
+			out.writeDouble(s.iniInventory1);
+			out.writeDouble(s.iniInventory2);
+			out.writeDouble(s.iniCash);
+			out.writeDouble(entry.getValue());
+			out.writeInt(actions.firstAction);
+			out.writeInt(actions.secondAction);
+		}
+		out.writeInt(0);
+	}
+	
+	int readTables(DataInputStream in) throws IOException {
+		int stateNum = 0;
+		for (int period = in.readInt(); period != 0; period = in.readInt()) {
+			CashStateMulti s = new CashStateMulti(period, in.readDouble(), in.readDouble(), in.readDouble());
+			double value = in.readDouble();
+			cacheActions.putIfAbsent(s, new Actions(in.readInt(), in.readInt()));
+			cacheValues.putIfAbsent(s, value);
+			stateNum++;
+		}
+		return stateNum;
+	}
+	
+	
+	/**
+	* @Description: expected value of a pair of actions, with getExpectedValue or getExpectedValueMulti as the value of next period
+	*/
+	double getActionsValue(CashStateMulti s, Actions thisActions, double[][] dAndP, ToDoubleFunction<CashStateMulti> nextValue) {
+		double thisActionsValue = 0;
+		Demands thisDemands = new Demands(0, 0);
+		for (int j = 0; j < dAndP.length; j++) {
+			thisDemands.set((int) dAndP[j][0], (int) dAndP[j][1]);
+			thisActionsValue += dAndP[j][2] * immediateValue.apply(s, thisActions, thisDemands);
+			if (s.getPeriod()  < TLength) {
+				CashStateMulti newState = stateTransition.apply(s, thisActions, thisDemands);
+				thisActionsValue += dAndP[j][2] * discountFactor * nextValue.applyAsDouble(newState);
+			}
+		}
+		return thisActionsValue;
+	}
+	
+	
+	/**
+	* @Description: expected value of (Q1, Q2) by the primitive functions, the next state is looked up 
+	* 				by a reused probe state and a new state object is only created when it is not cached
+	*/
+	double getActionsValue(CashStateMulti s, int q1, int q2, double[][] dAndP, ToDoubleFunction<CashStateMulti> nextValue,
+			CashStateMulti probe, double[] nextState) {
+		int n = s.period;
+		double thisActionsValue = 0;
+		for (int j = 0; j < dAndP.length; j++) {
+			double d1 = (int) dAndP[j][0];
+			double d2 = (int) dAndP[j][1];
+			thisActionsValue += dAndP[j][2] * immediateValueMulti.apply(n, s.iniInventory1, s.iniInventory2, s.iniCash, q1, q2, d1, d2);
+			if (n < TLength) {
+				stateTransitionMulti.apply(n, s.iniInventory1, s.iniInventory2, s.iniCash, q1, q2, d1, d2, nextState);
+				probe.period = n + 1;
+				probe.iniInventory1 = nextState[0];
+				probe.iniInventory2 = nextState[1];
+				probe.iniCash = nextState[2];
+				Double nextValueCached = cacheValues.get(probe);
+				if (metrics != null && nextValueCached != null)
+					metrics.lookup(n + 1);
+				double thisNextValue = nextValueCached != null ? nextValueCached 
+						: nextValue.applyAsDouble(new CashStateMulti(n + 1, nextState[0], nextState[1], nextState[2]));
+				thisActionsValue += dAndP[j][2] * discountFactor * thisNextValue;
+			}
+		}
+		return thisActionsValue;
+	}
+	
+	
+	/**
+	* @Description: expected value of (Q1, Q2) by the kernel, immediate values and next states of all the demand points
+	* 				are computed in one pass before the next values are looked up
+	*/
+	double getKernelActionsValue(CashStateMulti s, int q1, int q2, ToDoubleFunction<CashStateMulti> nextValue,
+			CashStateMulti probe, double[][] buffers) {
+		int n = s.period;
+		double thisActionsValue = kernel.evaluate(n, s.iniInventory1, s.iniInventory2, s.iniCash, q1, q2, buffers);
+		if (n < TLength) {
+			double[] possibilities = kernel.getPossibilities(n);
+			for (int j = 0; j < possibilities.length; j++) {
+				probe.period = n + 1;
+				probe.iniInventory1 = buffers[0][j];
+				probe.iniInventory2 = buffers[1][j];
+				probe.iniCash = buffers[2][j];
+				Double nextValueCached = cacheValues.get(probe);
+				if (metrics != null && nextValueCached != null)
+					metrics.lookup(n + 1);
+				double thisNextValue = nextValueCached != null ? nextValueCached 
+						: nextValue.applyAsDouble(new CashStateMulti(n + 1, buffers[0][j], buffers[1][j], buffers[2][j]));
+				thisActionsValue += possibilities[j] * discountFactor * thisNextValue;
+			}
+		}
+		return thisActionsValue;
+	}
+	
+	
+	/**
+	* @Description: scan the joint actions from the iterator or the action list, with the primitive functions
+	* 				if they are set; only carriers are used in the scan, no Actions/Demands/state per demand
+	* @param actionNum output number of the scanned actions
+	* @return best value and the best actions recorded in bestActions
+	*/
+	double scanActions(CashStateMulti s, double[][] dAndP, Actions bestActions, ToDoubleFunction<CashStateMulti> nextValue,
+			int[] actionNum) {
+		ProductIterator iterator = actionSpace != null ? actionSpace.apply(s) : null;
+		ArrayList<Actions> actions = actionSpace == null ? buildActionList.apply(s) : null;
+		Actions thisActions = new Actions(0, 0);
+		CashStateMulti probe = new CashStateMulti(0, 0, 0, 0);
+		double[] nextState = new double[3];
+		double[][] buffers = kernel != null ? kernel.newBuffers() : null;
+		double val = -Double.MAX_VALUE;
+		int i = 0;
+		while (iterator != null ? iterator.next() : i < actions.size()) {
+			int q1, q2;
+			if (iterator != null) {
+				q1 = (int) iterator.get(0);
+				q2 = (int) iterator.get(1);
+			} else {
+				q1 = actions.get(i).getFirstAction();
+				q2 = actions.get(i).getSecondAction();
+				i++;
+			}
+			double thisActionsValue;
+			if (kernel != null)
+				thisActionsValue = getKernelActionsValue(s, q1, q2, nextValue, probe, buffers);
+			else if (immediateValueMulti != null)
+				thisActionsValue = getActionsValue(s, q1, q2, dAndP, nextValue, probe, nextState);
+			else {
+				thisActions.set(q1, q2);
+				thisActionsValue = getActionsValue(s, thisActions, dAndP, nextValue);
+			}
+			actionNum[0]++;
+			if (thisActionsValue > val + 0.1) {
+				val = thisActionsValue;
+				bestActions.set(q1, q2);
+			}
+		}
+		return val;
 	}
 	
 	
 	public double getExpectedValue(CashStateMulti initialState) {
-		return this.cacheValues.computeIfAbsent(initialState, s -> {
-			ArrayList<Actions> actions = buildActionList.apply(s);
-			double[][] dAndP = Pmf.getPmf(s.getPeriod() - 1);
-			double val = -Double.MAX_VALUE;
+		if (metrics != null)
+			metrics.lookup(initialState.getPeriod());
+		if (control != null && control.isStopped() && !cacheValues.containsKey(initialState)) {
+			control.truncated(1);
+			return 0; // the planning horizon is truncated at an unsolved state
+		}
+		double[] partialValue = control != null ? new double[1] : null;
+		Double value = this.cacheValues.computeIfAbsent(initialState, s -> {
+			long start = metrics != null ? metrics.enter() : 0;
+			try {
+				double[][] dAndP = Pmf.getPmf(s.getPeriod() - 1);
+				if (actionSpace != null || immediateValueMulti != null || kernel != null) {
+					Actions bestActions = new Actions(0, 0);
+					int[] actionNum = new int[1];
+					double val = scanActions(s, dAndP, bestActions, this::getExpectedValue, actionNum);
+					return finishState(s, val, bestActions, partialValue, start, actionNum[0], dAndP.length);
+				}
+				ArrayList<Actions> actions = buildActionList.apply(s);
+				double val = -Double.MAX_VALUE;
 			
 //			double pSum = 0;
 //			for (int i = 0; i < dAndP.length; i++) {
@@ -90,29 +358,54 @@ public class CashRecursionMulti {
 //			}
 //			System.out.println(pSum);
 			
-			double[] actionValues = new double[actions.size()];
-			Actions bestActions = new Actions(0, 0);
-			for (int i = 0; i < actions.size(); i++) {
-				Actions thisActions = actions.get(i);
-				//thisActions = new Actions(9, 8);
-				double thisActionsValue = 0;
-				for (int j = 0; j < dAndP.length; j++) {
-					Demands thisDemands = new Demands((int) dAndP[j][0], (int) dAndP[j][1]);
-					thisActionsValue += dAndP[j][2] * immediateValue.apply(s, thisActions, thisDemands);
-					if (s.getPeriod()  < TLength) {
-						CashStateMulti newState = stateTransition.apply(s, thisActions, thisDemands);
-						thisActionsValue += dAndP[j][2] * discountFactor * getExpectedValue(newState);
+				double[] actionValues = new double[actions.size()];
+				Actions bestActions = new Actions(0, 0);
+				for (int i = 0; i < actions.size(); i++) {
+					Actions thisActions = actions.get(i);
+					//thisActions = new Actions(9, 8);
+					double thisActionsValue = getActionsValue(s, thisActions, dAndP, this::getExpectedValue);
+					actionValues[i] = thisActionsValue;
+					if (actionValues[i] > val + 0.1) {
+						val = actionValues[i];
+						bestActions = new Actions(thisActions.getFirstAction(), thisActions.getSecondAction());
 					}
 				}
-				actionValues[i] = thisActionsValue;
-				if (actionValues[i] > val + 0.1) {
-					val = actionValues[i];
-					bestActions = new Actions(thisActions.getFirstAction(), thisActions.getSecondAction());
-				}
+				return finishState(s, val, bestActions, partialValue, start, actions.size(), dAndP.length);
+			} catch (RuntimeException | Error e) {
+				if (metrics != null)
+					metrics.abort(start); // the expansion is not cached, keep the gauges balanced
+				throw e;
 			}
-			this.cacheActions.putIfAbsent(s, bestActions);
-			return val;
 		});
+		return value != null ? value : partialValue[0];
+	}
+	
+	
+	/**
+	* @Description: end of the expansion of a state. The actions are kept, e.g., as the truncated-horizon policy
+	* 				after a stop, and replaced when the state is expanded again. The value is only cached if the solve
+	* 				did not stop before it, otherwise it depends on truncated states: it is returned in partialValue
+	* 				and the state is expanded again by a later solve
+	* @return the value to cache, null if it is not cached
+	*/
+	Double finishState(CashStateMulti s, double val, Actions bestActions, double[] partialValue, long start,
+			int actionNum, int demandNum) {
+		boolean partial = control != null && control.isStopped();
+		this.cacheActions.put(s, bestActions);
+		if (control != null)
+			control.expanded(s.getPeriod());
+		if (checkpoint != null && !partial)
+			checkpoint.writeIfDue();
+		if (metrics != null) {
+			metrics.exit(s.getPeriod(), start, actionNum, (long) actionNum * demandNum);
+			if (partial)
+				metrics.removed(1);
+		}
+		if (partial) {
+			partialValue[0] = val;
+			return null;
+		}
+		return val;
 	}
 	
 	
@@ -123,10 +416,25 @@ public class CashRecursionMulti {
 	* @return double   
 	*/
 	public double getExpectedValueMulti(CashStateMulti initialState) {
-		return this.cacheValues.computeIfAbsent(initialState, s -> {
-			ArrayList<Actions> actions = buildActionList.apply(s);
-			double[][] dAndP = pmf[s.getPeriod() - 1];
-			double val = -Double.MAX_VALUE;
+		if (metrics != null)
+			metrics.lookup(initialState.getPeriod());
+		if (control != null && control.isStopped() && !cacheValues.containsKey(initialState)) {
+			control.truncated(1);
+			return 0; // the planning horizon is truncated at an unsolved state
+		}
+		double[] partialValue = control != null ? new double[1] : null;
+		Double value = this.cacheValues.computeIfAbsent(initialState, s -> {
+			long start = metrics != null ? metrics.enter() : 0;
+			try {
+				double[][] dAndP = pmf[s.getPeriod() - 1];
+				if (actionSpace != null || immediateValueMulti != null || kernel != null) {
+					Actions bestActions = new Actions(0, 0);
+					int[] actionNum = new int[1];
+					double val = scanActions(s, dAndP, bestActions, this::getExpectedValueMulti, actionNum);
+					return finishState(s, val, bestActions, partialValue, start, actionNum[0], dAndP.length);
+				}
+				ArrayList<Actions> actions = buildActionList.apply(s);
+				double val = -Double.MAX_VALUE;
 			
 //			double pSum = 0;
 //			for (int i = 0; i < dAndP.length; i++) {
@@ -134,28 +442,25 @@ public class CashRecursionMulti {
 //			}
 //			System.out.println(pSum);
 			
-			double[] actionValues = new double[actions.size()];
-			Actions bestActions = new Actions(0, 0);
-			for (int i = 0; i < actions.size(); i++) {
-				Actions thisActions = actions.get(i);
-				double thisActionsValue = 0;
-				for (int j = 0; j < dAndP.length; j++) {
-					Demands thisDemands = new Demands((int) dAndP[j][0], (int) dAndP[j][1]);
-					thisActionsValue += dAndP[j][2] * immediateValue.apply(s, thisActions, thisDemands);
-					if (s.getPeriod()  < TLength) {
-						CashStateMulti newState = stateTransition.apply(s, thisActions, thisDemands);
-						thisActionsValue += dAndP[j][2] * discountFactor * getExpectedValueMulti(newState);
+				double[] actionValues = new double[actions.size()];
+				Actions bestActions = new Actions(0, 0);
+				for (int i = 0; i < actions.size(); i++) {
+					Actions thisActions = actions.get(i);
+					double thisActionsValue = getActionsValue(s, thisActions, dAndP, this::getExpectedValueMulti);
+					actionValues[i] = thisActionsValue;
+					if (actionValues[i] > val + 0.1) {
+						val = actionValues[i];
+						bestActions = new Actions(thisActions.getFirstAction(), thisActions.getSecondAction());
 					}
 				}
-				actionValues[i] = thisActionsValue;
-				if (actionValues[i] > val + 0.1) {
-					val = actionValues[i];
-					bestActions = new Actions(thisActions.getFirstAction(), thisActions.getSecondAction());
-				}
+				return finishState(s, val, bestActions, partialValue, start, actions.size(), dAndP.length);
+			} catch (RuntimeException | Error e) {
+				if (metrics != null)
+					metrics.abort(start); // the expansion is not cached, keep the gauges balanced
+				throw e;
 			}
-			this.cacheActions.putIfAbsent(s, bestActions);
-			return val;
 		});
+		return value != null ? value : partialValue[0];
 	}
 	
 	
@@ -3,6 +3,9 @@
  */
 package sdp.cash.multiItem;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -14,9 +17,13 @@ import java.util.function.Function;
 
 import sdp.cash.StateP;
 import sdp.cash.StateY;
+import sdp.inventory.InterpolationGrid;
+import sdp.inventory.SolveControl;
+import sdp.inventory.SolverMetrics;
 import sdp.inventory.FinalCash.BoundaryFuncton;
 import sdp.inventory.ImmediateValue.ImmediateValueFunctionV;
 import sdp.inventory.StateTransition.StateTransitionFunctionV;
+import sdp.sampling.ProductIterator;
 
 /**
  * @author: Zhen Chen
@@ -40,8 +47,14 @@ public class CashRecursionV {
 	
 	Function<CashStateMulti, ArrayList<double[]>> buildActionListV;
 	Function<CashStateMultiYR, ArrayList<double[]>> buildActionListPai;
+	Function<CashStateMulti, ProductIterator> actionSpaceV;
+	Function<CashStateMultiYR, ProductIterator> actionSpacePai;
 	StateTransitionFunctionV<CashStateMultiYR, double[], CashStateMulti> stateTransition;
 	BoundaryFuncton<CashStateMulti, Double> boundFinalCash;
+	InterpolationGrid valueGrid; // coarse grid of (x1, x2, w) for approximate dp, null for the exact recursion
+	SolverMetrics metrics; // attached by the constructor if a flight recording is running, states of V and pai are both counted
+	SolveControl control; // null for no time budget or cancellation
+	TableCheckpoint checkpoint; // null for no periodic checkpoint
 	
 	public CashRecursionV(double discountFactor, GetPmfMulti Pmf, Function<CashStateMulti, ArrayList<double[]>> buildActionListV,
 			Function<CashStateMultiYR, ArrayList<double[]>> buildActionListPai, StateTransitionFunctionV<CashStateMultiYR, double[], CashStateMulti> stateTransition, 
@@ -54,6 +67,7 @@ public class CashRecursionV {
 		this.boundFinalCash = boundFinalCash;
 		this.T = T;
 		this.variCost = variCost;
+		this.metrics = SolverMetrics.forRecording("CashRecursionV", T);
 		
 		// sorted map for recorded yHeads and values 
 		Comparator<CashStateMultiYR> keyComparator = (o1, o2) -> o1.getPeriod() > o2.getPeriod() ? 1 : 
@@ -78,49 +92,300 @@ public class CashRecursionV {
 		this.cacheYStar = new ConcurrentSkipListMap<>(keyComparator2);
 		this.cacheAlpha = new ConcurrentSkipListMap<>(keyComparator2);
 	}
+	
+	/**
+	 * scan (y1, y2) by iterators instead of the action lists, 
+	 * then buildActionListV and buildActionListPai are not used
+	 * @param actionSpaceV iterator over (y1, y2) for V(x1, x2, w)
+	 * @param actionSpacePai iterator over (y1, y2) for pai(y1, y2, R)
+	 */
+	public void setActionSpaces(Function<CashStateMulti, ProductIterator> actionSpaceV, 
+			Function<CashStateMultiYR, ProductIterator> actionSpacePai) {
+		this.actionSpaceV = actionSpaceV;
+		this.actionSpacePai = actionSpacePai;
+	}
+	
+	/**
+	 * @param period
+	 * @param iniR
+	 * @param yHeads iterator over (y1, y2)
+	 * @param tolerance minimum improvement to update the best (y1, y2)
+	 * @param bestYs best (y1, y2), copied from the iterator
+	 * @param actionNum output number of the scanned (y1, y2), may be null
+	 * @return best value of pai(y1, y2, R)
+	 */
+	double scanPai(int period, double iniR, ProductIterator yHeads, double tolerance, double[] bestYs, int[] actionNum) {
+		double val = -Double.MAX_VALUE;
+		while (yHeads.next()) {
+			double[] thisActions = yHeads.get();
+			CashStateMultiYR thisState = new CashStateMultiYR(period, thisActions[0], thisActions[1], iniR);
+			double thisActionsValue = getExpectedValuePai(thisState);
+			if (actionNum != null)
+				actionNum[0]++;
+			if (thisActionsValue > val + tolerance) {
+				val = thisActionsValue;
+				bestYs[0] = thisActions[0];
+				bestYs[1] = thisActions[1];
+			}
+		}
+		return val;
+	}
 			
 	
 	public double getExpectedValuePai(CashStateMultiYR initialState) {
-		return this.cacheValuesPai.computeIfAbsent(initialState, s -> {
-			int n = s.getPeriod();
-			double[][] dAndP = Pmf.getPmf(n - 1); // demandAndPossibility
-			double expectValue = 0;
-			for (int j = 0; j < dAndP.length; j++) {
-				double[] thisDemands = new double[] {dAndP[j][0],  dAndP[j][1]};
-				CashStateMulti newState = stateTransition.apply(s, thisDemands);
-				//double thisProfit = immediateValue.apply(newState, thisDemands);
-				double thisDemandValue = getExpectedValueV(newState);
-				expectValue += dAndP[j][2] * thisDemandValue;
-			}	
-			return expectValue;
+		if (metrics != null)
+			metrics.lookup(initialState.getPeriod());
+		if (control != null && control.isStopped() && !cacheValuesPai.containsKey(initialState)) {
+			control.truncated(1);
+			double cash = initialState.iniR - variCost[0] * initialState.iniInventory1 - variCost[1] * initialState.iniInventory2;
+			return boundFinalCash.apply(new CashStateMulti(initialState.getPeriod(), initialState.iniInventory1,
+					initialState.iniInventory2, cash)); // the planning horizon is truncated after ordering up to (y1, y2)
+		}
+		double[] partialValue = control != null ? new double[1] : null;
+		Double value = this.cacheValuesPai.computeIfAbsent(initialState, s -> {
+			long start = metrics != null ? metrics.enter() : 0;
+			try {
+				int n = s.getPeriod();
+				double[][] dAndP = Pmf.getPmf(n - 1); // demandAndPossibility
+				double expectValue = 0;
+				for (int j = 0; j < dAndP.length; j++) {
+					double[] thisDemands = new double[] {dAndP[j][0],  dAndP[j][1]};
+					CashStateMulti newState = stateTransition.apply(s, thisDemands);
+					//double thisProfit = immediateValue.apply(newState, thisDemands);
+					double thisDemandValue = getNextValueV(newState);
+					expectValue += dAndP[j][2] * thisDemandValue;
+				}	
+				if (finishState(n, start, 0, dAndP.length))
+					return expectValue;
+				partialValue[0] = expectValue;
+				return null;
+			} catch (RuntimeException | Error e) {
+				if (metrics != null)
+					metrics.abort(start); // the expansion is not cached, keep the gauges balanced
+				throw e;
+			}
 		});
+		return value != null ? value : partialValue[0];
+	}
+	
+	/**
+	 * end of the expansion of a state of V or pai. The value is only cached if the solve did not stop before it,
+	 * otherwise it depends on truncated states and the state is expanded again by a later solve
+	 * @return whether the value can be cached
+	 */
+	boolean finishState(int period, long start, long actionNum, long demandPointNum) {
+		boolean partial = control != null && control.isStopped();
+		if (control != null)
+			control.expanded(period);
+		if (checkpoint != null && !partial)
+			checkpoint.writeIfDue();
+		if (metrics != null) {
+			metrics.exit(period, start, actionNum, demandPointNum);
+			if (partial)
+				metrics.removed(1);
+		}
+		return !partial;
+	}
+	
+	/**
+	 * counters of the solve; the constructor attaches metrics if a flight recording of the recursion events is running
+	 * when the recursion is built, setMetrics(null) turns them off
+	 * @param metrics counters of the solve, null for no instrumentation
+	 */
+	public void setMetrics(SolverMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * @param control time budget, cancellation and progress of the solve, null for solving to the end
+	 */
+	public void setControl(SolveControl control) {
+		this.control = control;
+	}
+	
+	/**
+	 * write the solved states to a checkpoint file during the solve, e.g., on a cluster with pre-emption
+	 * @param fileName binary file, replaced by each checkpoint
+	 * @param intervalMillis minimum time between two checkpoints
+	 */
+	public void setCheckpoint(String fileName, long intervalMillis) {
+		this.checkpoint = new TableCheckpoint(fileName, intervalMillis, "CashRecursionV", T, this::writeTables);
+	}
+	
+	/**
+	 * write the solved states to a checkpoint file now, e.g., after the solve; not after a stop of the control,
+	 * solve again with a new control first
+	 */
+	public void writeCheckpoint(String fileName) throws IOException {
+		if (control != null && control.isStopped())
+			throw new IllegalStateException("the solve is stopped, the tables are not written");
+		TableCheckpoint.write(fileName, "CashRecursionV", T, this::writeTables);
+	}
+	
+	/**
+	 * load the solved states of a checkpoint file before solving, the next solve only expands the other states
+	 * @return number of the loaded states of V and pai, 0 if the file does not exist yet
+	 */
+	public int resume(String fileName) throws IOException {
+		return TableCheckpoint.read(fileName, "CashRecursionV", T, this::readTables);
+	}
+	
+	/**
+	 * tables of V with the optimal (y1, y2), NaN for the final states, of pai, of y*(R) and of alpha(R), 
+	 * each table ends with period 0; y*(R) is solved before V of the same R is cached, so it is written after V
+	 */
+	void writeTables(DataOutputStream out) throws IOException {
+		for (Map.Entry<CashStateMulti, Double> entry : cacheValuesV.entrySet()) {
+			CashStateMulti s = entry.getKey();
+			double[] ys = cacheActions.get(s);
+			out.writeInt(s.period);
+			out.writeDouble(s.iniInventory1);
+			out.writeDouble(s.iniInventory2);
+			out.writeDouble(s.iniCash);
+			out.writeDouble(entry.getValue());
+			out.writeDouble(ys != null ? ys[0] : Double.NaN);
+			out.writeDouble(ys != null ? ys[1] : Double.NaN);
+		}
+		out.writeInt(0);
+		for (Map.Entry<CashStateMultiYR, Double> entry : cacheValuesPai.entrySet()) {
+			CashStateMultiYR s = entry.getKey();
+			out.writeInt(s.period);
+			out.writeDouble(s.iniInventory1);
+			out.writeDouble(s.iniInventory2);
+			out.writeDouble(s.iniR);
+			out.writeDouble(entry.getValue());
+		}
+		out.writeInt(0);
+		for (Map.Entry<CashStateR, double[]> entry : cacheYStar.entrySet()) {
+			out.writeInt(entry.getKey().period);
+			out.writeDouble(entry.getKey().iniR);
+			out.writeDouble(entry.getValue()[0]);
+			out.writeDouble(entry.getValue()[1]);
+		}
+		out.writeInt(0);
+		for (Map.Entry<CashStateR, Double> entry : cacheAlpha.entrySet()) {
+			out.writeInt(entry.getKey().period);
+			out.writeDouble(entry.getKey().iniR);
+			out.writeDouble(entry.getValue());
+		}
+		out.writeInt(0);
+	}
+	
+	int readTables(DataInputStream in) throws IOException {
+		int stateNum = 0;
+		for (int period = in.readInt(); period != 0; period = in.readInt()) {
+			CashStateMulti s = new CashStateMulti(period, in.readDouble(), in.readDouble(), in.readDouble());
+			double value = in.readDouble();
+			double[] ys = new double[] {in.readDouble(), in.readDouble()};
+			if (!Double.isNaN(ys[0]))
+				cacheActions.putIfAbsent(s, ys);
+			cacheValuesV.putIfAbsent(s, value);
+			stateNum++;
+		}
+		for (int period = in.readInt(); period != 0; period = in.readInt()) {
+			CashStateMultiYR s = new CashStateMultiYR(period, in.readDouble(), in.readDouble(), in.readDouble());
+			cacheValuesPai.putIfAbsent(s, in.readDouble());
+			stateNum++;
+		}
+		for (int period = in.readInt(); period != 0; period = in.readInt()) {
+			CashStateR s = new CashStateR(period, in.readDouble());
+			cacheYStar.putIfAbsent(s, new double[] {in.readDouble(), in.readDouble()});
+		}
+		for (int period = in.readInt(); period != 0; period = in.readInt()) {
+			CashStateR s = new CashStateR(period, in.readDouble());
+			cacheAlpha.putIfAbsent(s, in.readDouble());
+		}
+		return stateNum;
+	}
+	
+	/**
+	 * approximate dp: V(x1, x2, w) of the periods after the first are only solved on a coarse grid,
+	 * the other states are trilinear interpolations, e.g., for the non-integer y1, y2 from getAlpha
+	 * @param inventoryGrid1 increasing x1
+	 * @param inventoryGrid2 increasing x2
+	 * @param cashGrid increasing w
+	 */
+	public void setApproximateGrid(double[] inventoryGrid1, double[] inventoryGrid2, double[] cashGrid) {
+		this.valueGrid = new InterpolationGrid(inventoryGrid1, inventoryGrid2, cashGrid);
+	}
+	
+	/**
+	 * @return V of a next state, interpolated on the grid of approximate dp; final values are not interpolated
+	 */
+	double getNextValueV(CashStateMulti newState) {
+		if (valueGrid == null || newState.getPeriod() > T)
+			return getExpectedValueV(newState);
+		int period = newState.getPeriod();
+		return valueGrid.interpolate(new double[] {newState.iniInventory1, newState.iniInventory2, newState.iniCash}, 
+				p -> getExpectedValueV(new CashStateMulti(period, p[0], p[1], p[2])));
+	}
+	
+	/**
+	 * a posteriori error of approximate dp, V solved at some cell centres of each period
+	 * is compared with the interpolated V; the check states are solved and cached as other states
+	 * @param checkNum number of check states in each period
+	 * @return errors[t - 1] is the maximum interpolation error found in period t, period 1 is not interpolated
+	 */
+	public double[] getInterpolationErrors(int checkNum) {
+		if (valueGrid == null)
+			throw new IllegalStateException("no grid is set for approximate dp");
+		double[] errors = new double[T];
+		for (int t = T; t >= 2; t--) {
+			int period = t;
+			errors[t - 1] = valueGrid.getMaxError(checkNum, p -> getExpectedValueV(new CashStateMulti(period, p[0], p[1], p[2])));
+		}
+		return errors;
 	}
 	
 	// maybe only stateTransitionFunction needed
 	public double getExpectedValueV(CashStateMulti initialState) {
-		return this.cacheValuesV.computeIfAbsent(initialState, s -> {
-			ArrayList<double[]> yHeads = buildActionListV.apply(s);
+		if (metrics != null && initialState.getPeriod() <= T)
+			metrics.lookup(initialState.getPeriod());
+		if (control != null && initialState.getPeriod() <= T && control.isStopped() && !cacheValuesV.containsKey(initialState)) {
+			control.truncated(1);
+			return boundFinalCash.apply(initialState); // the planning horizon is truncated at an unsolved state
+		}
+		double[] partialValue = control != null ? new double[1] : null;
+		Double value = this.cacheValuesV.computeIfAbsent(initialState, s -> {
 			double val = -Double.MAX_VALUE;
 			double[] bestYs = new double[] {initialState.getIniInventory1(), initialState.getIniInventory2()};
 			if (initialState.getPeriod() <= T) {
-				for (int i = 0; i < yHeads.size(); i++) {
-					double[] thisActions = yHeads.get(i);
+				long start = metrics != null ? metrics.enter() : 0;
+				try {
 					double iniR = s.iniCash + variCost[0] * s.iniInventory1 + variCost[1] * s.iniInventory2;
-					CashStateMultiYR thisState = new CashStateMultiYR(s.getPeriod(), thisActions[0], thisActions[1], iniR);
-					double thisActionsValue = getExpectedValuePai(thisState);
-//					CashStateR  stateR = new CashStateR(s.getPeriod(), iniR);
-//					getYStar(stateR);
+					int[] actionNum = new int[1];
+					if (actionSpaceV != null) // actions are streamed by the iterator, no list is built
+						val = scanPai(s.getPeriod(), iniR, actionSpaceV.apply(s), 0.01, bestYs, actionNum);
+					else {
+						ArrayList<double[]> yHeads = buildActionListV.apply(s);
+						actionNum[0] = yHeads.size();
+						for (int i = 0; i < yHeads.size(); i++) {
+							double[] thisActions = yHeads.get(i);
+							CashStateMultiYR thisState = new CashStateMultiYR(s.getPeriod(), thisActions[0], thisActions[1], iniR);
+							double thisActionsValue = getExpectedValuePai(thisState);
+//						CashStateR  stateR = new CashStateR(s.getPeriod(), iniR);
+//						getYStar(stateR);
 
-					if (thisActionsValue > val + 0.01) {
-						val = thisActionsValue;
-						bestYs = thisActions;
+							if (thisActionsValue > val + 0.01) {
+								val = thisActionsValue;
+								bestYs = thisActions;
+							}
+						}
 					}
+					CashStateR  stateR = new CashStateR(s.getPeriod(), iniR);
+					if (control == null || !control.isStopped())
+						getYStar(stateR); // for cacheing y stars
+					// getYStar2(stateR, s); // for cacheing y stars, computing new alpha
+					this.cacheActions.put(s, bestYs); // kept after a stop as the truncated-horizon policy
+					if (!finishState(s.getPeriod(), start, actionNum[0], 0)) {
+						partialValue[0] = val;
+						return null;
+					}
+				} catch (RuntimeException | Error e) {
+					if (metrics != null)
+						metrics.abort(start); // the expansion is not cached, keep the gauges balanced
+					throw e;
 				}
-				double iniR = s.iniCash + variCost[0] * s.iniInventory1 + variCost[1] * s.iniInventory2;
-				CashStateR  stateR = new CashStateR(s.getPeriod(), iniR);
-				getYStar(stateR); // for cacheing y stars
-				// getYStar2(stateR, s); // for cacheing y stars, computing new alpha
-				this.cacheActions.putIfAbsent(s, bestYs);
 			}
 			else {
 				double finalValue = boundFinalCash.apply(initialState);		
@@ -128,6 +393,7 @@ public class CashRecursionV {
 			}	
 			return val;
 		});
+		return value != null ? value : partialValue[0];
 	}
 	
 	/**
@@ -147,34 +413,45 @@ public class CashRecursionV {
 	 * @date: Jul 10, 2020, 12:13:50 PM 
 	 */
 	public double[] getYStar(CashStateR initialState) { // revise
-		return this.cacheYStar.computeIfAbsent(initialState, s -> {
+		double[][] partialYs = control != null ? new double[1][] : null;
+		double[] ys = this.cacheYStar.computeIfAbsent(initialState, s -> {
 		CashStateMultiYR state = new CashStateMultiYR(s.getPeriod(), 0, 0, s.iniR);
-		ArrayList<double[]> yHeads = buildActionListPai.apply(state);
 		double val = -Double.MAX_VALUE;
 		double[] bestYs = new double[] {0, 0};
-		for (int i = 0; i < yHeads.size(); i++) {
-			// double[] thisActions = {17, 7}; //actions.get(i);
-			double[] thisActions = yHeads.get(i);
-			CashStateMultiYR thisState = new CashStateMultiYR(s.getPeriod(), thisActions[0], thisActions[1], s.iniR);
-			double thisActionsValue = getExpectedValuePai(thisState);
-			
-			if (thisActionsValue > val + 0.1) {
-				val = thisActionsValue;
-				bestYs = thisActions;
-			}		
+		if (actionSpacePai != null) // actions are streamed by the iterator, no list is built
+			val = scanPai(s.getPeriod(), s.iniR, actionSpacePai.apply(state), 0.1, bestYs, null);
+		else {
+			ArrayList<double[]> yHeads = buildActionListPai.apply(state);
+			for (int i = 0; i < yHeads.size(); i++) {
+				// double[] thisActions = {17, 7}; //actions.get(i);
+				double[] thisActions = yHeads.get(i);
+				CashStateMultiYR thisState = new CashStateMultiYR(s.getPeriod(), thisActions[0], thisActions[1], s.iniR);
+				double thisActionsValue = getExpectedValuePai(thisState);
+				
+				if (thisActionsValue > val + 0.1) {
+					val = thisActionsValue;
+					bestYs = thisActions;
+				}		
+			}
 		}
 		
 		if (variCost[0] * bestYs[0] + variCost[1] * bestYs[1] >= s.iniR + 0.1) {
 			getAlpha(s); // revise to save computation time
 		}
 			
+		if (control != null && control.isStopped()) { // y* depends on truncated states, it is not cached
+			partialYs[0] = bestYs;
+			return null;
+		}
 		return bestYs;			
 		});
+		return ys != null ? ys : partialYs[0];
 	}
 	
 	// revise
 	public double getAlpha(CashStateR initialState) {
-		return this.cacheAlpha.computeIfAbsent(initialState, s -> {
+		double[] partialAlpha = control != null ? new double[1] : null;
+		Double cachedAlpha = this.cacheAlpha.computeIfAbsent(initialState, s -> {
 			double bestAlpha = 0;
 			double bestValue = -Double.MAX_VALUE;
 			for (double alpha = 0; alpha <= 1; alpha = alpha + 0.01) {  // stepsize of alpha
@@ -189,34 +466,49 @@ public class CashRecursionV {
 					bestAlpha = alpha;
 				}
 			}
+			if (control != null && control.isStopped()) { // alpha depends on truncated states, it is not cached
+				partialAlpha[0] = bestAlpha;
+				return null;
+			}
 		return bestAlpha;
 		});
+		return cachedAlpha != null ? cachedAlpha : partialAlpha[0];
 	}
 	
 	public double[] getYStar2(CashStateR initialState, CashStateMulti ss) { // revise
-		return this.cacheYStar.computeIfAbsent(initialState, s -> {
+		double[][] partialYs = control != null ? new double[1][] : null;
+		double[] ys = this.cacheYStar.computeIfAbsent(initialState, s -> {
 		CashStateMultiYR state = new CashStateMultiYR(s.getPeriod(), 0, 0, s.iniR);
-		ArrayList<double[]> yHeads = buildActionListPai.apply(state);
 		double val = -Double.MAX_VALUE;
 		double[] bestYs = new double[] {0, 0};
-		for (int i = 0; i < yHeads.size(); i++) {
-			// double[] thisActions = {17, 7}; //actions.get(i);
-			double[] thisActions = yHeads.get(i);
-			CashStateMultiYR thisState = new CashStateMultiYR(s.getPeriod(), thisActions[0], thisActions[1], s.iniR);
-			double thisActionsValue = getExpectedValuePai(thisState);
-			
-			if (thisActionsValue > val + 0.1) {
-				val = thisActionsValue;
-				bestYs = thisActions;
-			}		
+		if (actionSpacePai != null) // actions are streamed by the iterator, no list is built
+			val = scanPai(s.getPeriod(), s.iniR, actionSpacePai.apply(state), 0.1, bestYs, null);
+		else {
+			ArrayList<double[]> yHeads = buildActionListPai.apply(state);
+			for (int i = 0; i < yHeads.size(); i++) {
+				// double[] thisActions = {17, 7}; //actions.get(i);
+				double[] thisActions = yHeads.get(i);
+				CashStateMultiYR thisState = new CashStateMultiYR(s.getPeriod(), thisActions[0], thisActions[1], s.iniR);
+				double thisActionsValue = getExpectedValuePai(thisState);
+				
+				if (thisActionsValue > val + 0.1) {
+					val = thisActionsValue;
+					bestYs = thisActions;
+				}		
+			}
 		}
 		
 		if (variCost[0] * bestYs[0] + variCost[1] * bestYs[1] >= s.iniR + 0.1) {
 			getAlpha2(s, ss); // revise to save computation time
 		}
 			
+		if (control != null && control.isStopped()) { // y* depends on truncated states, it is not cached
+			partialYs[0] = bestYs;
+			return null;
+		}
 		return bestYs;			
 		});
+		return ys != null ? ys : partialYs[0];
 	}
 	
 	/**
@@ -225,7 +517,8 @@ public class CashRecursionV {
 	 *  a new computation for alpha
 	 */
 	public double getAlpha2(CashStateR initialState, CashStateMulti stateXW) {
-		return this.cacheAlpha.computeIfAbsent(initialState, s -> {
+		double[] partialAlpha = control != null ? new double[1] : null;
+		Double cachedAlpha = this.cacheAlpha.computeIfAbsent(initialState, s -> {
 			double bestAlpha = 0;
 			double bestValue = -Double.MAX_VALUE;
 			for (double alpha = 0; alpha <= 1; alpha = alpha + 0.01) {  // stepsize of alpha
@@ -240,8 +533,13 @@ public class CashRecursionV {
 					bestAlpha = alpha;
 				}
 			}
+			if (control != null && control.isStopped()) { // alpha depends on truncated states, it is not cached
+				partialAlpha[0] = bestAlpha;
+				return null;
+			}
 		return bestAlpha;
 		});
+		return cachedAlpha != null ? cachedAlpha : partialAlpha[0];
 	}
 	
 	/**
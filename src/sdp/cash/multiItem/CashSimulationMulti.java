@@ -15,13 +15,17 @@ import java.util.Arrays;
 import java.util.function.Function;
 
 import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.SolverEvents;
 import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.sampling.SampleColumns;
 import sdp.sampling.Sampling;
+import sdp.sampling.Sampling.SampleMethod;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdistmulti.BiNormalDist;
 
 public class CashSimulationMulti {
 	int sampleNum;
+	SampleMethod sampleMethod = SampleMethod.LHS;
 	BiNormalDist[] distributions;
 	
 	Distribution[][] distributionsMulti;
@@ -57,33 +61,44 @@ public class CashSimulationMulti {
 		this.sampleNum = n;
 	}
 	
+	/**
+	 * @param sampleMethod LHS by default, or randomized quasi-Monte Carlo
+	 */
+	public void setSampleMethod(SampleMethod sampleMethod) {
+		this.sampleMethod = sampleMethod;
+	}
+	
 	/**
 	 * 
 	 * @param iniState
 	 * @return simulate sdp in a given number of samples
 	 */
 	public double simulateSDPGivenSamplNum(CashStateMulti iniState) {
+		SolverEvents.SimulationBatch event = new SolverEvents.SimulationBatch();
+		event.begin();
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
+		SampleColumns samples = sampling.generateColumns(distributions, sampleNum, sampleMethod);
 		
-		double[] simuValues = new double[samples.length];		
-		for (int i = 0; i < samples.length; i++) {
+		double[] simuValues = new double[samples.getSampleNum()];		
+		Demands randomDemands = new Demands(0, 0); // reused for every period of every sample
+		for (int i = 0; i < samples.getSampleNum(); i++) {
 			double sum = 0; 
 			CashStateMulti state = iniState;
 			for (int t = 0; t < distributions.length; t++) {
 				recursion.getExpectedValue(state);
-				Actions actions = new Actions(recursion.getAction(state).getFirstAction(), recursion.getAction(state).getSecondAction());
+				Actions actions = recursion.getAction(state);
 //				if (t==0)
 //					actions = new Actions(14, 16);
-				Demands randomDemands = new Demands((int) Math.round(samples[i][t]), (int) Math.round(samples[i][t + distributions.length]));
+				randomDemands.set((int) Math.round(samples.get(i, t)), (int) Math.round(samples.get(i, t + distributions.length)));
 				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, actions, randomDemands);
 				state = stateTransition.apply(state, actions, randomDemands);				
 			}
 			simuValues[i] = sum;			
 		}
+		event.commit("CashSimulationMulti", samples.getSampleNum(), distributions.length, 1, false);
 		DecimalFormat df2 = new DecimalFormat("###,###");
-		double simFinalValue = Arrays.stream(simuValues).sum()/samples.length + iniState.iniCash;
+		double simFinalValue = Arrays.stream(simuValues).sum()/samples.getSampleNum() + iniState.iniCash;
 		System.out.println("\nfinal simulated expected value in " + df2.format(sampleNum) + " samples is: " + simFinalValue);
 		return simFinalValue;
 	}
@@ -94,25 +109,29 @@ public class CashSimulationMulti {
 	 * @return simulate sdp in a given number of samples for two product poisson
 	 */
 	public double simulateSDPGivenSamplNumMulti(CashStateMulti iniState) {
+		SolverEvents.SimulationBatch event = new SolverEvents.SimulationBatch();
+		event.begin();
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamplesMulti(distributionsMulti, sampleNum);
+		SampleColumns samples = sampling.generateColumnsMulti(distributionsMulti, sampleNum, sampleMethod);
 		
-		double[] simuValues = new double[samples.length];		
-		for (int i = 0; i < samples.length; i++) {
+		double[] simuValues = new double[samples.getSampleNum()];		
+		Demands randomDemands = new Demands(0, 0); // reused for every period of every sample
+		for (int i = 0; i < samples.getSampleNum(); i++) {
 			double sum = 0; 
 			CashStateMulti state = iniState;
 			for (int t = 0; t < distributionsMulti.length; t++) {
 				recursion.getExpectedValue(state);
-				Actions actions = new Actions(recursion.getAction(state).getFirstAction(), recursion.getAction(state).getSecondAction());
-				Demands randomDemands = new Demands((int) Math.round(samples[i][t]), (int) Math.round(samples[i][t + distributionsMulti.length]));
+				Actions actions = recursion.getAction(state);
+				randomDemands.set((int) Math.round(samples.get(i, t)), (int) Math.round(samples.get(i, t + distributionsMulti.length)));
 				sum += Math.pow(discountFactor, t) * immediateValue.apply(state, actions, randomDemands);
 				state = stateTransition.apply(state, actions, randomDemands);				
 			}
 			simuValues[i] = sum;			
 		}
+		event.commit("CashSimulationMulti", samples.getSampleNum(), distributionsMulti.length, 1, false);
 		DecimalFormat df2 = new DecimalFormat("###,###");
-		double simFinalValue = Arrays.stream(simuValues).sum()/samples.length + iniState.iniCash;
+		double simFinalValue = Arrays.stream(simuValues).sum()/samples.getSampleNum() + iniState.iniCash;
 		System.out.println("\nfinal simulated expected value in " + df2.format(sampleNum) + " samples is: " + simFinalValue);
 		return simFinalValue;
 	}
@@ -17,11 +17,13 @@ import java.util.function.Function;
 import sdp.inventory.ImmediateValue.ImmediateValueFunction;
 import sdp.inventory.StateTransition.StateTransitionFunction;
 import sdp.sampling.Sampling;
+import sdp.sampling.Sampling.SampleMethod;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdistmulti.BiNormalDist;
 
 public class CashSimulationMultiXR {
 	int sampleNum;
+	SampleMethod sampleMethod = SampleMethod.LHS;
 
 	
 	Distribution[][] distributionsMulti;
@@ -52,6 +54,13 @@ public class CashSimulationMultiXR {
 		this.sampleNum = n;
 	}
 	
+	/**
+	 * @param sampleMethod LHS by default, or randomized quasi-Monte Carlo
+	 */
+	public void setSampleMethod(SampleMethod sampleMethod) {
+		this.sampleMethod = sampleMethod;
+	}
+	
 	/**
 	 * 
 	 * @param iniState
@@ -60,7 +69,7 @@ public class CashSimulationMultiXR {
 	public double simulateSDPGivenSamplNum(CashStateMultiXR iniState) {
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributionsMulti, sampleNum);
+		double[][] samples = sampling.generateSamples(distributionsMulti, sampleNum, sampleMethod);
 		
 //		double sumD = 0;
 //		for(int i = 0; i < samples.length; i++) {
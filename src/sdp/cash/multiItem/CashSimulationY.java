@@ -9,7 +9,9 @@ import java.util.Arrays;
 import sdp.inventory.ImmediateValue.ImmediateValueFunction;
 import sdp.inventory.StateTransition.StateTransitionFunction;
 import sdp.inventory.StateTransition.StateTransitionFunctionV;
+import sdp.sampling.SampleColumns;
 import sdp.sampling.Sampling;
+import sdp.sampling.Sampling.SampleMethod;
 import umontreal.ssj.probdist.Distribution;
 
 /**
@@ -21,6 +23,7 @@ import umontreal.ssj.probdist.Distribution;
  */
 public class CashSimulationY {
 	int sampleNum;	
+	SampleMethod sampleMethod = SampleMethod.LHS;
 	Distribution[][] distributionsMulti;	
 	double discountFactor;	
 	CashRecursionV recursion;
@@ -52,20 +55,27 @@ public class CashSimulationY {
 		this.sampleNum = n;
 	}
 	
+	/**
+	 * @param sampleMethod LHS by default, or randomized quasi-Monte Carlo
+	 */
+	public void setSampleMethod(SampleMethod sampleMethod) {
+		this.sampleMethod = sampleMethod;
+	}
+	
 	public double simulateSDPGivenSamplNum(CashStateMulti iniState, double[] variCost) {
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributionsMulti, sampleNum);
+		SampleColumns samples = sampling.generateColumns(distributionsMulti, sampleNum, sampleMethod);
 		
-		double[] simuValues = new double[samples.length];		
-		for (int i = 0; i < samples.length; i++) {
+		double[] simuValues = new double[samples.getSampleNum()];		
+		for (int i = 0; i < samples.getSampleNum(); i++) {
 			double finalValue = 0; 
 			CashStateMulti state = iniState;
 			for (int t = 0; t < distributionsMulti[0].length; t++) {
 				CashStateR stateR = new CashStateR(t + 1, state.getIniCash() + variCost[0] * state.getIniInventory1() + variCost[1] * state.getIniInventory2());
 				double[] actionY = recursion.getYStar(stateR);
 				double[] actions = new double[] {0, 0};
-				double[] randomDemands = new double[] {samples[i][t* 2], samples[i][t* 2 + 1]};
+				double[] randomDemands = new double[] {samples.get(i, t* 2), samples.get(i, t* 2 + 1)};
 				double alpha = 0;
 				if (state.getIniInventory1() < actionY[0]+0.1 && state.getIniInventory2() < actionY[1]
 						&& variCost[0] * actionY[0] + variCost[1] * actionY[1] < stateR.iniR+0.1) {
@@ -98,7 +108,7 @@ public class CashSimulationY {
 			simuValues[i] = finalValue;
 		}
 		DecimalFormat df2 = new DecimalFormat("###,###");
-		double simFinalValue = Arrays.stream(simuValues).sum()/samples.length;
+		double simFinalValue = Arrays.stream(simuValues).sum()/samples.getSampleNum();
 		System.out.println("\nfinal simulated expected value for this policy in " + df2.format(sampleNum) + " samples is: " + df2.format(simFinalValue));
 		return simFinalValue;
 	}
@@ -113,16 +123,16 @@ public class CashSimulationY {
 	public double simulateSDPGivenSamplNum2(CashStateMulti iniState, double[] variCost) {
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributionsMulti, sampleNum);
+		SampleColumns samples = sampling.generateColumns(distributionsMulti, sampleNum, sampleMethod);
 		
-		double[] simuValues = new double[samples.length];		
-		for (int i = 0; i < samples.length; i++) {
+		double[] simuValues = new double[samples.getSampleNum()];		
+		for (int i = 0; i < samples.getSampleNum(); i++) {
 			double finalValue = 0; 
 			CashStateMulti state = iniState;
 			for (int t = 0; t < distributionsMulti[0].length; t++) {
 				double[] actionY = recursion2.getYStar(state);
 				double[] actions = new double[] {0, 0};
-				double[] randomDemands = new double[] {samples[i][t* 2], samples[i][t* 2 + 1]};
+				double[] randomDemands = new double[] {samples.get(i, t* 2), samples.get(i, t* 2 + 1)};
 				double alpha = 0;
 				if (state.getIniInventory1() < actionY[0]+0.1 && state.getIniInventory2() < actionY[1]
 						&& variCost[0] * (actionY[0]-state.iniInventory1) + variCost[1] * (actionY[1]-state.iniInventory2) < state.iniCash+0.1) {
@@ -155,7 +165,7 @@ public class CashSimulationY {
 			simuValues[i] = finalValue;
 		}
 		DecimalFormat df2 = new DecimalFormat("###,###");
-		double simFinalValue = Arrays.stream(simuValues).sum()/samples.length;
+		double simFinalValue = Arrays.stream(simuValues).sum()/samples.getSampleNum();
 		System.out.println("\nfinal simulated expected value for this policy in " + df2.format(sampleNum) + " samples is: " + df2.format(simFinalValue));
 		return simFinalValue;
 	}
@@ -172,17 +182,17 @@ public class CashSimulationY {
 	public double simulateSDPGivenSamplNuma1a2(CashStateMulti iniState, double[] variCost, double[] a1, double[] a2) {
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributionsMulti, sampleNum);
+		SampleColumns samples = sampling.generateColumns(distributionsMulti, sampleNum, sampleMethod);
 		
-		double[] simuValues = new double[samples.length];		
-		for (int i = 0; i < samples.length; i++) {
+		double[] simuValues = new double[samples.getSampleNum()];		
+		for (int i = 0; i < samples.getSampleNum(); i++) {
 			double finalValue = 0; 
 			CashStateMulti state = iniState;
 			for (int t = 0; t < distributionsMulti[0].length; t++) {
 				CashStateR stateR = new CashStateR(t + 1, state.getIniCash() + variCost[0] * state.getIniInventory1() + variCost[1] * state.getIniInventory2());
 				double[] actionY = new double[] {a1[t], a2[t]};
 				double[] actions = new double[] {0, 0};
-				double[] randomDemands = new double[] {samples[i][t* 2], samples[i][t* 2 + 1]};
+				double[] randomDemands = new double[] {samples.get(i, t* 2), samples.get(i, t* 2 + 1)};
 				double alpha = 0;
 				if (state.getIniInventory1() < actionY[0]+0.1 && state.getIniInventory2() < actionY[1]
 						&& variCost[0] * actionY[0] + variCost[1] * actionY[1] < stateR.iniR+0.1) {
@@ -215,7 +225,7 @@ public class CashSimulationY {
 			simuValues[i] = finalValue;
 		}
 		DecimalFormat df2 = new DecimalFormat("###,###");
-		double simFinalValue = Arrays.stream(simuValues).sum()/samples.length;
+		double simFinalValue = Arrays.stream(simuValues).sum()/samples.getSampleNum();
 		System.out.println("\nfinal simulated expected value for this policy in " + df2.format(sampleNum) + " samples is: " + df2.format(simFinalValue));
 		return simFinalValue;
 	}
@@ -232,17 +242,17 @@ public class CashSimulationY {
 	public double simulateSDPGivenSamplNuma1a22(CashStateMulti iniState, double[] variCost, double[] a1, double[] a2) {
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributionsMulti, sampleNum);
+		SampleColumns samples = sampling.generateColumns(distributionsMulti, sampleNum, sampleMethod);
 		
-		double[] simuValues = new double[samples.length];		
-		for (int i = 0; i < samples.length; i++) {
+		double[] simuValues = new double[samples.getSampleNum()];		
+		for (int i = 0; i < samples.getSampleNum(); i++) {
 			double finalValue = 0; 
 			CashStateMulti state = iniState;
 			for (int t = 0; t < distributionsMulti[0].length; t++) {
 				CashStateR stateR = new CashStateR(t + 1, state.getIniCash() + variCost[0] * state.getIniInventory1() + variCost[1] * state.getIniInventory2());
 				double[] actionY = new double[] {a1[t], a2[t]};
 				double[] actions = new double[] {0, 0};
-				double[] randomDemands = new double[] {samples[i][t* 2], samples[i][t* 2 + 1]};
+				double[] randomDemands = new double[] {samples.get(i, t* 2), samples.get(i, t* 2 + 1)};
 				double alpha = 0;
 				if (state.getIniInventory1() < actionY[0]+0.1 && state.getIniInventory2() < actionY[1]
 						&& variCost[0] * (actionY[0]-state.iniInventory1) + variCost[1] * (actionY[1]-state.iniInventory2) < state.iniCash+0.1) {
@@ -275,7 +285,7 @@ public class CashSimulationY {
 			simuValues[i] = finalValue;
 		}
 		DecimalFormat df2 = new DecimalFormat("###,###");
-		double simFinalValue = Arrays.stream(simuValues).sum()/samples.length;
+		double simFinalValue = Arrays.stream(simuValues).sum()/samples.getSampleNum();
 		System.out.println("\nfinal simulated expected value for this policy in " + df2.format(sampleNum) + " samples is: " + df2.format(simFinalValue));
 		return simFinalValue;
 	}
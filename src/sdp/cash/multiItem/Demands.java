@@ -31,5 +31,13 @@ public class Demands {
 	public int getSecondDemand() {
 		return demand2;
 	}
+	
+	/**
+	 * reuse this object as a carrier of another pair of demands
+	 */
+	void set(int demand1, int demand2) {
+		this.demand1 = demand1;
+		this.demand2 = demand2;
+	}
 
 }
@@ -11,6 +11,7 @@ package sdp.cash.multiItem;
 
 
 
+import sdp.inventory.SolverEvents;
 import umontreal.ssj.probdist.DiscreteDistribution;
 import umontreal.ssj.probdist.DiscreteDistributionInt;
 import umontreal.ssj.probdist.Distribution;
@@ -38,7 +39,19 @@ public class GetPmfMulti {
 	
 	
 	
+	/**
+	 * @param t period index, from 0
+	 * @return demands of the two items and their possibilities, a flight recording gets a PmfBuild event of each call
+	 */
 	public double[][] getPmf(int t){
+		SolverEvents.PmfBuild event = new SolverEvents.PmfBuild();
+		event.begin();
+		double[][] pmf = buildPmf(t);
+		event.commit("GetPmfMulti", 1, pmf == null ? 0 : pmf.length);
+		return pmf;
+	}
+	
+	double[][] buildPmf(int t){
 		stepSize = 1;
 		if (t > 4)
 			stepSize = 4;
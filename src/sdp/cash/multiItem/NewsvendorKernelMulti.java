@@ -0,0 +1,145 @@
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 18, 2026, 3:48:12 PM
+ * @Desc: evaluation kernel for the linear-cost newsvendor reward of two items, e.g., in MultiItemCashLookPolicy:
+ * 		  revenue p1 * min(y1, d1) + p2 * min(y2, d2), ordering cost v1 * Q1 + v2 * Q2 and salvage values in the
+ * 		  salvage period.
+ *
+ * 		  The joint demands and possibilities of each period are kept in three contiguous arrays, the immediate values
+ * 		  and next states of all the demand points are computed in one loop over them.
+ * 		  Like the transition functions of the multi item problems, next states are truncated to integers, and both
+ * 		  inventories are bounded by [minInventoryState, maxInventoryState]; maxDifference compares the kernel with the
+ * 		  functions of a model, which the simulation still uses.
+ *
+ */
+package sdp.cash.multiItem;
+
+import sdp.inventory.ImmediateValue.ImmediateValueFunctionMulti;
+import sdp.inventory.StateTransition.StateTransitionFunctionMulti;
+
+public class NewsvendorKernelMulti {
+	double[][] demands1; // demands1[t][j]
+	double[][] demands2;
+	double[][] possibilities;
+	int maxLength;
+
+	double[] price;
+	double[] variCost;
+	double[] salvageValue;
+	int salvagePeriod;
+
+	double minInventoryState = 0;
+	double maxInventoryState = Double.MAX_VALUE;
+	double minCashState = -Double.MAX_VALUE;
+	double maxCashState = Double.MAX_VALUE;
+
+	/**
+	* @param pmf joint demands and possibilities {d1, d2, p} of each period
+	* @param salvagePeriod period in which the salvage values are received, same as the immediate value function
+	*/
+	public NewsvendorKernelMulti(double[][][] pmf, double[] price, double[] variCost, double[] salvageValue, int salvagePeriod) {
+		int T = pmf.length;
+		this.demands1 = new double[T][];
+		this.demands2 = new double[T][];
+		this.possibilities = new double[T][];
+		for (int t = 0; t < T; t++) {
+			int n = pmf[t].length;
+			demands1[t] = new double[n];
+			demands2[t] = new double[n];
+			possibilities[t] = new double[n];
+			for (int j = 0; j < n; j++) {
+				demands1[t][j] = (int) pmf[t][j][0];
+				demands2[t][j] = (int) pmf[t][j][1];
+				possibilities[t][j] = pmf[t][j][2];
+			}
+			maxLength = Math.max(maxLength, n);
+		}
+		this.price = price;
+		this.variCost = variCost;
+		this.salvageValue = salvageValue;
+		this.salvagePeriod = salvagePeriod;
+	}
+
+
+	/**
+	* @Description: bounds of the next states, same as the ones in the state transition function
+	*/
+	public void setStateBounds(double minInventoryState, double maxInventoryState, double minCashState, double maxCashState) {
+		this.minInventoryState = minInventoryState;
+		this.maxInventoryState = maxInventoryState;
+		this.minCashState = minCashState;
+		this.maxCashState = maxCashState;
+	}
+
+
+	/**
+	* @return buffers {next inventory 1, next inventory 2, next cash} long enough for any period
+	*/
+	public double[][] newBuffers() {
+		return new double[3][maxLength];
+	}
+
+
+	public double[] getPossibilities(int period) {
+		return possibilities[period - 1];
+	}
+
+
+	/**
+	* @Description: expected immediate value of (Q1, Q2), next states of the demand points are written into the buffers
+	*/
+	public double evaluate(int period, double x1, double x2, double cash, double q1, double q2, double[][] buffers) {
+		double[] d1 = demands1[period - 1];
+		double[] d2 = demands2[period - 1];
+		double[] p = possibilities[period - 1];
+		double[] nextInventory1 = buffers[0];
+		double[] nextInventory2 = buffers[1];
+		double[] nextCash = buffers[2];
+		int n = p.length;
+
+		double y1 = x1 + q1;
+		double y2 = x2 + q2;
+		double orderingCosts = variCost[0] * q1 + variCost[1] * q2;
+		double salvage1 = period == salvagePeriod ? salvageValue[0] : 0;
+		double salvage2 = period == salvagePeriod ? salvageValue[1] : 0;
+
+		double expectedValue = 0;
+		for (int j = 0; j < n; j++) {
+			double endInventory1 = Math.max(0, y1 - d1[j]);
+			double endInventory2 = Math.max(0, y2 - d2[j]);
+			double revenue = price[0] * (y1 - endInventory1) + price[1] * (y2 - endInventory2);
+			double value = revenue - orderingCosts + salvage1 * endInventory1 + salvage2 * endInventory2;
+			expectedValue += p[j] * value;
+			nextInventory1[j] = (int) Math.min(Math.max(endInventory1, minInventoryState), maxInventoryState);
+			nextInventory2[j] = (int) Math.min(Math.max(endInventory2, minInventoryState), maxInventoryState);
+			nextCash[j] = (int) Math.min(Math.max(cash + value, minCashState), maxCashState);
+		}
+		return expectedValue;
+	}
+
+
+	/**
+	* @return largest difference between this kernel and the primitive functions of the model at a state and actions,
+	* 		  over the expected immediate value and the next states of all the demand points, 0 if they describe the same model
+	*/
+	public double maxDifference(CashStateMulti state, int q1, int q2, ImmediateValueFunctionMulti immediateValue,
+			StateTransitionFunctionMulti stateTransition) {
+		int period = state.period;
+		double[][] buffers = newBuffers();
+		double kernelValue = evaluate(period, state.iniInventory1, state.iniInventory2, state.iniCash, q1, q2, buffers);
+		double[] d1 = demands1[period - 1];
+		double[] d2 = demands2[period - 1];
+		double[] p = possibilities[period - 1];
+		double[] nextState = new double[3];
+		double modelValue = 0;
+		double difference = 0;
+		for (int j = 0; j < p.length; j++) {
+			modelValue += p[j] * immediateValue.apply(period, state.iniInventory1, state.iniInventory2, state.iniCash, q1, q2, d1[j], d2[j]);
+			stateTransition.apply(period, state.iniInventory1, state.iniInventory2, state.iniCash, q1, q2, d1[j], d2[j], nextState);
+			for (int k = 0; k < 3; k++)
+				difference = Math.max(difference, Math.abs(nextState[k] - buffers[k][j]));
+		}
+		return Math.max(difference, Math.abs(modelValue - kernelValue));
+	}
+}
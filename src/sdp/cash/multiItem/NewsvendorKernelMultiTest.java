@@ -0,0 +1,112 @@
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026, 10:05:21 AM
+ * @Desc: check that NewsvendorKernelMulti describes the same model as the primitive lambdas of MultiItemCashLookPolicy,
+ *        with inventory bounds that are reached by both items, and that the recursion with the kernel finds the same
+ *        values and actions as the recursion with the lambdas. Throws IllegalStateException at the first difference.
+ *
+ */
+package sdp.cash.multiItem;
+
+import java.util.Map;
+
+import sdp.inventory.ImmediateValue.ImmediateValueFunctionMulti;
+import sdp.inventory.StateTransition.StateTransitionFunctionMulti;
+import sdp.sampling.ProductIterator;
+
+public class NewsvendorKernelMultiTest {
+
+	/**
+	 * joint demands {2i, 2j} of equal possibilities in each period
+	 */
+	static double[][][] pmf(int T, int demandNum) {
+		double[][][] pmf = new double[T][demandNum * demandNum][];
+		for (int t = 0; t < T; t++)
+			for (int i = 0; i < demandNum; i++)
+				for (int j = 0; j < demandNum; j++)
+					pmf[t][i * demandNum + j] = new double[] {2 * i, 2 * j, 1.0 / (demandNum * demandNum)};
+		return pmf;
+	}
+
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	}
+
+	public static void main(String[] args) {
+		double[] price = {10, 5};
+		double[] variCost = {4, 2};
+		double[] salPrice = {2, 1};
+		int T = 4;
+		double minCashState = 0;
+		double maxCashState = 60;
+		int minInventoryState = 0;
+		int maxInventoryState = 5;
+		int Qbound = 8;
+		double[][][] pmf = pmf(T, 4);
+
+		ImmediateValueFunctionMulti immediateValueMulti = (period, x1, x2, cash, action1, action2, demand1, demand2) -> {
+			double endInventory1 = Math.max(0, x1 + action1 - demand1);
+			double endInventory2 = Math.max(0, x2 + action2 - demand2);
+			double revenue = price[0] * (x1 + action1 - endInventory1)
+					+ price[1] * (x2 + action2 - endInventory2);
+			double orderingCosts = variCost[0] * action1 + variCost[1] * action2;
+			double salValue = 0;
+			if (period == T - 1) {
+				salValue = salPrice[0] * endInventory1 + salPrice[1] * endInventory2;
+			}
+			return revenue - orderingCosts + salValue;
+		};
+		StateTransitionFunctionMulti stateTransitionMulti = (period, x1, x2, cash, action1, action2, demand1, demand2, nextState) -> {
+			double endInventory1 = Math.max(0, x1 + action1 - demand1);
+			double endInventory2 = Math.max(0, x2 + action2 - demand2);
+			double nextCash = cash + immediateValueMulti.apply(period, x1, x2, cash, action1, action2, demand1, demand2);
+			nextCash = nextCash > maxCashState ? maxCashState : nextCash;
+			nextCash = nextCash < minCashState ? minCashState : nextCash;
+			endInventory1 = Math.min(Math.max(endInventory1, minInventoryState), maxInventoryState);
+			endInventory2 = Math.min(Math.max(endInventory2, minInventoryState), maxInventoryState);
+			nextState[0] = (int) endInventory1;
+			nextState[1] = (int) endInventory2;
+			nextState[2] = (int) nextCash;
+		};
+		NewsvendorKernelMulti kernel = new NewsvendorKernelMulti(pmf, price, variCost, salPrice, T - 1);
+		kernel.setStateBounds(minInventoryState, maxInventoryState, minCashState, maxCashState);
+
+		// kernel and lambdas, including order-up-to levels above the inventory bound for both items
+		double maxDifference = 0;
+		for (int t = 1; t <= T; t++)
+			for (int x1 = 0; x1 <= maxInventoryState; x1++)
+				for (int x2 = 0; x2 <= maxInventoryState; x2++)
+					for (int q1 = 0; q1 < Qbound; q1++)
+						for (int q2 = 0; q2 < Qbound; q2++) {
+							CashStateMulti state = new CashStateMulti(t, x1, x2, 40);
+							maxDifference = Math.max(maxDifference, kernel.maxDifference(state, q1, q2, immediateValueMulti, stateTransitionMulti));
+						}
+		check(maxDifference < 1e-9, "the kernel differs from the lambdas by " + maxDifference);
+		System.out.println("kernel and lambdas differ by " + maxDifference);
+
+		// recursions with the lambdas and with the kernel
+		double[] qAxis = ProductIterator.range(0, Qbound, 1);
+		CashRecursionMulti recursion = new CashRecursionMulti(1, pmf, null, null, null, T);
+		recursion.setActionSpace(s -> new ProductIterator(qAxis, qAxis).filter(ProductIterator.withinBudget(variCost, s.getIniCash())));
+		recursion.setPrimitiveFunctions(stateTransitionMulti, immediateValueMulti);
+		CashRecursionMulti kernelRecursion = new CashRecursionMulti(1, pmf, null, null, null, T);
+		kernelRecursion.setActionSpace(s -> new ProductIterator(qAxis, qAxis).filter(ProductIterator.withinBudget(variCost, s.getIniCash())));
+		kernelRecursion.setPrimitiveFunctions(stateTransitionMulti, immediateValueMulti);
+		kernelRecursion.setKernel(kernel);
+		CashStateMulti iniState = new CashStateMulti(1, 0, 0, 20);
+		double value = recursion.getExpectedValueMulti(iniState);
+		double kernelValue = kernelRecursion.getExpectedValueMulti(iniState);
+		check(Math.abs(value - kernelValue) < 1e-9, "optimal values differ: " + value + " and " + kernelValue);
+		Map<CashStateMulti, Actions> actions = recursion.getCacheActions();
+		Map<CashStateMulti, Actions> kernelActions = kernelRecursion.getCacheActions();
+		check(actions.size() == kernelActions.size(), "solved state numbers differ");
+		for (Map.Entry<CashStateMulti, Actions> entry : actions.entrySet()) {
+			Actions kernelAction = kernelActions.get(entry.getKey());
+			check(kernelAction != null && entry.getValue().getFirstAction() == kernelAction.getFirstAction()
+					&& entry.getValue().getSecondAction() == kernelAction.getSecondAction(), "optimal actions differ at " + entry.getKey());
+		}
+		System.out.println("optimal values and actions are equal at " + actions.size() + " states, value " + value);
+	}
+}
@@ -0,0 +1,487 @@
+package sdp.cash.multiItem;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026
+ * @Desc: off-heap value and action tables of CashRecursionMulti on a dense (period, x1, x2, cash) grid,
+ *        so a huge solve runs with a small heap and the garbage collector does not scan the tables.
+ *
+ *        Each grid state has 16 bytes of direct memory: the value and the two actions. The memory is split into
+ *        direct buffers of 1 GB, indexed by long, so the table is not limited to 2^31 states. Whether the value and
+ *        the actions of a state are solved is kept in two bitmaps of direct memory, so any value, NaN included, can be
+ *        stored. A presence bit is set with a release write after its entry, so the parallel solves read complete
+ *        entries; when two threads put the first value of a state at the same time, one of the two values is kept,
+ *        and they are equal in a recursion. The iterations, e.g., of a checkpoint, skip the bitmap words of unsolved
+ *        states. States off the grid, e.g., a cash beyond the bounds, are kept in small heap maps.
+ *
+ *        close() ends the use of the table, e.g., in a try-with-resources block around the solve and the use of the policy.
+ *        It does not free the native memory: Java 15 has no public way to free a direct buffer before it is collected.
+ *        Instead the buffers of a closed table go to a pool, and the next tables with the same chunk sizes take them
+ *        instead of allocating more direct memory, so repeated solves in one JVM do not grow the direct memory.
+ *        clearPool() drops the pooled buffers, whose memory is then freed when they are collected. Repeated solves
+ *        can also reuse one table and reset() it between them. The JVM option -XX:MaxDirectMemorySize should be
+ *        larger than getBytes().
+ *
+ */
+public class OffHeapTable implements AutoCloseable {
+	static final int CHUNK_BITS = 26; // 2^26 states of 16 bytes in a direct buffer of 1 GB
+	static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+	static final int ENTRY_BYTES = 16;
+	static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+	static final Map<Integer, Queue<ByteBuffer>> POOL = new ConcurrentHashMap<>(); // buffers of the closed tables by capacity
+
+	int T;
+	double[] mins; // {x1, x2, cash}
+	double[] steps;
+	int[] nums;
+	long stateNum;
+	ByteBuffer[] chunks;
+	ByteBuffer[] valueBits; // bit i % 64 of the long i / 64 of a chunk is whether the value of its state i is solved
+	ByteBuffer[] actionBits;
+	Comparator<CashStateMulti> keyComparator; // order of the states as in the heap maps
+	LongAdder valueNum = new LongAdder();
+	LongAdder actionNum = new LongAdder();
+	Map<CashStateMulti, Double> overflowValues;
+	Map<CashStateMulti, Actions> overflowActions;
+	Map<CashStateMulti, Double> values = new ValueView();
+	Map<CashStateMulti, Actions> actions = new ActionView();
+
+	/**
+	 * @param T number of periods
+	 * @param min1 minimum x1 of the grid
+	 * @param step1 step of x1
+	 * @param num1 number of x1 values
+	 * @param min2
+	 * @param step2
+	 * @param num2
+	 * @param minCash
+	 * @param stepCash
+	 * @param numCash
+	 */
+	public OffHeapTable(int T, double min1, double step1, int num1, double min2, double step2, int num2,
+			double minCash, double stepCash, int numCash) {
+		if (T < 1 || num1 < 1 || num2 < 1 || numCash < 1 || step1 <= 0 || step2 <= 0 || stepCash <= 0)
+			throw new IllegalArgumentException("periods, steps and numbers of grid values should be positive");
+		this.T = T;
+		this.mins = new double[] {min1, min2, minCash};
+		this.steps = new double[] {step1, step2, stepCash};
+		this.nums = new int[] {num1, num2, numCash};
+		this.stateNum = (long) T * num1 * num2 * numCash;
+		int chunkNum = (int) ((stateNum + CHUNK_MASK) >>> CHUNK_BITS);
+		this.chunks = new ByteBuffer[chunkNum];
+		this.valueBits = new ByteBuffer[chunkNum];
+		this.actionBits = new ByteBuffer[chunkNum];
+		for (int k = 0; k < chunkNum; k++) {
+			long chunkStates = Math.min(stateNum - ((long) k << CHUNK_BITS), 1L << CHUNK_BITS);
+			chunks[k] = allocate((int) (chunkStates * ENTRY_BYTES));
+			valueBits[k] = allocate((int) ((chunkStates + 63) >>> 6) * 8);
+			actionBits[k] = allocate((int) ((chunkStates + 63) >>> 6) * 8);
+		}
+		clearBits(valueBits); // pooled bitmaps keep the states of their last table
+		clearBits(actionBits);
+
+		this.keyComparator = (o1, o2) -> o1.getPeriod() > o2.getPeriod() ? 1 :
+			o1.getPeriod() == o2.getPeriod() ? o1.getIniInventory1() > o2.getIniInventory1() ? 1 :
+				o1.getIniInventory1() == o2.getIniInventory1() ? o1.getIniInventory2() > o2.getIniInventory2() ? 1 :
+					o1.getIniInventory2() == o2.getIniInventory2() ? o1.iniCash > o2.iniCash  ? 1 :
+					o1.iniCash == o2.iniCash ? 0 : -1: -1 : -1 : -1;
+		this.overflowValues = new ConcurrentSkipListMap<>(keyComparator);
+		this.overflowActions = new ConcurrentSkipListMap<>(keyComparator);
+	}
+
+	/**
+	 * @return a direct buffer of the capacity, a pooled buffer of a closed table if there is one
+	 */
+	static ByteBuffer allocate(int capacity) {
+		Queue<ByteBuffer> pooled = POOL.get(capacity);
+		ByteBuffer buffer = pooled != null ? pooled.poll() : null;
+		return buffer != null ? buffer : ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+	}
+
+	static void release(ByteBuffer[] buffers) {
+		for (ByteBuffer buffer : buffers)
+			POOL.computeIfAbsent(buffer.capacity(), capacity -> new ConcurrentLinkedQueue<>()).add(buffer);
+	}
+
+	/**
+	 * drop the pooled buffers of the closed tables, their direct memory is freed when they are collected
+	 */
+	public static void clearPool() {
+		POOL.clear();
+	}
+
+	/**
+	 * @return index of the state in the table, -1 if it is not on the grid
+	 */
+	long index(CashStateMulti s) {
+		if (s.period < 1 || s.period > T)
+			return -1;
+		long index = s.period - 1;
+		double[] coordinates = {s.iniInventory1, s.iniInventory2, s.iniCash};
+		for (int a = 0; a < 3; a++) {
+			double position = (coordinates[a] - mins[a]) / steps[a];
+			long i = Math.round(position);
+			if (i < 0 || i >= nums[a] || Math.abs(position - i) > 1e-9)
+				return -1;
+			index = index * nums[a] + i;
+		}
+		return index;
+	}
+
+	/**
+	 * @return grid state of an index
+	 */
+	CashStateMulti getState(long index) {
+		double[] coordinates = new double[3];
+		for (int a = 2; a >= 0; a--) {
+			coordinates[a] = mins[a] + (index % nums[a]) * steps[a];
+			index /= nums[a];
+		}
+		return new CashStateMulti((int) index + 1, coordinates[0], coordinates[1], coordinates[2]);
+	}
+
+	/**
+	 * @param buffers the entries or a bitmap
+	 * @return the buffer of the chunk of an index
+	 */
+	static ByteBuffer chunk(ByteBuffer[] buffers, long index) {
+		if (buffers == null)
+			throw new IllegalStateException("the off-heap table is closed");
+		return buffers[(int) (index >>> CHUNK_BITS)];
+	}
+
+	static int offset(long index) {
+		return (int) (index & CHUNK_MASK) * ENTRY_BYTES;
+	}
+
+	static int wordOffset(long index) {
+		return (int) ((index & CHUNK_MASK) >>> 6) * 8;
+	}
+
+	static boolean isSet(ByteBuffer[] bits, long index) {
+		return ((long) LONGS.getAcquire(chunk(bits, index), wordOffset(index)) & (1L << index)) != 0;
+	}
+
+	/**
+	 * set a presence bit after its entry is written
+	 * @return whether the bit is new
+	 */
+	static boolean set(ByteBuffer[] bits, long index) {
+		long bit = 1L << index; // the shift only takes index % 64
+		return ((long) LONGS.getAndBitwiseOrRelease(chunk(bits, index), wordOffset(index), bit) & bit) == 0;
+	}
+
+	/**
+	 * @return the first index from which a bit is set, stateNum if there is none; the words of 64 unsolved states
+	 *         are skipped at once
+	 */
+	long nextSetIndex(ByteBuffer[] bits, long from) {
+		while (from < stateNum) {
+			long word = (long) LONGS.getAcquire(chunk(bits, from), wordOffset(from)) & (-1L << from);
+			if (word != 0)
+				return (from & ~63L) + Long.numberOfTrailingZeros(word);
+			from = (from | 63) + 1;
+		}
+		return stateNum;
+	}
+
+	static void clearBits(ByteBuffer[] bits) {
+		if (bits == null)
+			throw new IllegalStateException("the off-heap table is closed");
+		for (ByteBuffer bitmap : bits)
+			for (int offset = 0; offset < bitmap.capacity(); offset += 8)
+				bitmap.putLong(offset, 0L);
+		VarHandle.fullFence();
+	}
+
+	/**
+	 * @return value of the state of an index, null if it is not solved
+	 */
+	Double getValue(long index) {
+		if (!isSet(valueBits, index))
+			return null;
+		return Double.longBitsToDouble((long) LONGS.get(chunk(chunks, index), offset(index)));
+	}
+
+	/**
+	 * @return whether the value is new
+	 */
+	boolean putValue(long index, double value, boolean onlyIfAbsent) {
+		if (onlyIfAbsent && isSet(valueBits, index))
+			return false;
+		LONGS.set(chunk(chunks, index), offset(index), Double.doubleToRawLongBits(value));
+		boolean isNew = set(valueBits, index);
+		if (isNew)
+			valueNum.increment();
+		return isNew;
+	}
+
+	/**
+	 * @return actions of the state of an index, null if they are not solved
+	 */
+	Actions getActions(long index) {
+		if (!isSet(actionBits, index))
+			return null;
+		long bits = (long) LONGS.get(chunk(chunks, index), offset(index) + 8);
+		return new Actions((int) (bits >> 32), (int) bits);
+	}
+
+	/**
+	 * @return whether the actions are new
+	 */
+	boolean putActions(long index, Actions actions, boolean onlyIfAbsent) {
+		if (onlyIfAbsent && isSet(actionBits, index))
+			return false;
+		long bits = (long) actions.getFirstAction() << 32 | (actions.getSecondAction() & 0xffffffffL);
+		LONGS.set(chunk(chunks, index), offset(index) + 8, bits);
+		boolean isNew = set(actionBits, index);
+		if (isNew)
+			actionNum.increment();
+		return isNew;
+	}
+
+	/**
+	 * @return the value table, e.g., as cacheValues of CashRecursionMulti
+	 */
+	public Map<CashStateMulti, Double> values() {
+		return values;
+	}
+
+	/**
+	 * @return the action table, e.g., as cacheActions of CashRecursionMulti
+	 */
+	public Map<CashStateMulti, Actions> actions() {
+		return actions;
+	}
+
+	/**
+	 * @return bytes of direct memory, the entries and the two bitmaps
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		for (int k = 0; k < chunks.length; k++)
+			bytes += chunks[k].capacity() + valueBits[k].capacity() + actionBits[k].capacity();
+		return bytes;
+	}
+
+	/**
+	 * @return number of the solved states off the grid, kept on the heap
+	 */
+	public int getOverflowNum() {
+		return overflowValues.size();
+	}
+
+	/**
+	 * forget the solved states, e.g., before the next solve, not during a solve; the direct memory is kept, and
+	 * only the bitmaps are cleared
+	 */
+	public void reset() {
+		values.clear();
+		actions.clear();
+	}
+
+	/**
+	 * end the use of the tables, they can not be used after closing, nor their iterators. The native memory is not
+	 * freed: the buffers go to the pool for the next tables, see clearPool()
+	 */
+	@Override
+	public synchronized void close() {
+		if (chunks != null) {
+			release(chunks);
+			release(valueBits);
+			release(actionBits);
+		}
+		chunks = null;
+		valueBits = null;
+		actionBits = null;
+		overflowValues.clear();
+		overflowActions.clear();
+	}
+
+	/**
+	 * solved entries in the order of the states, the grid entries are merged with those off the grid
+	 */
+	class EntryIterator<V> implements Iterator<Map.Entry<CashStateMulti, V>> {
+		ByteBuffer[] bits;
+		LongFunction<V> gridValue;
+		Iterator<Map.Entry<CashStateMulti, V>> overflow;
+		long index = -1;
+		Map.Entry<CashStateMulti, V> nextGrid;
+		Map.Entry<CashStateMulti, V> nextOverflow;
+
+		EntryIterator(ByteBuffer[] bits, LongFunction<V> gridValue, Map<CashStateMulti, V> overflowMap) {
+			this.bits = bits;
+			this.gridValue = gridValue;
+			this.overflow = overflowMap.entrySet().iterator();
+			advanceGrid();
+			nextOverflow = overflow.hasNext() ? overflow.next() : null;
+		}
+
+		void advanceGrid() {
+			nextGrid = null;
+			index = nextSetIndex(bits, index + 1);
+			if (index < stateNum)
+				nextGrid = new AbstractMap.SimpleImmutableEntry<>(getState(index), gridValue.apply(index));
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextGrid != null || nextOverflow != null;
+		}
+
+		@Override
+		public Map.Entry<CashStateMulti, V> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Map.Entry<CashStateMulti, V> entry;
+			if (nextOverflow == null || (nextGrid != null && keyComparator.compare(nextGrid.getKey(), nextOverflow.getKey()) < 0)) {
+				entry = nextGrid;
+				advanceGrid();
+			}
+			else {
+				entry = nextOverflow;
+				nextOverflow = overflow.hasNext() ? overflow.next() : null;
+			}
+			return entry;
+		}
+	}
+
+	class ValueView extends AbstractMap<CashStateMulti, Double> {
+		@Override
+		public Double get(Object key) {
+			CashStateMulti s = (CashStateMulti) key;
+			long index = index(s);
+			if (index < 0)
+				return overflowValues.get(s);
+			return getValue(index);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Double put(CashStateMulti s, Double value) {
+			long index = index(s);
+			if (index < 0)
+				return overflowValues.put(s, value);
+			Double oldValue = get(s);
+			putValue(index, value, false);
+			return oldValue;
+		}
+
+		@Override
+		public Double putIfAbsent(CashStateMulti s, Double value) {
+			long index = index(s);
+			if (index < 0)
+				return overflowValues.putIfAbsent(s, value);
+			return putValue(index, value, true) ? null : get(s);
+		}
+
+		@Override
+		public int size() {
+			return (int) Math.min(valueNum.sum() + overflowValues.size(), Integer.MAX_VALUE);
+		}
+
+		@Override
+		public void clear() {
+			clearBits(valueBits);
+			valueNum.reset();
+			overflowValues.clear();
+		}
+
+		@Override
+		public Set<Map.Entry<CashStateMulti, Double>> entrySet() {
+			return new AbstractSet<Map.Entry<CashStateMulti, Double>>() {
+				@Override
+				public Iterator<Map.Entry<CashStateMulti, Double>> iterator() {
+					return new EntryIterator<Double>(valueBits, OffHeapTable.this::getValue, overflowValues);
+				}
+
+				@Override
+				public int size() {
+					return ValueView.this.size();
+				}
+			};
+		}
+	}
+
+	class ActionView extends AbstractMap<CashStateMulti, Actions> {
+		@Override
+		public Actions get(Object key) {
+			CashStateMulti s = (CashStateMulti) key;
+			long index = index(s);
+			return index < 0 ? overflowActions.get(s) : getActions(index);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Actions put(CashStateMulti s, Actions actions) {
+			long index = index(s);
+			if (index < 0)
+				return overflowActions.put(s, actions);
+			Actions oldActions = getActions(index);
+			putActions(index, actions, false);
+			return oldActions;
+		}
+
+		@Override
+		public Actions putIfAbsent(CashStateMulti s, Actions actions) {
+			long index = index(s);
+			if (index < 0)
+				return overflowActions.putIfAbsent(s, actions);
+			return putActions(index, actions, true) ? null : getActions(index);
+		}
+
+		@Override
+		public int size() {
+			return (int) Math.min(actionNum.sum() + overflowActions.size(), Integer.MAX_VALUE);
+		}
+
+		@Override
+		public void clear() {
+			clearBits(actionBits);
+			actionNum.reset();
+			overflowActions.clear();
+		}
+
+		@Override
+		public Set<Map.Entry<CashStateMulti, Actions>> entrySet() {
+			return new AbstractSet<Map.Entry<CashStateMulti, Actions>>() {
+				@Override
+				public Iterator<Map.Entry<CashStateMulti, Actions>> iterator() {
+					return new EntryIterator<Actions>(actionBits, OffHeapTable.this::getActions, overflowActions);
+				}
+
+				@Override
+				public int size() {
+					return ActionView.this.size();
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026, 4:48:05 PM
+ * @Desc: check that OffHeapTable stores any value, NaN and signed zeros included, and any actions exactly,
+ *        tells unsolved states from solved ones by its bitmaps, iterates the solved states in the order of the heap maps,
+ *        gives the values of the heap maps to a recursion solved again after reset(), and gives the buffers of a closed
+ *        table to the next table of the same grid without its states.
+ *        Throws IllegalStateException at the first failure.
+ *
+ */
+package sdp.cash.multiItem;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class OffHeapTableTest {
+
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	}
+
+	static boolean sameBits(Double value, double expected) {
+		return value != null && Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(expected);
+	}
+
+	public static void main(String[] args) {
+		int T = 2;
+		OffHeapTable table = new OffHeapTable(T, 0, 1, 4, 0, 1, 4, -10, 0.5, 41);
+		Map<CashStateMulti, Double> values = table.values();
+		Map<CashStateMulti, Actions> actions = table.actions();
+
+		// encoding of the values and actions
+		double[] storedValues = {Double.NaN, 0.0, -0.0, -3.25, Double.MAX_VALUE, -Double.MAX_VALUE,
+				Double.longBitsToDouble(0x7ff0000000000001L), Double.NEGATIVE_INFINITY};
+		int[][] storedActions = {{0, 0}, {-1, -1}, {Integer.MIN_VALUE, Integer.MAX_VALUE}, {7, -8}};
+		for (int k = 0; k < storedValues.length; k++) {
+			CashStateMulti s = new CashStateMulti(1 + k % T, k % 4, 3 - k % 4, -10 + 2.5 * k);
+			check(values.get(s) == null && !values.containsKey(s), "unsolved " + s + " has a value");
+			check(values.putIfAbsent(s, storedValues[k]) == null, "the first value of " + s + " is not new");
+			check(sameBits(values.get(s), storedValues[k]), "value " + storedValues[k] + " is read as " + values.get(s));
+			check(sameBits(values.putIfAbsent(s, 1.0), storedValues[k]) && sameBits(values.get(s), storedValues[k]),
+					"putIfAbsent replaces the value of " + s);
+			check(actions.get(s) == null, "actions of " + s + " are solved with its value");
+		}
+		for (int k = 0; k < storedActions.length; k++) {
+			CashStateMulti s = new CashStateMulti(2, 3, k, 10);
+			check(actions.put(s, new Actions(0, 0)) == null, "the first actions of " + s + " are not new");
+			Actions old = actions.put(s, new Actions(storedActions[k][0], storedActions[k][1]));
+			Actions read = actions.get(s);
+			check(old != null && old.getFirstAction() == 0 && read.getFirstAction() == storedActions[k][0]
+					&& read.getSecondAction() == storedActions[k][1], "actions " + storedActions[k][0] + ", " + storedActions[k][1] + " are not kept");
+			check(values.get(s) == null, "the value of " + s + " is solved with its actions");
+		}
+
+		// states off the grid are kept on the heap
+		CashStateMulti[] offGrid = {new CashStateMulti(1, 0, 0, 0.25), new CashStateMulti(1, 0, 0, 10.5),
+				new CashStateMulti(3, 0, 0, 0), new CashStateMulti(1, 4, 0, 0)};
+		for (CashStateMulti s : offGrid) {
+			values.put(s, -1.0);
+			check(values.get(s) == -1.0, "off grid " + s + " is not kept");
+		}
+		check(table.getOverflowNum() == offGrid.length, table.getOverflowNum() + " states off the grid");
+
+		// iterations in the order of a heap map with the same states
+		Map<CashStateMulti, Double> heapValues = new ConcurrentSkipListMap<>(table.keyComparator);
+		heapValues.putAll(values);
+		check(heapValues.size() == storedValues.length + offGrid.length && values.size() == heapValues.size(),
+				values.size() + " values are iterated, " + heapValues.size() + " are stored");
+		Iterator<Map.Entry<CashStateMulti, Double>> iterator = values.entrySet().iterator();
+		for (Map.Entry<CashStateMulti, Double> entry : heapValues.entrySet()) {
+			Map.Entry<CashStateMulti, Double> offHeapEntry = iterator.next();
+			check(table.keyComparator.compare(entry.getKey(), offHeapEntry.getKey()) == 0
+					&& sameBits(offHeapEntry.getValue(), entry.getValue()), "iteration differs at " + entry.getKey());
+		}
+		check(!iterator.hasNext() && actions.entrySet().size() == storedActions.length, "more states are iterated");
+
+		// reset
+		table.reset();
+		check(values.isEmpty() && actions.isEmpty() && !values.entrySet().iterator().hasNext() && table.getOverflowNum() == 0,
+				"states are left after reset");
+		check(values.get(new CashStateMulti(1, 0, 3, -10)) == null, "a value is left after reset");
+		System.out.println(storedValues.length + " values and " + storedActions.length + " actions are stored exactly");
+
+		// recursions on the heap maps and on a reused table
+		CashRecursionMulti heapRecursion = TableCheckpointTest.recursion();
+		CashStateMulti iniState = new CashStateMulti(1, 0, 0, 20);
+		double value = heapRecursion.getExpectedValueMulti(iniState);
+		try (OffHeapTable recursionTable = new OffHeapTable(TableCheckpointTest.T, 0, 1, 16, 0, 1, 16, -50, 1, 400)) {
+			for (int solve = 1; solve <= 2; solve++) {
+				recursionTable.reset();
+				CashRecursionMulti recursion = TableCheckpointTest.recursion();
+				recursion.setOffHeapTable(recursionTable);
+				double offHeapValue = recursion.getExpectedValueMulti(iniState);
+				check(offHeapValue == value, "solve " + solve + " on the off-heap table gives " + offHeapValue + ", not " + value);
+				check(recursionTable.values().size() == heapRecursion.cacheValues.size(), "solve " + solve + " keeps "
+						+ recursionTable.values().size() + " states, not " + heapRecursion.cacheValues.size());
+				for (Map.Entry<CashStateMulti, Double> entry : heapRecursion.cacheValues.entrySet())
+					check(sameBits(recursionTable.values().get(entry.getKey()), entry.getValue()), "values differ at " + entry.getKey());
+			}
+			System.out.println("two solves on one off-heap table keep the " + heapRecursion.cacheValues.size()
+					+ " values of the heap maps, value " + value);
+		}
+
+		values.put(new CashStateMulti(1, 0, 3, -10), 2.0);
+		ByteBuffer chunk = table.chunks[0];
+		ByteBuffer bitmap = table.valueBits[0];
+		table.close();
+		boolean closed = false;
+		try {
+			values.get(new CashStateMulti(1, 0, 0, 0));
+		} catch (IllegalStateException e) {
+			closed = true;
+		}
+		check(closed, "a closed table is read");
+		try (OffHeapTable reused = new OffHeapTable(T, 0, 1, 4, 0, 1, 4, -10, 0.5, 41)) {
+			check(reused.chunks[0] == chunk && (reused.valueBits[0] == bitmap || reused.actionBits[0] == bitmap),
+					"the buffers of the closed table are not reused");
+			check(reused.values().isEmpty() && reused.values().get(new CashStateMulti(1, 0, 3, -10)) == null,
+					"the new table keeps the states of the closed table");
+		}
+		OffHeapTable.clearPool();
+		check(OffHeapTable.POOL.isEmpty(), "buffers are left in the pool");
+		System.out.println("a new table takes the buffers of the closed table without its states");
+	}
+}
@@ -0,0 +1,119 @@
+package sdp.cash.multiItem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026
+ * @Desc: binary checkpoint of the value and action tables of a long recursion, e.g., CashRecursionMulti or CashRecursionV.
+ *        A state is only cached when its value is solved, so every cached state is final and a snapshot of the tables
+ *        taken during the solve is consistent. Resuming loads the tables, then the recursion only expands the states
+ *        not in the file.
+ *
+ *        The file is a header (magic number, version, engine, periods) followed by the tables of the engine;
+ *        it is written to fileName.tmp first, forced to the disk and then moved to fileName, so a crash while writing
+ *        keeps the last complete file.
+ *
+ */
+public class TableCheckpoint {
+	static final int MAGIC = 0x53445043; // "SDPC"
+	static final int VERSION = 1;
+
+	/**
+	 * writes the tables of a recursion after the header
+	 */
+	@FunctionalInterface
+	interface TableWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * reads the tables of a recursion after the header
+	 */
+	@FunctionalInterface
+	interface TableReader {
+		int read(DataInputStream in) throws IOException;
+	}
+
+	String fileName;
+	String engine;
+	int T;
+	TableWriter writer;
+	long intervalNanos;
+	AtomicLong lastNanos = new AtomicLong(System.nanoTime());
+
+	TableCheckpoint(String fileName, long intervalMillis, String engine, int T, TableWriter writer) {
+		if (intervalMillis < 0)
+			throw new IllegalArgumentException("checkpoint interval should not be negative");
+		this.fileName = fileName;
+		this.intervalNanos = intervalMillis * 1000000;
+		this.engine = engine;
+		this.T = T;
+		this.writer = writer;
+	}
+
+	/**
+	 * write the checkpoint if the interval has passed since the last one, only one solving thread writes it;
+	 * a failed checkpoint stops the solve with an UncheckedIOException, the last complete file is kept
+	 */
+	void writeIfDue() {
+		long last = lastNanos.get();
+		long now = System.nanoTime();
+		if (now - last < intervalNanos || !lastNanos.compareAndSet(last, now))
+			return;
+		try {
+			write(fileName, engine, T, writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException("checkpoint " + fileName + " failed", e);
+		} finally {
+			lastNanos.set(System.nanoTime()); // the interval does not include the writing time
+		}
+	}
+
+	static void write(String fileName, String engine, int T, TableWriter writer) throws IOException {
+		Path file = Paths.get(fileName);
+		Path temp = Paths.get(fileName + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(engine);
+			out.writeInt(T);
+			writer.write(out);
+			out.flush();
+			stream.getChannel().force(true); // the moved file is complete even after a crash of the machine
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @return number of the loaded states, 0 if there is no checkpoint file yet
+	 */
+	static int read(String fileName, String engine, int T, TableReader reader) throws IOException {
+		if (!Files.exists(Paths.get(fileName)))
+			return 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException(fileName + " is not a checkpoint of this version");
+			String fileEngine = in.readUTF();
+			int fileT = in.readInt();
+			if (!fileEngine.equals(engine) || fileT != T)
+				throw new IllegalArgumentException(fileName + " is a checkpoint of " + fileEngine + " with " + fileT
+						+ " periods, not of " + engine + " with " + T + " periods");
+			return reader.read(in);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026, 4:12:37 PM
+ * @Desc: check the checkpoints of CashRecursionMulti: a checkpoint written after the solve resumes to the same values
+ *        and actions without expanding any state, a checkpoint written periodically before a pre-emption resumes to
+ *        the value of the full solve, and no checkpoint is written after a stop of the control.
+ *        Throws IllegalStateException at the first failure.
+ *
+ */
+package sdp.cash.multiItem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import sdp.inventory.SolveControl;
+import sdp.inventory.ImmediateValue.ImmediateValueFunctionMulti;
+import sdp.inventory.StateTransition.StateTransitionFunctionMulti;
+import sdp.sampling.ProductIterator;
+
+public class TableCheckpointTest {
+	static double[] price = {10, 5};
+	static double[] variCost = {4, 2};
+	static int T = 4;
+
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	}
+
+	static CashRecursionMulti recursion() {
+		ImmediateValueFunctionMulti immediateValueMulti = (period, x1, x2, cash, action1, action2, demand1, demand2) ->
+			price[0] * Math.min(x1 + action1, demand1) + price[1] * Math.min(x2 + action2, demand2)
+			- variCost[0] * action1 - variCost[1] * action2;
+		StateTransitionFunctionMulti stateTransitionMulti = (period, x1, x2, cash, action1, action2, demand1, demand2, nextState) -> {
+			nextState[0] = Math.max(0, x1 + action1 - demand1);
+			nextState[1] = Math.max(0, x2 + action2 - demand2);
+			nextState[2] = (int) (cash + immediateValueMulti.apply(period, x1, x2, cash, action1, action2, demand1, demand2));
+		};
+		double[] qAxis = ProductIterator.range(0, 8, 1);
+		CashRecursionMulti recursion = new CashRecursionMulti(1, NewsvendorKernelMultiTest.pmf(T, 4), null, null, null, T);
+		recursion.setActionSpace(s -> new ProductIterator(qAxis, qAxis).filter(ProductIterator.withinBudget(variCost, s.getIniCash())));
+		recursion.setPrimitiveFunctions(stateTransitionMulti, immediateValueMulti);
+		return recursion;
+	}
+
+	public static void main(String[] args) throws IOException {
+		CashStateMulti iniState = new CashStateMulti(1, 0, 0, 20);
+		File file = File.createTempFile("TableCheckpointTest", ".ckpt");
+		file.deleteOnExit();
+
+		// a checkpoint of the full solve
+		CashRecursionMulti full = recursion();
+		SolveControl fullControl = new SolveControl();
+		full.setControl(fullControl);
+		double value = full.getExpectedValueMulti(iniState);
+		full.writeCheckpoint(file.getPath());
+		check(!new File(file.getPath() + ".tmp").exists(), "the temporary file is left after writing");
+		CashRecursionMulti resumed = recursion();
+		SolveControl resumedControl = new SolveControl();
+		resumed.setControl(resumedControl);
+		int loadedNum = resumed.resume(file.getPath());
+		check(loadedNum == full.cacheValues.size(), loadedNum + " states are loaded of " + full.cacheValues.size());
+		check(resumed.getExpectedValueMulti(iniState) == value && resumedControl.getStatesDone() == 0,
+				"the resumed solve expands " + resumedControl.getStatesDone() + " states");
+		for (Map.Entry<CashStateMulti, Actions> entry : full.getCacheActions().entrySet()) {
+			Actions actions = resumed.getAction(entry.getKey());
+			check(actions != null && actions.getFirstAction() == entry.getValue().getFirstAction()
+					&& actions.getSecondAction() == entry.getValue().getSecondAction(), "actions differ at " + entry.getKey());
+			check(resumed.cacheValues.get(entry.getKey()).equals(full.cacheValues.get(entry.getKey())), "values differ at " + entry.getKey());
+		}
+		System.out.println(loadedNum + " states are resumed from the checkpoint of the full solve, value " + value);
+
+		// periodic checkpoints of a solve pre-empted after some states
+		long preemptedNum = fullControl.getStatesDone() / 2;
+		CashRecursionMulti preempted = recursion();
+		SolveControl preemptedControl = new SolveControl();
+		preemptedControl.setProgress((period, periodStatesDone, statesDone, millis) -> {
+			if (statesDone == preemptedNum)
+				throw new RuntimeException("pre-empted");
+		}, 1);
+		preempted.setControl(preemptedControl);
+		preempted.setCheckpoint(file.getPath(), 0);
+		boolean thrown = false;
+		try {
+			preempted.getExpectedValueMulti(iniState);
+		} catch (RuntimeException e) {
+			thrown = true;
+		}
+		check(thrown, "the solve is not pre-empted");
+		CashRecursionMulti restarted = recursion();
+		SolveControl restartedControl = new SolveControl();
+		restarted.setControl(restartedControl);
+		loadedNum = restarted.resume(file.getPath());
+		double restartedValue = restarted.getExpectedValueMulti(iniState);
+		check(loadedNum > 0 && restartedValue == value, "the restarted value " + restartedValue + " differs from " + value);
+		check(loadedNum + restartedControl.getStatesDone() == fullControl.getStatesDone(),
+				loadedNum + " loaded and " + restartedControl.getStatesDone() + " expanded states are not the full solve");
+		System.out.println(loadedNum + " states are resumed after a pre-emption, " + restartedControl.getStatesDone() + " expanded again");
+
+		// no checkpoint after a stop
+		CashRecursionMulti stopped = recursion();
+		SolveControl stoppedControl = new SolveControl();
+		stoppedControl.setProgress((period, periodStatesDone, statesDone, millis) -> {
+			if (statesDone == preemptedNum)
+				stoppedControl.cancel();
+		}, 1);
+		stopped.setControl(stoppedControl);
+		stopped.getExpectedValueMulti(iniState);
+		long fileLength = file.length();
+		boolean refused = false;
+		try {
+			stopped.writeCheckpoint(file.getPath());
+		} catch (IllegalStateException e) {
+			refused = true;
+		}
+		check(refused && file.length() == fileLength, "a checkpoint is written after the stop");
+		System.out.println("no checkpoint is written after the stop");
+	}
+}
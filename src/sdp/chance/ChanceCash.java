@@ -26,9 +26,10 @@ import sdp.cash.CashSimulation;
 import sdp.cash.CashState;
 import sdp.cash.CashRecursion.OptDirection;
 import sdp.inventory.GetPmf;
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.sampling.CartesianProduct;
+import sdp.sampling.ProductIterator;
 import sdp.sampling.Sampling;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.PoissonDist;
@@ -43,15 +44,24 @@ import umontreal.ssj.probdist.PoissonDist;
  */
 public class ChanceCash {
 	
+	/**
+	 * @param sampleNums sample number in each period
+	 * @param sampleNumTotal product of the sample numbers
+	 * @return sample index of each scenario in each period, decoded from the index of the scenario
+	 */
 	static int[][] scenarioIndexes(int[] sampleNums, int sampleNumTotal){
 		int T = sampleNums.length;
 		int[][] arr = new int[sampleNumTotal][T];
-		for (int i = 0; i < sampleNumTotal; i++) {
-			for (int t = 0; t < T; t++) {
-				arr[i][t] = 0;
-			}
+		double[][] axes = new double[T][];
+		for (int t = 0; t < T; t++)
+			axes[t] = ProductIterator.range(0, sampleNums[t], 1);
+		ProductIterator indexes = new ProductIterator(axes);
+		while (indexes.next()) {
+			int i = (int) indexes.getIndex();
+			for (int t = 0; t < T; t++)
+				arr[i][t] = (int) indexes.get(t);
 		}
-		return null;
+		return arr;
 	}
 	
 	public static void main(String[] args) {
@@ -113,7 +123,7 @@ public class ChanceCash {
 		};
 
 		// immediate value
-		ImmediateValueFunction<CashState, Double, Double, Double> immediateValue = (state, action, randomDemand) -> {
+		DoubleImmediateValue<CashState> immediateValue = (state, action, randomDemand) -> {
 			int t = state.getPeriod() - 1;
 			double revenue = price[t] * Math.min(state.getIniInventory() + action, randomDemand);
 			double fixedCost = action > 0 ? fixOrderCost : 0;
@@ -129,7 +139,7 @@ public class ChanceCash {
 		};
 
 		// state transition function
-		StateTransitionFunction<CashState, Double, Double, CashState> stateTransition = (state, action,
+		DoubleStateTransition<CashState> stateTransition = (state, action,
 				randomDemand) -> {
 			double nextInventory = Math.max(0, state.getIniInventory() + action - randomDemand);
 			double nextCash = state.getIniCash() + immediateValue.apply(state, action, randomDemand);
@@ -0,0 +1,264 @@
+package sdp.inventory;
+
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 18, 2026---5:02:47 PM
+ * @description: fit one, two or three (s, S) levels for capacitated lot sizing problem from the optimal sdp table,
+ * the least square S above a lower bound is the mean of the order-up-to levels clamped to the bound,
+ * so no solver is needed. Periods are fitted in parallel.
+ * It is used by capacitated.fitss, and milp.MIPFitsS fits by Cplex instead.
+ */
+
+public class FitsS {
+	
+	protected int maxOrderQuantity;
+	protected int T;
+	
+	boolean parallel = true;
+	
+	public FitsS(int maxOrderQuantity, int T) {
+		this.maxOrderQuantity = maxOrderQuantity;
+		this.T = T;
+	}
+	
+	/**
+	 * whether fitting the periods in parallel, default true
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	IntStream periods() {
+		return parallel ? IntStream.range(1, T).parallel() : IntStream.range(1, T);
+	}
+	
+
+	/**
+	 * 
+	 * @param optTable   [t, i, Q] in each row of one period
+	 * @param maxOrderQuantity  maximum ordreing quantity
+	 * @return return s level index in one period
+	 */
+	public int[] levelIndex(PolicyTable.Slice optTable) {
+		ArrayList<Integer> indexArr = new ArrayList<>();
+		boolean mark = false;
+		for (int j = 0; j < optTable.length(); j++) {
+			if (optTable.get(j, 2) < maxOrderQuantity && !mark) {
+				mark = true;
+			} 
+			else if (optTable.get(j, 2) == maxOrderQuantity && mark && j != optTable.length() - 1) {
+				mark = false;
+				indexArr.add(j);
+			}
+			if (optTable.get(j, 2) == 0) {
+				indexArr.add(j);
+				break;
+			}
+			if (j == optTable.length() - 1) {
+				indexArr.add(j);
+			}
+		}
+		return indexArr.stream().mapToInt(p -> p.intValue()).toArray();
+	}
+
+	/**
+	 * 
+	 * @param lb lower value bound
+	 * @param upIndex up value bound
+	 * @param tOptTable optimal sdp table in a period, 
+	 *        [t, i, Q] in each row
+	 * @return a fitting value for some, least square value of the order-up-to levels in [lb, ub]
+	 */
+	public double minSquare(double lb, int upIndex, PolicyTable.Slice tOptTable) {
+		int lowIndex = 0;
+		for (int i = 0; i < tOptTable.length(); i++)
+			if (tOptTable.get(i, 2) != maxOrderQuantity) {
+				lowIndex = i;
+				break;
+			}
+		double ub = 10000;
+		double sum = tOptTable.get(lowIndex, 1) + tOptTable.get(lowIndex, 2);
+		int num = 1;
+		for (int i = lowIndex + 1; i <= upIndex; i++) {
+			if (tOptTable.get(i, 2) != maxOrderQuantity) {
+				sum += tOptTable.get(i, 1) + tOptTable.get(i, 2);
+				num++;
+			}
+		}
+		return Math.min(Math.max(sum / num, lb), ub); // minimum of the sum of squares in [lb, ub]
+	}
+	
+	public double[][] getSinglesS(double[][] optimalTable) {
+		double[][] optimalsS = new double[T][2];
+		optimalsS[0][0] = optimalTable[0][1] + 1;
+		optimalsS[0][1] = optimalTable[0][1] + optimalTable[0][2];
+		PolicyTable policyTable = new PolicyTable(optimalTable); // rows grouped by period
+		periods().forEach(t -> {
+			final int i = t + 1;
+			PolicyTable.Slice tOptTable = policyTable.getPeriod(i);
+			int[] numIndex = levelIndex(tOptTable);
+			if (numIndex.length == 1 && numIndex[0] != 0) {
+				optimalsS[t][0] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][1] = tOptTable.get(numIndex[0] - 1, 1) + tOptTable.get(numIndex[0] - 1, 2);
+				if (numIndex[0] == tOptTable.length() - 1 && tOptTable.get(numIndex[0], 2) == maxOrderQuantity) {
+					optimalsS[t][0] = tOptTable.get(numIndex[0], 1) + 1;
+					optimalsS[t][1] = tOptTable.get(numIndex[0], 1) + tOptTable.get(numIndex[0], 2);
+				}
+				
+			} else if (numIndex.length == 1 && numIndex[0] == 0) {  // s, S are both zeros
+				optimalsS[t][0] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][1] = tOptTable.get(numIndex[0], 1);
+			} else if (numIndex.length == 0) { // order at max
+				optimalsS[t][0] = tOptTable.get(tOptTable.length() - 1, 1);
+				optimalsS[t][1] = maxOrderQuantity * 10;
+			} else {
+				int SIndex = numIndex[numIndex.length - 1]; // һյ֮ǰȫ S ݽ
+				optimalsS[t][0] = tOptTable.get(SIndex, 1);
+				optimalsS[t][1] = minSquare(optimalsS[t][0], SIndex, tOptTable);
+			}
+		});
+		return optimalsS;
+	}
+	
+	public double[][] getTwosS(double[][] optimalTable){
+		double[][] optimalsS = new double[T][4];
+		optimalsS[0][0] = optimalTable[0][1] + 1;
+		optimalsS[0][1] = optimalTable[0][1] + optimalTable[0][2];
+		optimalsS[0][2] = optimalsS[0][0]; 
+		optimalsS[0][3] = optimalTable[0][1] + optimalTable[0][2];
+		PolicyTable policyTable = new PolicyTable(optimalTable); // rows grouped by period
+		periods().forEach(t -> {
+			final int i = t + 1;
+			PolicyTable.Slice tOptTable = policyTable.getPeriod(i);
+			int[] numIndex = levelIndex(tOptTable);
+			if (numIndex.length == 1 && numIndex[0] != 0) {
+				optimalsS[t][0] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][1] = tOptTable.get(numIndex[0] - 1, 1) + tOptTable.get(numIndex[0] - 1, 2);
+				if (numIndex[0] == tOptTable.length() - 1 && tOptTable.get(numIndex[0], 2) == maxOrderQuantity) {
+					optimalsS[t][0] = tOptTable.get(numIndex[0], 1) + 1;
+					optimalsS[t][1] = tOptTable.get(numIndex[0], 1) + tOptTable.get(numIndex[0], 2);
+				}
+				optimalsS[t][2] = optimalsS[t][0];
+				optimalsS[t][3] = optimalsS[t][1];
+				
+			}
+			else if (numIndex.length == 1 && numIndex[0] == 0) {
+				optimalsS[t][0] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][1] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][2] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][3] = tOptTable.get(numIndex[0], 1);
+			}
+			else if (numIndex.length == 0) {
+				optimalsS[t][0] = tOptTable.get(tOptTable.length() - 1, 1);
+				optimalsS[t][1] = maxOrderQuantity * 10;
+				optimalsS[t][2] = tOptTable.get(tOptTable.length() - 1, 1);
+				optimalsS[t][3] = maxOrderQuantity * 10;
+			}
+			else if (numIndex.length == 2) {
+				optimalsS[t][0] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][1] = tOptTable.get(numIndex[0] - 1, 1) + tOptTable.get(numIndex[0] - 1, 2);
+				optimalsS[t][2] = tOptTable.get(numIndex[1], 1);
+				optimalsS[t][3] = tOptTable.get(numIndex[1] - 1, 1) + tOptTable.get(numIndex[1] - 1, 2);
+				if (numIndex[1] == tOptTable.length() - 1 && tOptTable.get(numIndex[1], 2) == maxOrderQuantity) {
+					optimalsS[t][2] = tOptTable.get(numIndex[1], 1) + 1;
+					optimalsS[t][3] = tOptTable.get(numIndex[1], 1) + tOptTable.get(numIndex[1], 2);
+				}
+			}
+			
+			else {
+				int sIndex2 = numIndex[numIndex.length - 1];
+				optimalsS[t][2] = tOptTable.get(sIndex2, 1);
+				optimalsS[t][3] = tOptTable.get(sIndex2 - 1, 1) + tOptTable.get(sIndex2 - 1, 2);
+				int sIndex1 = numIndex[numIndex.length - 2];
+				optimalsS[t][0] = tOptTable.get(sIndex1, 1);
+				optimalsS[t][1] = minSquare(optimalsS[t][0], sIndex1, tOptTable);
+			}
+		});
+		//System.out.println(Arrays.deepToString(optimalsS));
+		return optimalsS;
+	}
+	
+	public double[][] getThreesS(double[][] optimalTable){
+		double[][] optimalsS = new double[T][6];
+		optimalsS[0][0] = optimalTable[0][1] + 1;
+		optimalsS[0][1] = optimalTable[0][1] + optimalTable[0][2];
+		optimalsS[0][2] = optimalsS[0][0];
+		optimalsS[0][3] = optimalTable[0][1] + optimalTable[0][2];
+		optimalsS[0][4] = optimalsS[0][0];
+		optimalsS[0][5] = optimalTable[0][1] + optimalTable[0][2];
+		PolicyTable policyTable = new PolicyTable(optimalTable); // rows grouped by period
+		periods().forEach(t -> {
+			final int i = t + 1;
+			PolicyTable.Slice tOptTable = policyTable.getPeriod(i);
+			int[] numIndex = levelIndex(tOptTable);
+			if (numIndex.length == 1 && numIndex[0] != 0) {
+				optimalsS[t][0] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][1] = tOptTable.get(numIndex[0] - 1, 1) + tOptTable.get(numIndex[0] - 1, 2);
+				if (numIndex[0] == tOptTable.length() - 1  && tOptTable.get(numIndex[0], 2) == maxOrderQuantity) {
+					optimalsS[t][0] = tOptTable.get(numIndex[0], 1) + 1;
+					optimalsS[t][1] = tOptTable.get(numIndex[0], 1) + tOptTable.get(numIndex[0], 2);
+				}
+				optimalsS[t][2] = optimalsS[t][0];
+				optimalsS[t][3] = optimalsS[t][1];
+				optimalsS[t][4] = optimalsS[t][0];
+				optimalsS[t][5] = optimalsS[t][1];
+			}
+			else if (numIndex.length == 1 && numIndex[0] == 0) {
+				optimalsS[t][0] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][1] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][2] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][3] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][4] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][5] = tOptTable.get(numIndex[0], 1);
+			}
+			else if (numIndex.length == 0) {
+				optimalsS[t][0] = tOptTable.get(tOptTable.length() - 1, 1);
+				optimalsS[t][1] = maxOrderQuantity * 10;
+				optimalsS[t][2] = tOptTable.get(tOptTable.length() - 1, 1);
+				optimalsS[t][3] = maxOrderQuantity * 10;
+				optimalsS[t][4] = tOptTable.get(tOptTable.length() - 1, 1);
+				optimalsS[t][5] = maxOrderQuantity * 10;
+			}	
+			else if (numIndex.length == 2) {
+				optimalsS[t][0] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][1] = tOptTable.get(numIndex[0] - 1, 1) + tOptTable.get(numIndex[0] - 1, 2);
+				optimalsS[t][2] = tOptTable.get(numIndex[1], 1);
+				optimalsS[t][3] = tOptTable.get(numIndex[1] - 1, 1) + tOptTable.get(numIndex[1] - 1, 2);
+				if (numIndex[1] == tOptTable.length() - 1 && tOptTable.get(numIndex[1], 2) == maxOrderQuantity) {
+					optimalsS[t][2] = tOptTable.get(numIndex[1], 1) + 1;
+					optimalsS[t][3] = tOptTable.get(numIndex[1], 1) + tOptTable.get(numIndex[1], 2);
+				}			
+				optimalsS[t][4] = optimalsS[t][2];
+				optimalsS[t][5] = optimalsS[t][3];
+			}
+			else if (numIndex.length == 3) {
+				optimalsS[t][0] = tOptTable.get(numIndex[0], 1);
+				optimalsS[t][1] = tOptTable.get(numIndex[0] - 1, 1) + tOptTable.get(numIndex[0] - 1, 2);
+				optimalsS[t][2] = tOptTable.get(numIndex[1], 1);
+				optimalsS[t][3] = tOptTable.get(numIndex[1] - 1, 1) + tOptTable.get(numIndex[1] - 1, 2);
+				optimalsS[t][4] = tOptTable.get(numIndex[2], 1);
+				optimalsS[t][5] = tOptTable.get(numIndex[2] - 1, 1) + tOptTable.get(numIndex[2] - 1, 2);
+				if (numIndex[2] == tOptTable.length() - 1 && tOptTable.get(numIndex[2], 2) == maxOrderQuantity) {
+					optimalsS[t][4] = tOptTable.get(numIndex[2], 1) + 1;
+					optimalsS[t][5] = tOptTable.get(numIndex[2], 1) + tOptTable.get(numIndex[2], 2);
+				}
+			}
+			else {
+				int sIndex3 = numIndex[numIndex.length - 1];
+				optimalsS[t][4] = tOptTable.get(sIndex3, 1);
+				optimalsS[t][5] = tOptTable.get(sIndex3 - 1, 1) + tOptTable.get(sIndex3 - 1, 2);
+				int sIndex2 = numIndex[numIndex.length - 2];
+				optimalsS[t][2] = tOptTable.get(sIndex2, 1);
+				optimalsS[t][3] = tOptTable.get(sIndex2 - 1, 1) + tOptTable.get(sIndex2 - 1, 2);
+				int sIndex1 = numIndex[numIndex.length - 3];
+				optimalsS[t][0] = tOptTable.get(sIndex1, 1);
+				optimalsS[t][1] = minSquare(optimalsS[t][0], sIndex1, tOptTable);
+			}
+		});
+		return optimalsS;
+	}
+}
@@ -0,0 +1,150 @@
+package sdp.inventory;
+
+import java.util.Arrays;
+
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 18, 2026---7:24:35 PM
+ * @description: an immutable optimal policy of sdp backed by primitive arrays, built by freeze() of the recursions
+ *               after solving. It can be read by many simulation threads without locking and never solves a state.
+ *
+ *               States are [inventory] or [inventory, cash] in each period. The inventories of a period are kept
+ *               in one sorted array, and the cash states of each inventory are a sorted range of another array.
+ *               Off-grid states are clamped to the range of the grid in each coordinate, then decided by the rule.
+ *
+ *               A simulation by this policy gives the same values as by the recursion only if every simulated state
+ *               is a grid state, i.e., was solved before freezing: the recursion solves an off-grid state exactly,
+ *               while this policy takes the action of the rule, which may differ.
+ */
+
+public class FrozenPolicy {
+
+	public enum OffGridRule {
+		CLAMP, // action of the nearest grid state not above it in each coordinate
+		NEAREST, // action of the nearest grid state in each coordinate
+		INTERPOLATE // linear interpolation of the actions of the neighbouring grid states
+	}
+
+	int T;
+	boolean hasCash;
+	OffGridRule rule;
+	double[][] inventories; // inventories[t - 1][k] are the different inventories of period t, increasing
+	int[][] starts; // cash states of inventory k are from starts[t - 1][k] to starts[t - 1][k + 1] - 1
+	double[][] cashes; // cashes[t - 1][r], increasing for the same inventory
+	double[][] actions; // actions[t - 1][r]
+
+	/**
+	 * @param policyTable rows [t, x, Q] or [t, x, R, Q], ordered by inventory and then cash in each period
+	 * @param rule rule for the off-grid states
+	 */
+	public FrozenPolicy(PolicyTable policyTable, OffGridRule rule) {
+		this.T = policyTable.getPeriodNum();
+		this.rule = rule;
+		this.hasCash = policyTable.columns.length > 3;
+		int actionColumn = hasCash ? 3 : 2;
+		this.inventories = new double[T][];
+		this.starts = new int[T][];
+		this.cashes = new double[T][];
+		this.actions = new double[T][];
+		for (int t = 1; t <= T; t++) {
+			PolicyTable.Slice slice = policyTable.getPeriod(t);
+			int n = slice.length();
+			double[] x = new double[n];
+			int[] start = new int[n + 1];
+			double[] R = new double[n];
+			double[] Q = new double[n];
+			int k = 0;
+			for (int j = 0; j < n; j++) {
+				if (j == 0 || slice.get(j, 1) != x[k - 1]) {
+					x[k] = slice.get(j, 1);
+					start[k++] = j;
+				}
+				R[j] = hasCash ? slice.get(j, 2) : 0;
+				Q[j] = slice.get(j, actionColumn);
+			}
+			start[k] = n;
+			inventories[t - 1] = Arrays.copyOf(x, k);
+			starts[t - 1] = Arrays.copyOf(start, k + 1);
+			cashes[t - 1] = R;
+			actions[t - 1] = Q;
+		}
+	}
+
+	public OffGridRule getRule() {
+		return rule;
+	}
+
+	public int getPeriodNum() {
+		return T;
+	}
+
+	/**
+	 * @param period
+	 * @param iniInventory
+	 * @return action of the inventory state
+	 */
+	public double getAction(int period, double iniInventory) {
+		return getAction(period, iniInventory, 0);
+	}
+
+	/**
+	 * @param period
+	 * @param iniInventory
+	 * @param iniCash ignored if the states have no cash
+	 * @return action of the state, actions of exact grid states are the same as the recursion
+	 */
+	public double getAction(int period, double iniInventory, double iniCash) {
+		if (period < 1 || period > T || inventories[period - 1].length == 0)
+			throw new IllegalArgumentException("no policy in period " + period);
+		double[] x = inventories[period - 1];
+		int[] start = starts[period - 1];
+		int[] bracket = new int[2];
+		double weight = locate(x, 0, x.length, iniInventory, bracket);
+		double lowAction = cashAction(period, start[bracket[0]], start[bracket[0] + 1], iniCash);
+		if (bracket[0] == bracket[1])
+			return lowAction;
+		double highAction = cashAction(period, start[bracket[1]], start[bracket[1] + 1], iniCash);
+		return choose(lowAction, highAction, weight);
+	}
+
+	double cashAction(int period, int from, int to, double iniCash) {
+		double[] Q = actions[period - 1];
+		if (!hasCash)
+			return Q[from];
+		int[] bracket = new int[2];
+		double weight = locate(cashes[period - 1], from, to, iniCash, bracket);
+		return choose(Q[bracket[0]], Q[bracket[1]], weight);
+	}
+
+	double choose(double lowAction, double highAction, double weight) {
+		switch (rule) {
+		case NEAREST:
+			return weight <= 0.5 ? lowAction : highAction;
+		case INTERPOLATE:
+			return (1 - weight) * lowAction + weight * highAction;
+		default:
+			return weight < 1 ? lowAction : highAction;
+		}
+	}
+
+	/**
+	 * find the grid points around a value clamped to the grid
+	 * @param grid increasing values in [from, to)
+	 * @param bracket output indexes of the grid points not above and not below the value
+	 * @return relative position of the value between the two grid points, 0 for an exact grid point
+	 */
+	static double locate(double[] grid, int from, int to, double value, int[] bracket) {
+		double v = Math.min(Math.max(value, grid[from]), grid[to - 1]);
+		int index = Arrays.binarySearch(grid, from, to, v);
+		if (index >= 0) {
+			bracket[0] = bracket[1] = index;
+			return 0;
+		}
+		int high = -index - 1;
+		bracket[0] = high - 1;
+		bracket[1] = high;
+		return (v - grid[high - 1]) / (grid[high] - grid[high - 1]);
+	}
+}
@@ -38,56 +38,82 @@ public class GetPmf {
 	 * @return
 	 */
 	public double[][][] getpmf() {
+		SolverEvents.PmfBuild event = new SolverEvents.PmfBuild();
+		event.begin();
 		int T = distributions.length;
-		double[] supportLB = new double[T];
-		double[] supportUB = new double[T];
-		for (int i = 0; i < T; i++) {
-			supportLB[i] = (int) distributions[i].inverseF(1 - truncationQuantile);
-			if (distributions[0] instanceof DiscreteDistributionInt)
-				supportLB[i] = 0;
-			supportUB[i] = (int) distributions[i].inverseF(truncationQuantile);
-		}
-
 		double[][][] pmf = new double[T][][];
-		
-		
-		
+		for (int i = 0; i < T; i++)
+			pmf[i] = getpmf(i);
+		event.commit("GetPmf", T, SolverEvents.countPoints(pmf));
+		return pmf;
+	}
+	
+	/**
+	 * @param i period index, from 0
+	 * @return demand values and possibilities of one period
+	 */
+	double[][] getpmf(int i) {
 		if (distributions[0] instanceof UniformIntDist) {
-			for (int i = 0; i < T; i++) {
-				UniformIntDist distribution = (UniformIntDist) distributions[0];
-				int demandLength = distribution.getJ() - distribution.getI() + 1;
-				pmf[i] = new double[demandLength][];
-				int index = 0;
-				for (int j = distribution.getXinf(); j <= distribution.getXsup(); j++) {
-					pmf[i][index] = new double[2];
-					pmf[i][index][0] = j;
-					pmf[i][index][1] = distribution.prob(j);
-					index++;
-				}
+			UniformIntDist distribution = (UniformIntDist) distributions[0];
+			int demandLength = distribution.getJ() - distribution.getI() + 1;
+			double[][] periodPmf = new double[demandLength][];
+			int index = 0;
+			for (int j = distribution.getXinf(); j <= distribution.getXsup(); j++) {
+				periodPmf[index] = new double[2];
+				periodPmf[index][0] = j;
+				periodPmf[index][1] = distribution.prob(j);
+				index++;
 			}
-			return pmf;
+			return periodPmf;
 		}
 		
-		for (int i = 0; i < T; i++) {
-			int demandLength = (int) ((supportUB[i] - supportLB[i] + 1) / stepSize);
-			pmf[i] = new double[demandLength][];
-			// demand values are all integers
-			for (int j = 0; j < demandLength; j++) {
-				pmf[i][j] = new double[2];
-				pmf[i][j][0] = supportLB[i] + j * stepSize;
-				if (distributions[0] instanceof DiscreteDistributionInt ||
-						distributions[0] instanceof PoissonDist) { // may be something wrong, poisson[] can't be (casted) delivered
-					                                                    // but the results are correct
-					double probilitySum = distributions[i].cdf(supportUB[i]) - distributions[i].cdf(supportLB[i] - 1);
-					pmf[i][j][1] = ((DiscreteDistributionInt) distributions[i]).prob(j) / probilitySum;
-				} else {
-					double probilitySum = distributions[i].cdf(supportUB[i] + 0.5 * stepSize)
-							- distributions[i].cdf(supportLB[i] - 0.5 * stepSize);
-					pmf[i][j][1] = (distributions[i].cdf(pmf[i][j][0] + 0.5 * stepSize)
-							- distributions[i].cdf(pmf[i][j][0] - 0.5 * stepSize)) / probilitySum;
-				}
+		double supportLB = (int) distributions[i].inverseF(1 - truncationQuantile);
+		if (distributions[0] instanceof DiscreteDistributionInt)
+			supportLB = 0;
+		double supportUB = (int) distributions[i].inverseF(truncationQuantile);
+		int demandLength = (int) ((supportUB - supportLB + 1) / stepSize);
+		double[][] periodPmf = new double[demandLength][];
+		// demand values are all integers
+		for (int j = 0; j < demandLength; j++) {
+			periodPmf[j] = new double[2];
+			periodPmf[j][0] = supportLB + j * stepSize;
+			if (distributions[0] instanceof DiscreteDistributionInt ||
+					distributions[0] instanceof PoissonDist) { // may be something wrong, poisson[] can't be (casted) delivered
+				                                                    // but the results are correct
+				double probilitySum = distributions[i].cdf(supportUB) - distributions[i].cdf(supportLB - 1);
+				periodPmf[j][1] = ((DiscreteDistributionInt) distributions[i]).prob(j) / probilitySum;
+			} else {
+				double probilitySum = distributions[i].cdf(supportUB + 0.5 * stepSize)
+						- distributions[i].cdf(supportLB - 0.5 * stepSize);
+				periodPmf[j][1] = (distributions[i].cdf(periodPmf[j][0] + 0.5 * stepSize)
+						- distributions[i].cdf(periodPmf[j][0] - 0.5 * stepSize)) / probilitySum;
 			}
 		}
+		return periodPmf;
+	}
+	
+	/**
+	 * recompute the pmf of the periods whose demand forecasts change, e.g., in a rolling horizon,
+	 * the pmf of the other periods are kept
+	 * @param pmf pmf from getpmf(), changed periods are replaced in place
+	 * @param newDistributions demand distributions of the whole planning horizon
+	 * @param changedPeriods periods from 1
+	 * @return pmf
+	 */
+	public double[][][] updatePmf(double[][][] pmf, Distribution[] newDistributions, int... changedPeriods) {
+		if (newDistributions.length != pmf.length)
+			throw new IllegalArgumentException("the planning horizon can not change");
+		this.distributions = newDistributions;
+		SolverEvents.PmfBuild event = new SolverEvents.PmfBuild();
+		event.begin();
+		long demandPoints = 0;
+		for (int period : changedPeriods) {
+			if (period < 1 || period > pmf.length)
+				throw new IllegalArgumentException("no period " + period + " in the planning horizon");
+			pmf[period - 1] = getpmf(period - 1);
+			demandPoints += pmf[period - 1].length;
+		}
+		event.commit("GetPmf", changedPeriods.length, demandPoints);
 		return pmf;
 	}
 	
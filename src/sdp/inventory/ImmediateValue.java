@@ -29,6 +29,37 @@ public class ImmediateValue {
 	public interface ImmediateValueFunctionV <S, R, V>{
 		public V apply (S s, R r);
 	}
+	
+	/**
+	 * immediate value with primitive action, demand and value, no boxing in the recursion
+	 * 
+	 * @param <S> state
+	 */
+	public interface DoubleImmediateValue<S> {
+		public double apply(S s, double action, double demand);
+		
+		/**
+		 * @return adapter of a generic immediate value function
+		 */
+		public static <S> DoubleImmediateValue<S> of(ImmediateValueFunction<S, Double, Double, Double> f) {
+			return f == null ? null : (s, action, demand) -> f.apply(s, action, demand);
+		}
+		
+		/**
+		 * @return generic view of this immediate value function
+		 */
+		public default ImmediateValueFunction<S, Double, Double, Double> boxed() {
+			return (s, action, demand) -> apply(s, action, demand);
+		}
+	}
+	
+	/**
+	 * primitive immediate value for two items, no boxing or action/demand objects
+	 */
+	public interface ImmediateValueFunctionMulti {
+		public double apply(int period, double x1, double x2, double cash, double q1, double q2, 
+				double d1, double d2);
+	}
 
 
 }
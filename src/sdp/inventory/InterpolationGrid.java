@@ -0,0 +1,112 @@
+package sdp.inventory;
+
+import java.util.function.ToDoubleFunction;
+
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 18, 2026---9:58:06 PM
+ * @description: a coarse, possibly non-uniform tensor grid for approximate dp. Values are only solved at the grid
+ *               points, the values of the other states are multilinear interpolations of the corners of their cells
+ *               (linear for one axis, bilinear for two axes). Points outside the grid are clamped to it.
+ *
+ *               The interpolation error is checked a posteriori at some cell centres, where the exact one-step
+ *               value is compared with the interpolated value.
+ */
+
+public class InterpolationGrid {
+	double[][] axes; // axes[a] are the increasing grid values of coordinate a
+	static final int[] PRIMES = {2, 3, 5, 7, 11, 13}; // square roots are the steps of the check points
+
+	public InterpolationGrid(double[]... axes) {
+		for (double[] axis : axes) {
+			if (axis.length == 0)
+				throw new IllegalArgumentException("an axis of the grid is empty");
+			for (int i = 1; i < axis.length; i++)
+				if (axis[i] <= axis[i - 1])
+					throw new IllegalArgumentException("grid values should be increasing");
+		}
+		this.axes = axes;
+	}
+
+	/**
+	 * @param min
+	 * @param max
+	 * @param pointNum at least 2
+	 * @return evenly spaced grid values from min to max
+	 */
+	public static double[] uniformAxis(double min, double max, int pointNum) {
+		double[] axis = new double[pointNum];
+		for (int i = 0; i < pointNum; i++)
+			axis[i] = min + (max - min) * i / (pointNum - 1);
+		return axis;
+	}
+
+	public double[][] getAxes() {
+		return axes;
+	}
+
+	/**
+	 * @param point
+	 * @param gridValue value of a grid point, e.g., solved by the recursion and cached
+	 * @return multilinear interpolation at the point, only the corners with positive weights are evaluated
+	 */
+	public double interpolate(double[] point, ToDoubleFunction<double[]> gridValue) {
+		int d = axes.length;
+		int[][] brackets = new int[d][2];
+		double[] weights = new double[d];
+		for (int a = 0; a < d; a++)
+			weights[a] = FrozenPolicy.locate(axes[a], 0, axes[a].length, point[a], brackets[a]);
+
+		double value = 0;
+		double[] corner = new double[d];
+		for (int mask = 0; mask < 1 << d; mask++) {
+			double cornerWeight = 1;
+			for (int a = 0; a < d && cornerWeight > 0; a++) {
+				boolean high = (mask >> a & 1) == 1;
+				cornerWeight *= high ? weights[a] : 1 - weights[a];
+				corner[a] = axes[a][brackets[a][high ? 1 : 0]];
+			}
+			if (cornerWeight > 0)
+				value += cornerWeight * gridValue.applyAsDouble(corner.clone());
+		}
+		return value;
+	}
+
+	/**
+	 * @param checkNum
+	 * @return centres of checkNum cells spread over the grid by a Kronecker sequence, axes with one value are kept
+	 */
+	public double[][] getCheckPoints(int checkNum) {
+		int d = axes.length;
+		double[][] points = new double[checkNum][d];
+		for (int k = 0; k < checkNum; k++) {
+			for (int a = 0; a < d; a++) {
+				double[] axis = axes[a];
+				if (axis.length == 1) {
+					points[k][a] = axis[0];
+					continue;
+				}
+				double u = (k + 0.5) * Math.sqrt(PRIMES[a % PRIMES.length]);
+				int cell = (int) ((u - Math.floor(u)) * (axis.length - 1));
+				points[k][a] = (axis[cell] + axis[cell + 1]) / 2;
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * a posteriori interpolation error
+	 * @param checkNum number of checked cell centres
+	 * @param value value of a point solved by one step of the recursion from the values of the next period,
+	 *        for both the grid points and the check points
+	 * @return maximum absolute difference between the solved and interpolated values at the check points
+	 */
+	public double getMaxError(int checkNum, ToDoubleFunction<double[]> value) {
+		double maxError = 0;
+		for (double[] point : getCheckPoints(checkNum))
+			maxError = Math.max(maxError, Math.abs(value.applyAsDouble(point) - interpolate(point, value)));
+		return maxError;
+	}
+}
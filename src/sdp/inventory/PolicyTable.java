@@ -0,0 +1,99 @@
+package sdp.inventory;
+
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 18, 2026---4:35:12 PM
+ * @description: a columnar view of the optimal table of sdp (rows of getOptTable(), period in the first column),
+ *               rows are grouped by period in O(n) so that the rows of one period are a slice of contiguous
+ *               columns, without filtering and copying the whole table in each period.
+ *
+ *               Rows of the same period keep their order in the optimal table, e.g., increasing inventory and cash.
+ */
+
+public class PolicyTable {
+	double[][] columns; // columns[k][r] is the k-th column of row r
+	int[] periodStarts; // rows of period t are from periodStarts[t] to periodStarts[t + 1] - 1
+	int T;
+
+	/**
+	 * @param optTable rows like [t, x, R, Q] or [t, x, Q], periods start from 1
+	 */
+	public PolicyTable(double[][] optTable) {
+		int n = optTable.length;
+		int columnNum = n > 0 ? optTable[0].length : 0;
+		for (int r = 0; r < n; r++)
+			T = Math.max(T, (int) optTable[r][0]);
+
+		// counting sort by period, stable for the rows of the same period
+		periodStarts = new int[T + 2];
+		for (int r = 0; r < n; r++)
+			periodStarts[(int) optTable[r][0] + 1]++;
+		for (int t = 1; t < T + 2; t++)
+			periodStarts[t] += periodStarts[t - 1];
+		int[] next = periodStarts.clone();
+		columns = new double[columnNum][n];
+		for (int r = 0; r < n; r++) {
+			int row = next[(int) optTable[r][0]]++;
+			for (int k = 0; k < columnNum; k++)
+				columns[k][row] = optTable[r][k];
+		}
+	}
+
+	/**
+	 * @return number of periods
+	 */
+	public int getPeriodNum() {
+		return T;
+	}
+
+	/**
+	 * @return number of rows
+	 */
+	public int size() {
+		return periodStarts[T + 1];
+	}
+
+	/**
+	 * @param k column index
+	 * @return the whole column, rows are ordered by period
+	 */
+	public double[] getColumn(int k) {
+		return columns[k];
+	}
+
+	/**
+	 * @param period
+	 * @return rows of the period, the slice shares the columns of this table
+	 */
+	public Slice getPeriod(int period) {
+		if (period < 1 || period > T)
+			return new Slice(0, 0);
+		return new Slice(periodStarts[period], periodStarts[period + 1] - periodStarts[period]);
+	}
+
+
+	/**
+	 * rows of one period, get(j, k) is the same as tOptTable[j][k] of the filtered table
+	 */
+	public class Slice {
+		int start;
+		int length;
+
+		Slice(int start, int length) {
+			this.start = start;
+			this.length = length;
+		}
+
+		public int length() {
+			return length;
+		}
+
+		public double get(int j, int k) {
+			if (j < 0 || j >= length)
+				throw new ArrayIndexOutOfBoundsException(j);
+			return columns[k][start + j];
+		}
+	}
+}
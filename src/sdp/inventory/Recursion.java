@@ -8,15 +8,20 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 
 
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
 import sdp.inventory.ImmediateValue.ImmediateValueFunction;
+import sdp.inventory.StateTransition.DoubleStateTransition;
 import sdp.inventory.StateTransition.StateTransitionFunction;
 
 
@@ -32,14 +37,18 @@ import sdp.inventory.StateTransition.StateTransitionFunction;
 
 public class Recursion {
 	
-	Map<State, Double> cacheActions = new ConcurrentSkipListMap<>();	
-	Map<State, Double> cacheValues = new ConcurrentSkipListMap<>();
+	SortedMap<State, Double> cacheActions = new ConcurrentSkipListMap<>(); // sorted by period first, see updatePmf	
+	SortedMap<State, Double> cacheValues = new ConcurrentSkipListMap<>();
 	
 	double[][][] pmf;	
 	OptDirection optDirection;	
 	Function<State, double[]> getFeasibleActions;
 	StateTransitionFunction<State, Double, Double, State> stateTransition;
 	ImmediateValueFunction<State, Double, Double, Double> immediateValue;
+	DoubleStateTransition<State> doubleStateTransition; // used in the recursion to avoid boxing
+	DoubleImmediateValue<State> doubleImmediateValue;
+	SolverMetrics metrics; // attached by the constructors if a flight recording is running, null for no instrumentation
+	SolveControl control; // null for no time budget or cancellation
 	
 	public enum OptDirection{
 		MIN,
@@ -55,17 +64,31 @@ public class Recursion {
 		this.getFeasibleActions = getFeasibleAction;
 		this.stateTransition = stateTransition ;
 		this.immediateValue = immediateValue;
+		this.doubleStateTransition = DoubleStateTransition.of(stateTransition);
+		this.doubleImmediateValue = DoubleImmediateValue.of(immediateValue);
 		Comparator<State> keyComparator = (o1, o2) -> o1.getPeriod() > o2.getPeriod() ? 1 : 
 			o1.getPeriod() == o2.getPeriod() ? o1.getIniInventory() > o2.getIniInventory() ? 1 : 
 				o1.getIniInventory() == o2.getIniInventory() ? 0 : -1 : -1;
 		this.cacheActions = new ConcurrentSkipListMap<>(keyComparator);
 		this.cacheValues = new ConcurrentSkipListMap<>(keyComparator);
+		this.metrics = SolverMetrics.forRecording("Recursion", pmf.length);
 	}
 		
 
 
 
 
+	/**
+	 * recursion on primitive functions, the action and demand are not boxed
+	 */
+	public Recursion(OptDirection optDirection, double[][][] pmf, 
+			         Function<State, double[]> getFeasibleAction,
+			         DoubleStateTransition<State> stateTransition,
+			         DoubleImmediateValue<State> immediateValue) {
+		this(optDirection, pmf, getFeasibleAction, stateTransition.boxed(), immediateValue.boxed());
+		setDoubleFunctions(stateTransition, immediateValue);
+	}
+		
 	public StateTransitionFunction<State, Double, Double, State> getStateTransitionFunction(){
 		return stateTransition;
 	}
@@ -74,6 +97,24 @@ public class Recursion {
 		return immediateValue;
 	} 
 	
+	public DoubleStateTransition<State> getDoubleStateTransition(){
+		return doubleStateTransition;
+	}
+	
+	public DoubleImmediateValue<State> getDoubleImmediateValue(){
+		return doubleImmediateValue;
+	}
+	
+	/**
+	 * run the recursion on primitive functions, the generic functions of the constructor are replaced by their views
+	 */
+	public void setDoubleFunctions(DoubleStateTransition<State> stateTransition, DoubleImmediateValue<State> immediateValue) {
+		this.doubleStateTransition = stateTransition;
+		this.doubleImmediateValue = immediateValue;
+		this.stateTransition = stateTransition.boxed();
+		this.immediateValue = immediateValue.boxed();
+	}
+	
 	/**
 	 * set a tree map for finding s, S, this method can be neglected since default order is same 
 	 */
@@ -86,8 +127,61 @@ public class Recursion {
 	}
 	
 	
+	/**
+	 * counters of the solve; the constructors attach metrics if a flight recording of the recursion events is running
+	 * when the recursion is built, setMetrics(null) turns them off
+	 * @param metrics counters of the solve, null for no instrumentation
+	 */
+	public void setMetrics(SolverMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * @param control time budget, cancellation and progress of the solve, null for solving to the end
+	 */
+	public void setControl(SolveControl control) {
+		this.control = control;
+	}
+	
+	/**
+	 * incremental re-solve after the demand forecasts of some periods change, e.g., in a rolling horizon.
+	 * Values of a period only depend on the later periods, so the cached values and actions of the periods
+	 * after the latest changed period are kept, those of the other periods are solved again by the next getExpectedValue
+	 * @param newPmf pmf of the whole planning horizon, e.g., from GetPmf.updatePmf
+	 * @param changedPeriods periods whose pmf change, from 1
+	 * @return number of removed states in the value table
+	 */
+	public int updatePmf(double[][][] newPmf, int... changedPeriods) {
+		if (newPmf.length != pmf.length)
+			throw new IllegalArgumentException("the planning horizon can not change");
+		int latestPeriod = 0;
+		for (int period : changedPeriods) {
+			if (period < 1 || period > pmf.length)
+				throw new IllegalArgumentException("no period " + period + " in the planning horizon");
+			latestPeriod = Math.max(latestPeriod, period);
+		}
+		this.pmf = newPmf;
+		
+		// states are sorted by period first
+		State firstKept = new State(latestPeriod + 1, -Double.MAX_VALUE);
+		SortedMap<State, Double> removedValues = cacheValues.headMap(firstKept);
+		int removedNum = removedValues.size();
+		removedValues.clear();
+		cacheActions.headMap(firstKept).clear();
+		if (metrics != null)
+			metrics.removed(removedNum);
+		return removedNum;
+	}
+	
 	public double getExpectedValue(State state) {
-		return this.cacheValues.computeIfAbsent(state, s -> {			
+		if (metrics != null)
+			metrics.lookup(state.getPeriod());
+		if (control != null && control.isStopped() && !cacheValues.containsKey(state)) {
+			control.truncated(1);
+			return 0; // the planning horizon is truncated at an unsolved state
+		}
+		double[] partialValue = control != null ? new double[1] : null;
+		Double value = this.cacheValues.computeIfAbsent(state, s -> {			
 //			double val = Arrays.stream(getFeasibleActions.apply(s))
 //					.parallel() // whether using parallel computation, there is error now
 //					.map(orderQty -> Arrays.stream(pmf[s.getPeriod() - 1])
@@ -126,40 +220,133 @@ public class Recursion {
 //			double bestOrderQty = actionAndValue.getBestAction();
 //			double val = actionAndValue.getBestValue();
 			
-			double[] feasibleActions = getFeasibleActions.apply(state);
-			double[][] dAndP = pmf[s.getPeriod() - 1]; // demandAndPossibility
-			double[] QValues = new double[feasibleActions.length];
-			double val = optDirection == OptDirection.MIN ? Double.MAX_VALUE
-														  : -Double.MAX_VALUE;
-			double bestOrderQty = 0;
-			for (int i = 0; i < feasibleActions.length; i++) {
-				double orderQty = feasibleActions[i];
-				double thisQValue = 0;								
-				for (int j = 0; j < dAndP.length; j++) {
-					thisQValue += dAndP[j][1] * immediateValue.apply(s, orderQty, dAndP[j][0]);
-					if (s.getPeriod() < pmf.length) {
-						State newState = stateTransition.apply(s, orderQty, dAndP[j][0]);
-						thisQValue += dAndP[j][1] * getExpectedValue(newState);
+			long start = metrics != null ? metrics.enter() : 0;
+			try {
+				double[] feasibleActions = getFeasibleActions.apply(state);
+				double[][] dAndP = pmf[s.getPeriod() - 1]; // demandAndPossibility
+				double[] QValues = new double[feasibleActions.length];
+				double val = optDirection == OptDirection.MIN ? Double.MAX_VALUE
+															  : -Double.MAX_VALUE;
+				double bestOrderQty = 0;
+				for (int i = 0; i < feasibleActions.length; i++) {
+					double orderQty = feasibleActions[i];
+					double thisQValue = 0;								
+					for (int j = 0; j < dAndP.length; j++) {
+						thisQValue += dAndP[j][1] * doubleImmediateValue.apply(s, orderQty, dAndP[j][0]);
+						if (s.getPeriod() < pmf.length) {
+							State newState = doubleStateTransition.apply(s, orderQty, dAndP[j][0]);
+							thisQValue += dAndP[j][1] * getExpectedValue(newState);
+						}
 					}
-				}
-				QValues[i] = thisQValue;
-				if (optDirection == OptDirection.MIN) {
-					if (QValues[i] < val) {
-						val = QValues[i];
-						bestOrderQty = orderQty;
+					QValues[i] = thisQValue;
+					if (optDirection == OptDirection.MIN) {
+						if (QValues[i] < val) {
+							val = QValues[i];
+							bestOrderQty = orderQty;
+						}
 					}
-				}
-				else {
-					if (QValues[i] > val) {
-						val = QValues[i];
-						bestOrderQty = orderQty;
+					else {
+						if (QValues[i] > val) {
+							val = QValues[i];
+							bestOrderQty = orderQty;
+						}
 					}
 				}
-			}
 			
-			this.cacheActions.putIfAbsent(s, bestOrderQty);
-			return val;
+				this.cacheActions.put(s, bestOrderQty); // kept after a stop as the truncated-horizon policy
+				if (finishState(s.getPeriod(), start, feasibleActions.length, (long) feasibleActions.length * dAndP.length))
+					return val;
+				partialValue[0] = val;
+				return null;
+			} catch (RuntimeException | Error e) {
+				if (metrics != null)
+					metrics.abort(start); // the expansion is not cached, keep the gauges balanced
+				throw e;
+			}
 		});
+		return value != null ? value : partialValue[0];
+	}
+	
+	/**
+	 * end of the expansion of a state. The value is only cached if the solve did not stop before it,
+	 * otherwise it depends on truncated states and the state is expanded again by a later solve
+	 * @return whether the value can be cached
+	 */
+	boolean finishState(int period, long start, long actionNum, long demandPointNum) {
+		boolean partial = control != null && control.isStopped();
+		if (control != null)
+			control.expanded(period);
+		if (metrics != null) {
+			metrics.exit(period, start, actionNum, demandPointNum);
+			if (partial)
+				metrics.removed(1);
+		}
+		return !partial;
+	}
+	
+	/**
+	 * solve a batch of initial states against the shared value table, so the subproblems common to 
+	 * the initial states are only solved once
+	 * @param initialStates
+	 * @param parallel whether solving the initial states in parallel
+	 * @return {values, actions}, values[i] and actions[i] are for initialStates[i]; after a stop of the control,
+	 *         an initial state that was not expanded has the truncated value 0 and the action NaN
+	 */
+	public double[][] solveAll(State[] initialStates, boolean parallel) {
+		int n = initialStates.length;
+		double[] values = new double[n];
+		double[] actions = new double[n];
+		SortedMap<State, Double> sortedActions = cacheActions;
+		if (parallel && !(cacheActions instanceof ConcurrentMap)) // the tree map from setTreeMapCacheAction is not thread safe
+			cacheActions = new ConcurrentSkipListMap<>(sortedActions.comparator());
+		IntStream indexes = parallel ? IntStream.range(0, n).parallel() : IntStream.range(0, n);
+		indexes.forEach(i -> values[i] = getExpectedValue(initialStates[i]));
+		if (sortedActions != cacheActions) {
+			sortedActions.putAll(cacheActions);
+			cacheActions = sortedActions;
+		}
+		for (int i = 0; i < n; i++) {
+			Double action = cacheActions.get(initialStates[i]);
+			actions[i] = action == null ? Double.NaN : action; // not solved before a stop of the control
+		}
+		return new double[][] {values, actions};
+	}
+	
+	/**
+	 * @param period
+	 * @param iniInventories
+	 * @param parallel
+	 * @return {values, actions} of the initial inventories in the period
+	 */
+	public double[][] solveAll(int period, double[] iniInventories, boolean parallel) {
+		State[] initialStates = Arrays.stream(iniInventories).mapToObj(x -> new State(period, x)).toArray(State[]::new);
+		return solveAll(initialStates, parallel);
+	}
+	
+	/**
+	 * stationary infinite-horizon solution by discounted value iteration, the demand of every period follows pmf[0];
+	 * the values and actions of the states are written into the tables, e.g., for getPolicyTable or freeze
+	 * @param states state grid of one period, next states of the transition must be on the grid
+	 * @param discountFactor in (0, 1)
+	 * @param method
+	 * @param evaluationSweeps sweeps of the greedy policy after each improvement, 0 for plain value iteration
+	 * @param epsilon optimality gap of the policy
+	 * @return the solver, e.g., for the number of iterations
+	 */
+	public StationaryRecursion<State> solveStationary(State[] states, double discountFactor, 
+			StationaryRecursion.Method method, int evaluationSweeps, double epsilon) {
+		StationaryRecursion<State> stationary = new StationaryRecursion<>(states, Comparator.comparingDouble(State::getIniInventory),
+				pmf[0], optDirection == OptDirection.MAX, getFeasibleActions, doubleStateTransition, doubleImmediateValue, discountFactor);
+		stationary.setMethod(method);
+		stationary.setEvaluationSweeps(evaluationSweeps);
+		stationary.setControl(control);
+		double[] values = stationary.solve(epsilon);
+		double[] actions = stationary.getActions();
+		for (int i = 0; i < states.length; i++) {
+			cacheValues.put(states[i], values[i]);
+			cacheActions.put(states[i], actions[i]);
+		}
+		return stationary;
 	}
 	
 	public double getAction(State state) {
@@ -184,5 +371,20 @@ public class Recursion {
 		}
 		return arr;
 	}
+	
+	/**
+	 * @return optimal decision table of SDP with the rows grouped by period
+	 */
+	public PolicyTable getPolicyTable() {
+		return new PolicyTable(getOptTable());
+	}
+	
+	/**
+	 * @param rule rule for the states not solved by the recursion
+	 * @return an immutable copy of the optimal policy solved so far, safe for concurrent simulation
+	 */
+	public FrozenPolicy freeze(FrozenPolicy.OffGridRule rule) {
+		return new FrozenPolicy(getPolicyTable(), rule);
+	}
 
 }
@@ -2,10 +2,14 @@ package sdp.inventory;
 
 import java.text.DecimalFormat;
 import java.util.Arrays;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
 
-import sdp.inventory.ImmediateValue.ImmediateValueFunction;
-import sdp.inventory.StateTransition.StateTransitionFunction;
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
+import sdp.sampling.ControlVariateTally;
 import sdp.sampling.Sampling;
+import sdp.sampling.Sampling.SampleMethod;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.stat.Tally;
 
@@ -19,10 +23,14 @@ import umontreal.ssj.stat.Tally;
 public class Simulation {
 
 	protected int sampleNum;
+	protected SampleMethod sampleMethod = SampleMethod.LHS;
 	protected Distribution[] distributions;
 	Recursion recursion;
-	protected StateTransitionFunction<State, Double, Double, State> stateTransition; 
-	protected ImmediateValueFunction<State, Double, Double, Double> immediateValue; 
+	FrozenPolicy frozenPolicy; // read instead of the recursion if it is set
+	
+	boolean antithetic = false;
+	ToDoubleFunction<double[]> control; // control variate of a demand sample, null for no control variate
+	double controlMean;
 
 	/**
 	 * simulation for inventory only problem
@@ -35,14 +43,65 @@ public class Simulation {
 		this.distributions = distributions;
 		this.sampleNum = sampleNum;
 		this.recursion = recursion;
-		this.stateTransition = recursion.getStateTransitionFunction();
-		this.immediateValue = recursion.getImmediateValueFunction();		
+	}
+	
+	/**
+	 * @return the current transition of the recursion, so functions set on it after this simulation is built are used
+	 */
+	protected DoubleStateTransition<State> stateTransition() {
+		return recursion.getDoubleStateTransition();
+	}
+	
+	protected DoubleImmediateValue<State> immediateValue() {
+		return recursion.getDoubleImmediateValue();
 	}
 
 	public void setSampleNum(int n) {
 		this.sampleNum = n;
 	}
 	
+	/**
+	 * @param sampleMethod LHS by default, or randomized quasi-Monte Carlo
+	 */
+	public void setSampleMethod(SampleMethod sampleMethod) {
+		this.sampleMethod = sampleMethod;
+	}
+	
+	/**
+	 * simulate sdp by a frozen policy instead of the recursion, 
+	 * sample paths of simulateSDPGivenSamplNum are then simulated in parallel;
+	 * the values equal those by the recursion only if every simulated state was solved before freezing
+	 * @param frozenPolicy
+	 */
+	public void setFrozenPolicy(FrozenPolicy frozenPolicy) {
+		this.frozenPolicy = frozenPolicy;
+	}
+	
+	/**
+	 * simulate antithetic pairs of demand samples in simulateSDPwithErrorConfidence
+	 */
+	public void setAntithetic(boolean antithetic) {
+		this.antithetic = antithetic;
+	}
+	
+	/**
+	 * use a regression control variate in simulateSDPwithErrorConfidence
+	 * @param control control variate of a demand sample
+	 * @param controlMean known expectation of the control variate
+	 */
+	public void setControlVariate(ToDoubleFunction<double[]> control, double controlMean) {
+		this.control = control;
+		this.controlMean = controlMean;
+	}
+	
+	/**
+	 * use the total demand as control variate, its mean is known from the distributions
+	 */
+	public void setDemandControlVariate() {
+		setControlVariate(sample -> Arrays.stream(sample).sum(), 
+				Arrays.stream(distributions).mapToDouble(Distribution::getMean).sum());
+	}
+	
 	
 	/**
 	 * 
@@ -50,53 +109,96 @@ public class Simulation {
 	 * @return simulate sdp in a given number of samples
 	 */
 	public double simulateSDPGivenSamplNum(State iniState) {
+		SolverEvents.SimulationBatch event = new SolverEvents.SimulationBatch();
+		event.begin();
 		Sampling.resetStartStream();
 		Sampling sampling = new Sampling();
-		double[][] samples = sampling.generateLHSamples(distributions, sampleNum);
-		double[] simuValues = new double[samples.length];		
-		for (int i = 0; i < samples.length; i++) {
-			double sum = 0; State state = iniState;
-			for (int t = 0; t < samples[0].length; t++)
-			{
-				recursion.getExpectedValue(state);
-				double optQ = recursion.getAction(state);
-				double randomDemand = Math.round(samples[i][t]); // integer samples to test sdp
-				sum += immediateValue.apply(state, optQ, randomDemand);
-				state = stateTransition.apply(state, optQ, randomDemand);
-			}
-			simuValues[i] = sum;
-		}
+		double[][] samples = sampling.generateSamples(distributions, sampleNum, sampleMethod);
+		double[] simuValues = new double[samples.length];	
+		IntStream paths = IntStream.range(0, samples.length);
+		if (frozenPolicy != null)
+			paths = paths.parallel();
+		paths.forEach(i -> simuValues[i] = simulateSDPSample(iniState, samples[i]));
+		event.commit("Simulation", samples.length, distributions.length, 1, frozenPolicy != null);
 		DecimalFormat df2 = new DecimalFormat("###,###");
 		double simFinalValue = Arrays.stream(simuValues).sum()/samples.length;
 		System.out.println("\nfinal simulated expected value in " + df2.format(sampleNum) + " samples is: " + simFinalValue);
 		return simFinalValue;
 	}
 
+	double getSDPAction(State state) {
+		if (frozenPolicy != null)
+			return frozenPolicy.getAction(state.getPeriod(), state.getIniInventory());
+		recursion.getExpectedValue(state);
+		return recursion.getAction(state);
+	}
+	
+	/**
+	 * 
+	 * @param iniState
+	 * @param realizedDemand
+	 * @return value of the sdp policy in one demand sample
+	 */
+	double simulateSDPSample(State iniState, double[] realizedDemand) {
+		double sum = 0; State state = iniState;
+		for (int t = 0; t < realizedDemand.length; t++)
+		{
+			double optQ = getSDPAction(state);
+			double randomDemand = Math.round(realizedDemand[t]); // integer samples to test sdp
+			sum += immediateValue().apply(state, optQ, randomDemand);
+			state = stateTransition().apply(state, optQ, randomDemand);
+		}
+		return sum;
+	}
+
+	/**
+	 * antithetic samples and control variate are used if they are set, 
+	 * an antithetic pair is one observation of the confidence interval and counts as two samples;
+	 * the samples are independent, so randomized quasi-Monte Carlo is not accepted, see simulateSDPwithReplicates
+	 * 
+	 * @param iniState
+	 * @param error
+	 * @param confidence
+	 * @return simulate sdp results with error confidence
+	 */
 	public double[] simulateSDPwithErrorConfidence(State iniState, double error, double confidence) {
+		if (sampleMethod != SampleMethod.LHS)
+			throw new IllegalStateException("the confidence interval of independent samples is not valid for " + sampleMethod 
+					+ ", use simulateSDPwithReplicates");
+		SolverEvents.SimulationBatch event = new SolverEvents.SimulationBatch();
+		event.begin();
 		int minRuns = 1000;   int maxRuns = 1000000;
 		Sampling.resetStartStream();
 
 		Tally costTally = new Tally();
+		ControlVariateTally cvTally = new ControlVariateTally(controlMean);
 		double[] centerAndRadius = new double[2];
-		int sampleNumUse = 0;		
-		for(int i = 0; i < minRuns || (centerAndRadius[1]>=centerAndRadius[0]*error && i < maxRuns); i++) {
+		int sampleNumUse = 0;	
+		int pathNum = antithetic ? 2 : 1;
+		for(int i = 0; i < minRuns || (centerAndRadius[1]>=centerAndRadius[0]*error && i < maxRuns); i += pathNum) {
 			Sampling sampling = new Sampling();
-			double[] realizedDemand = sampling.getNextSample(distributions);
-			double sum = 0; State state = iniState;
-			for (int t = 0; t < realizedDemand.length; t++)
-			{
-				recursion.getExpectedValue(state);
-				double optQ = recursion.getAction(state);
-				double randomDemand = Math.round(realizedDemand[t]); // integer samples to test sdp
-				sum += immediateValue.apply(state, optQ, randomDemand);
-				state = stateTransition.apply(state, optQ, randomDemand);
+			double[][] realizedDemands = antithetic ? sampling.getNextAntitheticSamples(distributions)
+					: new double[][] {sampling.getNextSample(distributions)};
+			double sum = 0; double controlSum = 0;
+			for (double[] realizedDemand : realizedDemands) {
+				sum += simulateSDPSample(iniState, realizedDemand) / pathNum;
+				if (control != null)
+					controlSum += control.applyAsDouble(realizedDemand) / pathNum;
+			}
+			if (control != null) {
+				cvTally.add(sum, controlSum);
+				if(i >= minRuns) 
+					cvTally.confidenceIntervalNormal(confidence, centerAndRadius);
+			}
+			else {
+				costTally.add(sum);
+				if(i >= minRuns) 
+					costTally.confidenceIntervalNormal(confidence, centerAndRadius);	
 			}
-			costTally.add(sum);
-			if(i >= minRuns) 
-				costTally.confidenceIntervalNormal(confidence, centerAndRadius);	
-			sampleNumUse = i + 1;
+			sampleNumUse = i + pathNum;
 		}
 
+		event.commit("Simulation", sampleNumUse, distributions.length, 1, false);
 		DecimalFormat df1 = new DecimalFormat("0.0000");
 		DecimalFormat df2 = new DecimalFormat("###,###");
 		System.out.println(
@@ -105,6 +207,42 @@ public class Simulation {
 		return centerAndRadius;
 	}
 	
-	
+	/**
+	 * simulate sdp in replicateNum independent randomizations of sampleNum samples, see Sampling.generateReplicates,
+	 * the confidence interval is computed from the means of the randomizations
+	 * 
+	 * @param iniState
+	 * @param replicateNum at least 2
+	 * @param confidence
+	 * @return center and radius of the confidence interval
+	 */
+	public double[] simulateSDPwithReplicates(State iniState, int replicateNum, double confidence) {
+		if (replicateNum < 2)
+			throw new IllegalArgumentException("a confidence interval needs at least 2 replicates");
+		SolverEvents.SimulationBatch event = new SolverEvents.SimulationBatch();
+		event.begin();
+		Sampling.resetStartStream();
+		Sampling sampling = new Sampling();
+		double[][][] replicates = sampling.generateReplicates(distributions, sampleNum, sampleMethod, replicateNum);
+		double[] replicateMeans = new double[replicateNum];
+		for (int r = 0; r < replicateNum; r++) {
+			double[][] samples = replicates[r];
+			double[] simuValues = new double[samples.length];
+			IntStream paths = IntStream.range(0, samples.length);
+			if (frozenPolicy != null)
+				paths = paths.parallel();
+			paths.forEach(i -> simuValues[i] = simulateSDPSample(iniState, samples[i]));
+			replicateMeans[r] = Arrays.stream(simuValues).sum() / samples.length;
+		}
+		event.commit("Simulation", sampleNum * replicateNum, distributions.length, 1, frozenPolicy != null);
+		double[] centerAndRadius = Sampling.replicateConfidenceInterval(replicateMeans, confidence);
+		DecimalFormat df1 = new DecimalFormat("0.0000");
+		DecimalFormat df2 = new DecimalFormat("###,###");
+		System.out.println(
+				"final simulated expected value in " + confidence*100 + "% confidence level is: " + df1.format(centerAndRadius[0]));
+		System.out.println("using " + replicateNum + " replicates of " + df2.format(sampleNum) + " samples, " 
+				+ "confidence interval is [" + "-" + df1.format(centerAndRadius[1]) + ", " + df1.format(centerAndRadius[1]) + "]");
+		return centerAndRadius;
+	}
 	
 }
@@ -0,0 +1,137 @@
+package sdp.inventory;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026---1:06:45 AM
+ * @description: time budget, cancellation and progress of a recursion solve, e.g., for a scheduler of batch solves.
+ *               A recursion checks the control before expanding a state. After the deadline, a cancel() or
+ *               an interruption of the solving thread, the states not solved yet are not expanded any more:
+ *               their values are the final values, as if the planning horizon ended at them. The solve then returns
+ *               quickly with a truncated-horizon policy for the states solved before the stop, and isComplete()
+ *               is false.
+ *
+ *               StationaryRecursion stops its value iteration instead, with the values of the last iteration.
+ *
+ *               The values of the states whose expansion ends after the stop depend on the truncated states: they are
+ *               returned to the states above them but not cached, while their actions are kept as the truncated-horizon
+ *               policy. So the cached values stay exact, and solving again with a new control only expands
+ *               the states not solved before the stop.
+ */
+
+public class SolveControl {
+
+	/**
+	 * told about the progress every reportInterval expanded states, called by the solving thread
+	 */
+	@FunctionalInterface
+	public interface Progress {
+		void report(int period, long periodStatesDone, long statesDone, long elapsedMillis);
+	}
+
+	long startNanos = System.nanoTime();
+	long deadlineNanos;
+	boolean hasDeadline = false;
+	volatile boolean cancelled = false;
+	volatile boolean stopped = false;
+	Map<Integer, LongAdder> periodStatesDone = new ConcurrentHashMap<>();
+	AtomicLong statesDone = new AtomicLong();
+	LongAdder truncatedStates = new LongAdder();
+	Progress progress;
+	long reportInterval = 100000;
+
+	/**
+	 * @param millis time budget from now
+	 */
+	public void setTimeBudget(long millis) {
+		this.deadlineNanos = System.nanoTime() + millis * 1000000;
+		this.hasDeadline = true;
+	}
+
+	/**
+	 * @param progress
+	 * @param reportInterval number of expanded states between two reports
+	 */
+	public void setProgress(Progress progress, long reportInterval) {
+		if (reportInterval < 1)
+			throw new IllegalArgumentException("report interval should be positive");
+		this.progress = progress;
+		this.reportInterval = reportInterval;
+	}
+
+	/**
+	 * stop the solve as soon as possible, can be called from another thread
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return whether no more states should be expanded, true for ever once the solve is stopped
+	 */
+	public boolean isStopped() {
+		if (stopped)
+			return true;
+		if (cancelled || (hasDeadline && System.nanoTime() - deadlineNanos > 0) || Thread.currentThread().isInterrupted())
+			stopped = true;
+		return stopped;
+	}
+
+	/**
+	 * @param stateNum unsolved states whose values are replaced by the final values, or not converged, after the stop
+	 */
+	public void truncated(long stateNum) {
+		truncatedStates.add(stateNum);
+	}
+
+	/**
+	 * an expanded state
+	 * @param period
+	 */
+	public void expanded(int period) {
+		LongAdder periodDone = periodStatesDone.computeIfAbsent(period, t -> new LongAdder());
+		periodDone.increment();
+		long done = statesDone.incrementAndGet();
+		if (progress != null && done % reportInterval == 0)
+			progress.report(period, periodDone.sum(), done, getElapsedMillis());
+	}
+
+	/**
+	 * @return whether no state value is truncated, i.e., the result is exact
+	 */
+	public boolean isComplete() {
+		return truncatedStates.sum() == 0;
+	}
+
+	public long getTruncatedStates() {
+		return truncatedStates.sum();
+	}
+
+	public long getStatesDone() {
+		return statesDone.get();
+	}
+
+	/**
+	 * @return states expanded in each period
+	 */
+	public Map<Integer, Long> getPeriodStatesDone() {
+		Map<Integer, Long> done = new TreeMap<>();
+		periodStatesDone.forEach((t, adder) -> done.put(t, adder.sum()));
+		return done;
+	}
+
+	public long getElapsedMillis() {
+		return (System.nanoTime() - startNanos) / 1000000;
+	}
+}
@@ -0,0 +1,171 @@
+package sdp.inventory;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026---12:14:27 AM
+ * @description: Java Flight Recorder events of the solving phases: building the pmf, solving a recursion
+ *               with the counters of each period, extracting a policy from the decision table and simulating
+ *               a batch of samples. They are only written when a recording enables them, e.g.,
+ *               java -XX:StartFlightRecording:filename=sdp.jfr, and cost almost nothing otherwise.
+ *
+ *               The recursion events come from the SolverMetrics of a recursion, which is set automatically
+ *               when a recording of the period events is running as the recursion is built.
+ */
+
+public class SolverEvents {
+
+	@Name("sdp.PmfBuild")
+	@Label("Pmf Build")
+	@Category({"SDP", "Pmf"})
+	@StackTrace(false)
+	public static class PmfBuild extends Event {
+		@Label("Builder")
+		public String builder;
+
+		@Label("Periods")
+		@Description("periods of the pmf, 1 for the pmf of one period")
+		public int periods;
+
+		@Label("Demand Points")
+		@Description("demand points of all the built periods")
+		public long demandPoints;
+
+		public void commit(String builder, int periods, long demandPoints) {
+			if (shouldCommit()) {
+				this.builder = builder;
+				this.periods = periods;
+				this.demandPoints = demandPoints;
+				commit();
+			}
+		}
+	}
+
+	@Name("sdp.RecursionSolve")
+	@Label("Recursion Solve")
+	@Category({"SDP", "Recursion"})
+	@Description("a top level expansion of a recursion, including the expansions of the next periods inside it")
+	@StackTrace(false)
+	public static class RecursionSolve extends Event {
+		@Label("Engine")
+		public String engine;
+
+		@Label("Initial Period")
+		public int initialPeriod;
+
+		@Label("States Expanded")
+		public long statesExpanded;
+	}
+
+	@Name("sdp.RecursionPeriod")
+	@Label("Recursion Period")
+	@Category({"SDP", "Recursion"})
+	@Description("counters of one period in a top level expansion of a recursion, written as it ends")
+	@StackTrace(false)
+	public static class RecursionPeriod extends Event {
+		@Label("Engine")
+		public String engine;
+
+		@Label("Period")
+		public int period;
+
+		@Label("States Expanded")
+		public long statesExpanded;
+
+		@Label("Actions Evaluated")
+		public long actionsEvaluated;
+
+		@Label("Demand Points Evaluated")
+		public long demandPointsEvaluated;
+
+		@Label("Own Time")
+		@Description("time of the expansions of this period, without the next periods solved inside them")
+		@Timespan(Timespan.NANOSECONDS)
+		public long ownTime;
+	}
+
+	@Name("sdp.PolicyExtraction")
+	@Label("Policy Extraction")
+	@Category({"SDP", "Policy"})
+	@StackTrace(false)
+	public static class PolicyExtraction extends Event {
+		@Label("Policy")
+		public String policy;
+
+		@Label("Periods")
+		public int periods;
+
+		@Label("Table Rows")
+		@Description("rows of the optimal decision table")
+		public int tableRows;
+
+		public void commit(String policy, int periods, int tableRows) {
+			if (shouldCommit()) {
+				this.policy = policy;
+				this.periods = periods;
+				this.tableRows = tableRows;
+				commit();
+			}
+		}
+	}
+
+	@Name("sdp.SimulationBatch")
+	@Label("Simulation Batch")
+	@Category({"SDP", "Simulation"})
+	@StackTrace(false)
+	public static class SimulationBatch extends Event {
+		@Label("Simulator")
+		public String simulator;
+
+		@Label("Samples")
+		public int samples;
+
+		@Label("Periods")
+		public int periods;
+
+		@Label("Policies")
+		public int policies;
+
+		@Label("Parallel")
+		public boolean parallel;
+
+		public void commit(String simulator, int samples, int periods, int policies, boolean parallel) {
+			if (shouldCommit()) {
+				this.simulator = simulator;
+				this.samples = samples;
+				this.periods = periods;
+				this.policies = policies;
+				this.parallel = parallel;
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * @return whether a running recording enables the recursion period events
+	 */
+	public static boolean isRecordingRecursion() {
+		return FlightRecorder.isInitialized() && EventType.getEventType(RecursionPeriod.class).isEnabled();
+	}
+
+	/**
+	 * @return number of demand points in the pmf
+	 */
+	static long countPoints(double[][][] pmf) {
+		long n = 0;
+		for (double[][] periodPmf : pmf)
+			n += periodPmf.length;
+		return n;
+	}
+}
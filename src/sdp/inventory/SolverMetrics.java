@@ -0,0 +1,340 @@
+package sdp.inventory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 18, 2026---11:31:18 PM
+ * @description: counters of a recursion solve in each period: states expanded, which are the cache misses, cache hits,
+ *               actions and demand points evaluated, and the time spent in the expansions of the period
+ *               (the time of the next periods solved inside an expansion is excluded), e.g., to see whether a slow
+ *               instance comes from state explosion, wide action sets or wide pmf.
+ *
+ *               A recursion only reports to the metrics set by its setMetrics, so there is no cost but a null check
+ *               when it is not set. The counters are thread safe for the parallel solves. The metrics can be
+ *               watched in a JMX console after register(), and listeners are told about every expanded state.
+ *               When a flight recording enables them, the counters of each top level expansion are also written
+ *               as SolverEvents.RecursionPeriod events.
+ */
+
+public class SolverMetrics {
+
+	/**
+	 * told about every expanded state, called by the solving thread, so it should be fast
+	 */
+	public interface Listener {
+		void stateExpanded(int period, long nanos, long actionNum, long demandPointNum);
+	}
+
+	/**
+	 * attributes of the metrics in a JMX console, arrays are by period
+	 */
+	public interface MBean {
+		long[] getStatesExpanded();
+		long[] getCacheHits();
+		long[] getActionsEvaluated();
+		long[] getDemandPointsEvaluated();
+		long[] getMillis();
+		double getCacheHitRate();
+		long getTableSize();
+		long getPeakTableSize();
+		void reset();
+	}
+
+	int T;
+	LongAdder[] lookups;
+	LongAdder[] expansions;
+	LongAdder[] actions;
+	LongAdder[] demandPoints;
+	LongAdder[] nanos;
+	LongAdder tableSize = new LongAdder();
+	LongAccumulator peakTableSize = new LongAccumulator(Math::max, 0);
+	List<Listener> listeners = new CopyOnWriteArrayList<>();
+	ThreadLocal<Frames> frames = ThreadLocal.withInitial(Frames::new);
+	ObjectName objectName;
+	String engine = "recursion";
+
+	/**
+	 * expansions in progress of a thread
+	 */
+	static class Frames {
+		long[] childNanos = new long[16]; // childNanos[d] is the time of the next periods solved in the expansion of depth d
+		int depth;
+		SolverEvents.RecursionSolve solveEvent; // not null if the current top level expansion is recorded
+		long[][] periodCounts; // {states, actions, demand points, own nanos}[t] in the current top level expansion
+	}
+
+	/**
+	 * @param T number of periods
+	 */
+	public SolverMetrics(int T) {
+		this.T = T;
+		this.lookups = newAdders(T);
+		this.expansions = newAdders(T);
+		this.actions = newAdders(T);
+		this.demandPoints = newAdders(T);
+		this.nanos = newAdders(T);
+	}
+
+	/**
+	 * @param engine name of the recursion in the flight recording
+	 * @param T number of periods
+	 * @return new metrics if a flight recording of the recursion events is running, otherwise null
+	 */
+	public static SolverMetrics forRecording(String engine, int T) {
+		if (!SolverEvents.isRecordingRecursion())
+			return null;
+		SolverMetrics metrics = new SolverMetrics(T);
+		metrics.engine = engine;
+		return metrics;
+	}
+
+	static LongAdder[] newAdders(int T) {
+		LongAdder[] adders = new LongAdder[T];
+		for (int t = 0; t < T; t++)
+			adders[t] = new LongAdder();
+		return adders;
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * a look-up of the value table, a hit if the state is not expanded after it
+	 * @param period
+	 */
+	public void lookup(int period) {
+		lookups[period - 1].increment();
+	}
+
+	/**
+	 * @return start time of an expansion
+	 */
+	public long enter() {
+		Frames f = frames.get();
+		int depth = ++f.depth;
+		if (depth == f.childNanos.length)
+			f.childNanos = Arrays.copyOf(f.childNanos, 2 * depth);
+		f.childNanos[depth] = 0;
+		if (depth == 1) {
+			SolverEvents.RecursionSolve event = new SolverEvents.RecursionSolve();
+			if (event.isEnabled()) {
+				event.begin();
+				f.solveEvent = event;
+				if (f.periodCounts == null)
+					f.periodCounts = new long[4][T];
+			}
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * end of an expansion, called last so that an exception before it is closed by abort
+	 * @param period
+	 * @param start from enter()
+	 * @param actionNum actions evaluated
+	 * @param demandPointNum demand points evaluated for all the actions
+	 */
+	public void exit(int period, long start, long actionNum, long demandPointNum) {
+		long elapsed = System.nanoTime() - start;
+		Frames f = frames.get();
+		int depth = f.depth;
+		long ownNanos = elapsed - f.childNanos[depth];
+		for (Listener listener : listeners) // before counting, so that a listener that throws leaves nothing counted
+			listener.stateExpanded(period, ownNanos, actionNum, demandPointNum);
+
+		expansions[period - 1].increment();
+		actions[period - 1].add(actionNum);
+		demandPoints[period - 1].add(demandPointNum);
+		nanos[period - 1].add(ownNanos);
+		tableSize.increment();
+		if (f.solveEvent != null) {
+			long[][] counts = f.periodCounts;
+			counts[0][period - 1]++;
+			counts[1][period - 1] += actionNum;
+			counts[2][period - 1] += demandPointNum;
+			counts[3][period - 1] += ownNanos;
+			if (depth == 1)
+				commitEvents(f, period);
+		}
+		f.depth--;
+		f.childNanos[depth - 1] += elapsed;
+	}
+
+	/**
+	 * end of an expansion that did not finish, e.g., a model function threw: only the frame of the expansion is
+	 * closed, so that the gauges of the thread stay balanced, and nothing is counted
+	 * @param start from enter()
+	 */
+	public void abort(long start) {
+		long elapsed = System.nanoTime() - start;
+		Frames f = frames.get();
+		int depth = f.depth--;
+		f.childNanos[depth - 1] += elapsed;
+		if (depth == 1 && f.solveEvent != null) {
+			for (long[] row : f.periodCounts)
+				Arrays.fill(row, 0);
+			f.solveEvent = null;
+		}
+	}
+
+	/**
+	 * write the events of a finished top level expansion
+	 */
+	void commitEvents(Frames f, int initialPeriod) {
+		long[][] counts = f.periodCounts;
+		long statesExpanded = 0;
+		for (int t = 0; t < T; t++) {
+			if (counts[0][t] == 0)
+				continue;
+			SolverEvents.RecursionPeriod event = new SolverEvents.RecursionPeriod();
+			event.engine = engine;
+			event.period = t + 1;
+			event.statesExpanded = counts[0][t];
+			event.actionsEvaluated = counts[1][t];
+			event.demandPointsEvaluated = counts[2][t];
+			event.ownTime = counts[3][t];
+			event.commit();
+			statesExpanded += counts[0][t];
+			for (long[] row : counts)
+				row[t] = 0;
+		}
+		f.solveEvent.engine = engine;
+		f.solveEvent.initialPeriod = initialPeriod;
+		f.solveEvent.statesExpanded = statesExpanded;
+		f.solveEvent.commit();
+		f.solveEvent = null;
+	}
+
+	/**
+	 * @param stateNum states removed from the value table, e.g., by clearing the cache
+	 */
+	public void removed(long stateNum) {
+		peakTableSize.accumulate(tableSize.sum()); // the table only shrinks here, so its peak is kept before
+		tableSize.add(-stateNum);
+	}
+
+	static long[] sums(LongAdder[] adders) {
+		return Arrays.stream(adders).mapToLong(LongAdder::sum).toArray();
+	}
+
+	public long[] getStatesExpanded() {
+		return sums(expansions);
+	}
+
+	/**
+	 * @return look-ups that did not expand a state, the misses are the states expanded
+	 */
+	public long[] getCacheHits() {
+		long[] hits = sums(lookups);
+		long[] misses = sums(expansions);
+		for (int t = 0; t < T; t++)
+			hits[t] = Math.max(hits[t] - misses[t], 0);
+		return hits;
+	}
+
+	public long[] getActionsEvaluated() {
+		return sums(actions);
+	}
+
+	public long[] getDemandPointsEvaluated() {
+		return sums(demandPoints);
+	}
+
+	public long[] getNanos() {
+		return sums(nanos);
+	}
+
+	public long[] getMillis() {
+		return Arrays.stream(getNanos()).map(n -> n / 1000000).toArray();
+	}
+
+	public double getCacheHitRate() {
+		long hits = Arrays.stream(getCacheHits()).sum();
+		long misses = Arrays.stream(getStatesExpanded()).sum();
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+
+	public long getTableSize() {
+		return tableSize.sum();
+	}
+
+	/**
+	 * @return the largest table size, exact since the size only goes down when states are removed
+	 */
+	public long getPeakTableSize() {
+		return Math.max(peakTableSize.get(), tableSize.sum());
+	}
+
+	/**
+	 * reset the counters, the table size is kept since the tables are not cleared
+	 */
+	public void reset() {
+		for (LongAdder[] adders : Arrays.asList(lookups, expansions, actions, demandPoints, nanos))
+			for (LongAdder adder : adders)
+				adder.reset();
+		peakTableSize.reset();
+		peakTableSize.accumulate(tableSize.sum());
+	}
+
+	/**
+	 * register the metrics to the platform MBean server
+	 * @param name e.g., "sdp:type=SolverMetrics,name=CashRecursion"
+	 */
+	public void register(String name) throws JMException {
+		MBean view = new MBean() {
+			public long[] getStatesExpanded() {return SolverMetrics.this.getStatesExpanded();}
+			public long[] getCacheHits() {return SolverMetrics.this.getCacheHits();}
+			public long[] getActionsEvaluated() {return SolverMetrics.this.getActionsEvaluated();}
+			public long[] getDemandPointsEvaluated() {return SolverMetrics.this.getDemandPointsEvaluated();}
+			public long[] getMillis() {return SolverMetrics.this.getMillis();}
+			public double getCacheHitRate() {return SolverMetrics.this.getCacheHitRate();}
+			public long getTableSize() {return SolverMetrics.this.getTableSize();}
+			public long getPeakTableSize() {return SolverMetrics.this.getPeakTableSize();}
+			public void reset() {SolverMetrics.this.reset();}
+		};
+		objectName = new ObjectName(name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(view, MBean.class), objectName);
+	}
+
+	public void unregister() throws JMException {
+		if (objectName != null)
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		objectName = null;
+	}
+
+	/**
+	 * @return a table of the counters by period
+	 */
+	@Override
+	public String toString() {
+		long[] states = getStatesExpanded();
+		long[] hits = getCacheHits();
+		long[] actionNums = getActionsEvaluated();
+		long[] demandPointNums = getDemandPointsEvaluated();
+		long[] millis = getMillis();
+		StringBuilder sb = new StringBuilder("period\tstates\thits\tactions\tdemand points\tms\n");
+		for (int t = 0; t < T; t++)
+			sb.append(t + 1).append('\t').append(states[t]).append('\t').append(hits[t]).append('\t').append(actionNums[t])
+			  .append('\t').append(demandPointNums[t]).append('\t').append(millis[t]).append('\n');
+		sb.append("cache hit rate ").append(String.format("%.4f", getCacheHitRate()))
+		  .append(", peak table size ").append(getPeakTableSize());
+		return sb.toString();
+	}
+}
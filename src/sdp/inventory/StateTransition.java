@@ -26,5 +26,38 @@ public class StateTransition {
 		public S2 apply (S s, R r);
 	}
 	
+	/**
+	 * state transition with primitive action and demand, no boxing in the recursion
+	 * 
+	 * @param <S> state
+	 */
+	public interface DoubleStateTransition<S> {
+		public S apply(S s, double action, double demand);
+		
+		/**
+		 * @return adapter of a generic state transition
+		 */
+		public static <S> DoubleStateTransition<S> of(StateTransitionFunction<S, Double, Double, S> f) {
+			return f == null ? null : (s, action, demand) -> f.apply(s, action, demand);
+		}
+		
+		/**
+		 * @return generic view of this state transition
+		 */
+		public default StateTransitionFunction<S, Double, Double, S> boxed() {
+			return (s, action, demand) -> apply(s, action, demand);
+		}
+	}
+	
+	/**
+	 * primitive state transition for two items, no boxing or state objects
+	 * 
+	 * @param nextState output array: end inventory of item 1, end inventory of item 2, end cash
+	 */
+	public interface StateTransitionFunctionMulti {
+		public void apply(int period, double x1, double x2, double cash, double q1, double q2, 
+				double d1, double d2, double[] nextState);
+	}
+	
 
 }
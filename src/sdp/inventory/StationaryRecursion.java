@@ -0,0 +1,253 @@
+package sdp.inventory;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.StateTransition.DoubleStateTransition;
+
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 18, 2026---9:12:40 PM
+ * @description: discounted value iteration for a stationary infinite-horizon problem. The demand and the lambdas
+ *               are the same in every period, so only one period slice of values and actions is kept
+ *               instead of solving a very long horizon.
+ *
+ *               The expected immediate values and the indexes of the next states are computed once, then each sweep
+ *               only reads primitive arrays. JACOBI updates all the states from the last sweep in parallel,
+ *               GAUSS_SEIDEL updates them in order with the newest values. Policy iteration acceleration evaluates
+ *               the greedy policy by some sweeps after each improvement (modified policy iteration).
+ *
+ *               JACOBI stops when the span seminorm of the Bellman update change is below epsilon * (1 - discount) / discount,
+ *               then the greedy policy is epsilon-optimal and the values are shifted to the middle of the MacQueen bounds,
+ *               within epsilon / 2 of the optimal values. The bounds hold for the update of any values, so they stay exact
+ *               after the evaluation sweeps. A GAUSS_SEIDEL sweep is not the Bellman update of the last values and gives no
+ *               such bounds: it stops when the sup norm of the change is below epsilon * (1 - discount) / (2 * discount),
+ *               then the values are within epsilon / 2 of the optimal values without shifting.
+ */
+
+public class StationaryRecursion<S extends State> {
+
+	public enum Method {
+		JACOBI,
+		GAUSS_SEIDEL
+	}
+
+	S[] states;
+	int n;
+	boolean maximize;
+	double discountFactor;
+	int demandNum;
+	double[] possibilities; // possibilities[j] of the demand points
+	double[][] feasibleActions; // feasibleActions[i][a]
+	double[][] rewards; // expected immediate values, rewards[i][a]
+	int[][] nextIndexes; // nextIndexes[i][a * demandNum + j], index of the next state in the grid
+
+	Method method = Method.JACOBI;
+	int evaluationSweeps = 0;
+	int maxIterations = 100000;
+	SolveControl control; // null for no time budget or cancellation
+
+	double[] values;
+	int[] policy; // index of the optimal action of each state
+	int iterations;
+	double span;
+	boolean converged;
+
+	/**
+	 * @param states state grid of one period, next states of the transition must be on the grid
+	 * @param gridComparator order of the states ignoring the period, used to find the next states on the grid
+	 * @param periodPmf demand values and possibilities of every period
+	 * @param maximize whether maximizing the values
+	 * @param getFeasibleActions
+	 * @param stateTransition
+	 * @param immediateValue
+	 * @param discountFactor in (0, 1)
+	 */
+	public StationaryRecursion(S[] states, Comparator<S> gridComparator, double[][] periodPmf, boolean maximize,
+			Function<S, double[]> getFeasibleActions, DoubleStateTransition<S> stateTransition,
+			DoubleImmediateValue<S> immediateValue, double discountFactor) {
+		if (discountFactor <= 0 || discountFactor >= 1)
+			throw new IllegalArgumentException("discount factor should be in (0, 1) for an infinite horizon");
+		this.states = states;
+		this.n = states.length;
+		this.maximize = maximize;
+		this.discountFactor = discountFactor;
+		this.demandNum = periodPmf.length;
+		this.possibilities = new double[demandNum];
+		for (int j = 0; j < demandNum; j++)
+			possibilities[j] = periodPmf[j][1];
+
+		Map<S, Integer> indexes = new TreeMap<>(gridComparator);
+		for (int i = 0; i < n; i++)
+			indexes.put(states[i], i);
+		this.feasibleActions = new double[n][];
+		this.rewards = new double[n][];
+		this.nextIndexes = new int[n][];
+		IntStream.range(0, n).parallel().forEach(i -> {
+			S s = states[i];
+			double[] actions = getFeasibleActions.apply(s);
+			feasibleActions[i] = actions;
+			rewards[i] = new double[actions.length];
+			nextIndexes[i] = new int[actions.length * demandNum];
+			for (int a = 0; a < actions.length; a++) {
+				for (int j = 0; j < demandNum; j++) {
+					double demand = periodPmf[j][0];
+					rewards[i][a] += possibilities[j] * immediateValue.apply(s, actions[a], demand);
+					S nextState = stateTransition.apply(s, actions[a], demand);
+					Integer k = indexes.get(nextState);
+					if (k == null)
+						throw new IllegalArgumentException("next state " + nextState + " is not in the state grid");
+					nextIndexes[i][a * demandNum + j] = k;
+				}
+			}
+		});
+	}
+
+	public void setMethod(Method method) {
+		this.method = method;
+	}
+
+	/**
+	 * @param evaluationSweeps sweeps of the greedy policy after each improvement, 0 for plain value iteration
+	 */
+	public void setEvaluationSweeps(int evaluationSweeps) {
+		this.evaluationSweeps = evaluationSweeps;
+	}
+
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * @param control the iteration stops unconverged when the control is stopped, null for iterating to the end
+	 */
+	public void setControl(SolveControl control) {
+		this.control = control;
+	}
+
+	/**
+	 * @param epsilon optimality gap of the greedy policy
+	 * @return values of the states
+	 */
+	public double[] solve(double epsilon) {
+		double[] v = new double[n];
+		double[] next = new double[n];
+		policy = new int[n];
+		converged = false;
+		double threshold = method == Method.JACOBI ? epsilon * (1 - discountFactor) / discountFactor
+												   : epsilon * (1 - discountFactor) / (2 * discountFactor);
+		for (iterations = 1; iterations <= maxIterations; iterations++) {
+			if (control != null && control.isStopped()) {
+				control.truncated(n);
+				iterations--;
+				break;
+			}
+			if (method == Method.JACOBI) {
+				double[] last = v;
+				double[] updated = next;
+				IntStream.range(0, n).parallel().forEach(i -> updated[i] = improve(i, last));
+			}
+			else {
+				System.arraycopy(v, 0, next, 0, n);
+				for (int i = 0; i < n; i++)
+					next[i] = improve(i, next);
+			}
+
+			double minDiff = Double.MAX_VALUE;
+			double maxDiff = -Double.MAX_VALUE;
+			for (int i = 0; i < n; i++) {
+				minDiff = Math.min(minDiff, next[i] - v[i]);
+				maxDiff = Math.max(maxDiff, next[i] - v[i]);
+			}
+			span = maxDiff - minDiff;
+			double[] temp = v;
+			v = next;
+			next = temp;
+			if (method == Method.JACOBI && span < threshold) {
+				double shift = discountFactor / (1 - discountFactor) * (minDiff + maxDiff) / 2;
+				for (int i = 0; i < n; i++)
+					v[i] += shift;
+				converged = true;
+				break;
+			}
+			if (method == Method.GAUSS_SEIDEL && Math.max(maxDiff, -minDiff) < threshold) {
+				converged = true;
+				break;
+			}
+
+			for (int k = 0; k < evaluationSweeps; k++) {
+				double[] last = v;
+				double[] updated = next;
+				IntStream.range(0, n).parallel().forEach(i -> updated[i] = evaluate(i, policy[i], last));
+				temp = v;
+				v = next;
+				next = temp;
+			}
+		}
+		iterations = Math.min(iterations, maxIterations);
+		this.values = v;
+		return v;
+	}
+
+	/**
+	 * Bellman update of a state, the optimal action is kept in policy
+	 */
+	double improve(int i, double[] v) {
+		double best = maximize ? -Double.MAX_VALUE : Double.MAX_VALUE;
+		for (int a = 0; a < feasibleActions[i].length; a++) {
+			double QValue = evaluate(i, a, v);
+			if (maximize ? QValue > best : QValue < best) {
+				best = QValue;
+				policy[i] = a;
+			}
+		}
+		return best;
+	}
+
+	double evaluate(int i, int a, double[] v) {
+		double QValue = rewards[i][a];
+		int offset = a * demandNum;
+		for (int j = 0; j < demandNum; j++)
+			QValue += possibilities[j] * discountFactor * v[nextIndexes[i][offset + j]];
+		return QValue;
+	}
+
+	public S[] getStates() {
+		return states;
+	}
+
+	public double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * @return optimal actions of the states
+	 */
+	public double[] getActions() {
+		double[] actions = new double[n];
+		for (int i = 0; i < n; i++)
+			actions[i] = feasibleActions[i][policy[i]];
+		return actions;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @return span seminorm of the value change in the last iteration
+	 */
+	public double getSpan() {
+		return span;
+	}
+
+	public boolean isConverged() {
+		return converged;
+	}
+}
@@ -0,0 +1,100 @@
+package sdp.inventory;
+
+import sdp.inventory.ImmediateValue.DoubleImmediateValue;
+import sdp.inventory.Recursion.OptDirection;
+import sdp.inventory.StateTransition.DoubleStateTransition;
+
+/**
+ * @author: Zhen Chen
+ * @email: 15011074486@163.com
+ * @date: Oct 19, 2026---5:46:20 PM
+ * @description: check the value iteration of Recursion.solveStationary against a long finite-horizon Recursion whose
+ *               immediate costs are discounted by the period: JACOBI with and without evaluation sweeps and GAUSS_SEIDEL
+ *               end within epsilon / 2 of the finite-horizon values, a loose epsilon included, so the MacQueen shift
+ *               of JACOBI and the stopping rules are checked, and the greedy actions are those of the first period.
+ *               Throws IllegalStateException at the first failure.
+ */
+
+public class StationaryRecursionTest {
+	static double fixOrderCost = 10;
+	static double variCost = 1;
+	static double holdingCost = 1;
+	static double penaltyCost = 4;
+	static double discountFactor = 0.9;
+	static double minInventory = -10;
+	static double maxInventory = 10;
+	static double maxOrderQuantity = 10;
+	static int T = 250; // discountFactor^T * maximal cost / (1 - discountFactor) is negligible
+
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	}
+
+	/**
+	 * demands 0, 1, ..., 4 of equal possibilities in every period
+	 */
+	static double[][][] pmf() {
+		double[][][] pmf = new double[T][5][2];
+		for (int t = 0; t < T; t++)
+			for (int k = 0; k < 5; k++) {
+				pmf[t][k][0] = k;
+				pmf[t][k][1] = 0.2;
+			}
+		return pmf;
+	}
+
+	static Recursion recursion() {
+		DoubleImmediateValue<State> immediateValue = (s, action, demand) -> {
+			double endInventory = s.getIniInventory() + action - demand;
+			double cost = (action > 0 ? fixOrderCost + variCost * action : 0)
+					+ holdingCost * Math.max(endInventory, 0) + penaltyCost * Math.max(-endInventory, 0);
+			return Math.pow(discountFactor, s.getPeriod() - 1) * cost; // the stationary grid is in period 1
+		};
+		DoubleStateTransition<State> stateTransition = (s, action, demand) ->
+			new State(s.getPeriod() + 1, Math.max(minInventory, s.getIniInventory() + action - demand));
+		return new Recursion(OptDirection.MIN, pmf(), s -> {
+			int actionNum = (int) (Math.min(maxOrderQuantity, maxInventory - s.getIniInventory()) + 1);
+			double[] actions = new double[actionNum];
+			for (int a = 0; a < actionNum; a++)
+				actions[a] = a;
+			return actions;
+		}, stateTransition, immediateValue);
+	}
+
+	public static void main(String[] args) {
+		int n = (int) (maxInventory - minInventory + 1);
+		State[] states = new State[n];
+		for (int i = 0; i < n; i++)
+			states[i] = new State(1, minInventory + i);
+
+		Recursion finite = recursion();
+		double[][] optima = finite.solveAll(states, false);
+		System.out.println("finite horizon of " + T + " periods, value at inventory 0 is " + optima[0][(int) -minInventory]);
+
+		StationaryRecursion.Method[] methods = {StationaryRecursion.Method.JACOBI, StationaryRecursion.Method.JACOBI,
+				StationaryRecursion.Method.GAUSS_SEIDEL};
+		int[] evaluationSweeps = {0, 5, 0};
+		for (double epsilon : new double[] {1, 1e-6}) {
+			int[] iterations = new int[methods.length];
+			for (int m = 0; m < methods.length; m++) {
+				Recursion recursion = recursion();
+				StationaryRecursion<State> stationary = recursion.solveStationary(states, discountFactor, methods[m],
+						evaluationSweeps[m], epsilon);
+				String mode = methods[m] + " with " + evaluationSweeps[m] + " evaluation sweeps, epsilon " + epsilon;
+				check(stationary.isConverged(), mode + " does not converge");
+				double maxError = 0;
+				for (int i = 0; i < n; i++) {
+					maxError = Math.max(maxError, Math.abs(recursion.getExpectedValue(states[i]) - optima[0][i]));
+					if (epsilon < 1)
+						check(recursion.getAction(states[i]) == optima[1][i], mode + " orders "
+								+ recursion.getAction(states[i]) + " at " + states[i] + ", not " + optima[1][i]);
+				}
+				check(maxError <= epsilon / 2, mode + " is " + maxError + " from the finite-horizon values");
+				iterations[m] = stationary.getIterations();
+				System.out.println(mode + ": " + iterations[m] + " iterations, error " + maxError);
+			}
+			check(iterations[1] < iterations[0], "evaluation sweeps do not save improvements");
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package sdp.sampling;
+
+import umontreal.ssj.probdist.NormalDist;
+
+/**
+ * @author chen
+ * @email: okchen321@163.com
+ * @date: 2026 Oct 18, 18:21:07
+ * @desp: a tally of observations y with a control variate c whose mean is known,
+ * the mean of y is estimated by the regression estimator ybar - beta * (cbar - controlMean),
+ * where beta is the least square slope of y on c.
+ *
+ * Sums are kept relative to the first observation to avoid cancellation.
+ *
+ */
+public class ControlVariateTally {
+	int n;
+	double y0, c0;
+	double sumY, sumC, sumYY, sumCC, sumYC;
+	double controlMean;
+
+	/**
+	 * @param controlMean known expectation of the control variate
+	 */
+	public ControlVariateTally(double controlMean) {
+		this.controlMean = controlMean;
+	}
+
+	public void add(double y, double c) {
+		if (n == 0) {
+			y0 = y;
+			c0 = c;
+		}
+		double dy = y - y0;
+		double dc = c - c0;
+		sumY += dy;
+		sumC += dc;
+		sumYY += dy * dy;
+		sumCC += dc * dc;
+		sumYC += dy * dc;
+		n++;
+	}
+
+	public int numberObs() {
+		return n;
+	}
+
+	/**
+	 * @return least square slope of y on the control variate
+	 */
+	public double getBeta() {
+		double sCC = sumCC - sumC * sumC / n;
+		double sYC = sumYC - sumY * sumC / n;
+		return sCC > 0 ? sYC / sCC : 0;
+	}
+
+	/**
+	 * @return control variate estimate of the mean of y
+	 */
+	public double average() {
+		return y0 + sumY / n - getBeta() * (c0 + sumC / n - controlMean);
+	}
+
+	/**
+	 * normal confidence interval of the control variate estimate, with the residual variance of the regression
+	 * @param confidence
+	 * @param centerAndRadius output center and radius
+	 */
+	public void confidenceIntervalNormal(double confidence, double[] centerAndRadius) {
+		double sCC = sumCC - sumC * sumC / n;
+		double sYC = sumYC - sumY * sumC / n;
+		double sYY = sumYY - sumY * sumY / n;
+		double beta = sCC > 0 ? sYC / sCC : 0;
+		double residualVariance = n > 2 ? Math.max(sYY - beta * sYC, 0) / (n - 2) : 0;
+		double cGap = c0 + sumC / n - controlMean;
+		double variance = residualVariance * (1.0 / n + (sCC > 0 ? cGap * cGap / sCC : 0));
+		centerAndRadius[0] = y0 + sumY / n - beta * cGap;
+		centerAndRadius[1] = NormalDist.inverseF01(0.5 + confidence / 2) * Math.sqrt(variance);
+	}
+}
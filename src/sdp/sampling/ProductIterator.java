@@ -0,0 +1,188 @@
+package sdp.sampling;
+
+import java.util.Arrays;
+
+/**
+ * @author chen
+ * @email: okchen321@163.com
+ * @date: 2026 Oct 18, 14:05:21
+ * @desp: an allocation-free iterator over the Cartesian product of some primitive arrays (axes),
+ * e.g., joint ordering quantities of several items.
+ *
+ * The tuple array is reused by the iterator: copy it if it needs to be kept.
+ * The last axis varies fastest, which is the same order as CartesianProduct.product().
+ *
+ */
+public class ProductIterator {
+	double[][] axes;
+	int[] digits;
+	double[] tuple;
+	long size;
+	long index;
+	TuplePredicate filter;
+
+	/**
+	 * a predicate on a primitive tuple, e.g., the cash budget of a joint order
+	 */
+	public interface TuplePredicate {
+		public boolean test(double[] tuple);
+	}
+
+	public ProductIterator(double[]... axes) {
+		this.axes = axes;
+		this.digits = new int[axes.length];
+		this.tuple = new double[axes.length];
+		long num = 1;
+		for (int k = 0; k < axes.length; k++)
+			num = Math.multiplyExact(num, axes[k].length);
+		this.size = num;
+		reset();
+	}
+
+	public ProductIterator(int[]... axes) {
+		this(toDouble(axes));
+	}
+
+	static double[][] toDouble(int[][] axes) {
+		double[][] arr = new double[axes.length][];
+		for (int k = 0; k < axes.length; k++)
+			arr[k] = Arrays.stream(axes[k]).asDoubleStream().toArray();
+		return arr;
+	}
+
+	/**
+	 * @param start
+	 * @param bound exclusive
+	 * @param stepSize
+	 * @return an axis start, start + stepSize, ..., less than bound
+	 */
+	public static double[] range(double start, double bound, double stepSize) {
+		int num = Math.max(0, (int) Math.ceil((bound - start) / stepSize));
+		double[] arr = new double[num];
+		for (int i = 0; i < num; i++)
+			arr[i] = start + i * stepSize;
+		return arr;
+	}
+
+	/**
+	 * @param unitCosts unit cost of each axis
+	 * @param budget available cash
+	 * @return a predicate keeping the tuples whose total cost is within the budget,
+	 *         with the same 0.1 tolerance as the action builders
+	 */
+	public static TuplePredicate withinBudget(double[] unitCosts, double budget) {
+		return tuple -> {
+			double cost = 0;
+			for (int k = 0; k < tuple.length; k++)
+				cost += unitCosts[k] * tuple[k];
+			return cost < budget + 0.1;
+		};
+	}
+
+	/**
+	 * set a filter, tuples not satisfying it are skipped by next()
+	 * @param filter
+	 * @return this iterator
+	 */
+	public ProductIterator filter(TuplePredicate filter) {
+		this.filter = filter;
+		return this;
+	}
+
+	/**
+	 * move back to the position before the first tuple
+	 */
+	public void reset() {
+		index = -1;
+		Arrays.fill(digits, 0);
+	}
+
+	/**
+	 * @return number of tuples in the product, without filtering
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * move to the next tuple satisfying the filter
+	 * @return false if there are no more tuples
+	 */
+	public boolean next() {
+		while (advance()) {
+			if (filter == null || filter.test(tuple))
+				return true;
+		}
+		return false;
+	}
+
+	boolean advance() {
+		if (index + 1 >= size)
+			return false;
+		int changed = 0; // first axis whose digit changes
+		if (index >= 0) {
+			int k = digits.length - 1;
+			while (++digits[k] == axes[k].length) {
+				digits[k] = 0;
+				k--;
+			}
+			changed = k;
+		}
+		index++;
+		for (int k = changed; k < digits.length; k++)
+			tuple[k] = axes[k][digits[k]];
+		return true;
+	}
+
+	/**
+	 * @return current tuple, the array is reused
+	 */
+	public double[] get() {
+		return tuple;
+	}
+
+	/**
+	 * @param k axis
+	 * @return value of axis k in the current tuple
+	 */
+	public double get(int k) {
+		return tuple[k];
+	}
+
+	/**
+	 * @return index of the current tuple in the unfiltered product
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * decode an index of the product into a tuple
+	 * @param index
+	 * @param out output array with one element for each axis
+	 */
+	public void decode(long index, double[] out) {
+		long rest = index;
+		for (int k = axes.length - 1; k >= 0; k--) {
+			out[k] = axes[k][(int) (rest % axes[k].length)];
+			rest /= axes[k].length;
+		}
+	}
+
+	public static void main(String[] args) {
+		double[] variCost = {2, 4};
+		double cash = 10;
+		ProductIterator actions = new ProductIterator(range(0, 5, 1), range(0, 5, 1))
+				.filter(withinBudget(variCost, cash));
+		int num = 0;
+		while (actions.next()) {
+			System.out.println(Arrays.toString(actions.get()));
+			num++;
+		}
+		System.out.println(num + " of " + actions.size() + " joint actions are within the budget");
+
+		double[] out = new double[3];
+		new ProductIterator(new int[] {1776, 1789}, new int[] {7, 12}, new int[] {4, 14, 23}).decode(7, out);
+		System.out.println(Arrays.toString(out));
+	}
+}
@@ -0,0 +1,61 @@
+package sdp.sampling;
+
+/**
+ * @author chen
+ * @email: okchen321@163.com
+ * @date: 2026 Oct 18, 19:02:44
+ * @desp: samples kept in a flat column-major buffer, column c of sample i is buffer[c * sampleNum + i],
+ * e.g., a column is the demand of one item in one period.
+ *
+ * get(i, c) is the same as samples[i][c] of the row-major samples returned by Sampling.
+ *
+ */
+public class SampleColumns {
+	double[] buffer;
+	int sampleNum;
+	int columnNum;
+
+	public SampleColumns(double[] buffer, int sampleNum, int columnNum) {
+		this.buffer = buffer;
+		this.sampleNum = sampleNum;
+		this.columnNum = columnNum;
+	}
+
+	/**
+	 * @param samples row-major samples, samples[i][c]
+	 * @return the samples copied into a column-major buffer
+	 */
+	public static SampleColumns ofRows(double[][] samples) {
+		int sampleNum = samples.length;
+		int columnNum = sampleNum > 0 ? samples[0].length : 0;
+		double[] buffer = new double[sampleNum * columnNum];
+		for (int i = 0; i < sampleNum; i++)
+			for (int c = 0; c < columnNum; c++)
+				buffer[c * sampleNum + i] = samples[i][c];
+		return new SampleColumns(buffer, sampleNum, columnNum);
+	}
+
+	public int getSampleNum() {
+		return sampleNum;
+	}
+
+	public int getColumnNum() {
+		return columnNum;
+	}
+
+	/**
+	 * @param i sample index
+	 * @param c column index
+	 * @return value of column c in sample i
+	 */
+	public double get(int i, int c) {
+		return buffer[c * sampleNum + i];
+	}
+
+	/**
+	 * @return the flat column-major buffer, shared with this object
+	 */
+	public double[] getBuffer() {
+		return buffer;
+	}
+}
@@ -1,7 +1,13 @@
 package sdp.sampling;
 
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
+import umontreal.ssj.hups.KorobovLattice;
+import umontreal.ssj.hups.PointSet;
+import umontreal.ssj.hups.PointSetIterator;
+import umontreal.ssj.hups.RandomShift;
+import umontreal.ssj.hups.SobolSequence;
 import umontreal.ssj.probdist.Distribution;
 import umontreal.ssj.probdist.NormalDist;
 import umontreal.ssj.probdist.PoissonDist;
@@ -12,6 +18,7 @@ import umontreal.ssj.rng.MRG31k3p;
 import umontreal.ssj.rng.MRG32k3a;
 import umontreal.ssj.rng.MRG32k3aL;
 import umontreal.ssj.rng.RandomStream;
+import umontreal.ssj.stat.Tally;
 
 /** 
 * @author chen zhen 
@@ -75,13 +82,31 @@ public class Sampling {
 		return sample;
 	}
 	
+	/**
+	 * 
+	 * @param distributions
+	 * 
+	 * @return an antithetic pair of demand samples, the second one uses 1 - u of the uniform numbers of the first one
+	 */
+	public double[][] getNextAntitheticSamples(Distribution[] distributions) {
+		int periodNum = distributions.length;
+		double[][] samples = new double[2][periodNum];
+		UniformGen uniform = new UniformGen(stream);
+		for (int i = 0; i < periodNum; i++) {
+			double u = uniform.nextDouble();
+			samples[0][i] = distributions[i].inverseF(u);
+			samples[1][i] = distributions[i].inverseF(1 - u);
+		}
+		return samples;
+	}
+	
 	
 
 	/** latin hypercube sampling
 	 * @param distributions
 	 * @param sampleNum
 	 * @param t
-	 * @return a 2D random samples for two items in a period t, very slow for multi products
+	 * @return a 2D random samples for two items in a period t, very slow for multi products, see generateLHSColumns
 	 * @date: Apr 29, 2020, 12:04:34 PM 
 	 */
 	public double[][] generateLHSamples(Distribution[][] distributions, int sampleNum){
@@ -266,6 +291,276 @@ public class Sampling {
 		return samples;
 	}
 	
+	/**
+	 * sampling methods that can be selected by the simulators
+	 */
+	public enum SampleMethod {
+		LHS, // latin hypercube sampling
+		SOBOL, // randomized quasi-Monte Carlo by a Sobol net with a random digital shift
+		LATTICE // randomized quasi-Monte Carlo by a Korobov lattice with a random shift
+	}
+	
+	/** randomized quasi-Monte Carlo points, every call draws a new random shift of the point set from the stream,
+	 * so calls without resetting the stream in between give independent and unbiased sample means;
+	 * the points of one call are not independent, see generateReplicates for confidence intervals
+	 * 
+	 * @param sampleNum number of points, a power of 2 is better for SOBOL
+	 * @param dim dimension of each point
+	 * @param method SOBOL or LATTICE
+	 * @return sampleNum points in [0, 1)^dim
+	 */
+	public double[][] generateRQMCPoints(int sampleNum, int dim, SampleMethod method){
+		PointSet pointSet;
+		if (method == SampleMethod.LATTICE)
+			pointSet = new KorobovLattice(sampleNum, korobovGenerator(sampleNum), dim);
+		else 
+			pointSet = new SobolSequence(sampleNum, dim);
+		new RandomShift(stream).randomize(pointSet);
+		
+		double[][] points = new double[sampleNum][dim];
+		PointSetIterator iterator = pointSet.iterator();
+		for (int i = 0; i < sampleNum; i++) 
+			iterator.nextPoint(points[i], dim);
+		return points;
+	}
+	
+	/**
+	 * @param n
+	 * @return a generator coprime with n near n / golden ratio, like the Fibonacci lattices
+	 */
+	static int korobovGenerator(int n) {
+		int a = Math.max(1, (int) Math.round(n * 0.6180339887498949));
+		while (a > 1 && gcd(a, n) != 1)
+			a--;
+		return a;
+	}
+	
+	static int gcd(int a, int b) {
+		return b == 0 ? a : gcd(b, a % b);
+	}
+	
+	/** 
+	 * @param distributions
+	 * @param sampleNum
+	 * @param method
+	 * @return a 2D samples by the sampling method, same layout as generateLHSamples
+	 */
+	public double[][] generateSamples(Distribution[] distributions, int sampleNum, SampleMethod method){
+		if (method == SampleMethod.LHS)
+			return generateLHSamples(distributions, sampleNum);
+		int periodNum = distributions.length;
+		double[][] samples = generateRQMCPoints(sampleNum, periodNum, method);
+		for (int j = 0; j < sampleNum; j++)
+			for (int i = 0; i < periodNum; i++)
+				samples[j][i] = distributions[i].inverseF(samples[j][i]);
+		return samples;
+	}
+	
+	/** 
+	 * independent randomizations of the samples: randomization r is drawn from the r-th substream after the current 
+	 * position of the stream, which is at the next substream after the call. Resetting the stream before the call 
+	 * gives the same replicates, and calls in sequence give new ones.
+	 * 
+	 * @param distributions
+	 * @param sampleNum number of samples in each randomization
+	 * @param method
+	 * @param replicateNum number of randomizations
+	 * @return samples[r] of randomization r, same layout as generateSamples
+	 */
+	public double[][][] generateReplicates(Distribution[] distributions, int sampleNum, SampleMethod method, int replicateNum){
+		double[][][] samples = new double[replicateNum][][];
+		for (int r = 0; r < replicateNum; r++) {
+			samples[r] = generateSamples(distributions, sampleNum, method);
+			resetNextSubstream(); // a new random shift for the next randomization
+		}
+		return samples;
+	}
+	
+	/**
+	 * confidence interval of the mean by independent replicates, e.g., randomized quasi-Monte Carlo whose points 
+	 * in one randomization are not independent
+	 * 
+	 * @param replicateMeans sample means of at least 2 independent replicates
+	 * @param confidence
+	 * @return center and radius of the student confidence interval
+	 */
+	public static double[] replicateConfidenceInterval(double[] replicateMeans, double confidence){
+		if (replicateMeans.length < 2)
+			throw new IllegalArgumentException("a confidence interval needs at least 2 replicates");
+		Tally tally = new Tally();
+		for (double mean : replicateMeans)
+			tally.add(mean);
+		double[] centerAndRadius = new double[2];
+		tally.confidenceIntervalStudent(confidence, centerAndRadius);
+		return centerAndRadius;
+	}
+	
+	/** 
+	 * @param distributions distributions[j][t] of item j in period t
+	 * @param sampleNum
+	 * @param method
+	 * @return a 2D samples by the sampling method, same layout and rounding as generateLHSamples
+	 */
+	public double[][] generateSamples(Distribution[][] distributions, int sampleNum, SampleMethod method){
+		if (method == SampleMethod.LHS)
+			return generateLHSamples(distributions, sampleNum);
+		int itemNum = distributions.length;		
+		int T = distributions[0].length;
+		double[][] samples = generateRQMCPoints(sampleNum, itemNum * T, method);
+		for (int i = 0; i < sampleNum; i++)
+			for (int j = 0; j < itemNum; j++)
+				for (int t = 0; t < T; t++) 
+					samples[i][j + t * itemNum] = Math.round(distributions[j][t].inverseF(samples[i][j + t * itemNum]) * 1.0) / 1.0;
+		return samples;
+	}
+	
+	/** 
+	 * @param distributions distributions[t][j] of item j in period t
+	 * @param sampleNum
+	 * @param method
+	 * @return a 2D samples by the sampling method, same layout as generateLHSamplesMulti
+	 */
+	public double[][] generateSamplesMulti(Distribution[][] distributions, int sampleNum, SampleMethod method){
+		if (method == SampleMethod.LHS)
+			return generateLHSamplesMulti(distributions, sampleNum);
+		int periodNum = distributions.length;
+		double[][] samples = generateRQMCPoints(sampleNum, periodNum * 2, method);
+		for (int j = 0; j < sampleNum; j++)
+			for (int i = 0; i < periodNum; i++) {
+				samples[j][i] = distributions[i][0].inverseF(samples[j][i]);
+				samples[j][i + periodNum] = distributions[i][1].inverseF(samples[j][i + periodNum]);
+			}
+		return samples;
+	}
+	
+	/** 
+	 * the two variables of a binormal distribution are independent, as in generateLHSamples
+	 * @param distributions
+	 * @param sampleNum
+	 * @param method
+	 * @return a 2D samples by the sampling method, same layout as generateLHSamples
+	 */
+	public double[][] generateSamples(BiNormalDist[] distributions, int sampleNum, SampleMethod method){
+		if (method == SampleMethod.LHS)
+			return generateLHSamples(distributions, sampleNum);
+		int periodNum = distributions.length;
+		double[][] samples = generateRQMCPoints(sampleNum, periodNum * 2, method);
+		for (int i = 0; i < periodNum; i++) {
+			NormalDist distribution1 = new NormalDist(distributions[i].getMu1(), distributions[i].getSigma1());
+			NormalDist distribution2 = new NormalDist(distributions[i].getMu2(), distributions[i].getSigma2());
+			for (int j = 0; j < sampleNum; j++) {
+				samples[j][i] = distribution1.inverseF(samples[j][i]);
+				samples[j][i + periodNum] = distribution2.inverseF(samples[j][i + periodNum]);
+			}
+		}
+		return samples;
+	}
+	
+	/** latin hypercube sampling of independent columns into a flat column-major buffer, much faster than 
+	 * generateLHSamples for multi products: each column has one stratified uniform number in every [i/n, (i+1)/n]
+	 * and is shuffled by one random permutation. The uniform numbers are drawn in sequence from the stream, 
+	 * then the percent point functions of the columns are computed in parallel.
+	 * 
+	 * @param columnDistributions distribution of each column, e.g., one item in one period
+	 * @param sampleNum
+	 * @param round whether rounding the samples to integers
+	 * @return column-major samples
+	 */
+	public SampleColumns generateLHSColumns(Distribution[] columnDistributions, int sampleNum, boolean round){
+		int columnNum = columnDistributions.length;
+		double[] buffer = new double[columnNum * sampleNum];
+		for (int c = 0; c < columnNum; c++) {
+			int start = c * sampleNum;
+			for (int j = 0; j < sampleNum; j++) 
+				buffer[start + j] = (double) j / (double) sampleNum + UniformGen.nextDouble(stream, 0, 1.0/sampleNum);
+			for (int j = sampleNum - 1; j > 0; j--) { // Fisher-Yates shuffle of the column
+				int mark = UniformIntGen.nextInt(stream, 0, j);
+				double temp = buffer[start + j];
+				buffer[start + j] = buffer[start + mark];
+				buffer[start + mark] = temp;
+			}
+		}
+		IntStream.range(0, columnNum).parallel().forEach(c -> {
+			for (int j = c * sampleNum; j < (c + 1) * sampleNum; j++) {
+				double sample = columnDistributions[c].inverseF(buffer[j]);
+				buffer[j] = round ? Math.round(sample) : sample;
+			}
+		});
+		return new SampleColumns(buffer, sampleNum, columnNum);
+	}
+	
+	/** 
+	 * @param distributions distributions[j][t] of item j in period t
+	 * @param sampleNum
+	 * @return column-major samples, column j + t * itemNum is item j in period t, rounded as generateLHSamples
+	 */
+	public SampleColumns generateLHSColumns(Distribution[][] distributions, int sampleNum){
+		int itemNum = distributions.length;		
+		int T = distributions[0].length;
+		Distribution[] columnDistributions = new Distribution[itemNum * T];
+		for (int j = 0; j < itemNum; j++)
+			for (int t = 0; t < T; t++) 
+				columnDistributions[j + t * itemNum] = distributions[j][t];
+		return generateLHSColumns(columnDistributions, sampleNum, true);
+	}
+	
+	/** 
+	 * @param distributions distributions[t][j] of item j in period t
+	 * @param sampleNum
+	 * @return column-major samples, column t + j * T is item j in period t, same as generateLHSamplesMulti
+	 */
+	public SampleColumns generateLHSColumnsMulti(Distribution[][] distributions, int sampleNum){
+		int T = distributions.length;	
+		int itemNum = distributions[0].length;
+		Distribution[] columnDistributions = new Distribution[itemNum * T];
+		for (int j = 0; j < itemNum; j++)
+			for (int t = 0; t < T; t++) 
+				columnDistributions[t + j * T] = distributions[t][j];
+		return generateLHSColumns(columnDistributions, sampleNum, false);
+	}
+	
+	/** 
+	 * @param distributions
+	 * @param sampleNum
+	 * @return column-major samples, column t and t + T are the two independent variables in period t
+	 */
+	public SampleColumns generateLHSColumns(BiNormalDist[] distributions, int sampleNum){
+		int T = distributions.length;	
+		Distribution[] columnDistributions = new Distribution[2 * T];
+		for (int t = 0; t < T; t++) {
+			columnDistributions[t] = new NormalDist(distributions[t].getMu1(), distributions[t].getSigma1());
+			columnDistributions[t + T] = new NormalDist(distributions[t].getMu2(), distributions[t].getSigma2());
+		}
+		return generateLHSColumns(columnDistributions, sampleNum, false);
+	}
+	
+	/** 
+	 * @return column-major samples by the sampling method, same columns as generateSamples
+	 */
+	public SampleColumns generateColumns(Distribution[][] distributions, int sampleNum, SampleMethod method){
+		if (method == SampleMethod.LHS)
+			return generateLHSColumns(distributions, sampleNum);
+		return SampleColumns.ofRows(generateSamples(distributions, sampleNum, method));
+	}
+	
+	/** 
+	 * @return column-major samples by the sampling method, same columns as generateSamplesMulti
+	 */
+	public SampleColumns generateColumnsMulti(Distribution[][] distributions, int sampleNum, SampleMethod method){
+		if (method == SampleMethod.LHS)
+			return generateLHSColumnsMulti(distributions, sampleNum);
+		return SampleColumns.ofRows(generateSamplesMulti(distributions, sampleNum, method));
+	}
+	
+	/** 
+	 * @return column-major samples by the sampling method, same columns as generateSamples
+	 */
+	public SampleColumns generateColumns(BiNormalDist[] distributions, int sampleNum, SampleMethod method){
+		if (method == SampleMethod.LHS)
+			return generateLHSColumns(distributions, sampleNum);
+		return SampleColumns.ofRows(generateSamples(distributions, sampleNum, method));
+	}
+	
 	/** shuffle a 2D array
 	 * 
 	 */
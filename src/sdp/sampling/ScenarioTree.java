@@ -0,0 +1,319 @@
+package sdp.sampling;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author chen
+ * @email: okchen321@163.com
+ * @date: 2026 Oct 18, 10:12:40
+ * @desp: a scenario tree whose stage t has branchNums[t] branches, every path of the tree
+ * is enumerated lazily by a mixed-radix counter over a primitive int array instead of
+ * materializing all the paths (the number of paths is the product of the branch numbers).
+ *
+ * The first stage is the most significant digit, so the path order is the same as
+ * the order of CartesianProduct.product().
+ *
+ */
+public class ScenarioTree {
+	int T;
+	int[] branchNums;
+	double[][] probabilities; // probabilities[t][k] is the possibility of branch k in stage t
+	long[] strides; // strides[t] is the number of paths under one node of stage t
+	long pathNum;
+
+	/**
+	 * @param probabilities branch possibilities of each stage, stages can have different branch numbers
+	 */
+	public ScenarioTree(double[][] probabilities) {
+		this.T = probabilities.length;
+		this.probabilities = probabilities;
+		this.branchNums = new int[T];
+		this.strides = new long[T];
+		long num = 1;
+		for (int t = T - 1; t >= 0; t--) {
+			branchNums[t] = probabilities[t].length;
+			strides[t] = num;
+			num = Math.multiplyExact(num, branchNums[t]);
+		}
+		this.pathNum = num;
+	}
+
+	/**
+	 * @param probabilities branch possibilities that are same for all the stages
+	 * @param T stage number
+	 */
+	public ScenarioTree(double[] probabilities, int T) {
+		this(repeat(probabilities, T));
+	}
+
+	/**
+	 * @param branchNums branch number of each stage, each branch in a stage is equally possible,
+	 *                   e.g., samples of SAA
+	 * @return a scenario tree with equal branch possibilities in each stage
+	 */
+	public static ScenarioTree uniform(int[] branchNums) {
+		double[][] probabilities = new double[branchNums.length][];
+		for (int t = 0; t < branchNums.length; t++) {
+			probabilities[t] = new double[branchNums[t]];
+			Arrays.fill(probabilities[t], 1.0 / branchNums[t]);
+		}
+		return new ScenarioTree(probabilities);
+	}
+
+	static double[][] repeat(double[] probabilities, int T) {
+		double[][] arr = new double[T][];
+		Arrays.fill(arr, probabilities);
+		return arr;
+	}
+
+	public int getStageNum() {
+		return T;
+	}
+
+	public int getBranchNum(int t) {
+		return branchNums[t];
+	}
+
+	/**
+	 * @return total number of paths (scenarios) in the tree
+	 */
+	public long size() {
+		return pathNum;
+	}
+
+	/**
+	 * @param index path index
+	 * @param t stage
+	 * @return branch index of the path in stage t, without decoding the whole path
+	 */
+	public int branchIndex(long index, int t) {
+		return (int) ((index / strides[t]) % branchNums[t]);
+	}
+
+	/**
+	 * decode a path index into the branch index of each stage
+	 * @param index path index
+	 * @param path output array with length T
+	 */
+	public void decode(long index, int[] path) {
+		long rest = index;
+		for (int t = T - 1; t >= 0; t--) {
+			path[t] = (int) (rest % branchNums[t]);
+			rest /= branchNums[t];
+		}
+	}
+
+	/**
+	 * @param path branch index of each stage
+	 * @return index of the path
+	 */
+	public long encode(int[] path) {
+		long index = 0;
+		for (int t = 0; t < T; t++)
+			index += path[t] * strides[t];
+		return index;
+	}
+
+	/**
+	 * @param path branch index of each stage
+	 * @return possibility of the path
+	 */
+	public double probability(int[] path) {
+		double p = 1;
+		for (int t = 0; t < T; t++)
+			p *= probabilities[t][path[t]];
+		return p;
+	}
+
+	/**
+	 * @param index path index
+	 * @return possibility of the path
+	 */
+	public double probability(long index) {
+		double p = 1;
+		long rest = index;
+		for (int t = T - 1; t >= 0; t--) {
+			p *= probabilities[t][(int) (rest % branchNums[t])];
+			rest /= branchNums[t];
+		}
+		return p;
+	}
+
+	/**
+	 * @return a cursor positioned before the first path
+	 */
+	public Cursor cursor() {
+		return new Cursor(0, pathNum);
+	}
+
+	/**
+	 * @return a spliterator over all the paths, the path object given to the action is reused
+	 * by the spliterator and must be copied if it is kept
+	 */
+	public Spliterator<Cursor> spliterator() {
+		return new PathSpliterator(0, pathNum);
+	}
+
+	/**
+	 * @param parallel whether using parallel computation
+	 * @return a stream over all the paths, each path object is a reused cursor
+	 */
+	public Stream<Cursor> stream(boolean parallel) {
+		return StreamSupport.stream(spliterator(), parallel);
+	}
+
+
+	/**
+	 * a mutable view of the current path of a counter,
+	 * prefix products of possibilities are kept so that moving to the next path only
+	 * recomputes the stages whose digit changes
+	 */
+	public class Cursor {
+		long index;
+		long end;
+		int[] path = new int[T];
+		double[] prefixProb = new double[T + 1]; // prefixProb[t + 1] is the possibility of the first t + 1 stages
+		boolean started = false;
+
+		Cursor(long start, long end) {
+			this.index = start;
+			this.end = end;
+			decode(start, path);
+			prefixProb[0] = 1;
+			for (int t = 0; t < T; t++)
+				prefixProb[t + 1] = prefixProb[t] * probabilities[t][path[t]];
+		}
+
+		/**
+		 * move to the next path
+		 * @return false if there are no more paths
+		 */
+		public boolean next() {
+			if (!started) {
+				started = true;
+				return index < end;
+			}
+			if (index + 1 >= end)
+				return false;
+			index++;
+			int t = T - 1;
+			while (t >= 0 && ++path[t] == branchNums[t]) {
+				path[t] = 0;
+				t--;
+			}
+			for (int k = Math.max(t, 0); k < T; k++)
+				prefixProb[k + 1] = prefixProb[k] * probabilities[k][path[k]];
+			return true;
+		}
+
+		public long getIndex() {
+			return index;
+		}
+
+		/**
+		 * @param t stage
+		 * @return branch index in stage t of the current path
+		 */
+		public int getBranch(int t) {
+			return path[t];
+		}
+
+		/**
+		 * @return branch indexes of the current path, the array is reused
+		 */
+		public int[] getPath() {
+			return path;
+		}
+
+		/**
+		 * @return possibility of the current path
+		 */
+		public double getProbability() {
+			return prefixProb[T];
+		}
+
+		/**
+		 * @param t stage
+		 * @return possibility of the current path up to stage t (inclusive)
+		 */
+		public double getProbability(int t) {
+			return prefixProb[t + 1];
+		}
+
+		@Override
+		public String toString() {
+			return "index = " + index + ", path = " + Arrays.toString(path) + ", possibility = " + prefixProb[T];
+		}
+	}
+
+
+	class PathSpliterator implements Spliterator<Cursor> {
+		long start;
+		long end;
+		Cursor cursor;
+
+		PathSpliterator(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Cursor> action) {
+			if (cursor == null)
+				cursor = new Cursor(start, end);
+			if (!cursor.next())
+				return false;
+			start = cursor.index + 1;
+			action.accept(cursor);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Cursor> action) {
+			if (cursor == null)
+				cursor = new Cursor(start, end);
+			while (cursor.next())
+				action.accept(cursor);
+			start = end;
+		}
+
+		@Override
+		public Spliterator<Cursor> trySplit() {
+			if (cursor != null) // already traversing
+				return null;
+			long mid = (start + end) >>> 1;
+			if (mid <= start)
+				return null;
+			PathSpliterator prefix = new PathSpliterator(start, mid);
+			this.start = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - start;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+	}
+
+
+	public static void main(String[] args) {
+		double[] possiblities = {0.105, 0.341, 0.330, 0.106, 0.119};
+		ScenarioTree tree = new ScenarioTree(possiblities, 6);
+		System.out.println("path number is: " + tree.size());
+		double pSum = tree.stream(true).mapToDouble(Cursor::getProbability).sum();
+		System.out.println("sum of path possibilities is: " + pSum);
+
+		Cursor cursor = ScenarioTree.uniform(new int[] {2, 2, 3}).cursor();
+		while (cursor.next())
+			System.out.println(cursor);
+	}
+}
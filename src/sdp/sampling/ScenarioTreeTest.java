@@ -0,0 +1,63 @@
+package sdp.sampling;
+
+import java.util.Arrays;
+
+/**
+ * @author chen
+ * @email: okchen321@163.com
+ * @date: 2026 Oct 19, 17:24:10
+ * @desp: check ScenarioTree on trees with equal and with different branch numbers: decode and encode
+ * are inverse, branchIndex agrees with decode, the cursor visits the paths in index order with the
+ * possibilities of probability(), and the path possibilities sum to 1.
+ * Throws IllegalStateException at the first failure.
+ *
+ */
+public class ScenarioTreeTest {
+
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	}
+
+	static void checkTree(ScenarioTree tree) {
+		int T = tree.getStageNum();
+		long pathNum = 1;
+		for (int t = 0; t < T; t++)
+			pathNum *= tree.getBranchNum(t);
+		check(tree.size() == pathNum, "the tree has " + tree.size() + " paths, not " + pathNum);
+
+		int[] path = new int[T];
+		double pSum = 0;
+		ScenarioTree.Cursor cursor = tree.cursor();
+		for (long index = 0; index < tree.size(); index++) {
+			tree.decode(index, path);
+			check(tree.encode(path) == index, "path " + Arrays.toString(path) + " is encoded to " + tree.encode(path) + ", not " + index);
+			for (int t = 0; t < T; t++)
+				check(path[t] >= 0 && path[t] < tree.getBranchNum(t) && tree.branchIndex(index, t) == path[t],
+						"branch of path " + index + " in stage " + t + " is " + tree.branchIndex(index, t) + ", decoded " + path[t]);
+			check(cursor.next() && cursor.getIndex() == index && Arrays.equals(cursor.getPath(), path),
+					"the cursor is at " + cursor + ", not at path " + index);
+			double p = tree.probability(index);
+			check(Math.abs(p - tree.probability(path)) < 1e-15 && Math.abs(p - cursor.getProbability()) < 1e-15,
+					"possibilities of path " + index + " differ");
+			pSum += p;
+		}
+		check(!cursor.next(), "the cursor goes beyond the last path");
+		check(Math.abs(pSum - 1) < 1e-9, "path possibilities sum to " + pSum);
+		double streamSum = tree.stream(true).mapToDouble(ScenarioTree.Cursor::getProbability).sum();
+		check(Math.abs(streamSum - 1) < 1e-9, "path possibilities of the parallel stream sum to " + streamSum);
+		check(tree.stream(true).count() == tree.size(), "the parallel stream does not visit every path once");
+	}
+
+	public static void main(String[] args) {
+		double[] possiblities = {0.105, 0.341, 0.330, 0.106, 0.118};
+		ScenarioTree sameBranches = new ScenarioTree(possiblities, 4);
+		checkTree(sameBranches);
+		System.out.println(sameBranches.size() + " paths of a tree with " + possiblities.length + " branches in every stage are checked");
+
+		ScenarioTree differentBranches = new ScenarioTree(new double[][] {{0.2, 0.8}, {1}, {0.5, 0.3, 0.2}, {0.25, 0.25, 0.25, 0.25}});
+		checkTree(differentBranches);
+		checkTree(ScenarioTree.uniform(new int[] {3, 1, 2}));
+		System.out.println(differentBranches.size() + " paths of a tree with different branch numbers are checked");
+	}
+}